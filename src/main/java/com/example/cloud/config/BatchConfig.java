@@ -0,0 +1,53 @@
+package com.example.cloud.config;
+
+import com.example.cloud.model.properties.BatchProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class BatchConfig {
+
+    /**
+     * Runs the items of interactive batch requests. The queue is bounded, and a full queue rejects new batches
+     * rather than letting one user pile up work in front of everyone else.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService batchOperationExecutor(BatchProperties properties, MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                properties.getMoveConcurrency(),
+                properties.getMoveConcurrency(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("batch-operation-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "batch.operation");
+    }
+
+    /**
+     * Runs index updates and backfills, kept apart from {@link #batchOperationExecutor} so background work never
+     * delays interactive requests. Work rejected by a full queue is picked up again by the owning job.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService backgroundTaskExecutor(BatchProperties properties, MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                properties.getBackgroundConcurrency(),
+                properties.getBackgroundConcurrency(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getBackgroundQueueCapacity()),
+                new CustomizableThreadFactory("background-task-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, "background.task");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.cloud.config;
+
+import com.example.cloud.model.properties.DownloadProperties;
+import com.example.cloud.util.StreamTransfer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class DownloadConfig implements WebMvcConfigurer {
+
+    private final DownloadProperties properties;
+
+    @Bean
+    public StreamTransfer streamTransfer() {
+        return new StreamTransfer(properties.getBufferSize(), properties.getAsyncThreads());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor downloadTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("download-");
+        executor.setCorePoolSize(properties.getAsyncThreads());
+        executor.setMaxPoolSize(properties.getAsyncThreads());
+        executor.setQueueCapacity(properties.getAsyncThreads() * 4);
+        executor.setAllowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(downloadTaskExecutor());
+        configurer.setDefaultTimeout(properties.getAsyncTimeout().toMillis());
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.cloud.config;
+
+import com.example.cloud.service.minio.KeyLayoutMigrationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Operator tool for key layout migrations. Not exposed over HTTP unless added to
+ * {@code management.endpoints.web.exposure.include}, which should only be done behind an internal management port.
+ */
+@Component
+@Endpoint(id = "keylayout")
+@RequiredArgsConstructor
+public class KeyLayoutEndpoint {
+
+    private final KeyLayoutMigrationService keyLayoutMigrationService;
+
+    @ReadOperation
+    public Map<String, Object> status(@Selector Long userId) {
+        return keyLayoutMigrationService.status(userId);
+    }
+
+    @WriteOperation
+    public Map<String, Object> migrate(@Selector Long userId, String layout) {
+        keyLayoutMigrationService.migrate(userId, layout);
+        return keyLayoutMigrationService.status(userId);
+    }
+}
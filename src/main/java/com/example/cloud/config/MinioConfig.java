@@ -1,6 +1,7 @@
 package com.example.cloud.config;
 
 import com.example.cloud.model.properties.MinioProperties;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
@@ -10,13 +11,34 @@ import org.springframework.context.annotation.Configuration;
 @RequiredArgsConstructor
 public class MinioConfig {
 
+    /**
+     * Appended to the client's User-Agent so bucket notifications caused by this application can be told apart.
+     */
+    public static final String APP_NAME = "cloud-app";
+    public static final String APP_VERSION = "1";
+
     private final MinioProperties properties;
 
     @Bean
     public MinioClient minioClient() {
-        return MinioClient.builder()
+        MinioClient client = MinioClient.builder()
+                .endpoint(properties.getUrl())
+                .credentials(properties.getAccessKey(), properties.getSecretKey())
+                .build();
+        client.setAppInfo(APP_NAME, APP_VERSION);
+        return client;
+    }
+
+    /**
+     * Used for the S3 calls the blocking client does not expose, such as listing and aborting multipart uploads.
+     */
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        MinioAsyncClient client = MinioAsyncClient.builder()
                 .endpoint(properties.getUrl())
                 .credentials(properties.getAccessKey(), properties.getSecretKey())
                 .build();
+        client.setAppInfo(APP_NAME, APP_VERSION);
+        return client;
     }
 }
@@ -1,11 +1,53 @@
 package com.example.cloud.config;
 
 
+import com.example.cloud.model.properties.ChangeFeedProperties;
+import com.example.cloud.model.properties.SessionNearCacheProperties;
+import com.example.cloud.security.session.NearCacheSessionRepository;
+import com.example.cloud.service.ChangeFeedService;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.session.data.redis.RedisSessionRepository;
 import org.springframework.session.data.redis.config.annotation.web.http.EnableRedisHttpSession;
 
+import java.nio.charset.StandardCharsets;
+
 
 @Configuration
 @EnableRedisHttpSession(maxInactiveIntervalInSeconds = 3600)
 public class RedisConfig {
+
+    @Bean
+    @Primary
+    public NearCacheSessionRepository nearCacheSessionRepository(RedisSessionRepository sessionRepository,
+                                                                 SessionNearCacheProperties properties,
+                                                                 StringRedisTemplate redisTemplate,
+                                                                 ObservationRegistry observationRegistry) {
+        return new NearCacheSessionRepository(sessionRepository, properties, redisTemplate, observationRegistry);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       NearCacheSessionRepository sessionRepository,
+                                                                       SessionNearCacheProperties properties,
+                                                                       ChangeFeedService changeFeedService,
+                                                                       ChangeFeedProperties changeFeedProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> sessionRepository.evictLocally(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(properties.getInvalidationChannel()));
+        container.addMessageListener(
+                (message, pattern) -> changeFeedService.onNotification(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(changeFeedProperties.getNotificationChannel()));
+        return container;
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.cloud.config;
+
+import com.example.cloud.config.StartupConfig.NativeHints;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Start-up settings that apply when {@code spring.main.lazy-initialization} is on (the {@code prod} profile),
+ * and reflection hints for ahead-of-time processing and native images.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHints.class)
+public class StartupConfig {
+
+    /**
+     * Scheduled methods are only registered when their bean is created, so a lazy bean with {@code @Scheduled}
+     * would not run until some request happened to need it. Such beans stay eager.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> hasScheduledMethods(beanType);
+    }
+
+    static boolean hasScheduledMethods(Class<?> beanType) {
+        AtomicBoolean scheduled = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(ClassUtils.getUserClass(beanType), method -> scheduled.set(true),
+                method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                        || AnnotatedElementUtils.hasAnnotation(method, Schedules.class));
+        return scheduled.get();
+    }
+
+    /**
+     * JSON types that are not reachable from controller signatures, such as the error body written by filters,
+     * and the MinIO client's XML messages, which it binds by reflection. Lombok output is plain bytecode and needs nothing beyond what binding already registers.
+     */
+    static class NativeHints implements RuntimeHintsRegistrar {
+
+        private static final String[] BINDING_PACKAGES = {
+                "com.example.cloud.model.dto",
+                "com.example.cloud.model.event"
+        };
+        private static final String MINIO_MESSAGES = "io.minio.messages";
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+            for (String basePackage : BINDING_PACKAGES) {
+                forEachClass(basePackage, classLoader, type -> binding.registerReflectionHints(hints.reflection(), type));
+            }
+            forEachClass(MINIO_MESSAGES, classLoader, type -> hints.reflection().registerType(type,
+                    MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS));
+        }
+
+        private static void forEachClass(String basePackage, ClassLoader classLoader, Consumer<Class<?>> action) {
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+                @Override
+                protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                    return true;
+                }
+            };
+            scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+            scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                action.accept(ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader));
+            }
+        }
+    }
+}
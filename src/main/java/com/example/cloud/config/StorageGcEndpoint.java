@@ -0,0 +1,33 @@
+package com.example.cloud.config;
+
+import com.example.cloud.service.minio.StorageGarbageCollector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Shows what the last storage garbage collection reclaimed and runs one on demand. Like {@code keylayout}, it is
+ * not exposed over HTTP unless added to {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "storagegc")
+@RequiredArgsConstructor
+public class StorageGcEndpoint {
+
+    private final StorageGarbageCollector storageGarbageCollector;
+
+    @ReadOperation
+    public Map<String, Object> lastReport() {
+        StorageGarbageCollector.Report report = storageGarbageCollector.lastReport();
+        return report != null ? report.toMap() : Map.of();
+    }
+
+    @WriteOperation
+    public Map<String, Object> run() {
+        return storageGarbageCollector.run().toMap();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cloud.config;
+
+import com.example.cloud.tracing.ObservedJacksonHttpMessageConverter;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class TracingConfig implements WebMvcConfigurer {
+
+    private final ObservationRegistry observationRegistry;
+
+    public TracingConfig(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter jackson
+                    && !(jackson instanceof ObservedJacksonHttpMessageConverter)) {
+                converters.set(i, new ObservedJacksonHttpMessageConverter(jackson.getObjectMapper(), observationRegistry));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.cloud.controller;
+
+import com.example.cloud.model.dto.response.ChangesResponseDto;
+import com.example.cloud.service.ChangeFeedService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static com.example.cloud.util.UserContext.getCurrentUserId;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+@Tag(name = "Change Controller", description = "Incremental sync API")
+public class ChangeController {
+
+    private final ChangeFeedService changeFeedService;
+
+    @GetMapping
+    @Operation(summary = "Get changes after a cursor, or the current cursor when none is given")
+    public ResponseEntity<ChangesResponseDto> getChanges(@RequestParam(required = false) Long cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        log.info("GET /api/changes cursor {}", cursor);
+        Long userId = getCurrentUserId();
+        ChangesResponseDto responseDto = changeFeedService.getChanges(userId, cursor, limit);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to changes as server-sent events")
+    public SseEmitter streamChanges(@RequestParam(required = false) Long cursor,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        log.info("GET /api/changes/stream cursor {}", cursor);
+        Long userId = getCurrentUserId();
+        return changeFeedService.subscribe(userId, lastEventId != null ? lastEventId : cursor);
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.cloud.controller;
 
+import com.example.cloud.exception.ChangeCursorExpiredException;
+import com.example.cloud.exception.DeltaConflictException;
 import com.example.cloud.exception.DirectoryOperationErrorException;
+import com.example.cloud.exception.ExportChangedException;
+import com.example.cloud.exception.ExportNotReadyException;
 import com.example.cloud.exception.FileOperationErrorException;
 import com.example.cloud.exception.ResourceDownloadException;
+import com.example.cloud.exception.SearchTimeoutException;
+import com.example.cloud.exception.StorageUnavailableException;
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.exception.TrashConflictException;
 import com.example.cloud.model.dto.response.ErrorResponseDto;
 import jakarta.persistence.EntityExistsException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -60,6 +69,35 @@ public class GlobalControllerAdvice {
                 .body(new ErrorResponseDto(HttpStatus.CONFLICT.value(), e.getMessage()));
     }
 
+    @ExceptionHandler(TrashConflictException.class)
+    public ResponseEntity<ErrorResponseDto> handleTrashConflictException(TrashConflictException e) {
+        log.info("Trash conflict {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponseDto(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(DeltaConflictException.class)
+    public ResponseEntity<ErrorResponseDto> handleDeltaConflictException(DeltaConflictException e) {
+        log.info("Delta upload conflict {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponseDto(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(ExportChangedException.class)
+    public ResponseEntity<ErrorResponseDto> handleExportChangedException(ExportChangedException e) {
+        log.info("Export conflict {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new ErrorResponseDto(HttpStatus.CONFLICT.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(ExportNotReadyException.class)
+    public ResponseEntity<ErrorResponseDto> handleExportNotReadyException(ExportNotReadyException e) {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(e.getRetryAfter().toMillis() / 1000.0));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ErrorResponseDto(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+
     @ExceptionHandler(FileUploadException.class)
     public ResponseEntity<ErrorResponseDto> handleFileUploadException(FileUploadException e) {
         log.warn("File upload error: {}", e.getMessage());
@@ -92,11 +130,42 @@ public class GlobalControllerAdvice {
                 .body(new ErrorResponseDto(HttpStatus.BAD_REQUEST.value(), e.getMessage()));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorResponseDto> handleTooManyRequestsException(TooManyRequestsException e) {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(e.getRetryAfter().toMillis() / 1000.0));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ErrorResponseDto(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(StorageUnavailableException.class)
+    public ResponseEntity<ErrorResponseDto> handleStorageUnavailableException(StorageUnavailableException e) {
+        log.info("Storage unavailable {}", e.getMessage());
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(e.getRetryAfter().toMillis() / 1000.0));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ErrorResponseDto(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+
+    @ExceptionHandler(SearchTimeoutException.class)
+    public ResponseEntity<ErrorResponseDto> handleSearchTimeoutException(SearchTimeoutException e) {
+        log.info("Search timed out {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ErrorResponseDto(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+
     @ExceptionHandler(ResourceDownloadException.class)
     public ResponseEntity<ErrorResponseDto> handleResourceDownloadException(ResourceDownloadException e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new ErrorResponseDto(HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage()));
     }
 
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<ErrorResponseDto> handleChangeCursorExpiredException(ChangeCursorExpiredException e) {
+        log.info("Change cursor expired {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE)
+                .body(new ErrorResponseDto(HttpStatus.GONE.value(), e.getMessage()));
+    }
+
 
 }
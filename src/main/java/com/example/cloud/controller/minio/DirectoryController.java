@@ -4,6 +4,8 @@ import com.example.cloud.model.dto.response.DirectoryResponseDto;
 import com.example.cloud.model.dto.response.ResourceResponseDto;
 import com.example.cloud.service.minio.DirectoryService;
 import com.example.cloud.util.PathUtils;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -25,12 +27,13 @@ import static com.example.cloud.util.UserContext.getCurrentUserId;
 public class DirectoryController {
 
     private final DirectoryService directoryService;
+    private final ObservationRegistry observationRegistry;
 
     @GetMapping
     @Operation(summary = "Get directory content by path")
     public ResponseEntity<List<ResourceResponseDto>> getDirectoryContent(@RequestParam String path) {
         log.info("GET /api/directory/{}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
         List<ResourceResponseDto> responseDto = directoryService.getDirectoryContent(userId, path);
         log.info("Directory content by path {} was found successfully", path.isEmpty() ? "/" : path);
@@ -42,10 +45,15 @@ public class DirectoryController {
     @Operation(summary = "Create directory by path")
     public ResponseEntity<DirectoryResponseDto> createDirectory(@RequestParam String path) {
         log.info("POST /api/directory/{}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
         DirectoryResponseDto result = directoryService.createDirectory(userId, path);
         log.info("Directory {} created successfully", path);
         return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
+
+    private void validatePath(String path) {
+        Observation.createNotStarted("path.validate", observationRegistry)
+                .observe(() -> PathUtils.validatePath(path));
+    }
 }
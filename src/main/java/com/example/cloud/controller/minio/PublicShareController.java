@@ -0,0 +1,32 @@
+package com.example.cloud.controller.minio;
+
+import com.example.cloud.service.minio.ShareLinkService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Public Share Controller", description = "Anonymous downloads through share links")
+public class PublicShareController {
+
+    private final ShareLinkService shareLinkService;
+
+    @GetMapping("/s/{token}")
+    @Operation(summary = "Download a shared file, or a shared folder as a zip archive")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable String token,
+                                                          HttpServletRequest request, HttpServletResponse response) {
+        log.info("GET /s/ for link {}", ShareLinkService.fingerprint(token));
+        StreamingResponseBody body = shareLinkService.download(token, request, response);
+        return ResponseEntity.status(response.getStatus()).body(body);
+    }
+}
@@ -1,18 +1,38 @@
 package com.example.cloud.controller.minio;
 
 
+import com.example.cloud.model.dto.request.BatchMoveRequestDto;
+import com.example.cloud.model.dto.request.BatchPathsRequestDto;
+import com.example.cloud.model.dto.request.DeltaUploadRequestDto;
+import com.example.cloud.model.dto.response.BatchItemResultDto;
+import com.example.cloud.model.dto.response.BlockSignaturesDto;
+import com.example.cloud.model.dto.response.FileVersionDto;
+import com.example.cloud.model.dto.response.PresignedUrlResponseDto;
 import com.example.cloud.model.dto.response.ResourceResponseDto;
+import com.example.cloud.model.dto.response.ZipExportDto;
+import com.example.cloud.service.minio.BatchService;
+import com.example.cloud.service.minio.DeltaUploadService;
+import com.example.cloud.service.minio.FileVersionService;
+import com.example.cloud.service.minio.PresignedUrlService;
 import com.example.cloud.service.minio.ResourceService;
+import com.example.cloud.service.minio.ShareLinkService;
+import com.example.cloud.service.minio.ZipExportService;
 import com.example.cloud.util.PathUtils;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,13 +46,19 @@ import static com.example.cloud.util.UserContext.getCurrentUserId;
 public class ResourceController {
 
     private final ResourceService resourceService;
+    private final PresignedUrlService presignedUrlService;
+    private final BatchService batchService;
+    private final FileVersionService fileVersionService;
+    private final DeltaUploadService deltaUploadService;
+    private final ZipExportService zipExportService;
+    private final ObservationRegistry observationRegistry;
 
 
     @PostMapping
     @Operation(summary = "Upload file or files")
     public ResponseEntity<List<ResourceResponseDto>> uploadFile(@RequestParam("object") List<MultipartFile> file, @RequestParam String path) {
         log.info("POST /api/resource/{}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
         List<ResourceResponseDto> responseInfo = resourceService.uploadFile(userId, path, file);
         log.info("Upload files by path {} was successful", path);
@@ -43,7 +69,7 @@ public class ResourceController {
     @Operation(summary = "Get file info")
     public ResponseEntity<ResourceResponseDto> getFileInfo(@RequestParam String path) {
         log.info("GET /api/resource/{}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
         ResourceResponseDto responseDto = resourceService.getFileInfo(userId, path);
         return ResponseEntity.status(HttpStatus.OK).body(responseDto);
@@ -53,7 +79,7 @@ public class ResourceController {
     @Operation(summary = "Delete file by path to this file")
     public ResponseEntity<Void> deleteFile(@RequestParam String path) {
         log.info("DELETE /api/resource/{}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
         resourceService.deleteFile(userId, path);
         log.info("Delete files by path {} was successful", path);
@@ -62,20 +88,32 @@ public class ResourceController {
 
     @GetMapping("/download")
     @Operation(summary = "Download file or folder as a zip archive")
-    public ResponseEntity<Void> downloadFile(@RequestParam String path, HttpServletResponse response) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(@RequestParam String path,
+                                                              HttpServletRequest request, HttpServletResponse response) {
         log.info("GET /api/resource/download {}", path);
-        PathUtils.validatePath(path);
+        validatePath(path);
         Long userId = getCurrentUserId();
-        resourceService.download(userId, path, response);
-        return ResponseEntity.status(HttpStatus.OK).build();
+        StreamingResponseBody body = resourceService.download(userId, path, request, response);
+        return ResponseEntity.status(response.getStatus()).body(body);
+    }
+
+    @GetMapping("/stream")
+    @Operation(summary = "Stream a video, audio or image file for playback in the browser")
+    public ResponseEntity<StreamingResponseBody> streamFile(@RequestParam String path,
+                                                            HttpServletRequest request, HttpServletResponse response) {
+        log.info("GET /api/resource/stream {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        StreamingResponseBody body = resourceService.stream(userId, path, request, response);
+        return ResponseEntity.status(response.getStatus()).body(body);
     }
 
     @GetMapping("/move")
     @Operation(summary = "Move file from -> to")
     public ResponseEntity<ResourceResponseDto> moveFile(@RequestParam String from, @RequestParam String to) {
         log.info("MOVE /api/resource/move {} -> {}", from, to);
-        PathUtils.validatePath(from);
-        PathUtils.validatePath(to);
+        validatePath(from);
+        validatePath(to);
         Long userId = getCurrentUserId();
         resourceService.moveFile(userId, from, to);
         ResourceResponseDto responseDto = resourceService.getFileInfo(userId, to);
@@ -83,15 +121,176 @@ public class ResourceController {
         return ResponseEntity.status(HttpStatus.OK).body(responseDto);
     }
 
+    @PostMapping("/upload-url")
+    @Operation(summary = "Get a short-lived URL for uploading a file directly to storage")
+    public ResponseEntity<PresignedUrlResponseDto> createUploadUrl(@RequestParam String path) {
+        log.info("POST /api/resource/upload-url {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        PresignedUrlResponseDto responseDto = presignedUrlService.createUploadUrl(userId, path);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @PostMapping("/upload-complete")
+    @Operation(summary = "Confirm a direct-to-storage upload")
+    public ResponseEntity<ResourceResponseDto> completeUpload(@RequestParam String path) {
+        log.info("POST /api/resource/upload-complete {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        ResourceResponseDto responseDto = presignedUrlService.completeUpload(userId, path);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
+    }
+
+    @GetMapping("/download-url")
+    @Operation(summary = "Get a short-lived URL for downloading a file directly from storage")
+    public ResponseEntity<PresignedUrlResponseDto> createDownloadUrl(@RequestParam String path) {
+        log.info("GET /api/resource/download-url {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        PresignedUrlResponseDto responseDto = presignedUrlService.createDownloadUrl(userId, path);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @PostMapping("/batch/delete")
+    @Operation(summary = "Delete several files or folders")
+    public ResponseEntity<List<BatchItemResultDto>> deleteBatch(@RequestBody BatchPathsRequestDto request) {
+        log.info("POST /api/resource/batch/delete {} items", request.getPaths() == null ? 0 : request.getPaths().size());
+        validatePaths(request.getPaths());
+        Long userId = getCurrentUserId();
+        List<BatchItemResultDto> responseDto = batchService.delete(userId, request.getPaths());
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @PostMapping("/batch/move")
+    @Operation(summary = "Move several files or folders")
+    public ResponseEntity<List<BatchItemResultDto>> moveBatch(@RequestBody BatchMoveRequestDto request) {
+        log.info("POST /api/resource/batch/move {} items", request.getMoves() == null ? 0 : request.getMoves().size());
+        if (request.getMoves() != null) {
+            request.getMoves().forEach(move -> {
+                validatePath(move.getFrom());
+                validatePath(move.getTo());
+            });
+        }
+        Long userId = getCurrentUserId();
+        List<BatchItemResultDto> responseDto = batchService.move(userId, request.getMoves());
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @PostMapping("/batch/download")
+    @Operation(summary = "Download several files and folders as one zip archive")
+    public ResponseEntity<StreamingResponseBody> downloadBatch(@RequestBody BatchPathsRequestDto request) {
+        log.info("POST /api/resource/batch/download {} items", request.getPaths() == null ? 0 : request.getPaths().size());
+        validatePaths(request.getPaths());
+        Long userId = getCurrentUserId();
+        StreamingResponseBody body = outputStream -> batchService.downloadAsZip(userId, request.getPaths(), outputStream);
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"download.zip\"")
+                .body(body);
+    }
+
+    @PostMapping("/export")
+    @Operation(summary = "Prepare a large folder for a resumable zip download")
+    public ResponseEntity<ZipExportDto> createExport(@RequestParam String path) {
+        log.info("POST /api/resource/export {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        ZipExportDto responseDto = zipExportService.create(userId, path);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
+    }
+
+    @GetMapping("/export/{token}")
+    @Operation(summary = "Download a prepared folder export, resumable with Range requests")
+    public ResponseEntity<StreamingResponseBody> downloadExport(@PathVariable String token,
+                                                                HttpServletRequest request, HttpServletResponse response) {
+        log.info("GET /api/resource/export/ for export {}", ShareLinkService.fingerprint(token));
+        Long userId = getCurrentUserId();
+        StreamingResponseBody body = zipExportService.download(userId, token, request, response);
+        return ResponseEntity.status(response.getStatus()).body(body);
+    }
+
     @GetMapping("/search")
-    @Operation(summary = "Search file by his name")
-    public ResponseEntity<List<ResourceResponseDto>> searchFile(@RequestParam String query) {
-        log.info("GET /api/resource/search {}", query);
-        PathUtils.validatePath(query);
+    @Operation(summary = "Search files by name, or by the text of documents with mode=content")
+    public ResponseEntity<List<ResourceResponseDto>> searchFile(@RequestParam String query,
+                                                                @RequestParam(defaultValue = "name") String mode) {
+        log.info("GET /api/resource/search {} ({})", query, mode);
+        Long userId = getCurrentUserId();
+        List<ResourceResponseDto> responseDto;
+        if ("content".equalsIgnoreCase(mode)) {
+            responseDto = resourceService.searchContent(userId, query);
+        } else if ("name".equalsIgnoreCase(mode)) {
+            validatePath(query);
+            responseDto = resourceService.searchFiles(userId, query);
+        } else {
+            throw new IllegalArgumentException("Unknown search mode " + mode);
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @GetMapping("/versions")
+    @Operation(summary = "List versions of a file, newest first")
+    public ResponseEntity<List<FileVersionDto>> getVersions(@RequestParam String path) {
+        log.info("GET /api/resource/versions {}", path);
+        validatePath(path);
         Long userId = getCurrentUserId();
-        List<ResourceResponseDto> responseDto = resourceService.searchFiles(userId, query);
+        List<FileVersionDto> responseDto = fileVersionService.list(userId, path);
         return ResponseEntity.status(HttpStatus.OK).body(responseDto);
     }
 
+    @GetMapping("/versions/{versionId}/download")
+    @Operation(summary = "Download a version of a file")
+    public ResponseEntity<StreamingResponseBody> downloadVersion(@PathVariable Long versionId, @RequestParam String path,
+                                                                 HttpServletRequest request, HttpServletResponse response) {
+        log.info("GET /api/resource/versions/{}/download {}", versionId, path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        StreamingResponseBody body = fileVersionService.download(userId, path, versionId, request, response);
+        return ResponseEntity.status(response.getStatus()).body(body);
+    }
 
+    @PostMapping("/versions/{versionId}/restore")
+    @Operation(summary = "Make a version the current content of a file")
+    public ResponseEntity<ResourceResponseDto> restoreVersion(@PathVariable Long versionId, @RequestParam String path) {
+        log.info("POST /api/resource/versions/{}/restore {}", versionId, path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        fileVersionService.restore(userId, versionId, path);
+        ResourceResponseDto responseDto = resourceService.getFileInfo(userId, path);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @GetMapping("/delta/signatures")
+    @Operation(summary = "Get block signatures of a file for a delta upload")
+    public ResponseEntity<BlockSignaturesDto> getBlockSignatures(@RequestParam String path) {
+        log.info("GET /api/resource/delta/signatures {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        BlockSignaturesDto responseDto = deltaUploadService.getSignatures(userId, path);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @PostMapping(value = "/delta", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Update a file by sending only the blocks that changed")
+    public ResponseEntity<ResourceResponseDto> uploadDelta(@RequestParam String path,
+                                                           @RequestPart("delta") DeltaUploadRequestDto delta,
+                                                           @RequestPart(value = "data", required = false) MultipartFile data) {
+        log.info("POST /api/resource/delta {}", path);
+        validatePath(path);
+        Long userId = getCurrentUserId();
+        deltaUploadService.apply(userId, path, delta, data);
+        ResourceResponseDto responseDto = resourceService.getFileInfo(userId, path);
+        log.info("Delta upload to {} was successful", path);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    private void validatePaths(List<String> paths) {
+        if (paths != null) {
+            paths.forEach(this::validatePath);
+        }
+    }
+
+    private void validatePath(String path) {
+        Observation.createNotStarted("path.validate", observationRegistry)
+                .observe(() -> PathUtils.validatePath(path));
+    }
 }
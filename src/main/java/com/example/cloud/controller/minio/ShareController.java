@@ -0,0 +1,55 @@
+package com.example.cloud.controller.minio;
+
+import com.example.cloud.model.dto.response.ShareLinkDto;
+import com.example.cloud.service.minio.ShareLinkService;
+import com.example.cloud.util.PathUtils;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.example.cloud.util.UserContext.getCurrentUserId;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/share")
+@RequiredArgsConstructor
+@Tag(name = "Share Controller", description = "Share link management API")
+public class ShareController {
+
+    private final ShareLinkService shareLinkService;
+
+    @PostMapping
+    @Operation(summary = "Create an anonymous link to a file or folder")
+    public ResponseEntity<ShareLinkDto> createLink(@RequestParam String path, @RequestParam(required = false) Duration ttl) {
+        log.info("POST /api/share {}", path);
+        PathUtils.validatePath(path);
+        Long userId = getCurrentUserId();
+        ShareLinkDto responseDto = shareLinkService.create(userId, path, ttl);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responseDto);
+    }
+
+    @GetMapping
+    @Operation(summary = "List share links")
+    public ResponseEntity<List<ShareLinkDto>> getLinks() {
+        log.info("GET /api/share");
+        Long userId = getCurrentUserId();
+        List<ShareLinkDto> responseDto = shareLinkService.list(userId);
+        return ResponseEntity.status(HttpStatus.OK).body(responseDto);
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Revoke a share link")
+    public ResponseEntity<Void> revokeLink(@PathVariable Long id) {
+        log.info("DELETE /api/share/{}", id);
+        Long userId = getCurrentUserId();
+        shareLinkService.revoke(userId, id);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+}
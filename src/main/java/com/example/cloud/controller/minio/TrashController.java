@@ -0,0 +1,61 @@
+package com.example.cloud.controller.minio;
+
+import com.example.cloud.model.dto.response.TrashEntryDto;
+import com.example.cloud.service.minio.TrashService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+import static com.example.cloud.util.UserContext.getCurrentUserId;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/trash")
+@RequiredArgsConstructor
+@Tag(name = "Trash Controller", description = "Deleted files and folders API")
+public class TrashController {
+
+    private final TrashService trashService;
+
+    @GetMapping
+    @Operation(summary = "List deleted files and folders")
+    public ResponseEntity<List<TrashEntryDto>> getTrash() {
+        log.info("GET /api/trash");
+        Long userId = getCurrentUserId();
+        List<TrashEntryDto> entries = trashService.list(userId);
+        return ResponseEntity.status(HttpStatus.OK).body(entries);
+    }
+
+    @PostMapping("/{id}/restore")
+    @Operation(summary = "Restore a deleted file or folder to its original path")
+    public ResponseEntity<Void> restore(@PathVariable Long id) {
+        log.info("POST /api/trash/{}/restore", id);
+        Long userId = getCurrentUserId();
+        trashService.restore(userId, id);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete a trash entry for good")
+    public ResponseEntity<Void> purge(@PathVariable Long id) {
+        log.info("DELETE /api/trash/{}", id);
+        Long userId = getCurrentUserId();
+        trashService.purge(userId, id);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Empty the trash")
+    public ResponseEntity<Void> empty() {
+        log.info("DELETE /api/trash");
+        Long userId = getCurrentUserId();
+        trashService.purge(userId, null);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cloud.exception;
+
+public class DeltaConflictException extends RuntimeException {
+    public DeltaConflictException(String message) {
+        super(message);
+    }
+}
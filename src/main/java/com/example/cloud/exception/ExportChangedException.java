@@ -0,0 +1,7 @@
+package com.example.cloud.exception;
+
+public class ExportChangedException extends RuntimeException {
+    public ExportChangedException(String message) {
+        super(message);
+    }
+}
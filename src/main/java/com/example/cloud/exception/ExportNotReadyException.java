@@ -0,0 +1,15 @@
+package com.example.cloud.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class ExportNotReadyException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public ExportNotReadyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cloud.exception;
+
+public class TrashConflictException extends RuntimeException {
+    public TrashConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.cloud.filter;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.dto.response.ErrorResponseDto;
+import com.example.cloud.model.properties.AdmissionProperties;
+import com.example.cloud.security.CustomUserDetails;
+import com.example.cloud.service.AdmissionScheduler;
+import com.example.cloud.service.AdmissionScheduler.RequestClass;
+import com.example.cloud.util.ThrottledOutputStream;
+import com.example.cloud.util.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Runs after Spring Security, so the caller is known. Every authenticated API request takes a permit from
+ * {@link AdmissionScheduler}; a transfer also streams its response through the user's byte budget. Permits of
+ * async responses such as downloads are held until the response completes.
+ */
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdmissionScheduler admissionScheduler;
+    private final AdmissionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<String[]> transferEndpoints;
+    private final List<String[]> exemptEndpoints;
+    private final Cache<Long, TokenBucket> bandwidthBuckets;
+
+    public AdmissionControlFilter(AdmissionScheduler admissionScheduler,
+                                  AdmissionProperties properties,
+                                  ObjectMapper objectMapper) {
+        this.admissionScheduler = admissionScheduler;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.transferEndpoints = parse(properties.getTransferEndpoints());
+        this.exemptEndpoints = parse(properties.getExemptEndpoints());
+        this.bandwidthBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        // Long-lived streams would hold a permit for their whole lifetime.
+        return !properties.isEnabled() || !path.startsWith("/api/") || path.startsWith("/api/auth/")
+                || matches(exemptEndpoints, request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails user)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        RequestClass requestClass = classify(request);
+        AdmissionScheduler.Permit permit;
+        try {
+            permit = admissionScheduler.acquire(user.getId(), requestClass);
+        } catch (TooManyRequestsException e) {
+            reject(response, e);
+            return;
+        }
+
+        HttpServletResponse admitted = response;
+        if (requestClass == RequestClass.TRANSFER) {
+            TokenBucket bandwidth = bandwidthBuckets.get(user.getId(), id ->
+                    new TokenBucket(properties.getPerUserBandwidth().toBytes(), Duration.ofSeconds(1)));
+            admitted = new ThrottledResponse(response, bandwidth);
+        }
+
+        try {
+            filterChain.doFilter(request, admitted);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(permit));
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private RequestClass classify(HttpServletRequest request) {
+        return matches(transferEndpoints, request) ? RequestClass.TRANSFER : RequestClass.METADATA;
+    }
+
+    private boolean matches(List<String[]> endpoints, HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String[] endpoint : endpoints) {
+            if (endpoint[0].equalsIgnoreCase(request.getMethod()) && pathMatcher.match(endpoint[1], path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String[]> parse(List<String> endpoints) {
+        return endpoints.stream()
+                .map(endpoint -> endpoint.trim().split("\\s+", 2))
+                .toList();
+    }
+
+    private void reject(HttpServletResponse response, TooManyRequestsException e) throws IOException {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(e.getRetryAfter().toMillis() / 1000.0));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponseDto(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage()));
+    }
+
+    private record ReleasingListener(AdmissionScheduler.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static final class ThrottledResponse extends HttpServletResponseWrapper {
+
+        private final TokenBucket bandwidth;
+        private ServletOutputStream outputStream;
+
+        private ThrottledResponse(HttpServletResponse response, TokenBucket bandwidth) {
+            super(response);
+            this.bandwidth = bandwidth;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                OutputStream throttled = new ThrottledOutputStream(target, bandwidth);
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throttled.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        throttled.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        target.setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+    }
+}
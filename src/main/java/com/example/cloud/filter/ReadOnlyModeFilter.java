@@ -0,0 +1,83 @@
+package com.example.cloud.filter;
+
+import com.example.cloud.model.dto.response.ErrorResponseDto;
+import com.example.cloud.model.properties.DegradedModeProperties;
+import com.example.cloud.service.minio.StorageHealthMonitor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * While storage is unavailable, marks API responses with {@code X-Storage-Mode: read-only} and refuses every
+ * request that could change files with 503, so clients can tell a brownout from a bug and keep browsing.
+ */
+@Component
+public class ReadOnlyModeFilter extends OncePerRequestFilter {
+
+    private static final String MODE_HEADER = "X-Storage-Mode";
+    private static final Set<String> READ_METHODS = Set.of(
+            HttpMethod.GET.name(), HttpMethod.HEAD.name(), HttpMethod.OPTIONS.name());
+
+    private final StorageHealthMonitor storageHealthMonitor;
+    private final DegradedModeProperties properties;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<String[]> writeEndpoints;
+
+    public ReadOnlyModeFilter(StorageHealthMonitor storageHealthMonitor,
+                              DegradedModeProperties properties,
+                              ObjectMapper objectMapper) {
+        this.storageHealthMonitor = storageHealthMonitor;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.writeEndpoints = properties.getWriteEndpoints().stream()
+                .map(endpoint -> endpoint.trim().split("\\s+", 2))
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !storageHealthMonitor.isReadOnly() || !path.startsWith("/api/") || path.startsWith("/api/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        response.setHeader(MODE_HEADER, "read-only");
+        if (READ_METHODS.contains(request.getMethod()) && !isWriteEndpoint(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, properties.getRetryAfter().toSeconds());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponseDto(HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Storage is temporarily unavailable, files can be browsed but not changed"));
+    }
+
+    private boolean isWriteEndpoint(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String[] endpoint : writeEndpoints) {
+            if (endpoint[0].equalsIgnoreCase(request.getMethod()) && pathMatcher.match(endpoint[1], path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
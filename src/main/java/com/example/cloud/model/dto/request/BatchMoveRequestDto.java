@@ -0,0 +1,25 @@
+package com.example.cloud.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchMoveRequestDto {
+
+    private List<Move> moves;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Move {
+
+        private String from;
+
+        private String to;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.cloud.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPathsRequestDto {
+
+    private List<String> paths;
+}
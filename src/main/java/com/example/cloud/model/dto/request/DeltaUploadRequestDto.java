@@ -0,0 +1,39 @@
+package com.example.cloud.model.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeltaUploadRequestDto {
+
+    private String baseEtag;
+
+    private String contentType;
+
+    private List<Instruction> instructions;
+
+    /**
+     * Either a block of the stored file to keep, or the next {@code length} bytes of the uploaded data.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Instruction {
+
+        private Type type;
+
+        private Integer block;
+
+        private Long length;
+    }
+
+    public enum Type {
+        COPY,
+        DATA
+    }
+}
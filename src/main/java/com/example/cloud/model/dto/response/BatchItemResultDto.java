@@ -0,0 +1,27 @@
+package com.example.cloud.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Result of a single item in a batch operation")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResultDto(
+
+        @Schema(description = "Path the operation was applied to", example = "folder1/myDocument.txt")
+        String path,
+
+        @Schema(description = "Whether the operation succeeded for this item", example = "true")
+        boolean success,
+
+        @Schema(description = "Failure reason, present only when the item failed", example = "File not found")
+        String error
+) {
+
+    public static BatchItemResultDto ok(String path) {
+        return new BatchItemResultDto(path, true, null);
+    }
+
+    public static BatchItemResultDto failed(String path, String error) {
+        return new BatchItemResultDto(path, false, error);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Block signatures of a stored file, for delta uploads")
+public record BlockSignaturesDto(
+
+        @Schema(description = "Entity tag the signatures belong to, to be sent back with the delta", example = "9b2cf535f27731c974343645a3985328")
+        String etag,
+
+        @Schema(description = "Block size in bytes; the last block may be shorter", example = "8388608")
+        long blockSize,
+
+        @Schema(description = "File size in bytes", example = "2147483648")
+        long size,
+
+        @Schema(description = "Signatures in block order")
+        List<Block> blocks
+) {
+
+    @Schema(description = "Signature of one block")
+    public record Block(
+
+            @Schema(description = "Rolling checksum as computed by the rsync weak checksum", example = "-1525153276")
+            int weak,
+
+            @Schema(description = "SHA-256 of the block, hex encoded")
+            String strong
+    ) { }
+}
@@ -0,0 +1,30 @@
+package com.example.cloud.model.dto.response;
+
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Single entry of the change feed")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChangeDto(
+
+        @Schema(description = "Cursor of this change", example = "1042")
+        long id,
+
+        @Schema(description = "Kind of change", example = "CREATED")
+        ResourceChangedEvent.Type type,
+
+        @Schema(description = "Changed path, directories end with /", example = "folder1/myDocument.txt")
+        String path,
+
+        @Schema(description = "New path, present only for moves", example = "folder2/myDocument.txt")
+        String targetPath,
+
+        @Schema(description = "Size of the file", example = "18432")
+        long size,
+
+        @Schema(description = "When the change happened")
+        Instant timestamp
+) { }
@@ -0,0 +1,18 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Page of the change feed")
+public record ChangesResponseDto(
+
+        @Schema(description = "Changes after the requested cursor, oldest first")
+        List<ChangeDto> changes,
+
+        @Schema(description = "Cursor to pass on the next request", example = "1042")
+        long cursor,
+
+        @Schema(description = "Whether more changes are available right away", example = "false")
+        boolean hasMore
+) { }
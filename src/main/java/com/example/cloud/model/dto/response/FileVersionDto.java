@@ -0,0 +1,23 @@
+package com.example.cloud.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "File version Dto")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FileVersionDto(
+
+        @Schema(description = "Version id, absent for the current content", example = "17")
+        Long versionId,
+
+        @Schema(description = "Size in bytes", example = "2048")
+        long size,
+
+        @Schema(description = "Moment this content was written", example = "2025-01-01T12:00:00Z")
+        Instant lastModified,
+
+        @Schema(description = "Whether this is the current content of the file", example = "false")
+        boolean current
+) { }
@@ -0,0 +1,26 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Schema(description = "Presigned storage URL Dto")
+public record PresignedUrlResponseDto (
+
+        @Schema(description = "Path to target file", example = "folder1/myDocument.txt")
+        String path,
+
+        @Schema(description = "HTTP method the URL is signed for", example = "PUT")
+        String method,
+
+        @Schema(description = "Direct storage URL")
+        String url,
+
+        @Schema(description = "Headers the URL is signed with, to be sent with the request as they are",
+                example = "{\"If-None-Match\": \"*\"}")
+        Map<String, String> headers,
+
+        @Schema(description = "Moment the URL stops being valid", example = "2025-01-01T12:15:00Z")
+        Instant expiresAt
+) { }
@@ -1,9 +1,13 @@
 package com.example.cloud.model.dto.response;
 
 import com.example.cloud.model.dto.enums.ResourceType;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
+import java.time.Instant;
+
 @Schema(description = "File Dto")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record ResourceResponseDto (
 
         @Schema(description = "Path to target file", example = "folder1/folder2/")
@@ -16,5 +20,25 @@ public record ResourceResponseDto (
         long size,
 
         @Schema(description = "Type of resource", example = "FILE")
-        ResourceType type
-) { }
\ No newline at end of file
+        ResourceType type,
+
+        @Schema(description = "Number of files inside a directory, present only for directories", example = "42")
+        Long fileCount,
+
+        @Schema(description = "Latest modification inside a directory, present only for directories")
+        Instant lastModified,
+
+        @Schema(description = "Matching passages of the file's text, present only in content search results",
+                example = "the <b>quarterly</b> report is due")
+        String snippet
+) {
+
+    public ResourceResponseDto(String path, String name, long size, ResourceType type) {
+        this(path, name, size, type, null, null, null);
+    }
+
+    public ResourceResponseDto(String path, String name, long size, ResourceType type, Long fileCount,
+                               Instant lastModified) {
+        this(path, name, size, type, fileCount, lastModified, null);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Share link Dto")
+public record ShareLinkDto(
+
+        @Schema(description = "Share link id", example = "7")
+        Long id,
+
+        @Schema(description = "Shared file or folder", example = "folder1/myDocument.txt")
+        String path,
+
+        @Schema(description = "Anonymous download URL, relative to the application", example = "/s/q3Jx0b9yQ2a1X8gk4Zr7uA")
+        String url,
+
+        @Schema(description = "Moment the link was created", example = "2025-01-01T12:00:00Z")
+        Instant createdAt,
+
+        @Schema(description = "Moment the link stops working", example = "2025-01-08T12:00:00Z")
+        Instant expiresAt
+) { }
@@ -0,0 +1,27 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Trash entry Dto")
+public record TrashEntryDto(
+
+        @Schema(description = "Trash entry id", example = "42")
+        Long id,
+
+        @Schema(description = "Original path of the deleted file or directory", example = "folder1/myDocument.txt")
+        String path,
+
+        @Schema(description = "Size in bytes at the moment of deletion", example = "2048")
+        long size,
+
+        @Schema(description = "Whether the content has already been moved out of the original path", example = "true")
+        boolean relocated,
+
+        @Schema(description = "Moment of deletion", example = "2025-01-01T12:00:00Z")
+        Instant deletedAt,
+
+        @Schema(description = "Moment the entry is purged for good", example = "2025-01-31T12:00:00Z")
+        Instant expiresAt
+) { }
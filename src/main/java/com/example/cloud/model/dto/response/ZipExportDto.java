@@ -0,0 +1,32 @@
+package com.example.cloud.model.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "Prepared zip export of a folder")
+public record ZipExportDto(
+
+        @Schema(description = "Exported folder", example = "folder1/")
+        String path,
+
+        @Schema(description = "Download URL, relative to the application; supports Range requests",
+                example = "/api/resource/export/q3Jx0b9yQ2a1X8gk4Zr7uA")
+        String url,
+
+        @Schema(description = "Exact size of the archive in bytes", example = "53687091200")
+        long size,
+
+        @Schema(description = "Number of files in the archive", example = "120000")
+        int entryCount,
+
+        @Schema(description = "Moment the export was prepared", example = "2025-01-01T12:00:00Z")
+        Instant createdAt,
+
+        @Schema(description = "Moment the export stops being available", example = "2025-01-03T12:00:00Z")
+        Instant expiresAt,
+
+        @Schema(description = "Whether the archive can be downloaded yet; until then the download answers 503 "
+                + "with Retry-After", example = "false")
+        boolean ready
+) { }
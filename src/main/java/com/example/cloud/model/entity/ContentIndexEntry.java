@@ -0,0 +1,37 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Text extracted from a user's document. The database derives the searchable {@code content_tsv} column from
+ * {@code content}, so it is not mapped here.
+ */
+@Entity
+@Table(name = "content_index")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentIndexEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private String content;
+
+    @Column(name = "indexed_at", nullable = false)
+    private Instant indexedAt;
+}
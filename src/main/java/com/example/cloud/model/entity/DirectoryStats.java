@@ -0,0 +1,31 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Aggregates for every file below a directory, stored per user-relative directory path
+ * ({@code ""} for the root, otherwise ending with {@code /}).
+ */
+@Entity
+@Table(name = "directory_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectoryStats {
+
+    @EmbeddedId
+    private DirectoryStatsId id;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "file_count", nullable = false)
+    private long fileCount;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+}
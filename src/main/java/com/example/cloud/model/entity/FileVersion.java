@@ -0,0 +1,39 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * An earlier content of a file, copied to {@code versionKey} when the file was overwritten or restored.
+ */
+@Entity
+@Table(name = "file_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileVersion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(name = "version_key", nullable = false)
+    private String versionKey;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+}
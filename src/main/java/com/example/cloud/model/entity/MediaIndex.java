@@ -0,0 +1,40 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Where the index ({@code moov} box) of a movie file is, for the content with the given etag. Offset and size
+ * are null when the file turned out to have no top-level {@code moov} box.
+ */
+@Entity
+@Table(name = "media_indexes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaIndex {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private String etag;
+
+    @Column(name = "moov_offset")
+    private Long moovOffset;
+
+    @Column(name = "moov_size")
+    private Long moovSize;
+
+    @Column(name = "indexed_at", nullable = false)
+    private Instant indexedAt;
+}
@@ -0,0 +1,47 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * One file or directory of a user's tree as last seen in storage. Paths are user-relative, directories end with
+ * {@code /} and the root is {@code ""}; directories carry the totals of everything below them.
+ */
+@Entity
+@Table(name = "metadata_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetadataSnapshotEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(name = "parent_path")
+    private String parentPath;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "file_count")
+    private Long fileCount;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    @Column(name = "snapshot_at", nullable = false)
+    private Instant snapshotAt;
+
+    public boolean isDirectory() {
+        return path.isEmpty() || path.endsWith("/");
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Download statistics of a file, keyed by its user-relative path. {@code windowHits} counts downloads since
+ * {@code windowStartedAt} and starts over once the window is older than {@code minio.tiering.promote-window}.
+ */
+@Entity
+@Table(name = "object_access_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ObjectAccessStats {
+
+    @EmbeddedId
+    private ObjectAccessStatsId id;
+
+    @Column(nullable = false)
+    private String tier;
+
+    @Column(name = "last_accessed_at", nullable = false)
+    private Instant lastAccessedAt;
+
+    @Column(name = "window_started_at", nullable = false)
+    private Instant windowStartedAt;
+
+    @Column(name = "window_hits", nullable = false)
+    private long windowHits;
+}
@@ -0,0 +1,38 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A move that copies objects before removing the originals. The row lives only while the move runs and the move
+ * refreshes its heartbeat as it copies, so one whose heartbeat is older than {@code storage.gc.move-stale-after}
+ * belongs to a move that died midway.
+ */
+@Entity
+@Table(name = "pending_moves")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingMove {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "from_path", nullable = false)
+    private String fromPath;
+
+    @Column(name = "to_path", nullable = false)
+    private String toPath;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "heartbeat_at", nullable = false)
+    private Instant heartbeatAt;
+}
@@ -0,0 +1,41 @@
+package com.example.cloud.model.entity;
+
+import com.example.cloud.model.event.ResourceChangedEvent;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "resource_changes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false)
+    private ResourceChangedEvent.Type type;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(name = "target_path")
+    private String targetPath;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
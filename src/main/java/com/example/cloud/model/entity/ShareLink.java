@@ -0,0 +1,40 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * An anonymous link to a file, or to a directory when {@code path} ends with a slash.
+ */
+@Entity
+@Table(name = "share_links")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShareLink {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String token;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public boolean isDirectory() {
+        return path.endsWith("/");
+    }
+}
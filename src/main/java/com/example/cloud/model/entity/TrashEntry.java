@@ -0,0 +1,55 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A deleted file or directory. While {@code PENDING} or {@code RELOCATING} its objects are still at
+ * {@code path} and hidden from every read; once {@code TRASHED} they live under the user's trash prefix
+ * until {@code expiresAt}.
+ */
+@Entity
+@Table(name = "trash_entries")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrashEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Instant deletedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public boolean isDirectory() {
+        return path.endsWith("/");
+    }
+
+    public enum State {
+        PENDING,
+        RELOCATING,
+        TRASHED
+    }
+}
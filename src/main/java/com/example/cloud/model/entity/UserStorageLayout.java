@@ -0,0 +1,31 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Key layout a user's objects live in. A non-null {@code targetLayout} means the user is being migrated:
+ * writes go to the target and reads fall back to the current layout.
+ */
+@Entity
+@Table(name = "user_storage_layouts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStorageLayout {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private String layout;
+
+    @Column(name = "target_layout")
+    private String targetLayout;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
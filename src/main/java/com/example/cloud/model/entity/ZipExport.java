@@ -0,0 +1,54 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A prepared zip export of a directory. Its entries are fixed when it is created, so the archive has the same
+ * bytes, and the same {@code size}, on every request until it expires. It can be downloaded once the CRCs of all
+ * its entries are known.
+ */
+@Entity
+@Table(name = "zip_exports")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZipExport {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String token;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "entry_count", nullable = false)
+    private int entryCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private State state;
+
+    public enum State {
+        PENDING,
+        READY,
+        CHANGED
+    }
+}
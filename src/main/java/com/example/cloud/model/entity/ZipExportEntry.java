@@ -0,0 +1,44 @@
+package com.example.cloud.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A file of a {@link ZipExport}, named relative to the exported directory. The etag is null when the content
+ * cannot be checked against it, and the CRC is filled in once the file has been read.
+ */
+@Entity
+@Table(name = "zip_export_entries")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZipExportEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "export_id", nullable = false)
+    private Long exportId;
+
+    @Column(name = "entry_index", nullable = false)
+    private int entryIndex;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private long size;
+
+    private String etag;
+
+    @Column(nullable = false)
+    private boolean compressed;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    private Long crc;
+}
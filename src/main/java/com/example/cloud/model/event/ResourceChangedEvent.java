@@ -0,0 +1,48 @@
+package com.example.cloud.model.event;
+
+/**
+ * Published after a file or directory was changed in storage. Paths are relative to the user's folder;
+ * directory paths end with {@code /}. {@code size} is the logical size of a file and is ignored for directories.
+ * Changes made by other bucket clients arrive with {@link Source#STORAGE} from the bucket notification consumer.
+ */
+public record ResourceChangedEvent(
+        Long userId,
+        Type type,
+        String path,
+        String targetPath,
+        long size,
+        Source source
+) {
+
+    public enum Type {
+        CREATED,
+        DELETED,
+        MOVED,
+        REFRESH
+    }
+
+    public enum Source {
+        APPLICATION,
+        STORAGE
+    }
+
+    public static ResourceChangedEvent created(Long userId, String path, long size) {
+        return new ResourceChangedEvent(userId, Type.CREATED, path, null, size, Source.APPLICATION);
+    }
+
+    public static ResourceChangedEvent deleted(Long userId, String path, long size) {
+        return new ResourceChangedEvent(userId, Type.DELETED, path, null, size, Source.APPLICATION);
+    }
+
+    public static ResourceChangedEvent moved(Long userId, String fromPath, String toPath, long size) {
+        return new ResourceChangedEvent(userId, Type.MOVED, fromPath, toPath, size, Source.APPLICATION);
+    }
+
+    public static ResourceChangedEvent fromStorage(Long userId, Type type, String path, long size) {
+        return new ResourceChangedEvent(userId, type, path, null, size, Source.STORAGE);
+    }
+
+    public boolean isDirectory() {
+        return path.endsWith("/");
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users granted {@code ROLE_ADMIN}, which is required for the management endpoints other than health.
+ */
+@Component
+@ConfigurationProperties(prefix = "auth.admin")
+@Getter
+@Setter
+public class AdminProperties {
+    private List<String> usernames = new ArrayList<>();
+}
@@ -0,0 +1,44 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "admission")
+@Getter
+@Setter
+public class AdmissionProperties {
+    private boolean enabled = false;
+    private int maxConcurrent = 150;
+    private int maxConcurrentTransfers = 40;
+    private int perUserConcurrent = 16;
+    private int perUserConcurrentTransfers = 3;
+    private int transferWeight = 4;
+    private int maxQueue = 500;
+    private int perUserQueue = 32;
+    private Duration queueTimeout = Duration.ofSeconds(3);
+    private Duration retryAfter = Duration.ofSeconds(2);
+    private DataSize perUserBandwidth = DataSize.ofMegabytes(50);
+    private List<String> transferEndpoints = new ArrayList<>(List.of(
+            "POST /api/resource",
+            "GET /api/resource/download",
+            "GET /api/resource/stream",
+            "GET /api/resource/move",
+            "POST /api/resource/batch/**",
+            "POST /api/resource/delta",
+            "GET /api/resource/export/*",
+            "GET /api/resource/versions/*/download",
+            "POST /api/resource/versions/*/restore",
+            "POST /api/trash/*/restore"
+    ));
+    private List<String> exemptEndpoints = new ArrayList<>(List.of(
+            "GET /api/changes/stream"
+    ));
+}
@@ -0,0 +1,19 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "batch")
+@Getter
+@Setter
+public class BatchProperties {
+    private int maxItems = 1000;
+    private int deleteChunkSize = 1000;
+    private int moveConcurrency = 8;
+    private int queueCapacity = 64;
+    private int backgroundConcurrency = 2;
+    private int backgroundQueueCapacity = 10_000;
+}
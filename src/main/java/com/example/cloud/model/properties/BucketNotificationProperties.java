@@ -0,0 +1,22 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "minio.notifications")
+@Getter
+@Setter
+public class BucketNotificationProperties {
+    private boolean enabled = false;
+    private Duration coalesceWindow = Duration.ofSeconds(2);
+    private int maxPendingKeys = 10_000;
+    private int maxKeysPerUser = 1_000;
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+    private String leaseKey = "cloud:notifications:leader";
+    private Duration leaseTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,20 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "changes")
+@Getter
+@Setter
+public class ChangeFeedProperties {
+    private Duration retention = Duration.ofDays(30);
+    private int pageSize = 500;
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    private Duration heartbeatInterval = Duration.ofSeconds(25);
+    private String notificationChannel = "cloud:changes:notify";
+}
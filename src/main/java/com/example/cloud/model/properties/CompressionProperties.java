@@ -0,0 +1,26 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "minio.compression")
+@Getter
+@Setter
+public class CompressionProperties {
+    private boolean enabled = false;
+    private long minSize = 1024;
+    private List<String> contentTypes = new ArrayList<>(List.of(
+            "text/*",
+            "application/json",
+            "application/xml",
+            "application/javascript",
+            "application/x-ndjson",
+            "image/svg+xml"
+    ));
+}
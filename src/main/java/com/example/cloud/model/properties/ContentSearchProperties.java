@@ -0,0 +1,27 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "content-search")
+@Getter
+@Setter
+public class ContentSearchProperties {
+    private boolean enabled = true;
+    private List<String> extensions = new ArrayList<>(List.of("txt", "md", "markdown", "csv", "json"));
+    private DataSize maxFileSize = DataSize.ofMegabytes(10);
+    private int maxIndexedChars = 500_000;
+    private Duration budget = Duration.ofSeconds(2);
+    private int limit = 50;
+    private Duration backfillInterval = Duration.ofMinutes(10);
+    private int backfillUsersPerRun = 20;
+    private int backfillFilesPerSecond = 10;
+}
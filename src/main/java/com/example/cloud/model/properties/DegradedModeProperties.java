@@ -0,0 +1,30 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "degraded")
+@Getter
+@Setter
+public class DegradedModeProperties {
+    private boolean enabled = true;
+    private Duration probeInterval = Duration.ofSeconds(5);
+    private Duration probeTimeout = Duration.ofSeconds(3);
+    private int failureThreshold = 3;
+    private int recoveryThreshold = 2;
+    private Duration retryAfter = Duration.ofSeconds(30);
+    private Duration snapshotMaxAge = Duration.ofHours(1);
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+    private int snapshotUsersPerRun = 20;
+    private int searchLimit = 1000;
+    private List<String> writeEndpoints = new ArrayList<>(List.of(
+            "GET /api/resource/move"
+    ));
+}
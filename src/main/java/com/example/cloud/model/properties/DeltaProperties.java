@@ -0,0 +1,17 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "delta")
+@Getter
+@Setter
+public class DeltaProperties {
+    private DataSize blockSize = DataSize.ofMegabytes(8);
+    private int maxInstructions = 100_000;
+    private long signatureCacheSize = 1000;
+}
@@ -0,0 +1,19 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "download.disk-cache")
+@Getter
+@Setter
+public class DiskCacheProperties {
+    private boolean enabled = false;
+    private String directory = System.getProperty("java.io.tmpdir") + "/cloud-object-cache";
+    private DataSize maxSize = DataSize.ofGigabytes(10);
+    private DataSize maxObjectSize = DataSize.ofMegabytes(512);
+    private int admitAfterHits = 2;
+}
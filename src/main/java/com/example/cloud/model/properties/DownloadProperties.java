@@ -0,0 +1,18 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "download")
+@Getter
+@Setter
+public class DownloadProperties {
+    private int bufferSize = 256 * 1024;
+    private int asyncThreads = 64;
+    private Duration asyncTimeout = Duration.ofHours(1);
+}
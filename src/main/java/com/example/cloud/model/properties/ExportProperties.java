@@ -0,0 +1,23 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "export")
+@Getter
+@Setter
+public class ExportProperties {
+    private Duration ttl = Duration.ofDays(2);
+    private int maxEntries = 500_000;
+    private DataSize checkpointInterval = DataSize.ofMegabytes(16);
+    private Duration cleanupInterval = Duration.ofHours(1);
+    private Duration crcInterval = Duration.ofMinutes(1);
+    private Duration retryAfter = Duration.ofSeconds(10);
+    private long layoutCacheEntries = 1_000_000;
+}
@@ -0,0 +1,33 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "auth.rate-limit")
+@Getter
+@Setter
+public class LoginRateLimitProperties {
+    private boolean enabled = true;
+    private Limit perUsername = new Limit(10, Duration.ofMinutes(1));
+    private Limit perIp = new Limit(30, Duration.ofMinutes(1));
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "media")
+@Getter
+@Setter
+public class MediaProperties {
+    private DataSize chunkSize = DataSize.ofMegabytes(2);
+    private int readAheadChunks = 2;
+    private int readAheadThreads = 16;
+    private DataSize cacheSize = DataSize.ofMegabytes(256);
+    private DataSize bandwidthPerStream = DataSize.ofBytes(0);
+    private Index index = new Index();
+
+    @Getter
+    @Setter
+    public static class Index {
+        private boolean enabled = false;
+        private int maxBoxes = 64;
+        private List<String> extensions = new ArrayList<>(List.of("mp4", "m4v", "m4a", "mov"));
+    }
+}
@@ -4,6 +4,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @Component
 @ConfigurationProperties(prefix = "minio")
@@ -14,4 +17,37 @@ public class MinioProperties {
     private String accessKey;
     private String secretKey;
     private String bucket;
-}
\ No newline at end of file
+    private String publicUrl;
+    private String region = "us-east-1";
+    private Duration presignedUrlExpiry = Duration.ofMinutes(15);
+    private Tiering tiering = new Tiering();
+
+    @Getter
+    @Setter
+    public static class Tiering {
+        private boolean enabled = false;
+        private Endpoint capacity = new Endpoint();
+        private Duration demoteAfter = Duration.ofDays(7);
+        private DataSize minObjectSize = DataSize.ofMegabytes(1);
+        private int promoteAfterHits = 3;
+        private Duration promoteWindow = Duration.ofDays(1);
+        private Duration scanInterval = Duration.ofHours(6);
+        private Duration promoteInterval = Duration.ofMinutes(1);
+        private int promotionsPerRun = 100;
+        private int objectsPerSecond = 50;
+        private Duration accessFlushInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Capacity tier bucket. Without a url it lives on the same MinIO endpoint as the fast tier.
+     */
+    @Getter
+    @Setter
+    public static class Endpoint {
+        private String url;
+        private String accessKey;
+        private String secretKey;
+        private String publicUrl;
+        private String bucket;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "auth.password-hashing")
+@Getter
+@Setter
+public class PasswordHashingProperties {
+    private int strength = 10;
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 64;
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,19 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "session.near-cache")
+@Getter
+@Setter
+public class SessionNearCacheProperties {
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofSeconds(30);
+    private long maximumSize = 10_000;
+    private String invalidationChannel = "spring:session:near-cache:invalidate";
+}
@@ -0,0 +1,39 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "share")
+@Getter
+@Setter
+public class ShareProperties {
+    private Duration defaultTtl = Duration.ofDays(7);
+    private Duration maxTtl = Duration.ofDays(90);
+    private Duration cacheTtl = Duration.ofSeconds(30);
+    private long cacheSize = 100_000;
+    private Duration cleanupInterval = Duration.ofHours(1);
+    private Limit requests = new Limit(120, Duration.ofMinutes(1));
+    private DataSize bandwidthPerSecond = DataSize.ofMegabytes(20);
+    private int maxStreamsPerLink = 4;
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, Duration period) {
+            this.capacity = capacity;
+            this.period = period;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "storage.gc")
+@Getter
+@Setter
+public class StorageGcProperties {
+    private boolean enabled = false;
+    private Duration interval = Duration.ofMinutes(10);
+    private int usersPerRun = 50;
+    private int objectsPerSecond = 500;
+    private boolean pruneMarkers = true;
+    private Duration markerMinAge = Duration.ofHours(1);
+    private Duration multipartMaxAge = Duration.ofHours(24);
+    private Duration moveStaleAfter = Duration.ofMinutes(10);
+}
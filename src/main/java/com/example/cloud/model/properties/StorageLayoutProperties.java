@@ -0,0 +1,30 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "storage.layout")
+@Getter
+@Setter
+public class StorageLayoutProperties {
+    private String defaultLayout = "legacy";
+    private List<String> buckets = new ArrayList<>();
+    private Duration cacheTtl = Duration.ofSeconds(5);
+    private Migration migration = new Migration();
+
+    @Getter
+    @Setter
+    public static class Migration {
+        private boolean autoMigrate = false;
+        private Duration interval = Duration.ofMinutes(1);
+        private int usersPerRun = 1;
+        private int objectsPerSecond = 200;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "tracing")
+@Getter
+@Setter
+public class TracingProperties {
+    private boolean enabled = true;
+    private Duration slowThreshold = Duration.ofMillis(500);
+    private double sampleRatio = 0.01;
+    private int maxSpansPerTrace = 1000;
+    private int exportQueueSize = 1000;
+    private String serviceName = "cloud";
+    private String file;
+    private String otlpEndpoint;
+}
@@ -0,0 +1,23 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "trash")
+@Getter
+@Setter
+public class TrashProperties {
+    private boolean enabled = false;
+    private Duration retention = Duration.ofDays(30);
+    private Duration cacheTtl = Duration.ofSeconds(5);
+    private Duration relocateInterval = Duration.ofSeconds(10);
+    private Duration purgeInterval = Duration.ofMinutes(10);
+    private int entriesPerRun = 50;
+    private int objectsPerSecond = 500;
+    private int deleteChunkSize = 1000;
+}
@@ -0,0 +1,18 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "auth.user-cache")
+@Getter
+@Setter
+public class UserCacheProperties {
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofMinutes(5);
+    private long maximumSize = 5_000;
+}
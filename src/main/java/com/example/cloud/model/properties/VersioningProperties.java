@@ -0,0 +1,22 @@
+package com.example.cloud.model.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "versioning")
+@Getter
+@Setter
+public class VersioningProperties {
+    private boolean enabled = false;
+    private int maxVersions = 20;
+    private Duration retention = Duration.ofDays(90);
+    private Duration pruneInterval = Duration.ofHours(1);
+    private int versionsPerRun = 1000;
+    private int objectsPerSecond = 500;
+    private int deleteChunkSize = 1000;
+}
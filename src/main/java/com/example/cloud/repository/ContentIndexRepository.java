@@ -0,0 +1,69 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ContentIndexEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ContentIndexRepository extends JpaRepository<ContentIndexEntry, Long> {
+
+    interface Match {
+        String getPath();
+
+        long getSize();
+
+        String getSnippet();
+    }
+
+    /**
+     * Best matches first. Snippets are only built for the rows that are returned, with matches delimited by
+     * the {@code STX} and {@code ETX} control characters rather than markup, since the content is not escaped.
+     */
+    @Query(value = """
+            SELECT m.path AS path, m.size AS size,
+                   ts_headline('simple', m.content, m.query,
+                               'MaxFragments=2, MaxWords=20, MinWords=5, '
+                               || 'StartSel="' || chr(2) || '", StopSel="' || chr(3) || '"') AS snippet
+            FROM (
+                SELECT c.path, c.size, c.content, q.query
+                FROM content_index c, websearch_to_tsquery('simple', :query) AS q(query)
+                WHERE c.user_id = :userId AND c.content_tsv @@ q.query
+                ORDER BY ts_rank(c.content_tsv, q.query) DESC, c.path
+                LIMIT :limit
+            ) m
+            """, nativeQuery = true)
+    List<Match> search(@Param("userId") Long userId, @Param("query") String query, @Param("limit") int limit);
+
+    /**
+     * Limits statements of the current transaction to the given duration, such as {@code 2000ms}.
+     */
+    @Query(value = "SELECT set_config('statement_timeout', :timeout, true)", nativeQuery = true)
+    String setStatementTimeout(@Param("timeout") String timeout);
+
+    @Query(value = "SELECT path FROM content_index WHERE user_id = :userId", nativeQuery = true)
+    List<String> findPaths(@Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM content_index WHERE user_id = :userId AND path = :path", nativeQuery = true)
+    int delete(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = "DELETE FROM content_index WHERE user_id = :userId AND left(path, length(:path)) = :path",
+            nativeQuery = true)
+    int deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = """
+            UPDATE content_index SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    int moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = "UPDATE content_index SET path = :toPath WHERE user_id = :userId AND path = :fromPath",
+            nativeQuery = true)
+    int move(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+}
@@ -0,0 +1,50 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.DirectoryStats;
+import com.example.cloud.model.entity.DirectoryStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface DirectoryStatsRepository extends JpaRepository<DirectoryStats, DirectoryStatsId> {
+
+    List<DirectoryStats> findByIdUserIdAndIdPathIn(Long userId, Collection<String> paths);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO directory_stats (user_id, path, total_size, file_count, last_modified)
+            VALUES (:userId, :path, :sizeDelta, :countDelta, :lastModified)
+            ON CONFLICT (user_id, path) DO UPDATE SET
+                total_size = directory_stats.total_size + EXCLUDED.total_size,
+                file_count = directory_stats.file_count + EXCLUDED.file_count,
+                last_modified = GREATEST(directory_stats.last_modified, EXCLUDED.last_modified)
+            """, nativeQuery = true)
+    void applyDelta(@Param("userId") Long userId,
+                    @Param("path") String path,
+                    @Param("sizeDelta") long sizeDelta,
+                    @Param("countDelta") long countDelta,
+                    @Param("lastModified") Instant lastModified);
+
+    @Modifying
+    @Query(value = """
+            UPDATE directory_stats SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    void moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM directory_stats
+            WHERE user_id = :userId AND left(path, length(:path)) = :path
+            """, nativeQuery = true)
+    void deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = "DELETE FROM directory_stats WHERE user_id = :userId", nativeQuery = true)
+    void deleteAllForUser(@Param("userId") Long userId);
+}
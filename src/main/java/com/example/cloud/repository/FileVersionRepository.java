@@ -0,0 +1,53 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.FileVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface FileVersionRepository extends JpaRepository<FileVersion, Long> {
+
+    List<FileVersion> findByUserIdAndPathOrderByArchivedAtDescIdDesc(Long userId, String path);
+
+    Optional<FileVersion> findByIdAndUserIdAndPath(Long id, Long userId, String path);
+
+    @Query(value = "SELECT * FROM file_versions WHERE user_id = :userId AND left(path, length(:path)) = :path",
+            nativeQuery = true)
+    List<FileVersion> findSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    /**
+     * Versions past the newest {@code keep} of their file or archived before {@code cutoff}.
+     */
+    @Query(value = """
+            SELECT * FROM file_versions WHERE id IN (
+                SELECT id FROM (
+                    SELECT id, archived_at,
+                           row_number() OVER (PARTITION BY user_id, path ORDER BY archived_at DESC, id DESC) AS rank
+                    FROM file_versions
+                ) ranked
+                WHERE rank > :keep OR archived_at < :cutoff
+            )
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<FileVersion> findPrunable(@Param("keep") int keep,
+                                   @Param("cutoff") Instant cutoff,
+                                   @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            UPDATE file_versions SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    void moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = "UPDATE file_versions SET path = :toPath WHERE user_id = :userId AND path = :fromPath",
+            nativeQuery = true)
+    void move(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+}
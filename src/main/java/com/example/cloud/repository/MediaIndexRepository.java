@@ -0,0 +1,35 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.MediaIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface MediaIndexRepository extends JpaRepository<MediaIndex, Long> {
+
+    Optional<MediaIndex> findByUserIdAndPath(Long userId, String path);
+
+    @Modifying
+    @Query(value = "DELETE FROM media_indexes WHERE user_id = :userId AND path = :path", nativeQuery = true)
+    int delete(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = "DELETE FROM media_indexes WHERE user_id = :userId AND left(path, length(:path)) = :path",
+            nativeQuery = true)
+    int deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = """
+            UPDATE media_indexes SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    int moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = "UPDATE media_indexes SET path = :toPath WHERE user_id = :userId AND path = :fromPath",
+            nativeQuery = true)
+    int move(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+}
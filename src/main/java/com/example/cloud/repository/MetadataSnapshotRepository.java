@@ -0,0 +1,43 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.MetadataSnapshotEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface MetadataSnapshotRepository extends JpaRepository<MetadataSnapshotEntry, Long> {
+
+    List<MetadataSnapshotEntry> findByUserIdAndParentPathOrderByPathAsc(Long userId, String parentPath);
+
+    Optional<MetadataSnapshotEntry> findByUserIdAndPath(Long userId, String path);
+
+    @Query(value = """
+            SELECT * FROM metadata_snapshots
+            WHERE user_id = :userId AND right(path, 1) <> '/' AND strpos(lower(path), lower(:query)) > 0
+            ORDER BY path
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<MetadataSnapshotEntry> searchFiles(@Param("userId") Long userId, @Param("query") String query,
+                                            @Param("limit") int limit);
+
+    /**
+     * Users without a snapshot first, then those with the oldest one.
+     */
+    @Query(value = """
+            SELECT u.id FROM users u
+            LEFT JOIN metadata_snapshots s ON s.user_id = u.id AND s.path = ''
+            WHERE s.snapshot_at IS NULL OR s.snapshot_at < :before
+            ORDER BY s.snapshot_at NULLS FIRST, u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUsersWithSnapshotBefore(@Param("before") Instant before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM metadata_snapshots WHERE user_id = :userId", nativeQuery = true)
+    int deleteAllForUser(@Param("userId") Long userId);
+}
@@ -0,0 +1,92 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ObjectAccessStats;
+import com.example.cloud.model.entity.ObjectAccessStatsId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface ObjectAccessStatsRepository extends JpaRepository<ObjectAccessStats, ObjectAccessStatsId> {
+
+    List<ObjectAccessStats> findByIdUserIdAndIdPathInAndLastAccessedAtAfter(Long userId, Collection<String> paths,
+                                                                            Instant since);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO object_access_stats (user_id, path, last_accessed_at, window_started_at, window_hits)
+            VALUES (:userId, :path, :accessedAt, :accessedAt, :hits)
+            ON CONFLICT (user_id, path) DO UPDATE SET
+                last_accessed_at = GREATEST(object_access_stats.last_accessed_at, EXCLUDED.last_accessed_at),
+                window_hits = CASE WHEN object_access_stats.window_started_at < :windowStart
+                    THEN EXCLUDED.window_hits
+                    ELSE object_access_stats.window_hits + EXCLUDED.window_hits END,
+                window_started_at = CASE WHEN object_access_stats.window_started_at < :windowStart
+                    THEN EXCLUDED.window_started_at
+                    ELSE object_access_stats.window_started_at END
+            """, nativeQuery = true)
+    void recordHits(@Param("userId") Long userId,
+                    @Param("path") String path,
+                    @Param("hits") long hits,
+                    @Param("accessedAt") Instant accessedAt,
+                    @Param("windowStart") Instant windowStart);
+
+    /**
+     * Records the tier a file was moved to and starts a new hit window, so a demoted file has to earn its promotion.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO object_access_stats (user_id, path, tier, last_accessed_at, window_started_at, window_hits)
+            VALUES (:userId, :path, :tier, :now, :now, 0)
+            ON CONFLICT (user_id, path) DO UPDATE SET
+                tier = EXCLUDED.tier,
+                window_started_at = EXCLUDED.window_started_at,
+                window_hits = 0
+            """, nativeQuery = true)
+    void markTier(@Param("userId") Long userId,
+                  @Param("path") String path,
+                  @Param("tier") String tier,
+                  @Param("now") Instant now);
+
+    @Query(value = """
+            SELECT * FROM object_access_stats
+            WHERE tier = 'CAPACITY' AND window_started_at >= :windowStart AND window_hits >= :minHits
+            ORDER BY window_hits DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ObjectAccessStats> findPromotionCandidates(@Param("windowStart") Instant windowStart,
+                                                    @Param("minHits") long minHits,
+                                                    @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            DELETE FROM object_access_stats
+            WHERE user_id = :userId AND left(path, length(:path)) = :path
+            """, nativeQuery = true)
+    void deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = """
+            UPDATE object_access_stats SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    void moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = "UPDATE object_access_stats SET path = :toPath WHERE user_id = :userId AND path = :fromPath",
+            nativeQuery = true)
+    void move(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    /**
+     * Drops rows of fast tier files that have not been downloaded since {@code before}; for demotion they are
+     * indistinguishable from files that were never downloaded.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM object_access_stats WHERE tier = 'FAST' AND last_accessed_at < :before",
+            nativeQuery = true)
+    int deleteIdleFastRows(@Param("before") Instant before);
+}
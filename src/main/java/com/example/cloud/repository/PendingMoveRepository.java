@@ -0,0 +1,21 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.PendingMove;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PendingMoveRepository extends JpaRepository<PendingMove, Long> {
+
+    List<PendingMove> findTop100ByHeartbeatAtBeforeOrderByIdAsc(Instant before);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE pending_moves SET heartbeat_at = :now WHERE id = :id", nativeQuery = true)
+    int heartbeat(@Param("id") Long id, @Param("now") Instant now);
+}
@@ -0,0 +1,49 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ResourceChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ResourceChangeRepository extends JpaRepository<ResourceChange, Long> {
+
+    List<ResourceChange> findByUserIdAndSeqGreaterThanOrderBySeqAsc(Long userId, long cursor, Pageable pageable);
+
+    /**
+     * Takes the user's next sequence number. The row stays locked until the transaction ends, so a user's changes
+     * commit in sequence order and a reader never sees one before those numbered below it.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO change_sequences (user_id, last_seq, pruned_seq) VALUES (:userId, 1, 0)
+            ON CONFLICT (user_id) DO UPDATE SET last_seq = change_sequences.last_seq + 1
+            """, nativeQuery = true)
+    void incrementSequence(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COALESCE(MAX(last_seq), 0) FROM change_sequences WHERE user_id = :userId", nativeQuery = true)
+    long findLastSequence(@Param("userId") Long userId);
+
+    @Query(value = "SELECT COALESCE(MAX(pruned_seq), 0) FROM change_sequences WHERE user_id = :userId", nativeQuery = true)
+    long findPrunedSequence(@Param("userId") Long userId);
+
+    /**
+     * Raises each user's pruned watermark to the newest change about to be deleted, so cursors below it are
+     * reported as expired instead of silently skipping changes.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE change_sequences s SET pruned_seq = p.max_seq
+            FROM (SELECT user_id, MAX(seq) AS max_seq FROM resource_changes WHERE created_at < :cutoff GROUP BY user_id) p
+            WHERE s.user_id = p.user_id AND p.max_seq > s.pruned_seq
+            """, nativeQuery = true)
+    int markPruned(@Param("cutoff") Instant cutoff);
+
+    @Modifying
+    @Query(value = "DELETE FROM resource_changes WHERE created_at < :cutoff", nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") Instant cutoff);
+}
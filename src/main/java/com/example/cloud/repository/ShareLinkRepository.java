@@ -0,0 +1,45 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ShareLink;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ShareLinkRepository extends JpaRepository<ShareLink, Long> {
+
+    Optional<ShareLink> findByToken(String token);
+
+    List<ShareLink> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    Optional<ShareLink> findByIdAndUserId(Long id, Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM share_links WHERE expires_at < :now", nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now);
+
+    @Modifying
+    @Query(value = "DELETE FROM share_links WHERE user_id = :userId AND path = :path", nativeQuery = true)
+    int delete(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = "DELETE FROM share_links WHERE user_id = :userId AND left(path, length(:path)) = :path",
+            nativeQuery = true)
+    int deleteSubtree(@Param("userId") Long userId, @Param("path") String path);
+
+    @Modifying
+    @Query(value = """
+            UPDATE share_links SET path = :toPath || substring(path FROM length(:fromPath) + 1)
+            WHERE user_id = :userId AND left(path, length(:fromPath)) = :fromPath
+            """, nativeQuery = true)
+    int moveSubtree(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+
+    @Modifying
+    @Query(value = "UPDATE share_links SET path = :toPath WHERE user_id = :userId AND path = :fromPath",
+            nativeQuery = true)
+    int move(@Param("userId") Long userId, @Param("fromPath") String fromPath, @Param("toPath") String toPath);
+}
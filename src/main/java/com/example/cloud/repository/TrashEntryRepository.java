@@ -0,0 +1,55 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.TrashEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TrashEntryRepository extends JpaRepository<TrashEntry, Long> {
+
+    List<TrashEntry> findByUserIdOrderByDeletedAtDesc(Long userId);
+
+    Optional<TrashEntry> findByIdAndUserId(Long id, Long userId);
+
+    @Query("SELECT t.path FROM TrashEntry t WHERE t.userId = :userId AND t.state IN :states")
+    List<String> findPathsByUserIdAndStateIn(@Param("userId") Long userId,
+                                             @Param("states") Collection<TrashEntry.State> states);
+
+    @Query("SELECT t FROM TrashEntry t WHERE t.state IN :states AND t.updatedAt < :before ORDER BY t.id")
+    List<TrashEntry> findToRelocate(@Param("states") Collection<TrashEntry.State> states,
+                                    @Param("before") Instant before,
+                                    Pageable pageable);
+
+    @Query("SELECT t FROM TrashEntry t WHERE t.state = :state AND t.expiresAt < :now ORDER BY t.expiresAt")
+    List<TrashEntry> findExpired(@Param("state") TrashEntry.State state,
+                                 @Param("now") Instant now,
+                                 Pageable pageable);
+
+    /**
+     * Moves the entry to the given state if nobody changed it since it was read.
+     */
+    @Modifying
+    @Query("""
+            UPDATE TrashEntry t SET t.state = :state, t.updatedAt = :now
+            WHERE t.id = :id AND t.updatedAt = :seen
+            """)
+    int transition(@Param("id") Long id,
+                   @Param("state") TrashEntry.State state,
+                   @Param("seen") Instant seen,
+                   @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM TrashEntry t WHERE t.id = :id AND t.state = :state")
+    int deleteByIdAndState(@Param("id") Long id, @Param("state") TrashEntry.State state);
+
+    @Modifying
+    @Query("UPDATE TrashEntry t SET t.expiresAt = :now WHERE t.userId = :userId AND (:id IS NULL OR t.id = :id)")
+    int expireNow(@Param("userId") Long userId, @Param("id") Long id, @Param("now") Instant now);
+}
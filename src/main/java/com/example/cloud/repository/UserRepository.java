@@ -1,12 +1,19 @@
 package com.example.cloud.repository;
 
 import com.example.cloud.model.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    @Query("SELECT u.id FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
 }
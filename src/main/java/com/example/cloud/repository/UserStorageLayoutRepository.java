@@ -0,0 +1,54 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.UserStorageLayout;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserStorageLayoutRepository extends JpaRepository<UserStorageLayout, Long> {
+
+    @Query(value = """
+            SELECT u.id FROM users u
+            LEFT JOIN user_storage_layouts l ON l.user_id = u.id
+            WHERE l.user_id IS NULL OR l.layout <> :layout OR l.target_layout IS NOT NULL
+            ORDER BY l.target_layout IS NULL, u.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUsersToMigrate(@Param("layout") String layout, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT user_id FROM user_storage_layouts
+            WHERE target_layout IS NOT NULL
+            ORDER BY updated_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUnfinishedMigrations(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_storage_layouts (user_id, layout, target_layout, updated_at)
+            VALUES (:userId, :layout, NULL, now())
+            ON CONFLICT (user_id) DO NOTHING
+            """, nativeQuery = true)
+    void insertIfAbsent(@Param("userId") Long userId, @Param("layout") String layout);
+
+    /**
+     * Claims the user for migration; returns 0 when another migration already holds it.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE user_storage_layouts SET target_layout = :target, updated_at = now()
+            WHERE user_id = :userId AND target_layout IS NULL AND layout <> :target
+            """, nativeQuery = true)
+    int claimMigration(@Param("userId") Long userId, @Param("target") String target);
+
+    @Modifying
+    @Query(value = """
+            UPDATE user_storage_layouts SET layout = target_layout, target_layout = NULL, updated_at = now()
+            WHERE user_id = :userId AND target_layout = :target
+            """, nativeQuery = true)
+    int completeMigration(@Param("userId") Long userId, @Param("target") String target);
+}
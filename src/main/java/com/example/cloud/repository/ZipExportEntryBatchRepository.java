@@ -0,0 +1,13 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ZipExportEntry;
+
+import java.util.List;
+
+public interface ZipExportEntryBatchRepository {
+
+    /**
+     * Inserts the entries with JDBC batches, without reading back their generated ids.
+     */
+    void insertAll(List<ZipExportEntry> entries);
+}
@@ -0,0 +1,47 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ZipExportEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Exports have up to {@code export.max-entries} entries, and with identity ids Hibernate inserts them one statement
+ * at a time to learn each id. Nothing reads the ids, so the entries are written in plain JDBC batches instead.
+ */
+@RequiredArgsConstructor
+public class ZipExportEntryBatchRepositoryImpl implements ZipExportEntryBatchRepository {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String INSERT = """
+            INSERT INTO zip_export_entries (export_id, entry_index, name, size, etag, compressed, last_modified, crc)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<ZipExportEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT, entries, BATCH_SIZE, (statement, entry) -> {
+            statement.setLong(1, entry.getExportId());
+            statement.setInt(2, entry.getEntryIndex());
+            statement.setString(3, entry.getName());
+            statement.setLong(4, entry.getSize());
+            statement.setString(5, entry.getEtag());
+            statement.setBoolean(6, entry.isCompressed());
+            if (entry.getLastModified() != null) {
+                statement.setTimestamp(7, Timestamp.from(entry.getLastModified()));
+            } else {
+                statement.setNull(7, Types.TIMESTAMP_WITH_TIMEZONE);
+            }
+            if (entry.getCrc() != null) {
+                statement.setLong(8, entry.getCrc());
+            } else {
+                statement.setNull(8, Types.BIGINT);
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ZipExportEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ZipExportEntryRepository extends JpaRepository<ZipExportEntry, Long>, ZipExportEntryBatchRepository {
+
+    interface Checkpoint {
+        long getLength();
+
+        long getCrc();
+    }
+
+    List<ZipExportEntry> findByExportIdOrderByEntryIndex(Long exportId);
+
+    @Modifying
+    @Query(value = "UPDATE zip_export_entries SET crc = :crc WHERE export_id = :exportId AND entry_index = :entryIndex",
+            nativeQuery = true)
+    int updateCrc(@Param("exportId") Long exportId, @Param("entryIndex") int entryIndex, @Param("crc") long crc);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO zip_export_checkpoints (export_id, entry_index, length, crc)
+            VALUES (:exportId, :entryIndex, :length, :crc)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int saveCheckpoint(@Param("exportId") Long exportId, @Param("entryIndex") int entryIndex,
+                       @Param("length") long length, @Param("crc") long crc);
+
+    /**
+     * The CRC of the longest known prefix of the entry that is not longer than {@code maxLength}.
+     */
+    @Query(value = """
+            SELECT length, crc FROM zip_export_checkpoints
+            WHERE export_id = :exportId AND entry_index = :entryIndex AND length <= :maxLength
+            ORDER BY length DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<Checkpoint> findCheckpoint(@Param("exportId") Long exportId, @Param("entryIndex") int entryIndex,
+                                        @Param("maxLength") long maxLength);
+}
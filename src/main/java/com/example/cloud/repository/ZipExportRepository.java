@@ -0,0 +1,32 @@
+package com.example.cloud.repository;
+
+import com.example.cloud.model.entity.ZipExport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface ZipExportRepository extends JpaRepository<ZipExport, Long> {
+
+    Optional<ZipExport> findByTokenAndUserId(String token, Long userId);
+
+    @Query(value = """
+            SELECT id FROM zip_exports
+            WHERE state = 'PENDING' AND expires_at > :now
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findPendingIds(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE zip_exports SET state = :state WHERE id = :id AND state = 'PENDING'", nativeQuery = true)
+    int finish(@Param("id") Long id, @Param("state") String state);
+
+    @Modifying
+    @Query(value = "DELETE FROM zip_exports WHERE expires_at < :now", nativeQuery = true)
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,93 @@
+package com.example.cloud.security;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs BCrypt on a dedicated bounded executor so that a burst of logins queues up (or is shed with 429)
+ * instead of occupying every request thread, and asks for a rehash whenever a stored hash was produced
+ * with a different cost factor than the configured one.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final int strength;
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Timer hashing;
+
+    public BoundedPasswordEncoder(int strength, ExecutorService executor, Duration timeout, MeterRegistry meterRegistry) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.rejected = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+        this.timedOut = Counter.builder("password.hashing.timeouts")
+                .description("Password hashing tasks that did not finish in time")
+                .register(meterRegistry);
+        this.hashing = Timer.builder("password.hashing.duration")
+                .description("Time spent computing BCrypt hashes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> hashing.recordCallable(task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many authentication requests, try again later", Duration.ofSeconds(1));
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new TooManyRequestsException("Authentication is taking too long, try again later", Duration.ofSeconds(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -4,11 +4,13 @@ import com.example.cloud.model.entity.User;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 
 @Getter
@@ -17,16 +19,22 @@ public class CustomUserDetails implements UserDetails, Serializable {
     private final Long id;
     private final String username;
     private final String password;
+    private final boolean admin;
 
     public CustomUserDetails(User user) {
+        this(user, false);
+    }
+
+    public CustomUserDetails(User user, boolean admin) {
         this.id = user.getId();
         this.username = user.getUsername();
         this.password = user.getPassword();
+        this.admin = admin;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Collections.emptyList();
+        return admin ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN")) : Collections.emptyList();
     }
 
 }
@@ -1,23 +1,72 @@
 package com.example.cloud.security.service;
 
+import com.example.cloud.model.entity.User;
+import com.example.cloud.model.properties.AdminProperties;
+import com.example.cloud.model.properties.UserCacheProperties;
 import com.example.cloud.repository.UserRepository;
 import com.example.cloud.security.CustomUserDetails;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
-public class CustomUserDetailService implements UserDetailsService {
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserCacheProperties cacheProperties;
+    private final AdminProperties adminProperties;
+    private final Cache<String, CustomUserDetails> userCache;
+
+    public CustomUserDetailService(UserRepository userRepository, UserCacheProperties cacheProperties,
+                                   AdminProperties adminProperties) {
+        this.userRepository = userRepository;
+        this.cacheProperties = cacheProperties;
+        this.adminProperties = adminProperties;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getTtl())
+                .build();
+    }
 
     @Override
     public CustomUserDetails loadUserByUsername(String username) {
+        if (!cacheProperties.isEnabled()) {
+            return findUser(username);
+        }
+        return userCache.get(username, this::findUser);
+    }
+
+    @Override
+    @Transactional
+    public CustomUserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "User not found with username: " + userDetails.getUsername()));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        evict(user.getUsername());
+        log.info("Password hash of user {} was upgraded", user.getUsername());
+        return toDetails(user);
+    }
+
+    public void evict(String username) {
+        userCache.invalidate(username);
+    }
 
+    private CustomUserDetails findUser(String username) {
         return userRepository.findByUsername(username)
-                .map(CustomUserDetails::new)
+                .map(this::toDetails)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
     }
+
+    private CustomUserDetails toDetails(User user) {
+        return new CustomUserDetails(user, adminProperties.getUsernames().contains(user.getUsername()));
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.cloud.security.service;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.properties.LoginRateLimitProperties;
+import com.example.cloud.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Limits authentication attempts per client address and failed attempts per username from one address. The
+ * username limit is charged only by wrong passwords and is kept per address, so nobody can lock a user out by
+ * spraying bad passwords for their name from elsewhere.
+ */
+@Slf4j
+@Service
+public class LoginRateLimiter {
+
+    private final LoginRateLimitProperties properties;
+    private final Cache<String, TokenBucket> usernameBuckets;
+    private final Cache<String, TokenBucket> ipBuckets;
+    private final Counter usernameLimited;
+    private final Counter ipLimited;
+
+    public LoginRateLimiter(LoginRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.usernameBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(properties.getPerUsername().getPeriod())
+                .build();
+        this.ipBuckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(properties.getPerIp().getPeriod())
+                .build();
+        this.usernameLimited = Counter.builder("auth.rate_limited").tag("key", "username").register(meterRegistry);
+        this.ipLimited = Counter.builder("auth.rate_limited").tag("key", "ip").register(meterRegistry);
+    }
+
+    public void check(String username, String remoteAddress) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        if (remoteAddress != null) {
+            TokenBucket ipBucket = ipBuckets.get(remoteAddress, key -> bucket(properties.getPerIp()));
+            if (!ipBucket.tryConsume(1)) {
+                ipLimited.increment();
+                log.warn("Login rate limit exceeded for address {}", remoteAddress);
+                throw limited(ipBucket);
+            }
+        }
+
+        if (username != null) {
+            TokenBucket usernameBucket = usernameBuckets.getIfPresent(usernameKey(username, remoteAddress));
+            if (usernameBucket != null && !usernameBucket.timeUntilAvailable(1).isZero()) {
+                usernameLimited.increment();
+                log.warn("Login rate limit exceeded for username {} from address {}", username, remoteAddress);
+                throw limited(usernameBucket);
+            }
+        }
+    }
+
+    /**
+     * Charges a failed attempt to the username, as seen from the client's address.
+     */
+    public void recordFailure(String username, String remoteAddress) {
+        if (!properties.isEnabled() || username == null) {
+            return;
+        }
+        usernameBuckets.get(usernameKey(username, remoteAddress), key -> bucket(properties.getPerUsername()))
+                .tryConsume(1);
+    }
+
+    private static String usernameKey(String username, String remoteAddress) {
+        return username.toLowerCase(Locale.ROOT) + "|" + remoteAddress;
+    }
+
+    private static TokenBucket bucket(LoginRateLimitProperties.Limit limit) {
+        return new TokenBucket(limit.getCapacity(), limit.getPeriod());
+    }
+
+    private static TooManyRequestsException limited(TokenBucket bucket) {
+        Duration retryAfter = bucket.timeUntilAvailable(1);
+        return new TooManyRequestsException("Too many authentication attempts, try again later", retryAfter);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.cloud.security.session;
+
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.util.SerializationUtils;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Session handed out by {@link NearCacheSessionRepository}. Reads are served from a private copy of the
+ * cached snapshot until the first mutation, which loads the real session from Redis; from then on every
+ * call goes to the real session. Changes other than the last access time mark the session dirty.
+ * <p>
+ * Attribute values are mutable objects (the security context, for one), so each one is deep-copied on its first
+ * read; a request that changes a value in place never touches the cached snapshot other requests read from.
+ */
+class CachedSession implements Session {
+
+    private final MapSession snapshot;
+    private final Function<String, Session> loader;
+    private final Set<String> copiedAttributes = new HashSet<>();
+    private Session materialized;
+    private boolean dirty;
+    private boolean missing;
+
+    CachedSession(MapSession snapshot, Function<String, Session> loader, Session materialized) {
+        this.snapshot = new MapSession(snapshot);
+        this.loader = loader;
+        this.materialized = materialized;
+    }
+
+    /**
+     * A copy of the session whose attribute values share no state with it, safe to keep in the cache.
+     */
+    static MapSession detachedCopy(Session session) {
+        MapSession copy = new MapSession(session);
+        for (String name : copy.getAttributeNames()) {
+            copy.setAttribute(name, deepCopy(copy.getAttribute(name)));
+        }
+        return copy;
+    }
+
+    String getOriginalId() {
+        return snapshot.getId();
+    }
+
+    Session getMaterialized() {
+        return materialized;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    boolean isMissing() {
+        return missing;
+    }
+
+    @Override
+    public String getId() {
+        return materialized != null ? materialized.getId() : snapshot.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+        return writable().changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+        if (materialized != null) {
+            return materialized.getAttribute(attributeName);
+        }
+        if (copiedAttributes.add(attributeName)) {
+            Object value = snapshot.getAttribute(attributeName);
+            if (value != null) {
+                snapshot.setAttribute(attributeName, deepCopy(value));
+            }
+        }
+        return snapshot.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+        return materialized != null ? materialized.getAttributeNames() : snapshot.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+        if (attributeValue != null && getAttribute(attributeName) == attributeValue) {
+            return;
+        }
+        writable().setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+        if (getAttribute(attributeName) == null) {
+            return;
+        }
+        writable().removeAttribute(attributeName);
+    }
+
+    @Override
+    public Instant getCreationTime() {
+        return snapshot.getCreationTime();
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+        snapshot.setLastAccessedTime(lastAccessedTime);
+        if (materialized != null) {
+            materialized.setLastAccessedTime(lastAccessedTime);
+        }
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+        return materialized != null ? materialized.getLastAccessedTime() : snapshot.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+        if (interval.equals(getMaxInactiveInterval())) {
+            return;
+        }
+        writable().setMaxInactiveInterval(interval);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+        return materialized != null ? materialized.getMaxInactiveInterval() : snapshot.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+        return materialized != null ? materialized.isExpired() : snapshot.isExpired();
+    }
+
+    private static Object deepCopy(Object value) {
+        return value instanceof Serializable serializable ? SerializationUtils.clone(serializable) : value;
+    }
+
+    private Session writable() {
+        dirty = true;
+        if (materialized == null) {
+            Session loaded = loader.apply(snapshot.getId());
+            if (loaded == null) {
+                // Deleted in Redis after we cached it: let the request finish on the copy, save() drops it.
+                missing = true;
+                materialized = snapshot;
+            } else {
+                loaded.setLastAccessedTime(snapshot.getLastAccessedTime());
+                materialized = loaded;
+            }
+        }
+        return materialized;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.cloud.security.session;
+
+import com.example.cloud.model.properties.SessionNearCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+/**
+ * Keeps recently loaded sessions (and the security contexts inside them) in memory for a short TTL,
+ * so read-only requests skip the Redis round trip and attribute deserialization. Sessions that are
+ * modified, invalidated or re-keyed are evicted here and on every other node via Redis pub/sub.
+ */
+@Slf4j
+public class NearCacheSessionRepository implements SessionRepository<Session> {
+
+    private final SessionRepository<Session> delegate;
+    private final SessionNearCacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final Cache<String, MapSession> sessions;
+    private final Cache<String, Boolean> invalidated;
+
+    @SuppressWarnings("unchecked")
+    public NearCacheSessionRepository(SessionRepository<? extends Session> delegate,
+                                      SessionNearCacheProperties properties,
+                                      StringRedisTemplate redisTemplate,
+                                      ObservationRegistry observationRegistry) {
+        this.delegate = (SessionRepository<Session>) delegate;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.observationRegistry = observationRegistry;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+        this.invalidated = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    @Override
+    public Session createSession() {
+        return delegate.createSession();
+    }
+
+    @Override
+    public void save(Session session) {
+        if (!(session instanceof CachedSession cached)) {
+            delegate.save(session);
+            return;
+        }
+
+        Session materialized = cached.getMaterialized();
+        if (materialized == null) {
+            return;
+        }
+
+        if (cached.isDirty()) {
+            evict(cached.getOriginalId());
+        }
+        if (!cached.isMissing()) {
+            delegate.save(materialized);
+        }
+    }
+
+    @Override
+    public Session findById(String id) {
+        if (!properties.isEnabled()) {
+            return load(id);
+        }
+
+        MapSession snapshot = sessions.getIfPresent(id);
+        if (snapshot != null && !snapshot.isExpired()) {
+            return new CachedSession(snapshot, delegate::findById, null);
+        }
+
+        Session loaded = load(id);
+        if (loaded == null) {
+            return null;
+        }
+        snapshot = CachedSession.detachedCopy(loaded);
+        if (invalidated.getIfPresent(id) == null) {
+            sessions.put(id, snapshot);
+        }
+        return new CachedSession(snapshot, delegate::findById, loaded);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        delegate.deleteById(id);
+        evict(id);
+    }
+
+    public void evictLocally(String id) {
+        invalidated.put(id, Boolean.TRUE);
+        sessions.invalidate(id);
+    }
+
+    private Session load(String id) {
+        return Observation.createNotStarted("session.load", observationRegistry)
+                .observe(() -> delegate.findById(id));
+    }
+
+    private void evict(String id) {
+        evictLocally(id);
+        try {
+            redisTemplate.convertAndSend(properties.getInvalidationChannel(), id);
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish session invalidation for {}", id, e);
+        }
+    }
+}
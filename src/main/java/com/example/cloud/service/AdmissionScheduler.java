@@ -0,0 +1,254 @@
+package com.example.cloud.service;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.properties.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits requests against global and per-user concurrency limits, with a tighter limit for transfers. Requests
+ * that cannot run yet wait in one queue ordered by virtual finish time: each user's requests are tagged after
+ * that user's previous one, a transfer costing {@code admission.transfer-weight} times a metadata request, so a
+ * user with many queued zips gets a fair share instead of the whole server. Waiting longer than
+ * {@code admission.queue-timeout}, or arriving at a full queue, is answered with 429.
+ */
+@Slf4j
+@Service
+public class AdmissionScheduler {
+
+    public enum RequestClass {
+        METADATA,
+        TRANSFER
+    }
+
+    private final AdmissionProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> queue = new TreeSet<>(
+            Comparator.comparingDouble(Waiter::tag).thenComparingLong(Waiter::sequence));
+    private final Map<Long, UserState> users = new HashMap<>();
+    private final Map<RequestClass, Integer> running = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Integer> queued = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Timer> waitTimers = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shedQueueFull = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shedTimeout = new EnumMap<>(RequestClass.class);
+    private double virtualTime;
+    private long sequence;
+
+    public AdmissionScheduler(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (RequestClass requestClass : RequestClass.values()) {
+            String tag = requestClass.name().toLowerCase();
+            running.put(requestClass, 0);
+            queued.put(requestClass, 0);
+            Gauge.builder("admission.inflight", this, scheduler -> scheduler.count(scheduler.running, requestClass))
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("admission.queued", this, scheduler -> scheduler.count(scheduler.queued, requestClass))
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            waitTimers.put(requestClass, Timer.builder("admission.queue.wait").tag("class", tag).register(meterRegistry));
+            shedQueueFull.put(requestClass, Counter.builder("admission.shed")
+                    .tag("class", tag).tag("reason", "queue_full").register(meterRegistry));
+            shedTimeout.put(requestClass, Counter.builder("admission.shed")
+                    .tag("class", tag).tag("reason", "timeout").register(meterRegistry));
+        }
+    }
+
+    /**
+     * Blocks until the request may run. The returned permit must be released once the response is complete.
+     */
+    public Permit acquire(Long userId, RequestClass requestClass) {
+        long start = System.nanoTime();
+        Waiter waiter;
+        lock.lock();
+        try {
+            UserState user = users.computeIfAbsent(userId, id -> new UserState());
+            if (queue.size() >= properties.getMaxQueue() || user.queued >= properties.getPerUserQueue()) {
+                shedQueueFull.get(requestClass).increment();
+                forgetIfIdle(userId, user);
+                throw overloaded();
+            }
+
+            double cost = requestClass == RequestClass.TRANSFER ? properties.getTransferWeight() : 1;
+            double tag = Math.max(virtualTime, user.lastTag) + cost;
+            user.lastTag = tag;
+            waiter = new Waiter(userId, requestClass, tag, cost, sequence++, lock.newCondition());
+            queue.add(waiter);
+            user.queued++;
+            queued.merge(requestClass, 1, Integer::sum);
+            dispatch();
+
+            long remaining = properties.getQueueTimeout().toNanos();
+            while (!waiter.admitted) {
+                if (remaining <= 0) {
+                    withdraw(waiter, user);
+                    shedTimeout.get(requestClass).increment();
+                    log.debug("Shed {} request of user {} after waiting {}", requestClass, userId, properties.getQueueTimeout());
+                    throw overloaded();
+                }
+                try {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    // The slot may have been granted just before the interrupt; nobody will release it but us.
+                    if (waiter.admitted) {
+                        release(userId, requestClass);
+                    } else {
+                        withdraw(waiter, user);
+                    }
+                    throw overloaded();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        waitTimers.get(requestClass).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(userId, requestClass);
+    }
+
+    private void release(Long userId, RequestClass requestClass) {
+        lock.lock();
+        try {
+            UserState user = users.get(userId);
+            running.merge(requestClass, -1, Integer::sum);
+            user.running--;
+            if (requestClass == RequestClass.TRANSFER) {
+                user.runningTransfers--;
+            }
+            dispatch();
+            forgetIfIdle(userId, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void withdraw(Waiter waiter, UserState user) {
+        queue.remove(waiter);
+        user.queued--;
+        queued.merge(waiter.requestClass, -1, Integer::sum);
+        forgetIfIdle(waiter.userId, user);
+    }
+
+    /**
+     * Admits queued requests in tag order, skipping those whose user is at a limit, until the server is full.
+     */
+    private void dispatch() {
+        Iterator<Waiter> iterator = queue.iterator();
+        while (iterator.hasNext() && total() < properties.getMaxConcurrent()) {
+            Waiter waiter = iterator.next();
+            UserState user = users.get(waiter.userId);
+            if (!canRun(user, waiter.requestClass)) {
+                continue;
+            }
+            iterator.remove();
+            user.queued--;
+            user.running++;
+            if (waiter.requestClass == RequestClass.TRANSFER) {
+                user.runningTransfers++;
+            }
+            queued.merge(waiter.requestClass, -1, Integer::sum);
+            running.merge(waiter.requestClass, 1, Integer::sum);
+            virtualTime = Math.max(virtualTime, waiter.tag - waiter.cost);
+            waiter.admitted = true;
+            waiter.condition.signal();
+        }
+    }
+
+    private boolean canRun(UserState user, RequestClass requestClass) {
+        if (user.running >= properties.getPerUserConcurrent()) {
+            return false;
+        }
+        return requestClass != RequestClass.TRANSFER
+                || (user.runningTransfers < properties.getPerUserConcurrentTransfers()
+                && running.get(RequestClass.TRANSFER) < properties.getMaxConcurrentTransfers());
+    }
+
+    private void forgetIfIdle(Long userId, UserState user) {
+        if (user.running == 0 && user.queued == 0 && user.lastTag <= virtualTime) {
+            users.remove(userId);
+        }
+    }
+
+    private int total() {
+        return running.get(RequestClass.METADATA) + running.get(RequestClass.TRANSFER);
+    }
+
+    private int count(Map<RequestClass, Integer> counts, RequestClass requestClass) {
+        lock.lock();
+        try {
+            return counts.get(requestClass);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TooManyRequestsException overloaded() {
+        return new TooManyRequestsException("Server is busy, try again later", properties.getRetryAfter());
+    }
+
+    private static final class UserState {
+        private int running;
+        private int runningTransfers;
+        private int queued;
+        private double lastTag;
+    }
+
+    private static final class Waiter {
+        private final Long userId;
+        private final RequestClass requestClass;
+        private final double tag;
+        private final double cost;
+        private final long sequence;
+        private final Condition condition;
+        private boolean admitted;
+
+        private Waiter(Long userId, RequestClass requestClass, double tag, double cost, long sequence, Condition condition) {
+            this.userId = userId;
+            this.requestClass = requestClass;
+            this.tag = tag;
+            this.cost = cost;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        private double tag() {
+            return tag;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+    }
+
+    public final class Permit {
+        private final Long userId;
+        private final RequestClass requestClass;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Long userId, RequestClass requestClass) {
+            this.userId = userId;
+            this.requestClass = requestClass;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionScheduler.this.release(userId, requestClass);
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.example.cloud.model.dto.request.UserAuthDto;
 import com.example.cloud.model.dto.response.UserResponseDto;
 import com.example.cloud.model.entity.User;
 import com.example.cloud.repository.UserRepository;
+import com.example.cloud.security.service.LoginRateLimiter;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
 import jakarta.persistence.EntityExistsException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -13,6 +15,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -28,11 +31,19 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final SecurityContextRepository contextRepository;
+    private final LoginRateLimiter loginRateLimiter;
+    private final KeyLayoutResolver keyLayoutResolver;
 
     public UserResponseDto authenticateUser(UserAuthDto userAuthDto,
                                             HttpServletRequest request, HttpServletResponse response) {
 
-        authenticateUserAndSetContext(userAuthDto, request, response);
+        loginRateLimiter.check(userAuthDto.getUsername(), request.getRemoteAddr());
+        try {
+            authenticateUserAndSetContext(userAuthDto, request, response);
+        } catch (AuthenticationException e) {
+            loginRateLimiter.recordFailure(userAuthDto.getUsername(), request.getRemoteAddr());
+            throw e;
+        }
 
         log.info("User {} authenticated", userAuthDto.getUsername());
 
@@ -43,11 +54,13 @@ public class AuthService {
     public User registerUser(UserAuthDto userDto,
                              HttpServletRequest request, HttpServletResponse response) {
 
+        loginRateLimiter.check(userDto.getUsername(), request.getRemoteAddr());
         String encodedPassword = passwordEncoder.encode(userDto.getPassword());
         User user = new User(userDto.getUsername(), encodedPassword);
 
         try {
             userRepository.save(user);
+            keyLayoutResolver.assign(user.getId());
             log.info("User {} registered", userDto.getUsername());
 
             authenticateUserAndSetContext(userDto, request, response);
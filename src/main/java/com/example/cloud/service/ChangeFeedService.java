@@ -0,0 +1,261 @@
+package com.example.cloud.service;
+
+import com.example.cloud.exception.ChangeCursorExpiredException;
+import com.example.cloud.model.dto.response.ChangeDto;
+import com.example.cloud.model.dto.response.ChangesResponseDto;
+import com.example.cloud.model.entity.ResourceChange;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ChangeFeedProperties;
+import com.example.cloud.repository.ResourceChangeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only per-user change log. Every storage mutation is recorded with the user's next sequence number, which
+ * is taken under a row lock so changes become visible in cursor order; clients either page through changes since
+ * their cursor or subscribe to a server-sent event stream. Subscribers on every node are woken through a Redis
+ * channel carrying the user id, and changes are sent to them on the feed's own delivery threads.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChangeFeedService {
+
+    private static final String CHANGE_EVENT = "change";
+    private static final int DELIVERY_THREADS = 2;
+
+    private final ResourceChangeRepository resourceChangeRepository;
+    private final ChangeFeedProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(DELIVERY_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "change-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> record(event));
+        } catch (Exception e) {
+            log.warn("Failed to record {} change of {} for user {}: {}",
+                    event.type(), event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ChangesResponseDto getChanges(Long userId, Long cursor, Integer limit) {
+        if (cursor == null) {
+            return new ChangesResponseDto(List.of(), resourceChangeRepository.findLastSequence(userId), false);
+        }
+        checkCursor(userId, cursor);
+
+        int pageSize = limit == null ? properties.getPageSize() : Math.max(1, Math.min(limit, properties.getPageSize()));
+        List<ResourceChange> changes = resourceChangeRepository.findByUserIdAndSeqGreaterThanOrderBySeqAsc(
+                userId, cursor, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = changes.size() > pageSize;
+        List<ChangeDto> page = changes.stream().limit(pageSize).map(this::toDto).toList();
+        long nextCursor = page.isEmpty() ? cursor : page.get(page.size() - 1).id();
+        return new ChangesResponseDto(page, nextCursor, hasMore);
+    }
+
+    public SseEmitter subscribe(Long userId, Long cursor) {
+        long start = cursor != null ? cursor : resourceChangeRepository.findLastSequence(userId);
+        checkCursor(userId, start);
+
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Subscription subscription = new Subscription(userId, emitter, start);
+        subscriptions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+
+        deliver(subscription);
+        return emitter;
+    }
+
+    /**
+     * Called on the Redis listener thread for every notification on the channel, including the ones this node
+     * published. Only schedules delivery; a subscription with a delivery already queued is not queued again.
+     */
+    public void onNotification(String userId) {
+        Set<Subscription> userSubscriptions;
+        try {
+            userSubscriptions = subscriptions.get(Long.valueOf(userId));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            if (!subscription.queued.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                deliveryExecutor.execute(() -> {
+                    subscription.queued.set(false);
+                    deliver(subscription);
+                });
+            } catch (RejectedExecutionException e) {
+                subscription.queued.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${changes.heartbeat-interval:25s}")
+    public void sendHeartbeats() {
+        subscriptions.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> {
+            try {
+                subscription.emitter().send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(subscription);
+            }
+        }));
+    }
+
+    @Scheduled(fixedDelayString = "PT1H", initialDelayString = "PT5M")
+    @Transactional
+    public void pruneExpiredChanges() {
+        Instant cutoff = Instant.now().minus(properties.getRetention());
+        resourceChangeRepository.markPruned(cutoff);
+        int deleted = resourceChangeRepository.deleteOlderThan(cutoff);
+        if (deleted > 0) {
+            log.info("Pruned {} changes older than {}", deleted, properties.getRetention());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    private void record(ResourceChangedEvent event) {
+        resourceChangeRepository.incrementSequence(event.userId());
+        resourceChangeRepository.save(new ResourceChange(
+                null,
+                event.userId(),
+                resourceChangeRepository.findLastSequence(event.userId()),
+                event.type(),
+                event.path(),
+                event.targetPath(),
+                event.size(),
+                Instant.now()
+        ));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifySubscribers(event.userId());
+            }
+        });
+    }
+
+    private void notifySubscribers(Long userId) {
+        try {
+            redisTemplate.convertAndSend(properties.getNotificationChannel(), String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("Failed to notify change subscribers of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void deliver(Subscription subscription) {
+        synchronized (subscription) {
+            try {
+                while (true) {
+                    List<ResourceChange> changes = resourceChangeRepository.findByUserIdAndSeqGreaterThanOrderBySeqAsc(
+                            subscription.userId(), subscription.cursor, PageRequest.of(0, properties.getPageSize()));
+                    for (ResourceChange change : changes) {
+                        subscription.emitter().send(SseEmitter.event()
+                                .id(String.valueOf(change.getSeq()))
+                                .name(CHANGE_EVENT)
+                                .data(toDto(change)));
+                        subscription.cursor = change.getSeq();
+                    }
+                    if (changes.size() < properties.getPageSize()) {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(subscription);
+            } catch (Exception e) {
+                log.warn("Failed to deliver changes to user {}: {}", subscription.userId(), e.getMessage());
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId(), (id, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+    }
+
+    /**
+     * A cursor is usable if every change after it is still retained. One beyond the user's last change was not
+     * issued by this feed, such as a cursor from before sequences were per user, and needs a resync as well.
+     */
+    private void checkCursor(Long userId, long cursor) {
+        if (cursor < resourceChangeRepository.findPrunedSequence(userId)
+                || cursor > resourceChangeRepository.findLastSequence(userId)) {
+            throw new ChangeCursorExpiredException("Cursor " + cursor + " has expired, a full resync is required");
+        }
+    }
+
+    private ChangeDto toDto(ResourceChange change) {
+        return new ChangeDto(
+                change.getSeq(),
+                change.getType(),
+                change.getPath(),
+                change.getTargetPath(),
+                change.getSize(),
+                change.getCreatedAt()
+        );
+    }
+
+    private static final class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private long cursor;
+
+        private Subscription(Long userId, SseEmitter emitter, long cursor) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        private Long userId() {
+            return userId;
+        }
+
+        private SseEmitter emitter() {
+            return emitter;
+        }
+    }
+}
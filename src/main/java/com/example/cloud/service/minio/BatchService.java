@@ -0,0 +1,278 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.dto.request.BatchMoveRequestDto;
+import com.example.cloud.model.dto.response.BatchItemResultDto;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.BatchProperties;
+import com.example.cloud.util.StreamTransfer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.example.cloud.util.PathUtils.normalizeDirectoryPath;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Multi-select operations. Every item gets its own result, so one bad path does not fail the whole selection.
+ */
+@Slf4j
+@Service
+public class BatchService {
+
+    private static final String ERRORS_ENTRY = "_errors.txt";
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(2);
+
+    private final ResourceService resourceService;
+    private final TrashService trashService;
+    private final MinioStorageService minioStorageService;
+    private final StreamTransfer streamTransfer;
+    private final BatchProperties properties;
+    private final ExecutorService batchOperationExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BatchService(ResourceService resourceService,
+                        TrashService trashService,
+                        MinioStorageService minioStorageService,
+                        StreamTransfer streamTransfer,
+                        BatchProperties properties,
+                        @Qualifier("batchOperationExecutor") ExecutorService batchOperationExecutor,
+                        ApplicationEventPublisher eventPublisher) {
+        this.resourceService = resourceService;
+        this.trashService = trashService;
+        this.minioStorageService = minioStorageService;
+        this.streamTransfer = streamTransfer;
+        this.properties = properties;
+        this.batchOperationExecutor = batchOperationExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<BatchItemResultDto> delete(Long userId, List<String> paths) {
+        checkSize(paths);
+        if (trashService.isEnabled()) {
+            return trashAll(userId, paths);
+        }
+
+        Map<String, List<String>> keysByPath = new LinkedHashMap<>();
+        Map<String, Long> fileSizes = new HashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String path : paths) {
+            try {
+                keysByPath.put(path, resolveKeys(userId, path, fileSizes));
+            } catch (Exception e) {
+                failures.put(path, e.getMessage());
+            }
+        }
+
+        List<String> keys = keysByPath.values().stream().flatMap(List::stream).toList();
+        Map<String, String> keyFailures = minioStorageService.removeObjects(keys, properties.getDeleteChunkSize());
+
+        List<BatchItemResultDto> results = new ArrayList<>();
+        for (String path : paths) {
+            String failure = failures.get(path);
+            if (failure == null) {
+                failure = keysByPath.get(path).stream()
+                        .filter(keyFailures::containsKey)
+                        .findFirst()
+                        .map(keyFailures::get)
+                        .orElse(null);
+            }
+            if (failure != null) {
+                results.add(BatchItemResultDto.failed(path, failure));
+                continue;
+            }
+            results.add(BatchItemResultDto.ok(path));
+            eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, path, fileSizes.getOrDefault(path, 0L)));
+        }
+        log.info("Batch delete of {} items ({} objects), {} failed",
+                paths.size(), keys.size(), results.stream().filter(result -> !result.success()).count());
+        return results;
+    }
+
+    private List<BatchItemResultDto> trashAll(Long userId, List<String> paths) {
+        List<BatchItemResultDto> results = new ArrayList<>();
+        for (String path : paths) {
+            try {
+                trashService.trash(userId, path);
+                results.add(BatchItemResultDto.ok(path));
+            } catch (Exception e) {
+                results.add(BatchItemResultDto.failed(path, e.getMessage()));
+            }
+        }
+        log.info("Batch delete of {} items moved to the trash, {} failed",
+                paths.size(), results.stream().filter(result -> !result.success()).count());
+        return results;
+    }
+
+    /**
+     * Moves the items on at most {@code batch.move-concurrency} workers, each taking the next item when done, so a
+     * batch takes that many slots of the shared executor however many items it has. Fails with 429 only when no
+     * worker could be started at all.
+     */
+    public List<BatchItemResultDto> move(Long userId, List<BatchMoveRequestDto.Move> moves) {
+        checkSize(moves);
+
+        BatchItemResultDto[] results = new BatchItemResultDto[moves.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < moves.size(); i = next.getAndIncrement()) {
+                results[i] = moveOne(userId, moves.get(i));
+            }
+        };
+
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(properties.getMoveConcurrency(), moves.size()); i++) {
+                workers.add(CompletableFuture.runAsync(worker, batchOperationExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            if (workers.isEmpty()) {
+                throw new TooManyRequestsException("Too many batch operations in progress, try again later", RETRY_AFTER);
+            }
+        }
+        workers.forEach(CompletableFuture::join);
+
+        log.info("Batch move of {} items on {} workers, {} failed", moves.size(), workers.size(),
+                Arrays.stream(results).filter(result -> !result.success()).count());
+        return List.of(results);
+    }
+
+    /**
+     * Writes every selected file and folder into one zip. Items that cannot be read are listed in an
+     * {@code _errors.txt} entry, since the response status is already sent by then.
+     */
+    public void downloadAsZip(Long userId, List<String> paths, OutputStream outputStream) throws IOException {
+        checkSize(paths);
+
+        Set<String> entryNames = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
+            for (String path : paths) {
+                try {
+                    writeEntries(userId, path, zipOut, entryNames);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.warn("Failed to add {} to batch zip: {}", path, e.getMessage());
+                    errors.add(path + ": " + e.getMessage());
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                zipOut.putNextEntry(new ZipEntry(uniqueName(ERRORS_ENTRY, entryNames)));
+                zipOut.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        log.info("Batch download of {} items, {} failed", paths.size(), errors.size());
+    }
+
+    private BatchItemResultDto moveOne(Long userId, BatchMoveRequestDto.Move move) {
+        try {
+            resourceService.moveFile(userId, move.getFrom(), move.getTo());
+            return BatchItemResultDto.ok(move.getFrom());
+        } catch (Exception e) {
+            return BatchItemResultDto.failed(move.getFrom(), e.getMessage());
+        }
+    }
+
+    private List<String> resolveKeys(Long userId, String path, Map<String, Long> fileSizes) throws Exception {
+        String fullPath = getUserFolder(userId) + path;
+        if (!path.endsWith("/")) {
+            try {
+                fileSizes.put(path, minioStorageService.logicalSize(minioStorageService.statObject(fullPath)));
+            } catch (Exception e) {
+                throw new FileNotFoundException("File " + path + " not found");
+            }
+            return List.of(fullPath);
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (StoredObject object : minioStorageService.listObjects(normalizeDirectoryPath(fullPath), true)) {
+            keys.add(object.objectName());
+        }
+        if (keys.isEmpty()) {
+            throw new FileNotFoundException("Directory " + path + " not found");
+        }
+        return keys;
+    }
+
+    private void writeEntries(Long userId, String path, ZipOutputStream zipOut, Set<String> entryNames) throws Exception {
+        String fullPath = getUserFolder(userId) + path;
+
+        if (!path.endsWith("/")) {
+            if (!minioStorageService.objectExists(fullPath)) {
+                throw new IllegalArgumentException("File not found");
+            }
+            writeEntry(fullPath, uniqueName(lastSegment(path), entryNames), zipOut);
+            return;
+        }
+
+        String directoryPath = normalizeDirectoryPath(fullPath);
+        String rootName = uniqueName(lastSegment(path), entryNames);
+        for (StoredObject item : minioStorageService.listObjects(directoryPath, true)) {
+            if (item.isDir() || item.objectName().endsWith("/")) {
+                continue;
+            }
+            String relativeName = item.objectName().substring(directoryPath.length());
+            writeEntry(item.objectName(), rootName + "/" + relativeName, zipOut);
+        }
+    }
+
+    private void writeEntry(String objectPath, String entryName, ZipOutputStream zipOut) throws IOException {
+        try (InputStream is = minioStorageService.getObject(objectPath)) {
+            zipOut.putNextEntry(new ZipEntry(entryName));
+            streamTransfer.copy(is, zipOut);
+            zipOut.closeEntry();
+        }
+    }
+
+    private void checkSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Batch is empty");
+        }
+        if (items.size() > properties.getMaxItems()) {
+            throw new IllegalArgumentException("Batch exceeds " + properties.getMaxItems() + " items");
+        }
+    }
+
+    private static String lastSegment(String path) {
+        String[] parts = path.split("/");
+        return parts[parts.length - 1];
+    }
+
+    private static String uniqueName(String name, Set<String> used) {
+        String candidate = name;
+        int counter = 1;
+        while (!used.add(candidate)) {
+            int dot = name.lastIndexOf('.');
+            candidate = dot > 0
+                    ? name.substring(0, dot) + " (" + counter + ")" + name.substring(dot)
+                    : name + " (" + counter + ")";
+            counter++;
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.config.MinioConfig;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.BucketNotificationProperties;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.CloseableIterator;
+import io.minio.ListenBucketNotificationArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Event;
+import io.minio.messages.NotificationRecords;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Follows bucket notifications so changes made outside the application (admin tools, lifecycle rules, other
+ * services) reach the change feed, directory stats and the disk cache. Physical keys from every bucket of every
+ * key layout are mapped back to logical keys first. Events caused by this application are
+ * skipped by their User-Agent, since those are already published directly.
+ * <p>
+ * Events are coalesced per user and key and flushed once per window. When a user piles up too many keys, or the
+ * buffer as a whole is full, the per-key detail is dropped and a single REFRESH is emitted for that user instead.
+ * Only one node consumes at a time, holding a lease in Redis.
+ */
+@Slf4j
+@Service
+public class BucketNotificationConsumer implements SmartLifecycle {
+
+    private static final Pattern USER_KEY = Pattern.compile("^user-(\\d+)-files/(.*)$");
+    private static final String[] EVENTS = {"s3:ObjectCreated:*", "s3:ObjectRemoved:*"};
+    private static final DefaultRedisScript<Long> RENEW_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private final BucketNotificationProperties properties;
+    private final KeyLayoutResolver keyLayoutResolver;
+    private final MinioClient minioClient;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DirectoryStatsService directoryStatsService;
+    private final ObjectDiskCache objectDiskCache;
+    private final Counter received;
+    private final Counter collapsed;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<Long, PendingChanges> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingKeys = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile boolean leader;
+    private final Map<String, CloseableIterator<Result<NotificationRecords>>> streams = new ConcurrentHashMap<>();
+    private final List<Thread> listenerThreads = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+
+    public BucketNotificationConsumer(BucketNotificationProperties properties,
+                                      KeyLayoutResolver keyLayoutResolver,
+                                      MinioClient minioClient,
+                                      StringRedisTemplate redisTemplate,
+                                      ApplicationEventPublisher eventPublisher,
+                                      DirectoryStatsService directoryStatsService,
+                                      ObjectDiskCache objectDiskCache,
+                                      MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.keyLayoutResolver = keyLayoutResolver;
+        this.minioClient = minioClient;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.directoryStatsService = directoryStatsService;
+        this.objectDiskCache = objectDiskCache;
+        this.received = Counter.builder("minio.notifications.received").register(meterRegistry);
+        this.collapsed = Counter.builder("minio.notifications.collapsed").register(meterRegistry);
+        meterRegistry.gauge("minio.notifications.pending", pendingKeys);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (String bucket : keyLayoutResolver.buckets()) {
+            Thread listenerThread = new Thread(() -> listen(bucket), "bucket-notifications-" + bucket);
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+            listenerThreads.add(listenerThread);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("bucket-notifications-flush-"));
+        long window = properties.getCoalesceWindow().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        log.info("Bucket notification consumer started for buckets {}", keyLayoutResolver.buckets());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeStreams();
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        listenerThreads.forEach(Thread::interrupt);
+        listenerThreads.clear();
+        if (leader) {
+            redisTemplate.delete(properties.getLeaseKey());
+            leader = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(String bucket) {
+        while (running) {
+            if (!holdLease()) {
+                sleep(properties.getReconnectDelay().toMillis());
+                continue;
+            }
+            try (CloseableIterator<Result<NotificationRecords>> stream = minioClient.listenBucketNotification(
+                    ListenBucketNotificationArgs.builder()
+                            .bucket(bucket)
+                            .prefix("")
+                            .suffix("")
+                            .events(EVENTS)
+                            .build())) {
+                streams.put(bucket, stream);
+                while (running && leader && stream.hasNext()) {
+                    NotificationRecords records = stream.next().get();
+                    if (records != null && records.events() != null) {
+                        records.events().forEach(this::accept);
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Bucket notification stream failed, reconnecting: {}", e.getMessage());
+                    sleep(properties.getReconnectDelay().toMillis());
+                }
+            } finally {
+                streams.remove(bucket);
+            }
+        }
+    }
+
+    void accept(Event event) {
+        if (event.userAgent() != null && event.userAgent().contains(MinioConfig.APP_NAME + "/")) {
+            return;
+        }
+        String physicalKey = URLDecoder.decode(event.objectName(), StandardCharsets.UTF_8);
+        Optional<String> key = keyLayoutResolver.toLogical(event.bucketName(), physicalKey);
+        if (key.isEmpty()) {
+            return;
+        }
+        Matcher matcher = USER_KEY.matcher(key.get());
+        if (!matcher.matches() || matcher.group(2).isEmpty()) {
+            return;
+        }
+        received.increment();
+
+        Long userId = Long.valueOf(matcher.group(1));
+        ResourceChangedEvent.Type type = event.eventType().toString().startsWith("s3:ObjectRemoved")
+                ? ResourceChangedEvent.Type.DELETED
+                : ResourceChangedEvent.Type.CREATED;
+        String path = matcher.group(2);
+
+        pending.compute(userId, (id, changes) -> {
+            PendingChanges userChanges = changes != null ? changes : new PendingChanges();
+            if (userChanges.refresh) {
+                return userChanges;
+            }
+            boolean isNewKey = userChanges.keys.put(path, new PendingKey(type, event.objectSize())) == null;
+            boolean bufferFull = isNewKey && pendingKeys.incrementAndGet() > properties.getMaxPendingKeys();
+            if (bufferFull || userChanges.keys.size() > properties.getMaxKeysPerUser()) {
+                pendingKeys.addAndGet(-userChanges.keys.size());
+                userChanges.keys.clear();
+                userChanges.refresh = true;
+                collapsed.increment();
+            }
+            return userChanges;
+        });
+    }
+
+    void flush() {
+        if (leader && !renewLease()) {
+            log.info("Lost bucket notification lease, stopping consumption on this node");
+            leader = false;
+            closeStreams();
+        }
+
+        for (Long userId : List.copyOf(pending.keySet())) {
+            PendingChanges changes = pending.remove(userId);
+            if (changes == null) {
+                continue;
+            }
+            pendingKeys.addAndGet(-changes.keys.size());
+            try {
+                apply(userId, changes);
+            } catch (Exception e) {
+                log.warn("Failed to apply storage changes for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    private void apply(Long userId, PendingChanges changes) {
+        if (changes.refresh) {
+            eventPublisher.publishEvent(ResourceChangedEvent.fromStorage(userId, ResourceChangedEvent.Type.REFRESH, "", 0));
+        } else {
+            changes.keys.forEach((path, change) -> {
+                objectDiskCache.evict(getUserFolder(userId) + path);
+                eventPublisher.publishEvent(ResourceChangedEvent.fromStorage(userId, change.type(), path, change.size()));
+            });
+        }
+        // Recomputed lazily from a listing, so replaying or reordering events cannot skew the totals.
+        directoryStatsService.invalidate(userId);
+        log.info("Applied {} storage changes for user {}", changes.refresh ? "bulk" : changes.keys.size(), userId);
+    }
+
+    private boolean holdLease() {
+        if (leader) {
+            return true;
+        }
+        Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(properties.getLeaseKey(), nodeId, properties.getLeaseTtl());
+        leader = Boolean.TRUE.equals(acquired);
+        if (leader) {
+            log.info("Acquired bucket notification lease");
+        }
+        return leader;
+    }
+
+    private boolean renewLease() {
+        Long renewed = redisTemplate.execute(RENEW_LEASE, List.of(properties.getLeaseKey()),
+                nodeId, String.valueOf(properties.getLeaseTtl().toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    private void closeStreams() {
+        streams.values().forEach(stream -> {
+            try {
+                stream.close();
+            } catch (Exception e) {
+                log.debug("Failed to close notification stream: {}", e.getMessage());
+            }
+        });
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class PendingChanges {
+        private final Map<String, PendingKey> keys = new LinkedHashMap<>();
+        private boolean refresh;
+    }
+
+    private record PendingKey(ResourceChangedEvent.Type type, long size) {
+    }
+}
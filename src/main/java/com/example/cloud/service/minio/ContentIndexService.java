@@ -0,0 +1,297 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.SearchTimeoutException;
+import com.example.cloud.model.dto.enums.ResourceType;
+import com.example.cloud.model.dto.response.ResourceResponseDto;
+import com.example.cloud.model.entity.ContentIndexEntry;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ContentSearchProperties;
+import com.example.cloud.repository.ContentIndexRepository;
+import com.example.cloud.repository.UserRepository;
+import com.example.cloud.util.TextExtractor;
+import com.example.cloud.util.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Full-text search over the content of text documents. After a supported file is created its text is
+ * extracted in the background and stored in {@code content_index}, where Postgres keeps a {@code tsvector}
+ * of it under a GIN index; moves and deletes are applied to the index as they happen. A file changed while it
+ * is being indexed is indexed again afterwards, and an entry whose file was deleted meanwhile is dropped.
+ * Files stored before indexing was enabled are picked up by a throttled backfill that walks a few users per
+ * run, resuming from a cursor kept in Redis. Queries use web search syntax and must finish within
+ * {@code content-search.budget}.
+ */
+@Slf4j
+@Service
+public class ContentIndexService {
+
+    private static final String BACKFILL_CLAIM_KEY = "content-index:backfill";
+    private static final String BACKFILL_CURSOR_KEY = "content-index:backfill-cursor";
+    private static final char MATCH_START = '\u0002';
+    private static final char MATCH_END = '\u0003';
+
+    private final ContentIndexRepository contentIndexRepository;
+    private final MinioStorageService minioStorageService;
+    private final UserRepository userRepository;
+    private final ContentSearchProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ExecutorService indexExecutor;
+    private final Set<String> indexing = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> changedWhileIndexing = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public ContentIndexService(ContentIndexRepository contentIndexRepository,
+                               MinioStorageService minioStorageService,
+                               UserRepository userRepository,
+                               ContentSearchProperties properties,
+                               TransactionTemplate transactionTemplate,
+                               StringRedisTemplate redisTemplate,
+                               @Qualifier("backgroundTaskExecutor") ExecutorService indexExecutor) {
+        this.contentIndexRepository = contentIndexRepository;
+        this.minioStorageService = minioStorageService;
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.indexExecutor = indexExecutor;
+    }
+
+    public List<ResourceResponseDto> search(Long userId, String query) {
+        List<ContentIndexRepository.Match> matches;
+        try {
+            matches = transactionTemplate.execute(status -> {
+                contentIndexRepository.setStatementTimeout(properties.getBudget().toMillis() + "ms");
+                return contentIndexRepository.search(userId, query, properties.getLimit());
+            });
+        } catch (QueryTimeoutException e) {
+            throw new SearchTimeoutException("Content search took too long, try a more specific query");
+        }
+        return matches.stream()
+                .map(match -> {
+                    String name = match.getPath().substring(match.getPath().lastIndexOf('/') + 1);
+                    return new ResourceResponseDto(match.getPath().substring(0, match.getPath().length() - name.length()),
+                            name, match.getSize(), ResourceType.FILE, null, null, toHtml(match.getSnippet()));
+                })
+                .toList();
+    }
+
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            switch (event.type()) {
+                case CREATED -> {
+                    if (!event.isDirectory() && isIndexable(event.path())
+                            && event.size() <= properties.getMaxFileSize().toBytes()) {
+                        scheduleIndex(event.userId(), event.path(), event.size());
+                    }
+                }
+                case DELETED -> transactionTemplate.executeWithoutResult(status -> {
+                    if (event.isDirectory()) {
+                        contentIndexRepository.deleteSubtree(event.userId(), event.path());
+                    } else {
+                        contentIndexRepository.delete(event.userId(), event.path());
+                    }
+                });
+                case MOVED -> {
+                    if (event.targetPath() != null) {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            if (event.isDirectory()) {
+                                contentIndexRepository.moveSubtree(event.userId(), event.path(), event.targetPath());
+                            } else {
+                                contentIndexRepository.move(event.userId(), event.path(), event.targetPath());
+                            }
+                        });
+                    }
+                }
+                case REFRESH -> {
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to update content index of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Indexes files of the next {@code content-search.backfill-users-per-run} users that have no index entry,
+     * at most {@code content-search.backfill-files-per-second}.
+     */
+    @Scheduled(fixedDelayString = "${content-search.backfill-interval:10m}", initialDelayString = "PT5M")
+    public void backfill() {
+        if (!properties.isEnabled() || !claim()) {
+            return;
+        }
+        String cursorValue = redisTemplate.opsForValue().get(BACKFILL_CURSOR_KEY);
+        long cursor = cursorValue != null ? Long.parseLong(cursorValue) : 0L;
+        List<Long> userIds = userRepository.findIdsAfter(cursor, PageRequest.of(0, properties.getBackfillUsersPerRun()));
+
+        TokenBucket rateLimit = new TokenBucket(properties.getBackfillFilesPerSecond(), Duration.ofSeconds(1));
+        int indexed = 0;
+        try {
+            for (Long userId : userIds) {
+                indexed += backfillUser(userId, rateLimit);
+                redisTemplate.opsForValue().set(BACKFILL_CURSOR_KEY, String.valueOf(userId));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (userIds.size() < properties.getBackfillUsersPerRun()) {
+            redisTemplate.delete(BACKFILL_CURSOR_KEY);
+        }
+        if (indexed > 0) {
+            log.info("Content index backfill indexed {} files of {} users", indexed, userIds.size());
+        }
+    }
+
+    private int backfillUser(Long userId, TokenBucket rateLimit) throws InterruptedException {
+        Set<String> indexedPaths = new HashSet<>(contentIndexRepository.findPaths(userId));
+        String userFolder = getUserFolder(userId);
+        int indexed = 0;
+        for (StoredObject object : minioStorageService.listObjects(userFolder, true)) {
+            String path = object.objectName().substring(userFolder.length());
+            if (path.endsWith("/") || indexedPaths.contains(path) || !isIndexable(path)) {
+                continue;
+            }
+            long size = minioStorageService.logicalSize(object);
+            if (size > properties.getMaxFileSize().toBytes()) {
+                continue;
+            }
+            Duration wait = rateLimit.consume(1);
+            if (!wait.isZero()) {
+                Thread.sleep(wait.toMillis());
+            }
+            try {
+                index(userId, path, size);
+                indexed++;
+            } catch (Exception e) {
+                log.warn("Failed to backfill content index of {} of user {}: {}", path, userId, e.getMessage());
+            }
+        }
+        return indexed;
+    }
+
+    void index(Long userId, String path, long size) throws Exception {
+        String fullPath = getUserFolder(userId) + path;
+        String etag = minioStorageService.statObject(fullPath).etag();
+        String content;
+        try (InputStream inputStream = minioStorageService.getObject(fullPath);
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[properties.getMaxIndexedChars()];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            content = new String(buffer, 0, length);
+        }
+
+        String extracted = TextExtractor.extract(path, content);
+        if (extracted == null) {
+            return;
+        }
+        String text = extracted.replace(MATCH_START, ' ').replace(MATCH_END, ' ');
+
+        // The file was replaced or removed while it was read; a newer event takes care of it.
+        if (!etag.equals(currentEtag(fullPath))) {
+            log.debug("Skipped indexing {} of user {}, it changed while being read", path, userId);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            contentIndexRepository.delete(userId, path);
+            contentIndexRepository.flush();
+            contentIndexRepository.save(new ContentIndexEntry(null, userId, path, size, text, Instant.now()));
+        });
+        // A delete that removed the file before the entry was committed found nothing to drop.
+        if (!minioStorageService.objectExists(fullPath)) {
+            transactionTemplate.executeWithoutResult(status -> contentIndexRepository.delete(userId, path));
+            return;
+        }
+        log.debug("Indexed {} characters of {} for user {}", text.length(), path, userId);
+    }
+
+    /**
+     * Escapes a snippet for HTML and turns the match delimiters into bold tags.
+     */
+    static String toHtml(String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(snippet)
+                .replace(String.valueOf(MATCH_START), "<b>")
+                .replace(String.valueOf(MATCH_END), "</b>");
+    }
+
+    private String currentEtag(String fullPath) {
+        if (!minioStorageService.objectExists(fullPath)) {
+            return null;
+        }
+        return minioStorageService.statObject(fullPath).etag();
+    }
+
+    private void scheduleIndex(Long userId, String path, long size) {
+        String key = userId + ":" + path;
+        if (!indexing.add(key)) {
+            changedWhileIndexing.put(key, size);
+            return;
+        }
+        try {
+            indexExecutor.execute(() -> {
+                try {
+                    index(userId, path, size);
+                } catch (Exception e) {
+                    log.warn("Failed to index content of {} of user {}: {}", path, userId, e.getMessage());
+                } finally {
+                    indexing.remove(key);
+                    Long changedSize = changedWhileIndexing.remove(key);
+                    if (changedSize != null) {
+                        scheduleIndex(userId, path, changedSize);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            indexing.remove(key);
+            changedWhileIndexing.remove(key);
+        }
+    }
+
+    private boolean claim() {
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(BACKFILL_CLAIM_KEY, nodeId,
+                properties.getBackfillInterval().multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private boolean isIndexable(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && properties.getExtensions().contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
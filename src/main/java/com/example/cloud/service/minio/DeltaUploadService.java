@@ -0,0 +1,348 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.DeltaConflictException;
+import com.example.cloud.model.dto.request.DeltaUploadRequestDto;
+import com.example.cloud.model.dto.response.BlockSignaturesDto;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.DeltaProperties;
+import com.example.cloud.util.RollingChecksum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.minio.ObjectWriteArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * rsync-style updates of large files. The client fetches block signatures of the stored file, matches them against
+ * its local copy and sends back only the bytes that changed, with instructions for where the kept blocks go.
+ * Kept blocks are copied server-side with a compose request; ranges too short to be compose parts are staged
+ * together with their neighbours first, so only the changed bytes and a few megabytes around them are rewritten.
+ * Every read of the stored file is conditional on the ETag the client's signatures were computed from, so a file
+ * replaced mid-way fails the upload instead of mixing two contents; the previous content becomes a version only
+ * once the new one is in place.
+ */
+@Slf4j
+@Service
+public class DeltaUploadService {
+
+    private static final long MIN_PART_SIZE = ObjectWriteArgs.MIN_MULTIPART_SIZE;
+
+    private final MinioStorageService minioStorageService;
+    private final FileVersionService fileVersionService;
+    private final DeltaProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache<String, BlockSignaturesDto> signatures;
+
+    public DeltaUploadService(MinioStorageService minioStorageService,
+                              FileVersionService fileVersionService,
+                              DeltaProperties properties,
+                              ApplicationEventPublisher eventPublisher) {
+        this.minioStorageService = minioStorageService;
+        this.fileVersionService = fileVersionService;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.signatures = Caffeine.newBuilder()
+                .maximumSize(properties.getSignatureCacheSize())
+                .build();
+    }
+
+    @SneakyThrows
+    public BlockSignaturesDto getSignatures(Long userId, String path) {
+        String fullPath = getUserFolder(userId) + path;
+        StatObjectResponse stat = statDeltaBase(fullPath, path);
+        String etag = normalizeEtag(stat.etag());
+        return signatures.get(fullPath + "@" + etag, key -> computeSignatures(fullPath, etag, stat.size()));
+    }
+
+    /**
+     * Builds the new content of {@code path} from kept blocks of the stored file and the uploaded changed bytes.
+     */
+    @SneakyThrows
+    public void apply(Long userId, String path, DeltaUploadRequestDto request, MultipartFile data) {
+        String fullPath = getUserFolder(userId) + path;
+        StatObjectResponse stat = statDeltaBase(fullPath, path);
+        if (request.getBaseEtag() == null || !normalizeEtag(request.getBaseEtag()).equals(normalizeEtag(stat.etag()))) {
+            throw new DeltaConflictException("File " + path + " changed since its signatures were read");
+        }
+
+        List<Segment> segments = toSegments(request.getInstructions(), stat.size(), properties.getBlockSize().toBytes(),
+                properties.getMaxInstructions());
+        long dataLength = segments.stream().filter(segment -> segment.copyOffset() < 0).mapToLong(Segment::length).sum();
+        long uploaded = data == null ? 0 : data.getSize();
+        if (dataLength != uploaded) {
+            throw new IllegalArgumentException("Instructions reference " + dataLength + " bytes of data, " + uploaded + " were sent");
+        }
+        long newSize = segments.stream().mapToLong(Segment::length).sum();
+        String contentType = request.getContentType() != null ? request.getContentType() : stat.contentType();
+
+        String baseEtag = stat.etag();
+        FileVersionService.Archived archived = fileVersionService.isEnabled()
+                ? fileVersionService.copyAside(userId, path) : null;
+
+        String stagingFolder = "user-" + userId + "-delta/" + UUID.randomUUID() + "/";
+        List<String> staged = new ArrayList<>();
+        try (InputStream dataStream = data == null ? InputStream.nullInputStream() : data.getInputStream()) {
+            List<ObjectRange> parts = new ArrayList<>();
+            for (Part part : plan(segments)) {
+                if (part.copy() != null) {
+                    parts.add(new ObjectRange(fullPath, part.copy().copyOffset(), part.copy().length(), baseEtag));
+                    continue;
+                }
+                String stagingKey = stagingFolder + staged.size();
+                minioStorageService.putObject(stagingKey, concat(fullPath, baseEtag, part.staged(), dataStream),
+                        part.length(), null);
+                staged.add(stagingKey);
+                parts.add(new ObjectRange(stagingKey, 0, part.length()));
+            }
+
+            if (parts.isEmpty()) {
+                minioStorageService.putObject(fullPath, InputStream.nullInputStream(), 0, contentType);
+            } else {
+                minioStorageService.composeObject(fullPath, parts, contentType);
+            }
+        } catch (Exception e) {
+            if (archived != null) {
+                fileVersionService.discard(archived);
+            }
+            if (baseChanged(e)) {
+                throw new DeltaConflictException("File " + path + " changed while the delta was applied");
+            }
+            throw e;
+        } finally {
+            if (!staged.isEmpty()) {
+                minioStorageService.removeObjects(staged, staged.size());
+            }
+        }
+        if (archived != null) {
+            fileVersionService.keep(archived);
+        }
+
+        eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, path, stat.size()));
+        eventPublisher.publishEvent(ResourceChangedEvent.created(userId, path, newSize));
+        log.info("Delta upload of {} for user {}: {} of {} bytes sent, {} staged parts",
+                path, userId, dataLength, newSize, staged.size());
+    }
+
+    /**
+     * Turns instructions into byte ranges, merging runs of consecutive blocks and of data into single ranges.
+     * A segment with a negative {@code copyOffset} is uploaded data.
+     */
+    static List<Segment> toSegments(List<DeltaUploadRequestDto.Instruction> instructions, long baseSize, long blockSize,
+                                    int maxInstructions) {
+        if (instructions == null) {
+            throw new IllegalArgumentException("Instructions are required");
+        }
+        if (instructions.size() > maxInstructions) {
+            throw new IllegalArgumentException("At most " + maxInstructions + " instructions are allowed");
+        }
+        long blocks = (baseSize + blockSize - 1) / blockSize;
+        List<Segment> segments = new ArrayList<>();
+        for (DeltaUploadRequestDto.Instruction instruction : instructions) {
+            Segment next;
+            if (instruction.getType() == DeltaUploadRequestDto.Type.COPY) {
+                if (instruction.getBlock() == null || instruction.getBlock() < 0 || instruction.getBlock() >= blocks) {
+                    throw new IllegalArgumentException("Block " + instruction.getBlock() + " does not exist");
+                }
+                long offset = instruction.getBlock() * blockSize;
+                next = new Segment(offset, Math.min(blockSize, baseSize - offset));
+            } else if (instruction.getType() == DeltaUploadRequestDto.Type.DATA) {
+                if (instruction.getLength() == null || instruction.getLength() <= 0) {
+                    throw new IllegalArgumentException("Data length must be positive");
+                }
+                next = new Segment(-1, instruction.getLength());
+            } else {
+                throw new IllegalArgumentException("Instruction type is required");
+            }
+
+            Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last != null && last.continuedBy(next)) {
+                segments.set(segments.size() - 1, new Segment(last.copyOffset(), last.length() + next.length()));
+            } else {
+                segments.add(next);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Groups segments into compose parts. Kept ranges long enough to be a part are copied as they are; everything
+     * else is staged, borrowing the head of the following kept range when the staged part would be too short.
+     */
+    static List<Part> plan(List<Segment> segments) {
+        List<Part> parts = new ArrayList<>();
+        List<Segment> run = new ArrayList<>();
+        long runLength = 0;
+        for (Segment segment : segments) {
+            if (segment.copyOffset() >= 0 && segment.length() >= MIN_PART_SIZE) {
+                if (runLength > 0 && runLength < MIN_PART_SIZE) {
+                    long borrowed = MIN_PART_SIZE - runLength;
+                    if (segment.length() - borrowed < MIN_PART_SIZE) {
+                        run.add(segment);
+                        runLength += segment.length();
+                        continue;
+                    }
+                    run.add(new Segment(segment.copyOffset(), borrowed));
+                    runLength += borrowed;
+                    segment = new Segment(segment.copyOffset() + borrowed, segment.length() - borrowed);
+                }
+                if (runLength > 0) {
+                    parts.add(new Part(null, List.copyOf(run), runLength));
+                    run.clear();
+                    runLength = 0;
+                }
+                parts.add(new Part(segment, null, segment.length()));
+            } else {
+                run.add(segment);
+                runLength += segment.length();
+            }
+        }
+        if (runLength > 0) {
+            parts.add(new Part(null, List.copyOf(run), runLength));
+        }
+        return parts;
+    }
+
+    private StatObjectResponse statDeltaBase(String fullPath, String path) throws FileNotFoundException {
+        StatObjectResponse stat;
+        try {
+            stat = minioStorageService.statObject(fullPath);
+        } catch (Exception e) {
+            throw new FileNotFoundException("File " + path + " not found");
+        }
+        // Compressed objects and tier stubs do not store the file's bytes at their offsets.
+        if (minioStorageService.isCompressed(stat) || minioStorageService.isStub(stat.userMetadata())) {
+            throw new DeltaConflictException("File " + path + " is not stored in a form that supports delta uploads");
+        }
+        return stat;
+    }
+
+    @SneakyThrows
+    private BlockSignaturesDto computeSignatures(String fullPath, String etag, long size) {
+        int blockSize = Math.toIntExact(properties.getBlockSize().toBytes());
+        List<BlockSignaturesDto.Block> blocks = new ArrayList<>((int) (size / blockSize) + 1);
+        byte[] buffer = new byte[blockSize];
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = minioStorageService.getRawObject(fullPath)) {
+            int read;
+            while ((read = in.readNBytes(buffer, 0, blockSize)) > 0) {
+                digest.update(buffer, 0, read);
+                blocks.add(new BlockSignaturesDto.Block(RollingChecksum.of(buffer, 0, read),
+                        HexFormat.of().formatHex(digest.digest())));
+            }
+        }
+        log.debug("Computed {} block signatures for {}", blocks.size(), fullPath);
+        return new BlockSignaturesDto(etag, blockSize, size, blocks);
+    }
+
+    /**
+     * Streams a staged part, opening each ranged read only once the previous segment is exhausted.
+     */
+    private InputStream concat(String fullPath, String baseEtag, List<Segment> segments, InputStream dataStream) {
+        Iterator<Segment> iterator = segments.iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                Segment segment = iterator.next();
+                return segment.copyOffset() >= 0
+                        ? minioStorageService.getRawObject(fullPath, segment.copyOffset(), segment.length(), baseEtag)
+                        : new SliceInputStream(dataStream, segment.length());
+            }
+        });
+    }
+
+    /**
+     * Whether a failure comes from a conditional read of the base finding another ETag, which may surface
+     * wrapped by the upload of a staged part.
+     */
+    static boolean baseChanged(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ErrorResponseException error && MinioStorageService.isPreconditionFailed(error)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalizeEtag(String etag) {
+        return etag.replace("\"", "");
+    }
+
+    record Segment(long copyOffset, long length) {
+
+        boolean continuedBy(Segment next) {
+            if (copyOffset < 0) {
+                return next.copyOffset < 0;
+            }
+            return next.copyOffset == copyOffset + length;
+        }
+    }
+
+    record Part(Segment copy, List<Segment> staged, long length) {
+    }
+
+    /**
+     * The next {@code length} bytes of the uploaded data. Closing it leaves the upload stream open.
+     */
+    private static final class SliceInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private SliceInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = in.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -5,25 +5,24 @@ import com.example.cloud.exception.ResourceDownloadException;
 import com.example.cloud.model.dto.enums.ResourceType;
 import com.example.cloud.model.dto.response.DirectoryResponseDto;
 import com.example.cloud.model.dto.response.ResourceResponseDto;
-import io.minio.ListObjectsArgs;
-import io.minio.MinioClient;
-import io.minio.Result;
-import io.minio.errors.MinioException;
-import io.minio.messages.Item;
-import jakarta.servlet.http.HttpServletResponse;
+import com.example.cloud.model.entity.DirectoryStats;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.util.StreamTransfer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.security.GeneralSecurityException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -35,11 +34,14 @@ import static com.example.cloud.util.UserContext.getUserFolder;
 @RequiredArgsConstructor
 public class DirectoryService {
 
-    @Value("${minio.bucket}")
-    private String bucketName;
-
-    private final MinioClient minioClient;
     private final MinioStorageService minioStorageService;
+    private final StreamTransfer streamTransfer;
+    private final DirectoryStatsService directoryStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MoveJournal moveJournal;
+    private final ObservationRegistry observationRegistry;
+    private final StorageHealthMonitor storageHealthMonitor;
+    private final MetadataSnapshotService metadataSnapshotService;
 
     @SneakyThrows
     public DirectoryResponseDto createDirectory(Long userId, String path) {
@@ -51,6 +53,7 @@ public class DirectoryService {
         try {
             minioStorageService.putObject(fullPath, new ByteArrayInputStream(new byte[0]), 0,
                     MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            eventPublisher.publishEvent(ResourceChangedEvent.created(userId, normalizeDirectoryPath(path), 0));
 
             return getDirectoryInfo(userId, path);
         } catch (Exception e) {
@@ -60,44 +63,67 @@ public class DirectoryService {
 
 
     public List<ResourceResponseDto> getDirectoryContent(Long userId, String path) {
+        if (storageHealthMonitor.isReadOnly()) {
+            return metadataSnapshotService.getDirectoryContent(userId, path);
+        }
         String fullPath = normalizeDirectoryPath(getUserFolder(userId) + path);
         try {
-            Iterable<Result<Item>> results = minioStorageService.listObjects(fullPath, false);
-
-            List<ResourceResponseDto> resources = new ArrayList<>();
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String objectName = item.objectName().substring(getUserFolder(userId).length());
-                String[] parts = objectName.split("/");
-                String name = parts[parts.length - 1];
-                String parentPath = objectName.contains("/")
-                        ? objectName.substring(0, objectName.length() - (name.length() + 1))
-                        : "/";
+            List<StoredObject> items = new ArrayList<>();
+            Observation.createNotStarted("storage.list", observationRegistry)
+                    .observe(() -> minioStorageService.listObjects(fullPath, false).forEach(items::add));
+            Map<String, DirectoryStats> directoryStats = Observation.createNotStarted("directory.stats", observationRegistry)
+                    .observe(() -> directoryStatsService.getStats(userId, items.stream()
+                            .filter(StoredObject::isDir)
+                            .map(item -> item.objectName().substring(getUserFolder(userId).length()))
+                            .toList()));
+
+            return Observation.createNotStarted("dto.map", observationRegistry)
+                    .highCardinalityKeyValue("objects", String.valueOf(items.size()))
+                    .observe(() -> toResources(userId, items, directoryStats));
+        } catch (Exception e) {
+            throw new DirectoryOperationErrorException("Failed to get '" + fullPath + "' content");
+        }
+    }
 
+    private List<ResourceResponseDto> toResources(Long userId, List<StoredObject> items,
+                                                  Map<String, DirectoryStats> directoryStats) {
+        List<ResourceResponseDto> resources = new ArrayList<>();
+        for (StoredObject item : items) {
+            String objectName = item.objectName().substring(getUserFolder(userId).length());
+            String[] parts = objectName.split("/");
+            String name = parts[parts.length - 1];
+            String parentPath = objectName.contains("/")
+                    ? objectName.substring(0, objectName.length() - (name.length() + 1))
+                    : "/";
+
+            DirectoryStats stats = item.isDir() ? directoryStats.get(objectName) : null;
+            if (stats != null) {
                 resources.add(new ResourceResponseDto(
                         parentPath.endsWith("/") ? parentPath : parentPath + "/",
-                        item.isDir() ? name + "/" : name,
-                        item.size(),
-                        item.isDir() ? ResourceType.DIRECTORY : ResourceType.FILE
+                        name + "/",
+                        stats.getTotalSize(),
+                        ResourceType.DIRECTORY,
+                        stats.getFileCount(),
+                        stats.getLastModified()
                 ));
+                continue;
             }
-            return resources;
-        } catch (Exception e) {
-            throw new DirectoryOperationErrorException("Failed to get '" + fullPath + "' content");
+
+            resources.add(new ResourceResponseDto(
+                    parentPath.endsWith("/") ? parentPath : parentPath + "/",
+                    item.isDir() ? name + "/" : name,
+                    minioStorageService.logicalSize(item),
+                    item.isDir() ? ResourceType.DIRECTORY : ResourceType.FILE
+            ));
         }
+        return resources;
     }
 
 
     public DirectoryResponseDto getDirectoryInfo(Long userId, String path) {
         String fullPath = normalizeDirectoryPath(getUserFolder(userId) + path);
 
-        Iterable<Result<Item>> results = minioClient.listObjects(
-                ListObjectsArgs.builder()
-                        .bucket(bucketName)
-                        .prefix(fullPath)
-                        .maxKeys(1)
-                        .build()
-        );
+        Iterable<StoredObject> results = minioStorageService.listObjects(fullPath, false);
 
         if (results.iterator().hasNext()) {
             String[] parts = path.split("/");
@@ -121,33 +147,43 @@ public class DirectoryService {
         if (directoryAlreadyExists(toFullPath)) {
             throw new DirectoryOperationErrorException("Directory '" + toPath + "' already exists");
         }
+        Long moveId = moveJournal.begin(userId, normalizeDirectoryPath(fromPath), normalizeDirectoryPath(toPath));
         try {
-            Iterable<Result<Item>> results = minioStorageService.listObjects(fromFullPath, true);
+            Iterable<StoredObject> results = minioStorageService.listObjects(fromFullPath, true);
 
-            for (Result<Item> result : results) {
-                Item item = result.get();
+            for (StoredObject item : results) {
                 String objectName = item.objectName();
                 String relativePath = objectName.substring(fromFullPath.length());
 
                 String newObjectName = toFullPath + relativePath;
 
                 minioStorageService.copyObject(objectName, newObjectName);
+                moveJournal.heartbeat(moveId);
             }
-        } catch (MinioException | IOException | GeneralSecurityException e) {
+        } catch (Exception e) {
             throw new DirectoryOperationErrorException("Failed to move directory '" + toFullPath + "' to '" + fromFullPath + "'");
         }
 
-        deleteDirectory(userId, fromPath);
+        moveJournal.heartbeat(moveId);
+        removeDirectoryObjects(userId, fromPath);
+        moveJournal.complete(moveId);
+        eventPublisher.publishEvent(ResourceChangedEvent.moved(userId,
+                normalizeDirectoryPath(fromPath), normalizeDirectoryPath(toPath), 0));
     }
 
 
     public void deleteDirectory(Long userId, String path) {
+        removeDirectoryObjects(userId, path);
+        eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, normalizeDirectoryPath(path), 0));
+    }
+
+    private void removeDirectoryObjects(Long userId, String path) {
         String fullPath = normalizeDirectoryPath(getUserFolder(userId) + path);
         try {
-            Iterable<Result<Item>> objects = minioStorageService.listObjects(fullPath, true);
+            Iterable<StoredObject> objects = minioStorageService.listObjects(fullPath, true);
 
-            for (Result<Item> result : objects) {
-                minioStorageService.removeObject(result.get().objectName());
+            for (StoredObject object : objects) {
+                minioStorageService.removeObject(object.objectName());
             }
 
         } catch (Exception e) {
@@ -156,14 +192,13 @@ public class DirectoryService {
     }
 
 
-    public void downloadDirectoryAsZip(Long userId, String path, HttpServletResponse response) {
+    public void downloadDirectoryAsZip(Long userId, String path, OutputStream outputStream) {
         String fullPath = normalizeDirectoryPath(getUserFolder(userId) + path);
 
-        try (ZipOutputStream zipOut = new ZipOutputStream(response.getOutputStream())) {
-            Iterable<Result<Item>> results = minioStorageService.listObjects(fullPath, true);
+        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
+            Iterable<StoredObject> results = minioStorageService.listObjects(fullPath, true);
 
-            for (Result<Item> result : results) {
-                Item item = result.get();
+            for (StoredObject item : results) {
                 if (item.isDir()) {
                     continue;
                 }
@@ -173,7 +208,7 @@ public class DirectoryService {
 
                 try (InputStream is = minioStorageService.getObject(objectName)) {
                     zipOut.putNextEntry(new ZipEntry(relativeName));
-                    is.transferTo(zipOut);
+                    streamTransfer.copy(is, zipOut);
                     zipOut.closeEntry();
                 }
             }
@@ -185,9 +220,9 @@ public class DirectoryService {
     @SneakyThrows
     private boolean directoryAlreadyExists(String path) {
         String normalizedPath = normalizeDirectoryPath(path);
-        Iterable<Result<Item>> existing = minioStorageService.listObjects(normalizedPath, true);
-        for (Result<Item> result : existing) {
-            if (result.get() != null) {
+        Iterable<StoredObject> existing = minioStorageService.listObjects(normalizedPath, true);
+        for (StoredObject object : existing) {
+            if (object != null) {
                 return true;
             }
         }
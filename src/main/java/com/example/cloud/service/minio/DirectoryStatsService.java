@@ -0,0 +1,281 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.DirectoryStats;
+import com.example.cloud.model.entity.DirectoryStatsId;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.repository.DirectoryStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Maintains per-directory totals (bytes, file count, last modified) so listings can show folder sizes without
+ * a recursive scan. Every change is applied as a delta along the ancestor chain. A user's aggregates are built
+ * with one full listing the first time they are needed, and dropped for a rebuild if an update ever fails.
+ * <p>
+ * A change that arrives on any node while a rebuild runs cannot be applied as a delta, since the listing may or may
+ * not include it. It marks the user dirty in Redis instead, and the rebuild lists again; if the user is still dirty
+ * after {@value #REBUILD_ATTEMPTS} listings, the aggregates are dropped so the next read starts over.
+ */
+@Slf4j
+@Service
+public class DirectoryStatsService {
+
+    static final String ROOT = "";
+    static final int REBUILD_ATTEMPTS = 3;
+    private static final String REBUILDING_KEY = "stats:rebuilding:";
+    private static final String DIRTY_KEY = "stats:dirty:";
+    private static final Duration REBUILD_TIMEOUT = Duration.ofMinutes(30);
+
+    private final DirectoryStatsRepository directoryStatsRepository;
+    private final MinioStorageService minioStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ExecutorService backfillExecutor;
+    private final Set<Long> backfilling = ConcurrentHashMap.newKeySet();
+
+    public DirectoryStatsService(DirectoryStatsRepository directoryStatsRepository,
+                                 MinioStorageService minioStorageService,
+                                 TransactionTemplate transactionTemplate,
+                                 StringRedisTemplate redisTemplate,
+                                 @Qualifier("backgroundTaskExecutor") ExecutorService backfillExecutor) {
+        this.directoryStatsRepository = directoryStatsRepository;
+        this.minioStorageService = minioStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.backfillExecutor = backfillExecutor;
+    }
+
+    /**
+     * Returns aggregates for the given directories, keyed by path. Returns an empty map while the user's
+     * aggregates are still being built, so callers should fall back to what storage reports.
+     */
+    public Map<String, DirectoryStats> getStats(Long userId, Collection<String> directoryPaths) {
+        Set<String> paths = new HashSet<>();
+        directoryPaths.forEach(path -> paths.add(normalize(path)));
+        paths.add(ROOT);
+
+        Map<String, DirectoryStats> stats = directoryStatsRepository.findByIdUserIdAndIdPathIn(userId, paths).stream()
+                .collect(Collectors.toMap(row -> row.getId().getPath(), row -> row));
+        if (!stats.containsKey(ROOT)) {
+            scheduleBackfill(userId);
+            return Map.of();
+        }
+        return stats;
+    }
+
+    public Optional<DirectoryStats> getStats(Long userId, String directoryPath) {
+        return Optional.ofNullable(getStats(userId, List.of(directoryPath)).get(normalize(directoryPath)));
+    }
+
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(event));
+        } catch (Exception e) {
+            log.warn("Failed to update directory stats for user {}, dropping them for a rebuild: {}",
+                    event.userId(), e.getMessage());
+            invalidate(event.userId());
+        }
+    }
+
+    public void invalidate(Long userId) {
+        markDirty(userId);
+        transactionTemplate.executeWithoutResult(status -> directoryStatsRepository.deleteAllForUser(userId));
+    }
+
+    /**
+     * Rebuilds the user's aggregates from a full listing of their folder, listing again while changes arrive.
+     */
+    public void rebuild(Long userId) {
+        String rebuildingKey = REBUILDING_KEY + userId;
+        String dirtyKey = DIRTY_KEY + userId;
+        redisTemplate.opsForValue().set(rebuildingKey, "1", REBUILD_TIMEOUT);
+        try {
+            for (int attempt = 1; attempt <= REBUILD_ATTEMPTS; attempt++) {
+                redisTemplate.delete(dirtyKey);
+                Map<String, DirectoryStats> aggregates = aggregate(userId);
+                transactionTemplate.executeWithoutResult(status -> {
+                    directoryStatsRepository.deleteAllForUser(userId);
+                    directoryStatsRepository.flush();
+                    directoryStatsRepository.saveAll(aggregates.values());
+                });
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(dirtyKey))) {
+                    log.info("Directory stats for user {} rebuilt, {} directories", userId, aggregates.size());
+                    return;
+                }
+                log.debug("Directory stats for user {} changed during rebuild {}, listing again", userId, attempt);
+            }
+            transactionTemplate.executeWithoutResult(status -> directoryStatsRepository.deleteAllForUser(userId));
+            log.info("Directory stats for user {} kept changing during rebuild, dropped for the next read", userId);
+        } finally {
+            redisTemplate.delete(rebuildingKey);
+        }
+    }
+
+    private Map<String, DirectoryStats> aggregate(Long userId) {
+        String userFolder = getUserFolder(userId);
+        Map<String, DirectoryStats> aggregates = new HashMap<>();
+        aggregate(aggregates, userId, ROOT, 0, 0, null);
+
+        try {
+            for (StoredObject item : minioStorageService.listObjects(userFolder, true)) {
+                String path = normalize(item.objectName().substring(userFolder.length()));
+                Instant lastModified = item.lastModified() != null ? item.lastModified().toInstant() : null;
+
+                if (path.endsWith("/")) {
+                    aggregate(aggregates, userId, path, 0, 0, null);
+                    for (String ancestor : ancestors(path)) {
+                        aggregate(aggregates, userId, ancestor, 0, 0, null);
+                    }
+                    continue;
+                }
+                for (String ancestor : ancestors(path)) {
+                    aggregate(aggregates, userId, ancestor, minioStorageService.logicalSize(item), 1, lastModified);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to list " + userFolder, e);
+        }
+        return aggregates;
+    }
+
+    private void markDirty(Long userId) {
+        redisTemplate.opsForValue().set(DIRTY_KEY + userId, "1", REBUILD_TIMEOUT);
+    }
+
+    private void apply(ResourceChangedEvent event) {
+        Long userId = event.userId();
+        // Storage-side changes carry no size for deletes; the notification consumer drops the user's stats instead.
+        if (event.source() == ResourceChangedEvent.Source.STORAGE || event.type() == ResourceChangedEvent.Type.REFRESH) {
+            return;
+        }
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(REBUILDING_KEY + userId))) {
+            markDirty(userId);
+            return;
+        }
+        if (!directoryStatsRepository.existsById(new DirectoryStatsId(userId, ROOT))) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        String path = normalize(event.path());
+
+        switch (event.type()) {
+            case CREATED -> {
+                if (event.isDirectory()) {
+                    directoryStatsRepository.applyDelta(userId, path, 0, 0, now);
+                    ancestors(path).forEach(ancestor -> directoryStatsRepository.applyDelta(userId, ancestor, 0, 0, now));
+                } else {
+                    addToAncestors(userId, path, event.size(), 1, now);
+                }
+            }
+            case DELETED -> {
+                if (event.isDirectory()) {
+                    directoryStatsRepository.findById(new DirectoryStatsId(userId, path)).ifPresent(row ->
+                            addToAncestors(userId, path, -row.getTotalSize(), -row.getFileCount(), now));
+                    directoryStatsRepository.deleteSubtree(userId, path);
+                } else {
+                    addToAncestors(userId, path, -event.size(), -1, now);
+                }
+            }
+            case MOVED -> {
+                String targetPath = normalize(event.targetPath());
+                if (event.isDirectory()) {
+                    Optional<DirectoryStats> row = directoryStatsRepository.findById(new DirectoryStatsId(userId, path));
+                    long size = row.map(DirectoryStats::getTotalSize).orElse(0L);
+                    long count = row.map(DirectoryStats::getFileCount).orElse(0L);
+                    addToAncestors(userId, path, -size, -count, now);
+                    directoryStatsRepository.deleteSubtree(userId, targetPath);
+                    directoryStatsRepository.moveSubtree(userId, path, targetPath);
+                    addToAncestors(userId, targetPath, size, count, now);
+                } else {
+                    addToAncestors(userId, path, -event.size(), -1, now);
+                    addToAncestors(userId, targetPath, event.size(), 1, now);
+                }
+            }
+            case REFRESH -> {
+            }
+        }
+    }
+
+    private void addToAncestors(Long userId, String path, long size, long count, Instant now) {
+        for (String ancestor : ancestors(path)) {
+            directoryStatsRepository.applyDelta(userId, ancestor, size, count, now);
+        }
+    }
+
+    private void scheduleBackfill(Long userId) {
+        if (!backfilling.add(userId)) {
+            return;
+        }
+        try {
+            backfillExecutor.execute(() -> {
+                try {
+                    rebuild(userId);
+                } catch (Exception e) {
+                    log.warn("Failed to build directory stats for user {}: {}", userId, e.getMessage());
+                } finally {
+                    backfilling.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Retried by the next read that finds no aggregates.
+            backfilling.remove(userId);
+        }
+    }
+
+    private static void aggregate(Map<String, DirectoryStats> aggregates, Long userId, String path,
+                                  long size, long count, Instant lastModified) {
+        DirectoryStats stats = aggregates.computeIfAbsent(path,
+                p -> new DirectoryStats(new DirectoryStatsId(userId, p), 0, 0, null));
+        stats.setTotalSize(stats.getTotalSize() + size);
+        stats.setFileCount(stats.getFileCount() + count);
+        if (lastModified != null && (stats.getLastModified() == null || lastModified.isAfter(stats.getLastModified()))) {
+            stats.setLastModified(lastModified);
+        }
+    }
+
+    /**
+     * Directories strictly above the given path, starting with the root.
+     */
+    static List<String> ancestors(String path) {
+        List<String> ancestors = new ArrayList<>();
+        ancestors.add(ROOT);
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        int slash = trimmed.indexOf('/');
+        while (slash >= 0) {
+            ancestors.add(trimmed.substring(0, slash + 1));
+            slash = trimmed.indexOf('/', slash + 1);
+        }
+        return ancestors;
+    }
+
+    static String normalize(String path) {
+        String normalized = path.replace("//", "/");
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.MediaProperties;
+import com.example.cloud.util.StreamTransfer;
+import com.example.cloud.util.ThrottledOutputStream;
+import com.example.cloud.util.TokenBucket;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.StatObjectResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams a single stored object to the client: headers come from the object's stat, single byte ranges
+ * are served with 206, and the body is copied on the download executor once the handler has returned.
+ * Hot objects are served from the node-local {@link ObjectDiskCache} with {@link FileChannel#transferTo}.
+ */
+@Slf4j
+@Service
+public class FileStreamingService {
+
+    private final MinioStorageService minioStorageService;
+    private final StreamTransfer streamTransfer;
+    private final ObjectDiskCache objectDiskCache;
+    private final MediaChunkReader mediaChunkReader;
+    private final MediaProperties mediaProperties;
+    private final DistributionSummary streamBytes;
+
+    public FileStreamingService(MinioStorageService minioStorageService,
+                                StreamTransfer streamTransfer,
+                                ObjectDiskCache objectDiskCache,
+                                MediaChunkReader mediaChunkReader,
+                                MediaProperties mediaProperties,
+                                MeterRegistry meterRegistry) {
+        this.minioStorageService = minioStorageService;
+        this.streamTransfer = streamTransfer;
+        this.objectDiskCache = objectDiskCache;
+        this.mediaChunkReader = mediaChunkReader;
+        this.mediaProperties = mediaProperties;
+        this.streamBytes = DistributionSummary.builder("media.stream.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public StreamingResponseBody stream(String objectPath, String contentDisposition,
+                                        HttpServletRequest request, HttpServletResponse response) {
+        StatObjectResponse stat = stat(objectPath);
+        String contentType = stat.contentType() != null ? stat.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        return stream(objectPath, stat, contentType, contentDisposition, false, request, response);
+    }
+
+    /**
+     * Streams a file for playback in the browser. Audio, video and raster images are served inline with a type
+     * guessed from the name when storage only knows them as binary; anything else, which could carry script,
+     * stays an attachment. Ranges are read in aligned chunks ahead of the player, the range {@code prefetch}
+     * picks for the stored content (such as a movie's index at the end of the file) is loaded before it is asked
+     * for, and every stream can be paced to {@code media.bandwidth-per-stream}.
+     */
+    public StreamingResponseBody streamInline(String objectPath, String fileName,
+                                              Function<StatObjectResponse, Optional<ObjectRange>> prefetch,
+                                              HttpServletRequest request, HttpServletResponse response) {
+        StatObjectResponse stat = stat(objectPath);
+        MediaType mediaType = playbackType(stat.contentType(), fileName);
+        String disposition = mediaType != null ? "inline" : "attachment";
+        String contentType = mediaType != null ? mediaType.toString()
+                : stat.contentType() != null ? stat.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+        if (!minioStorageService.isCompressed(stat)) {
+            prefetch.apply(stat).ifPresent(range ->
+                    mediaChunkReader.prefetch(objectPath, stat.etag(), stat.size(), range.offset(), range.length()));
+        }
+        StreamingResponseBody body = stream(objectPath, stat, contentType,
+                disposition + "; filename=\"" + fileName + "\"", true, request, response);
+        if (body == null) {
+            return null;
+        }
+
+        long bytesPerSecond = mediaProperties.getBandwidthPerStream().toBytes();
+        return outputStream -> {
+            CountingOutputStream counting = new CountingOutputStream(bytesPerSecond > 0
+                    ? new ThrottledOutputStream(outputStream, new TokenBucket(bytesPerSecond, Duration.ofSeconds(1)))
+                    : outputStream);
+            try {
+                body.writeTo(counting);
+            } finally {
+                streamBytes.record(counting.count);
+            }
+        };
+    }
+
+    private StreamingResponseBody stream(String objectPath, StatObjectResponse stat, String contentType,
+                                         String contentDisposition, boolean readAhead,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ETAG, "\"" + stat.etag() + "\"");
+        if (stat.lastModified() != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, stat.lastModified().toInstant().toEpochMilli());
+        }
+
+        if (minioStorageService.isCompressed(stat)) {
+            return streamCompressed(objectPath, stat, request, response);
+        }
+
+        long size = stat.size();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        HttpRange range = resolveRange(request, stat);
+        if (range == null) {
+            response.setContentLengthLong(size);
+            return rawBody(objectPath, stat, 0, size, readAhead);
+        }
+
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(size);
+            end = range.getRangeEnd(size);
+        } catch (IllegalArgumentException e) {
+            start = size;
+            end = size - 1;
+        }
+        if (size == 0 || start >= size || start > end) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setContentLength(0);
+            return null;
+        }
+
+        long offset = start;
+        long length = end - start + 1;
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        response.setContentLengthLong(length);
+        return rawBody(objectPath, stat, offset, length, readAhead);
+    }
+
+    private StreamingResponseBody streamCompressed(String objectPath, StatObjectResponse stat,
+                                                   HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, MinioStorageService.GZIP_CODEC);
+            response.setContentLengthLong(stat.size());
+            return rawBody(objectPath, stat, 0, stat.size(), false);
+        }
+
+        long size = minioStorageService.logicalSize(stat);
+        response.setContentLengthLong(size);
+        return decodedBody(objectPath, stat, size);
+    }
+
+    private StreamingResponseBody rawBody(String objectPath, StatObjectResponse stat, long offset, long length,
+                                          boolean readAhead) {
+        return outputStream -> {
+            Path cached = objectDiskCache.resolve(objectPath, stat.etag(), stat.size());
+            if (cached != null) {
+                try (FileChannel channel = FileChannel.open(cached, StandardOpenOption.READ)) {
+                    WritableByteChannel target = Channels.newChannel(outputStream);
+                    long position = offset;
+                    long end = offset + length;
+                    while (position < end) {
+                        position += channel.transferTo(position, end - position, target);
+                    }
+                    return;
+                } catch (NoSuchFileException e) {
+                    log.debug("Cached copy of {} was evicted before it was read", objectPath);
+                }
+            }
+
+            if (offset == 0 && length == stat.size()) {
+                InputStream through = objectDiskCache.readThrough(objectPath, stat.etag(), stat.size());
+                if (through != null) {
+                    try (through) {
+                        streamTransfer.copy(through, outputStream, length);
+                    }
+                    return;
+                }
+            } else {
+                objectDiskCache.fillInBackground(objectPath, stat.etag(), stat.size());
+            }
+
+            if (readAhead) {
+                mediaChunkReader.copy(objectPath, stat.etag(), stat.size(), offset, length, outputStream);
+                return;
+            }
+            try (InputStream inputStream = offset == 0 && length == stat.size()
+                    ? minioStorageService.getRawObject(objectPath)
+                    : minioStorageService.getRawObject(objectPath, offset, length)) {
+                streamTransfer.copy(inputStream, outputStream, length);
+            }
+        };
+    }
+
+    private StreamingResponseBody decodedBody(String objectPath, StatObjectResponse stat, long length) {
+        return outputStream -> {
+            Path cached = objectDiskCache.resolve(objectPath, stat.etag(), stat.size());
+            if (cached != null) {
+                try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(cached), 64 * 1024)) {
+                    streamTransfer.copy(inputStream, outputStream, length);
+                    return;
+                } catch (NoSuchFileException e) {
+                    log.debug("Cached copy of {} was evicted before it was read", objectPath);
+                }
+            }
+
+            InputStream through = objectDiskCache.readThrough(objectPath, stat.etag(), stat.size());
+            if (through != null) {
+                try (InputStream inputStream = new GZIPInputStream(through, 64 * 1024)) {
+                    streamTransfer.copy(inputStream, outputStream, length);
+                    // The gzip trailer follows the last decoded byte; read it so the cached copy is complete.
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                }
+                return;
+            }
+
+            try (InputStream inputStream = minioStorageService.decode(minioStorageService.getRawObject(objectPath))) {
+                streamTransfer.copy(inputStream, outputStream, length);
+            }
+        };
+    }
+
+    @SneakyThrows
+    private StatObjectResponse stat(String objectPath) {
+        try {
+            return minioStorageService.statObject(objectPath);
+        } catch (Exception e) {
+            throw new FileNotFoundException("File " + objectPath + " not found");
+        }
+    }
+
+    /**
+     * The type to play a file as inline, or {@code null} if it must not be rendered by the browser.
+     */
+    static MediaType playbackType(String storedType, String fileName) {
+        MediaType type = null;
+        if (storedType != null && !storedType.isBlank()) {
+            try {
+                type = MediaType.parseMediaType(storedType);
+            } catch (InvalidMediaTypeException e) {
+                type = null;
+            }
+        }
+        if (type == null || type.equalsTypeAndSubtype(MediaType.APPLICATION_OCTET_STREAM)) {
+            type = MediaTypeFactory.getMediaType(fileName).orElse(null);
+        }
+        if (type == null) {
+            return null;
+        }
+        boolean playable = type.getType().equals("video") || type.getType().equals("audio")
+                || (type.getType().equals("image") && !type.getSubtype().contains("svg"));
+        return playable ? type : null;
+    }
+
+    private HttpRange resolveRange(HttpServletRequest request, StatObjectResponse stat) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals("\"" + stat.etag() + "\"")) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase(MinioStorageService.GZIP_CODEC)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.dto.response.FileVersionDto;
+import com.example.cloud.model.entity.FileVersion;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.VersioningProperties;
+import com.example.cloud.repository.FileVersionRepository;
+import com.example.cloud.util.TokenBucket;
+import io.minio.StatObjectResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.cloud.util.PathUtils.extractFileName;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Keeps earlier contents of overwritten files. Before a file is replaced its current object is copied to
+ * {@code user-{id}-versions/{uuid}} and indexed in {@code file_versions}, so listing versions is one indexed query
+ * however often the file was edited. A periodic job drops versions beyond {@code versioning.max-versions} per file
+ * or older than {@code versioning.retention}, on one node per interval. Versions of a file that is deleted are
+ * removed with it, so a new file uploaded to the same path starts without history.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileVersionService {
+
+    private static final String PRUNE_CLAIM_KEY = "versioning:prune";
+
+    private final FileVersionRepository fileVersionRepository;
+    private final MinioStorageService minioStorageService;
+    private final FileStreamingService fileStreamingService;
+    private final VersioningProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Copies the current content of a file aside as a version and returns its size.
+     */
+    long archive(Long userId, String path) {
+        Archived archived = copyAside(userId, path);
+        keep(archived);
+        return archived.size();
+    }
+
+    /**
+     * Copies the current content of a file aside without recording it yet, for a write that may still fail.
+     * The copy is then either recorded with {@link #keep} or removed with {@link #discard}.
+     */
+    Archived copyAside(Long userId, String path) {
+        String fullPath = getUserFolder(userId) + path;
+        StatObjectResponse stat = minioStorageService.statObject(fullPath);
+        String versionKey = versionsFolder(userId) + UUID.randomUUID();
+        minioStorageService.copyObject(fullPath, versionKey);
+        return new Archived(userId, path, versionKey, minioStorageService.logicalSize(stat), stat.lastModified().toInstant());
+    }
+
+    void keep(Archived archived) {
+        fileVersionRepository.save(new FileVersion(null, archived.userId(), archived.path(), archived.versionKey(),
+                archived.size(), archived.lastModified(), Instant.now()));
+    }
+
+    void discard(Archived archived) {
+        try {
+            minioStorageService.removeObject(archived.versionKey());
+        } catch (Exception e) {
+            log.warn("Failed to remove unused version copy {}: {}", archived.versionKey(), e.getMessage());
+        }
+    }
+
+    @SneakyThrows
+    public List<FileVersionDto> list(Long userId, String path) {
+        List<FileVersionDto> versions = new ArrayList<>();
+        try {
+            StatObjectResponse stat = minioStorageService.statObject(getUserFolder(userId) + path);
+            versions.add(new FileVersionDto(null, minioStorageService.logicalSize(stat),
+                    stat.lastModified().toInstant(), true));
+        } catch (Exception e) {
+            log.debug("File {} of user {} has no current content: {}", path, userId, e.getMessage());
+        }
+
+        for (FileVersion version : fileVersionRepository.findByUserIdAndPathOrderByArchivedAtDescIdDesc(userId, path)) {
+            versions.add(new FileVersionDto(version.getId(), version.getSize(), version.getLastModified(), false));
+        }
+        if (versions.isEmpty()) {
+            throw new FileNotFoundException("File " + path + " not found");
+        }
+        return versions;
+    }
+
+    public StreamingResponseBody download(Long userId, String path, Long versionId,
+                                          HttpServletRequest request, HttpServletResponse response) {
+        FileVersion version = find(userId, path, versionId);
+        return fileStreamingService.stream(version.getVersionKey(),
+                "attachment; filename=\"" + extractFileName(path) + "\"", request, response);
+    }
+
+    /**
+     * Makes a version the current content again. The content it replaces becomes a version itself.
+     */
+    public void restore(Long userId, Long versionId, String path) {
+        FileVersion version = find(userId, path, versionId);
+        String fullPath = getUserFolder(userId) + path;
+
+        Long replacedSize = minioStorageService.objectExists(fullPath) ? archive(userId, path) : null;
+        minioStorageService.copyObject(version.getVersionKey(), fullPath);
+
+        if (replacedSize != null) {
+            eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, path, replacedSize));
+        }
+        eventPublisher.publishEvent(ResourceChangedEvent.created(userId, path, version.getSize()));
+        log.info("Restored version {} of {} for user {}", versionId, path, userId);
+    }
+
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (event.type() == ResourceChangedEvent.Type.DELETED) {
+            dropVersions(event);
+            return;
+        }
+        if (event.type() != ResourceChangedEvent.Type.MOVED || event.targetPath() == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (event.isDirectory()) {
+                    fileVersionRepository.moveSubtree(event.userId(), event.path(), event.targetPath());
+                } else {
+                    fileVersionRepository.move(event.userId(), event.path(), event.targetPath());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to move versions of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    /**
+     * An overwrite is announced as a delete followed by a create, with the new content already in place, so
+     * versions are only dropped once nothing is left at the path.
+     */
+    private void dropVersions(ResourceChangedEvent event) {
+        try {
+            String fullPath = getUserFolder(event.userId()) + event.path();
+            boolean exists = event.isDirectory()
+                    ? minioStorageService.listObjects(fullPath, false).iterator().hasNext()
+                    : minioStorageService.objectExists(fullPath);
+            if (exists) {
+                return;
+            }
+            List<FileVersion> versions = event.isDirectory()
+                    ? fileVersionRepository.findSubtree(event.userId(), event.path())
+                    : fileVersionRepository.findByUserIdAndPathOrderByArchivedAtDescIdDesc(event.userId(), event.path());
+            if (versions.isEmpty()) {
+                return;
+            }
+
+            int chunkSize = properties.getDeleteChunkSize();
+            Map<String, String> failures = minioStorageService.removeObjects(
+                    versions.stream().map(FileVersion::getVersionKey).toList(), chunkSize);
+            // Versions whose content could not be removed stay listed until the prune job retires them.
+            fileVersionRepository.deleteAllByIdInBatch(versions.stream()
+                    .filter(version -> !failures.containsKey(version.getVersionKey()))
+                    .map(FileVersion::getId)
+                    .toList());
+            log.debug("Dropped {} versions of deleted {} of user {}", versions.size() - failures.size(),
+                    event.path(), event.userId());
+        } catch (Exception e) {
+            log.warn("Failed to drop versions of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${versioning.prune-interval:1h}", initialDelayString = "PT5M")
+    public void prune() {
+        if (!properties.isEnabled() || !claim()) {
+            return;
+        }
+        List<FileVersion> versions = fileVersionRepository.findPrunable(properties.getMaxVersions(),
+                Instant.now().minus(properties.getRetention()), properties.getVersionsPerRun());
+
+        TokenBucket rateLimit = new TokenBucket(properties.getObjectsPerSecond(), Duration.ofSeconds(1));
+        int chunkSize = properties.getDeleteChunkSize();
+        int pruned = 0;
+        try {
+            for (int from = 0; from < versions.size(); from += chunkSize) {
+                List<FileVersion> chunk = versions.subList(from, Math.min(from + chunkSize, versions.size()));
+                Duration wait = rateLimit.consume(chunk.size());
+                if (!wait.isZero()) {
+                    Thread.sleep(wait.toMillis());
+                }
+
+                Map<String, String> failures = minioStorageService.removeObjects(
+                        chunk.stream().map(FileVersion::getVersionKey).toList(), chunkSize);
+                List<Long> removed = chunk.stream()
+                        .filter(version -> !failures.containsKey(version.getVersionKey()))
+                        .map(FileVersion::getId)
+                        .toList();
+                fileVersionRepository.deleteAllByIdInBatch(removed);
+                pruned += removed.size();
+                if (!failures.isEmpty()) {
+                    log.warn("Failed to remove {} file versions, will retry", failures.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pruned > 0) {
+            log.info("Pruned {} file versions", pruned);
+        }
+    }
+
+    @SneakyThrows
+    private FileVersion find(Long userId, String path, Long versionId) {
+        return fileVersionRepository.findByIdAndUserIdAndPath(versionId, userId, path)
+                .orElseThrow(() -> new FileNotFoundException("Version " + versionId + " of " + path + " not found"));
+    }
+
+    private boolean claim() {
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(PRUNE_CLAIM_KEY, nodeId,
+                properties.getPruneInterval().multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private static String versionsFolder(Long userId) {
+        return "user-" + userId + "-versions/";
+    }
+
+    record Archived(Long userId, String path, String versionKey, long size, Instant lastModified) {
+    }
+}
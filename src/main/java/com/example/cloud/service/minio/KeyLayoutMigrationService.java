@@ -0,0 +1,258 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.StorageLayoutProperties;
+import com.example.cloud.repository.UserStorageLayoutRepository;
+import com.example.cloud.service.minio.layout.KeyLayout;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import com.example.cloud.service.minio.layout.LegacyKeyLayout;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import com.example.cloud.util.TokenBucket;
+import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Moves users between key layouts while they stay online. A migration first marks the user as migrating, so
+ * every node writes to the target layout and reads from the target before the source. It then waits for the
+ * placement cache to expire everywhere, copies each object the target does not have yet, removes the source
+ * copy, and finally switches the user over. Each copy is conditional on the target not existing, so a file the
+ * user writes meanwhile is never overwritten by the older source copy.
+ * <p>
+ * A migration runs on this service's own thread while its node holds a claim on the user in Redis, refreshed as
+ * it goes. Migrations left unfinished by a node that stopped are resumed by the scheduled job once the claim lapses.
+ */
+@Slf4j
+@Service
+public class KeyLayoutMigrationService {
+
+    private static final String CLAIM_KEY = "keylayout:migration:";
+    private static final Duration CLAIM_TTL = Duration.ofMinutes(2);
+
+    private final KeyLayoutResolver keyLayoutResolver;
+    private final MinioStorageService minioStorageService;
+    private final UserStorageLayoutRepository userStorageLayoutRepository;
+    private final StorageLayoutProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "key-layout-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, MigrationProgress> running = new ConcurrentHashMap<>();
+    private final Map<Long, MigrationProgress> lastResults = new ConcurrentHashMap<>();
+
+    public KeyLayoutMigrationService(KeyLayoutResolver keyLayoutResolver,
+                                     MinioStorageService minioStorageService,
+                                     UserStorageLayoutRepository userStorageLayoutRepository,
+                                     StorageLayoutProperties properties,
+                                     TransactionTemplate transactionTemplate,
+                                     StringRedisTemplate redisTemplate) {
+        this.keyLayoutResolver = keyLayoutResolver;
+        this.minioStorageService = minioStorageService;
+        this.userStorageLayoutRepository = userStorageLayoutRepository;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        migrationExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureBuckets() {
+        for (String bucket : keyLayoutResolver.buckets()) {
+            try {
+                minioStorageService.ensureBucket(bucket);
+            } catch (Exception e) {
+                log.warn("Failed to check bucket {}: {}", bucket, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts or resumes moving the user to the given layout. Returns false when the user is already there.
+     */
+    public boolean migrate(Long userId, String targetLayout) {
+        KeyLayout target = keyLayoutResolver.layout(targetLayout);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userStorageLayoutRepository.insertIfAbsent(userId, LegacyKeyLayout.NAME);
+            userStorageLayoutRepository.claimMigration(userId, target.name());
+        });
+        keyLayoutResolver.evict(userId);
+        KeyLayoutResolver.Placement placement = keyLayoutResolver.placement(userId);
+
+        if (!placement.migrating()) {
+            return false;
+        }
+        if (!placement.target().name().equals(target.name())) {
+            throw new IllegalStateException("User " + userId + " is already migrating to " + placement.target().name());
+        }
+
+        MigrationProgress progress = new MigrationProgress(placement.current().name(), target.name());
+        if (running.putIfAbsent(userId, progress) != null) {
+            return true;
+        }
+        try {
+            migrationExecutor.execute(() -> {
+                if (!claim(userId)) {
+                    // Another node is copying this user.
+                    running.remove(userId);
+                    return;
+                }
+                try {
+                    copyUser(userId, placement.current(), placement.target(), progress);
+                } catch (Exception e) {
+                    progress.error = e.getMessage();
+                    log.warn("Key layout migration of user {} failed, it will be resumed: {}", userId, e.getMessage());
+                } finally {
+                    lastResults.put(userId, progress);
+                    running.remove(userId);
+                    release(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(userId);
+            throw e;
+        }
+        return true;
+    }
+
+    public Map<String, Object> status(Long userId) {
+        KeyLayoutResolver.Placement placement = keyLayoutResolver.placement(userId);
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("layout", placement.current().name());
+        status.put("targetLayout", placement.migrating() ? placement.target().name() : null);
+        MigrationProgress progress = running.getOrDefault(userId, lastResults.get(userId));
+        if (progress != null) {
+            status.put("running", running.containsKey(userId));
+            status.put("from", progress.from);
+            status.put("to", progress.to);
+            status.put("copied", progress.copied);
+            status.put("skipped", progress.skipped);
+            status.put("error", progress.error);
+        }
+        return status;
+    }
+
+    /**
+     * Resumes migrations that were left unfinished and, with auto-migrate on, starts moving users that are not
+     * in the default layout yet.
+     */
+    @Scheduled(fixedDelayString = "${storage.layout.migration.interval:1m}", initialDelayString = "PT1M")
+    public void migrateExistingUsers() {
+        if (!running.isEmpty()) {
+            return;
+        }
+        int limit = properties.getMigration().getUsersPerRun();
+        List<Long> userIds = properties.getMigration().isAutoMigrate()
+                ? userStorageLayoutRepository.findUsersToMigrate(keyLayoutResolver.defaultLayout().name(), limit)
+                : userStorageLayoutRepository.findUnfinishedMigrations(limit);
+        for (Long userId : userIds) {
+            try {
+                KeyLayoutResolver.Placement placement = keyLayoutResolver.placement(userId);
+                migrate(userId, placement.migrating()
+                        ? placement.target().name() : keyLayoutResolver.defaultLayout().name());
+            } catch (Exception e) {
+                log.warn("Failed to start key layout migration of user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    private void copyUser(Long userId, KeyLayout source, KeyLayout target, MigrationProgress progress) throws InterruptedException {
+        // Let every node's cached placement expire, so nothing is still writing to the source layout.
+        Thread.sleep(properties.getCacheTtl().multipliedBy(2).toMillis());
+        refreshClaim(userId);
+        minioStorageService.ensureBucket(target.bucket(userId));
+
+        TokenBucket rateLimit = new TokenBucket(properties.getMigration().getObjectsPerSecond(), Duration.ofSeconds(1));
+        ObjectLocation sourceRoot = source.locate(userId, "");
+        Iterator<Item> items = minioStorageService.listPhysical(sourceRoot, true);
+        long lastRefresh = System.nanoTime();
+        while (items.hasNext()) {
+            Item item = items.next();
+            String relativeKey = item.objectName().substring(sourceRoot.key().length());
+            ObjectLocation from = new ObjectLocation(sourceRoot.bucket(), item.objectName());
+            ObjectLocation to = target.locate(userId, relativeKey);
+
+            Duration wait = rateLimit.consume(1);
+            if (!wait.isZero()) {
+                Thread.sleep(wait.toMillis());
+            }
+
+            // A copy already in the target was written after the migration started and is newer.
+            if (minioStorageService.copyPhysicalIfAbsent(from, to)) {
+                progress.copied++;
+            } else {
+                progress.skipped++;
+            }
+            minioStorageService.removePhysical(from);
+
+            if (System.nanoTime() - lastRefresh > CLAIM_TTL.toNanos() / 4) {
+                refreshClaim(userId);
+                lastRefresh = System.nanoTime();
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status ->
+                userStorageLayoutRepository.completeMigration(userId, target.name()));
+        keyLayoutResolver.evict(userId);
+        log.info("User {} migrated from {} to {} layout: {} objects copied, {} already present",
+                userId, source.name(), target.name(), progress.copied, progress.skipped);
+    }
+
+    private boolean claim(Long userId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(CLAIM_KEY + userId, nodeId, CLAIM_TTL));
+    }
+
+    private void refreshClaim(Long userId) {
+        if (!nodeId.equals(redisTemplate.opsForValue().get(CLAIM_KEY + userId))) {
+            throw new IllegalStateException("Lost the migration claim on user " + userId);
+        }
+        redisTemplate.expire(CLAIM_KEY + userId, CLAIM_TTL);
+    }
+
+    private void release(Long userId) {
+        try {
+            if (nodeId.equals(redisTemplate.opsForValue().get(CLAIM_KEY + userId))) {
+                redisTemplate.delete(CLAIM_KEY + userId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release the migration claim on user {}, it expires in {}", userId, CLAIM_TTL);
+        }
+    }
+
+    private static final class MigrationProgress {
+        private final String from;
+        private final String to;
+        private volatile long copied;
+        private volatile long skipped;
+        private volatile String error;
+
+        private MigrationProgress(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.MediaProperties;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads objects for playback in chunks aligned to {@code media.chunk-size}, keeping recent chunks in memory and
+ * fetching the next {@code media.read-ahead-chunks} while the current one is written. Players issue many short,
+ * overlapping and repeated range requests; aligned chunks turn them into a few storage reads, and a seek back
+ * or a second viewer is served from memory. Chunks are keyed by etag, so an overwritten file is never mixed in.
+ */
+@Slf4j
+@Component
+public class MediaChunkReader {
+
+    private final MinioStorageService minioStorageService;
+    private final MediaProperties properties;
+    private final AsyncCache<ChunkKey, byte[]> chunks;
+    private final ExecutorService readAheadExecutor;
+    private final Counter storageBytes;
+
+    public MediaChunkReader(MinioStorageService minioStorageService,
+                            MediaProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.minioStorageService = minioStorageService;
+        this.properties = properties;
+        this.readAheadExecutor = Executors.newFixedThreadPool(properties.getReadAheadThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "media-read-ahead");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.chunks = Caffeine.newBuilder()
+                .maximumWeight(properties.getCacheSize().toBytes())
+                .weigher((ChunkKey key, byte[] chunk) -> chunk.length)
+                .executor(readAheadExecutor)
+                .buildAsync();
+        this.storageBytes = Counter.builder("media.storage.bytes").register(meterRegistry);
+    }
+
+    /**
+     * Writes {@code length} bytes of the object starting at {@code offset} and returns how many were written.
+     */
+    public long copy(String objectPath, String etag, long objectSize, long offset, long length, OutputStream outputStream)
+            throws IOException {
+        long chunkSize = properties.getChunkSize().toBytes();
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            long index = position / chunkSize;
+            CompletableFuture<byte[]> current = chunk(objectPath, etag, objectSize, index);
+            readAhead(objectPath, etag, objectSize, index);
+
+            byte[] chunk = await(current);
+            int from = (int) (position - index * chunkSize);
+            int count = (int) Math.min(chunk.length - from, end - position);
+            if (count <= 0) {
+                throw new IOException("Object " + objectPath + " is shorter than expected");
+            }
+            outputStream.write(chunk, from, count);
+            position += count;
+        }
+        return position - offset;
+    }
+
+    /**
+     * Starts loading the chunks covering a range, such as a movie's index, before the player asks for it.
+     */
+    public void prefetch(String objectPath, String etag, long objectSize, long offset, long length) {
+        long chunkSize = properties.getChunkSize().toBytes();
+        for (long index = offset / chunkSize; index * chunkSize < Math.min(objectSize, offset + length); index++) {
+            chunk(objectPath, etag, objectSize, index);
+        }
+    }
+
+    private void readAhead(String objectPath, String etag, long objectSize, long index) {
+        long chunkSize = properties.getChunkSize().toBytes();
+        for (int ahead = 1; ahead <= properties.getReadAheadChunks(); ahead++) {
+            if ((index + ahead) * chunkSize >= objectSize) {
+                return;
+            }
+            chunk(objectPath, etag, objectSize, index + ahead);
+        }
+    }
+
+    private CompletableFuture<byte[]> chunk(String objectPath, String etag, long objectSize, long index) {
+        return chunks.get(new ChunkKey(objectPath, etag, index), (key, executor) ->
+                CompletableFuture.supplyAsync(() -> load(key, objectSize), executor));
+    }
+
+    private byte[] load(ChunkKey key, long objectSize) {
+        long chunkSize = properties.getChunkSize().toBytes();
+        long offset = key.index() * chunkSize;
+        long length = Math.min(chunkSize, objectSize - offset);
+        try (InputStream inputStream = minioStorageService.getRawObject(key.objectPath(), offset, length)) {
+            byte[] chunk = inputStream.readAllBytes();
+            storageBytes.increment(chunk.length);
+            return chunk;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> chunk) throws IOException {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("Failed to read media chunk", cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readAheadExecutor.shutdownNow();
+    }
+
+    private record ChunkKey(String objectPath, String etag, long index) {
+    }
+}
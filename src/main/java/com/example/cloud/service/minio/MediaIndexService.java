@@ -0,0 +1,158 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.MediaIndex;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.MediaProperties;
+import com.example.cloud.repository.MediaIndexRepository;
+import com.example.cloud.util.Mp4Boxes;
+import io.minio.StatObjectResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Records where the {@code moov} box of uploaded movies is. Files written without "fast start" keep it at the
+ * end, and a player cannot begin until it has read it; knowing its position lets streaming load it together
+ * with the first bytes. Files are indexed in the background after upload, or on first playback otherwise,
+ * reading only box headers.
+ */
+@Slf4j
+@Service
+public class MediaIndexService {
+
+    private static final String MOOV = "moov";
+
+    private final MediaIndexRepository mediaIndexRepository;
+    private final MinioStorageService minioStorageService;
+    private final MediaProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService indexExecutor;
+    private final Set<String> indexing = ConcurrentHashMap.newKeySet();
+
+    public MediaIndexService(MediaIndexRepository mediaIndexRepository,
+                             MinioStorageService minioStorageService,
+                             MediaProperties properties,
+                             TransactionTemplate transactionTemplate,
+                             @Qualifier("backgroundTaskExecutor") ExecutorService indexExecutor) {
+        this.mediaIndexRepository = mediaIndexRepository;
+        this.minioStorageService = minioStorageService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.indexExecutor = indexExecutor;
+    }
+
+    /**
+     * The range of the file's {@code moov} box if it is known for the current content, scheduling indexing if not.
+     */
+    public Optional<ObjectRange> moovRange(Long userId, String path, String etag) {
+        if (!properties.getIndex().isEnabled() || !isIndexable(path)) {
+            return Optional.empty();
+        }
+        Optional<MediaIndex> index = mediaIndexRepository.findByUserIdAndPath(userId, path)
+                .filter(candidate -> candidate.getEtag().equals(etag));
+        if (index.isEmpty()) {
+            scheduleIndex(userId, path);
+            return Optional.empty();
+        }
+        return index.filter(found -> found.getMoovOffset() != null)
+                .map(found -> new ObjectRange(getUserFolder(userId) + path, found.getMoovOffset(), found.getMoovSize()));
+    }
+
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!properties.getIndex().isEnabled()) {
+            return;
+        }
+        try {
+            switch (event.type()) {
+                case CREATED -> {
+                    if (!event.isDirectory() && isIndexable(event.path())) {
+                        scheduleIndex(event.userId(), event.path());
+                    }
+                }
+                case DELETED -> transactionTemplate.executeWithoutResult(status -> {
+                    if (event.isDirectory()) {
+                        mediaIndexRepository.deleteSubtree(event.userId(), event.path());
+                    } else {
+                        mediaIndexRepository.delete(event.userId(), event.path());
+                    }
+                });
+                case MOVED -> {
+                    if (event.targetPath() != null) {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            if (event.isDirectory()) {
+                                mediaIndexRepository.moveSubtree(event.userId(), event.path(), event.targetPath());
+                            } else {
+                                mediaIndexRepository.move(event.userId(), event.path(), event.targetPath());
+                            }
+                        });
+                    }
+                }
+                case REFRESH -> {
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to update media index of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    void index(Long userId, String path) throws Exception {
+        String fullPath = getUserFolder(userId) + path;
+        StatObjectResponse stat = minioStorageService.statObject(fullPath);
+        Mp4Boxes.Box moov = null;
+        if (!minioStorageService.isCompressed(stat)) {
+            moov = Mp4Boxes.find((offset, length) -> {
+                try (InputStream inputStream = minioStorageService.getRawObject(fullPath, offset, length)) {
+                    return inputStream.readAllBytes();
+                }
+            }, stat.size(), MOOV, properties.getIndex().getMaxBoxes());
+        }
+
+        MediaIndex index = new MediaIndex(null, userId, path, stat.etag(),
+                moov != null ? moov.offset() : null, moov != null ? moov.size() : null, Instant.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            mediaIndexRepository.delete(userId, path);
+            mediaIndexRepository.flush();
+            mediaIndexRepository.save(index);
+        });
+        log.debug("Indexed media file {} of user {}: moov at {}", path, userId, index.getMoovOffset());
+    }
+
+    private void scheduleIndex(Long userId, String path) {
+        String key = userId + ":" + path;
+        if (!indexing.add(key)) {
+            return;
+        }
+        try {
+            indexExecutor.execute(() -> {
+                try {
+                    index(userId, path);
+                } catch (Exception e) {
+                    log.warn("Failed to index media file {} of user {}: {}", path, userId, e.getMessage());
+                } finally {
+                    indexing.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            indexing.remove(key);
+        }
+    }
+
+    private boolean isIndexable(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot >= 0 && properties.getIndex().getExtensions()
+                .contains(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.StorageUnavailableException;
+import com.example.cloud.model.dto.enums.ResourceType;
+import com.example.cloud.model.dto.response.ResourceResponseDto;
+import com.example.cloud.model.entity.MetadataSnapshotEntry;
+import com.example.cloud.model.properties.DegradedModeProperties;
+import com.example.cloud.repository.MetadataSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileNotFoundException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.cloud.service.minio.DirectoryStatsService.ROOT;
+import static com.example.cloud.service.minio.DirectoryStatsService.ancestors;
+import static com.example.cloud.service.minio.DirectoryStatsService.normalize;
+import static com.example.cloud.util.PathUtils.normalizeDirectoryPath;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Keeps a copy of every user's tree in {@code metadata_snapshots}, so browsing and search keep working from
+ * Postgres while storage is unavailable. Snapshots are rebuilt from a full listing while storage is healthy,
+ * oldest first, on one node per interval; what they show can be up to {@code degraded.snapshot-max-age} old.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetadataSnapshotService {
+
+    private static final String REFRESH_CLAIM_KEY = "degraded:snapshot";
+
+    private final MetadataSnapshotRepository metadataSnapshotRepository;
+    private final MinioStorageService minioStorageService;
+    private final StorageHealthMonitor storageHealthMonitor;
+    private final DegradedModeProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public List<ResourceResponseDto> getDirectoryContent(Long userId, String path) {
+        String directory = normalizeDirectoryPath(getUserFolder(userId) + path).substring(getUserFolder(userId).length());
+        List<MetadataSnapshotEntry> entries = metadataSnapshotRepository
+                .findByUserIdAndParentPathOrderByPathAsc(userId, normalize(directory));
+        if (entries.isEmpty()) {
+            requireSnapshot(userId);
+        }
+        return entries.stream()
+                .map(entry -> toDto(entry, entry.getParentPath().isEmpty() ? "/" : entry.getParentPath()))
+                .toList();
+    }
+
+    @SneakyThrows
+    public ResourceResponseDto getFileInfo(Long userId, String path) {
+        MetadataSnapshotEntry entry = metadataSnapshotRepository.findByUserIdAndPath(userId, normalize(path))
+                .filter(candidate -> !candidate.isDirectory())
+                .orElse(null);
+        if (entry == null) {
+            requireSnapshot(userId);
+            throw new FileNotFoundException("File " + path + " not found");
+        }
+        return toDto(entry, entry.getParentPath());
+    }
+
+    public List<ResourceResponseDto> searchFiles(Long userId, String query) {
+        List<MetadataSnapshotEntry> entries = metadataSnapshotRepository.searchFiles(userId, query,
+                properties.getSearchLimit());
+        if (entries.isEmpty()) {
+            requireSnapshot(userId);
+        }
+        return entries.stream()
+                .map(entry -> toDto(entry, entry.getParentPath()))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${degraded.snapshot-interval:1m}", initialDelayString = "PT2M")
+    public void refresh() {
+        if (!properties.isEnabled() || storageHealthMonitor.isReadOnly() || !claim()) {
+            return;
+        }
+        List<Long> userIds = metadataSnapshotRepository.findUsersWithSnapshotBefore(
+                Instant.now().minus(properties.getSnapshotMaxAge()), properties.getSnapshotUsersPerRun());
+        for (Long userId : userIds) {
+            if (storageHealthMonitor.isReadOnly()) {
+                return;
+            }
+            try {
+                rebuild(userId);
+            } catch (Exception e) {
+                log.warn("Failed to snapshot the tree of user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Replaces the user's snapshot with a fresh full listing of their folder.
+     */
+    public void rebuild(Long userId) {
+        String userFolder = getUserFolder(userId);
+        Instant now = Instant.now();
+        Map<String, MetadataSnapshotEntry> entries = new LinkedHashMap<>();
+        directory(entries, userId, ROOT, now);
+
+        for (StoredObject item : minioStorageService.listObjects(userFolder, true)) {
+            String path = normalize(item.objectName().substring(userFolder.length()));
+            if (path.isEmpty()) {
+                continue;
+            }
+            List<String> ancestors = ancestors(path);
+            ancestors.forEach(ancestor -> directory(entries, userId, ancestor, now));
+            if (path.endsWith("/")) {
+                directory(entries, userId, path, now);
+                continue;
+            }
+
+            long size = minioStorageService.logicalSize(item);
+            Instant lastModified = item.lastModified() != null ? item.lastModified().toInstant() : null;
+            entries.put(path, new MetadataSnapshotEntry(null, userId, path, ancestors.get(ancestors.size() - 1),
+                    size, null, lastModified, now));
+            for (String ancestor : ancestors) {
+                MetadataSnapshotEntry directory = entries.get(ancestor);
+                directory.setSize(directory.getSize() + size);
+                directory.setFileCount(directory.getFileCount() + 1);
+                if (lastModified != null && (directory.getLastModified() == null
+                        || lastModified.isAfter(directory.getLastModified()))) {
+                    directory.setLastModified(lastModified);
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            metadataSnapshotRepository.deleteAllForUser(userId);
+            metadataSnapshotRepository.flush();
+            metadataSnapshotRepository.saveAll(entries.values());
+        });
+        log.debug("Metadata snapshot of user {} rebuilt, {} entries", userId, entries.size());
+    }
+
+    private void requireSnapshot(Long userId) {
+        if (metadataSnapshotRepository.findByUserIdAndPath(userId, ROOT).isEmpty()) {
+            throw new StorageUnavailableException("Storage is temporarily unavailable, try again later",
+                    properties.getRetryAfter());
+        }
+    }
+
+    private boolean claim() {
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(REFRESH_CLAIM_KEY, nodeId,
+                properties.getSnapshotInterval().multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private static void directory(Map<String, MetadataSnapshotEntry> entries, Long userId, String path, Instant now) {
+        entries.computeIfAbsent(path, key -> {
+            List<String> ancestors = ancestors(key);
+            String parent = key.isEmpty() ? null : ancestors.get(ancestors.size() - 1);
+            return new MetadataSnapshotEntry(null, userId, key, parent, 0, 0L, null, now);
+        });
+    }
+
+    private static ResourceResponseDto toDto(MetadataSnapshotEntry entry, String parentPath) {
+        String trimmed = entry.isDirectory() ? entry.getPath().substring(0, entry.getPath().length() - 1) : entry.getPath();
+        String name = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        if (entry.isDirectory()) {
+            return new ResourceResponseDto(parentPath, name + "/", entry.getSize(), ResourceType.DIRECTORY,
+                    entry.getFileCount(), entry.getLastModified());
+        }
+        return new ResourceResponseDto(parentPath, name, entry.getSize(), ResourceType.FILE);
+    }
+}
@@ -1,85 +1,656 @@
 package com.example.cloud.service.minio;
 
+import com.example.cloud.exception.TrashConflictException;
+import com.example.cloud.model.properties.CompressionProperties;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import com.example.cloud.util.GzipCompressingInputStream;
 import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 @Service
 @RequiredArgsConstructor
 public class MinioStorageService {
 
-    private final int PART_SIZE = -1;
+    public static final String CODEC_METADATA = "codec";
+    public static final String ORIGINAL_SIZE_METADATA = "original-size";
+    public static final String GZIP_CODEC = "gzip";
+    public static final String TIER_METADATA = "tier";
+    public static final String STORED_SIZE_METADATA = "stored-size";
+    public static final String CAPACITY_TIER = "capacity";
+
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
 
-    @Value("${minio.bucket}")
-    private String bucketName;
+    private final int PART_SIZE = -1;
+    private final int STREAMING_PART_SIZE = 10 * 1024 * 1024;
 
     private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
+    private final CompressionProperties compressionProperties;
+    private final KeyLayoutResolver keyLayoutResolver;
+    private final StorageTiers storageTiers;
+    private final TrashIndex trashIndex;
+    private final ObservationRegistry observationRegistry;
+
+
+    /**
+     * Lists a logical prefix, leaving out deleted entries that have not been moved to the trash yet.
+     */
+    protected Iterable<StoredObject> listObjects(String prefix, boolean recursive) {
+        Iterable<StoredObject> objects = listAllObjects(prefix, recursive);
+        Predicate<String> hidden = trashIndex.hiddenFilter(prefix);
+        if (hidden == null) {
+            return objects;
+        }
+        return () -> StreamSupport.stream(objects.spliterator(), false)
+                .filter(object -> !hidden.test(object.objectName()))
+                .iterator();
+    }
+
+    /**
+     * Lists a logical prefix including deleted entries. While the owner is being migrated both layouts are
+     * listed and merged, with the copy in the target layout taking precedence.
+     */
+    Iterable<StoredObject> listAllObjects(String prefix, boolean recursive) {
+        List<ObjectLocation> locations = keyLayoutResolver.readLocations(prefix);
+        if (locations.size() == 1) {
+            ObjectLocation location = locations.get(0);
+            return () -> toStoredObjects(location, prefix, recursive);
+        }
+
+        Map<String, StoredObject> merged = new TreeMap<>();
+        for (ObjectLocation location : locations) {
+            toStoredObjects(location, prefix, recursive)
+                    .forEachRemaining(object -> merged.putIfAbsent(object.objectName(), object));
+        }
+        return merged.values();
+    }
+
+    @SneakyThrows
+    protected void copyObject(String source, String destination) {
+        checkWritable(destination);
+        observation("storage.copy").observeChecked(() -> {
+            ObjectLocation from = locateExisting(source);
+            ObjectLocation to = keyLayoutResolver.writeLocation(destination);
+            // A stub is copied as a stub, next to a copy of its content in the capacity tier.
+            if (storageTiers.configured() && isStub(statPhysical(from).userMetadata())) {
+                storageTiers.copyWithin(storageTiers.capacityLocation(source), storageTiers.capacityLocation(destination));
+            }
+            copyPhysical(from, to);
+        });
+    }
 
+    @SneakyThrows
+    protected void removeObject(String objectPath) {
+        for (ObjectLocation location : keyLayoutResolver.readLocations(objectPath)) {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(location.bucket())
+                            .object(location.key())
+                            .build()
+            );
+        }
+        if (storageTiers.configured()) {
+            storageTiers.remove(storageTiers.capacityLocation(objectPath));
+        }
 
-    protected Iterable<Result<Item>> listObjects(String prefix, boolean recursive) {
-        return minioClient.listObjects(
+    }
+
+    /**
+     * Removes the given objects with multi-object delete requests and returns the keys that failed,
+     * mapped to the storage error message.
+     */
+    @SneakyThrows
+    protected Map<String, String> removeObjects(List<String> objectPaths, int chunkSize) {
+        return observation("storage.remove")
+                .highCardinalityKeyValue("objects", String.valueOf(objectPaths.size()))
+                .observeChecked(() -> {
+            Map<String, Map<String, String>> logicalKeysByBucket = new LinkedHashMap<>();
+            List<ObjectLocation> capacityLocations = new ArrayList<>();
+            for (String objectPath : objectPaths) {
+                for (ObjectLocation location : keyLayoutResolver.readLocations(objectPath)) {
+                    logicalKeysByBucket.computeIfAbsent(location.bucket(), bucket -> new LinkedHashMap<>())
+                            .put(location.key(), objectPath);
+                }
+                if (storageTiers.configured()) {
+                    capacityLocations.add(storageTiers.capacityLocation(objectPath));
+                }
+            }
+
+            Map<String, String> failures = new HashMap<>();
+            for (Map.Entry<String, Map<String, String>> bucketKeys : logicalKeysByBucket.entrySet()) {
+                List<String> physicalKeys = List.copyOf(bucketKeys.getValue().keySet());
+                for (int from = 0; from < physicalKeys.size(); from += chunkSize) {
+                    List<DeleteObject> chunk = physicalKeys.subList(from, Math.min(from + chunkSize, physicalKeys.size()))
+                            .stream()
+                            .map(DeleteObject::new)
+                            .toList();
+                    Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
+                            RemoveObjectsArgs.builder()
+                                    .bucket(bucketKeys.getKey())
+                                    .objects(chunk)
+                                    .build()
+                    );
+                    for (Result<DeleteError> result : errors) {
+                        DeleteError error = result.get();
+                        failures.put(bucketKeys.getValue().getOrDefault(error.objectName(), error.objectName()), error.message());
+                    }
+                }
+            }
+            storageTiers.remove(capacityLocations, chunkSize);
+            return failures;
+        });
+    }
+
+    /**
+     * Stats the object's content, which for a demoted file is its copy in the capacity tier.
+     */
+    @SneakyThrows
+    protected StatObjectResponse statObject(String objectPath) {
+        checkReadable(objectPath);
+        return observation("storage.stat").observeChecked(() -> readFirst(objectPath, location -> {
+            StatObjectResponse stat = statPhysical(location);
+            return isStub(stat.userMetadata()) ? storageTiers.stat(storageTiers.capacityLocation(objectPath)) : stat;
+        }));
+    }
+
+    @SneakyThrows
+    protected boolean objectExists(String objectPath) {
+        if (trashIndex.isHidden(objectPath)) {
+            return false;
+        }
+        for (ObjectLocation location : keyLayoutResolver.readLocations(objectPath)) {
+            if (existsPhysical(location)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected InputStream getObject(String objectPath) {
+        return decode(getRawObject(objectPath));
+    }
+
+    @SneakyThrows
+    protected GetObjectResponse getRawObject(String objectPath) {
+        checkReadable(objectPath);
+        return observation("storage.get").observeChecked(() -> readFirst(objectPath, location -> {
+            GetObjectResponse object = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(location.bucket())
+                            .object(location.key())
+                            .build()
+            );
+            if (isStub(object)) {
+                object.close();
+                return readCapacity(objectPath, null, null);
+            }
+            storageTiers.recordRead(StorageTiers.Tier.FAST);
+            return object;
+        }));
+
+    }
+
+    protected GetObjectResponse getRawObject(String objectPath, long offset, long length) {
+        return getRawObject(objectPath, offset, length, null);
+    }
+
+    /**
+     * Reads a range of the stored bytes. With {@code matchEtag} set, the read fails with a precondition error
+     * unless the object still has that ETag.
+     */
+    @SneakyThrows
+    protected GetObjectResponse getRawObject(String objectPath, long offset, long length, String matchEtag) {
+        checkReadable(objectPath);
+        return observation("storage.get")
+                .highCardinalityKeyValue("bytes", String.valueOf(length))
+                .observeChecked(() -> readFirst(objectPath, location -> {
+            try {
+                GetObjectArgs.Builder args = GetObjectArgs.builder()
+                        .bucket(location.bucket())
+                        .object(location.key())
+                        .offset(offset)
+                        .length(length);
+                if (matchEtag != null) {
+                    args.matchETag(matchEtag);
+                }
+                GetObjectResponse object = minioClient.getObject(args.build());
+                storageTiers.recordRead(StorageTiers.Tier.FAST);
+                return object;
+            } catch (ErrorResponseException e) {
+                // Callers only ask for ranges inside the content, so an unsatisfiable range means an empty stub.
+                if (!"InvalidRange".equals(e.errorResponse().code()) || !isStub(statPhysical(location).userMetadata())) {
+                    throw e;
+                }
+                return readCapacity(objectPath, offset, length);
+            }
+        }));
+    }
+
+    @SneakyThrows
+    protected void putObject(String objectPath, InputStream inputStream, long size, String contentType) {
+        checkWritable(objectPath);
+        observation("storage.put")
+                .highCardinalityKeyValue("bytes", String.valueOf(size))
+                .observeChecked(() -> {
+            ObjectLocation location = keyLayoutResolver.writeLocation(objectPath);
+            if (shouldCompress(size, contentType)) {
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(location.bucket())
+                                .object(location.key())
+                                .stream(new GzipCompressingInputStream(inputStream), -1, STREAMING_PART_SIZE)
+                                .contentType(contentType)
+                                .userMetadata(Map.of(
+                                        CODEC_METADATA, GZIP_CODEC,
+                                        ORIGINAL_SIZE_METADATA, String.valueOf(size)))
+                                .build()
+                );
+                return;
+            }
+
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(location.bucket())
+                            .object(location.key())
+                            .stream(inputStream, size, PART_SIZE)
+                            .contentType(contentType)
+                            .build()
+            );
+        });
+    }
+
+    /**
+     * Writes the concatenation of the given ranges server-side. Every range but the last must be at least
+     * {@link ObjectWriteArgs#MIN_MULTIPART_SIZE} long.
+     */
+    @SneakyThrows
+    protected void composeObject(String objectPath, List<ObjectRange> ranges, String contentType) {
+        checkWritable(objectPath);
+        List<ComposeSource> sources = new ArrayList<>(ranges.size());
+        for (ObjectRange range : ranges) {
+            checkReadable(range.objectPath());
+            ObjectLocation source = locateExisting(range.objectPath());
+            ComposeSource.Builder builder = ComposeSource.builder()
+                    .bucket(source.bucket())
+                    .object(source.key())
+                    .offset(range.offset())
+                    .length(range.length());
+            if (range.matchEtag() != null) {
+                builder.matchETag(range.matchEtag());
+            }
+            sources.add(builder.build());
+        }
+        ObjectLocation location = keyLayoutResolver.writeLocation(objectPath);
+        minioClient.composeObject(
+                ComposeObjectArgs.builder()
+                        .bucket(location.bucket())
+                        .object(location.key())
+                        .sources(sources)
+                        .headers(contentType == null ? Map.of() : Map.of("Content-Type", contentType))
+                        .build()
+        );
+    }
+
+    /**
+     * Physical location a new version of the logical key is written to.
+     */
+    protected ObjectLocation writeLocation(String objectPath) {
+        checkWritable(objectPath);
+        return keyLayoutResolver.writeLocation(objectPath);
+    }
+
+    /**
+     * Physical location the logical key's content is currently read from, in the capacity tier for a demoted file.
+     */
+    protected ObjectLocation readLocation(String objectPath) {
+        ObjectLocation location = locateExisting(objectPath);
+        if (storageTiers.configured() && isStub(statPhysical(location).userMetadata())) {
+            return storageTiers.capacityLocation(objectPath);
+        }
+        return location;
+    }
+
+    Iterator<Item> listPhysical(ObjectLocation prefix, boolean recursive) {
+        Iterator<Result<Item>> results = minioClient.listObjects(
                 ListObjectsArgs.builder()
-                        .bucket(bucketName)
-                        .prefix(prefix)
+                        .bucket(prefix.bucket())
+                        .prefix(prefix.key())
                         .recursive(recursive)
+                        .includeUserMetadata(true)
                         .build()
-        );
+        ).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                return unwrap(results.next());
+            }
+        };
     }
 
+    /**
+     * One page of the bucket's incomplete multipart uploads, starting after the given markers.
+     */
     @SneakyThrows
-    protected void copyObject(String source, String destination) {
+    ListMultipartUploadsResult listMultipartUploads(String bucket, String keyMarker, String uploadIdMarker) {
+        return minioAsyncClient.listMultipartUploadsAsync(
+                bucket, null, null, null, keyMarker, 1000, null, uploadIdMarker, null, null).get().result();
+    }
+
+    @SneakyThrows
+    void abortMultipartUpload(String bucket, String key, String uploadId) {
+        minioAsyncClient.abortMultipartUploadAsync(bucket, null, key, uploadId, null, null).get();
+    }
+
+    /**
+     * A cheap request that fails while storage is unreachable.
+     */
+    @SneakyThrows
+    void probe(String bucket) {
+        minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
+    }
+
+    @SneakyThrows
+    void ensureBucket(String bucket) {
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+        }
+    }
+
+    @SneakyThrows
+    void copyPhysical(ObjectLocation from, ObjectLocation to) {
         minioClient.copyObject(
                 CopyObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(destination)
+                        .bucket(to.bucket())
+                        .object(to.key())
                         .source(CopySource.builder()
-                                .bucket(bucketName)
-                                .object(source)
+                                .bucket(from.bucket())
+                                .object(from.key())
                                 .build())
                         .build()
         );
+    }
 
+    /**
+     * Copies only if nothing exists at the target yet, as one conditional request, so an object written there
+     * concurrently is never overwritten. Returns false when the target already existed.
+     */
+    @SneakyThrows
+    boolean copyPhysicalIfAbsent(ObjectLocation from, ObjectLocation to) {
+        try {
+            minioClient.copyObject(
+                    CopyObjectArgs.builder()
+                            .bucket(to.bucket())
+                            .object(to.key())
+                            .extraHeaders(Map.of("If-None-Match", "*"))
+                            .source(CopySource.builder()
+                                    .bucket(from.bucket())
+                                    .object(from.key())
+                                    .build())
+                            .build()
+            );
+            return true;
+        } catch (ErrorResponseException e) {
+            if (isPreconditionFailed(e)) {
+                return false;
+            }
+            throw e;
+        }
     }
 
     @SneakyThrows
-    protected void removeObject(String objectPath) {
+    void removePhysical(ObjectLocation location) {
         minioClient.removeObject(
                 RemoveObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectPath)
+                        .bucket(location.bucket())
+                        .object(location.key())
                         .build()
         );
-
     }
 
     @SneakyThrows
-    protected InputStream getObject(String objectPath) {
-        return minioClient.getObject(
-                GetObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectPath)
+    StatObjectResponse statPhysical(ObjectLocation location) {
+        return minioClient.statObject(
+                StatObjectArgs.builder()
+                        .bucket(location.bucket())
+                        .object(location.key())
                         .build()
         );
+    }
+
+    @SneakyThrows
+    boolean existsPhysical(ObjectLocation location) {
+        try {
+            minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(location.bucket())
+                            .object(location.key())
+                            .build()
+            );
+            return true;
+        } catch (ErrorResponseException e) {
+            if (isNoSuchKey(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
 
+    private ObjectLocation locateExisting(String objectPath) {
+        List<ObjectLocation> locations = keyLayoutResolver.readLocations(objectPath);
+        if (locations.size() == 1) {
+            return locations.get(0);
+        }
+        return readFirst(objectPath, location -> {
+            statPhysical(location);
+            return location;
+        });
     }
 
+    /**
+     * Runs the call against each read location in turn, moving on only when the object is missing there.
+     */
     @SneakyThrows
-    protected void putObject(String objectPath, InputStream inputStream, long size, String contentType) {
-        minioClient.putObject(
-                PutObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(objectPath)
-                        .stream(inputStream, size, PART_SIZE)
-                        .contentType(contentType)
-                        .build()
-        );
+    private <T> T readFirst(String objectPath, StorageCall<T> call) {
+        List<ObjectLocation> locations = keyLayoutResolver.readLocations(objectPath);
+        for (int i = 0; i < locations.size(); i++) {
+            try {
+                return call.apply(locations.get(i));
+            } catch (ErrorResponseException e) {
+                if (i == locations.size() - 1 || !isNoSuchKey(e)) {
+                    throw e;
+                }
+            }
+        }
+        throw new IllegalStateException("No read location for " + objectPath);
+    }
+
+    private Iterator<StoredObject> toStoredObjects(ObjectLocation location, String logicalPrefix, boolean recursive) {
+        Iterator<Item> items = listPhysical(location, recursive);
+        int physicalPrefixLength = location.key().length();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public StoredObject next() {
+                Item item = items.next();
+                return new StoredObject(
+                        logicalPrefix + item.objectName().substring(physicalPrefixLength),
+                        storedSize(item),
+                        item.isDir(),
+                        item.isDir() ? null : item.lastModified(),
+                        item.isDir() ? null : item.etag(),
+                        item.userMetadata()
+                );
+            }
+        };
+    }
+
+    private void checkReadable(String objectPath) throws FileNotFoundException {
+        if (trashIndex.isHidden(objectPath)) {
+            throw new FileNotFoundException("File " + objectPath + " is in the trash");
+        }
+    }
+
+    /**
+     * Deleted entries keep their keys until they are moved to the trash, so nothing may be written there meanwhile.
+     */
+    private void checkWritable(String objectPath) {
+        if (trashIndex.isHidden(objectPath)) {
+            throw new TrashConflictException("A deleted item at this path is still being moved to the trash, try again shortly");
+        }
+    }
+
+    private GetObjectResponse readCapacity(String objectPath, Long offset, Long length) {
+        storageTiers.recordRead(StorageTiers.Tier.CAPACITY);
+        return storageTiers.get(storageTiers.capacityLocation(objectPath), offset, length);
+    }
+
+    /**
+     * Size of the stored content, taken from the stub's metadata for a demoted file.
+     */
+    long storedSize(Item item) {
+        if (item.isDir() || !isStub(item.userMetadata())) {
+            return item.size();
+        }
+        try {
+            return Long.parseLong(metadataValue(item.userMetadata(), STORED_SIZE_METADATA));
+        } catch (NumberFormatException e) {
+            return item.size();
+        }
+    }
+
+    boolean isStub(Map<String, String> userMetadata) {
+        return storageTiers.configured() && CAPACITY_TIER.equalsIgnoreCase(metadataValue(userMetadata, TIER_METADATA));
+    }
+
+    private boolean isStub(GetObjectResponse object) {
+        return storageTiers.configured()
+                && CAPACITY_TIER.equalsIgnoreCase(object.headers().get(USER_METADATA_PREFIX + TIER_METADATA));
+    }
+
+    @SneakyThrows
+    private static Item unwrap(Result<Item> result) {
+        return result.get();
+    }
+
+    private static boolean isNoSuchKey(ErrorResponseException e) {
+        return "NoSuchKey".equals(e.errorResponse().code());
+    }
+
+    static boolean isPreconditionFailed(ErrorResponseException e) {
+        return "PreconditionFailed".equals(e.errorResponse().code());
+    }
+
+    protected boolean isCompressed(StatObjectResponse stat) {
+        return GZIP_CODEC.equalsIgnoreCase(metadataValue(stat.userMetadata(), CODEC_METADATA));
+    }
+
+    protected boolean isCompressed(GetObjectResponse object) {
+        return GZIP_CODEC.equalsIgnoreCase(object.headers().get(USER_METADATA_PREFIX + CODEC_METADATA));
+    }
+
+    protected boolean isCompressed(StoredObject item) {
+        return GZIP_CODEC.equalsIgnoreCase(metadataValue(item.userMetadata(), CODEC_METADATA));
+    }
+
+    protected InputStream decode(GetObjectResponse object) {
+        if (!isCompressed(object)) {
+            return object;
+        }
+        try {
+            return new GZIPInputStream(object, 64 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected long logicalSize(StatObjectResponse stat) {
+        return logicalSize(stat.userMetadata(), stat.size());
+    }
 
+    protected long logicalSize(StoredObject item) {
+        return logicalSize(item.userMetadata(), item.size());
     }
 
+    protected static String metadataValue(Map<String, String> metadata, String name) {
+        if (metadata == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            String key = entry.getKey();
+            if (key.equalsIgnoreCase(name) || key.equalsIgnoreCase(USER_METADATA_PREFIX + name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
 
+    private long logicalSize(Map<String, String> metadata, long storedSize) {
+        String originalSize = metadataValue(metadata, ORIGINAL_SIZE_METADATA);
+        if (originalSize == null) {
+            return storedSize;
+        }
+        try {
+            return Long.parseLong(originalSize);
+        } catch (NumberFormatException e) {
+            return storedSize;
+        }
+    }
+
+    private boolean shouldCompress(long size, String contentType) {
+        if (!compressionProperties.isEnabled() || contentType == null || size < compressionProperties.getMinSize()) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return compressionProperties.getContentTypes().stream()
+                    .map(MediaType::parseMediaType)
+                    .anyMatch(compressible -> compressible.includes(mediaType));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Observation observation(String name) {
+        return Observation.createNotStarted(name, observationRegistry);
+    }
+
+    @FunctionalInterface
+    private interface StorageCall<T> {
+        T apply(ObjectLocation location) throws Exception;
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.PendingMove;
+import com.example.cloud.repository.PendingMoveRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records copy-then-remove moves while they run, so {@link StorageGarbageCollector} can finish or undo the ones
+ * that die midway. Paths are relative to the user's folder. A running move calls {@link #heartbeat} as it goes,
+ * which writes at most every {@link #HEARTBEAT_INTERVAL}, so a long move is never mistaken for a dead one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MoveJournal {
+
+    static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(30);
+
+    private final PendingMoveRepository pendingMoveRepository;
+    private final Map<Long, Instant> lastHeartbeats = new ConcurrentHashMap<>();
+
+    public Long begin(Long userId, String fromPath, String toPath) {
+        Instant now = Instant.now();
+        Long moveId = pendingMoveRepository.save(new PendingMove(null, userId, fromPath, toPath, now, now)).getId();
+        lastHeartbeats.put(moveId, now);
+        return moveId;
+    }
+
+    public void heartbeat(Long moveId) {
+        Instant now = Instant.now();
+        Instant last = lastHeartbeats.get(moveId);
+        if (last != null && last.plus(HEARTBEAT_INTERVAL).isAfter(now)) {
+            return;
+        }
+        lastHeartbeats.put(moveId, now);
+        pendingMoveRepository.heartbeat(moveId, now);
+    }
+
+    public void complete(Long moveId) {
+        lastHeartbeats.remove(moveId);
+        try {
+            pendingMoveRepository.deleteById(moveId);
+        } catch (Exception e) {
+            // The collector finds the move finished and only drops the entry.
+            log.warn("Failed to clear journal entry of move {}: {}", moveId, e.getMessage());
+        }
+    }
+
+    public List<PendingMove> staleBefore(Instant before) {
+        return pendingMoveRepository.findTop100ByHeartbeatAtBeforeOrderByIdAsc(before);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.ObjectAccessStatsId;
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.repository.ObjectAccessStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts file downloads for tiering. Hits are buffered in memory and written in one transaction per flush,
+ * so a popular file costs one upsert per interval instead of one per download.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ObjectAccessTracker {
+
+    private final ObjectAccessStatsRepository objectAccessStatsRepository;
+    private final MinioProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<ObjectAccessStatsId, PendingHits> pending = new ConcurrentHashMap<>();
+
+    public void record(Long userId, String path) {
+        if (!properties.getTiering().isEnabled()) {
+            return;
+        }
+        Instant now = Instant.now();
+        pending.compute(new ObjectAccessStatsId(userId, path), (id, hits) -> hits == null
+                ? new PendingHits(1, now)
+                : new PendingHits(hits.count() + 1, now));
+    }
+
+    @Scheduled(fixedDelayString = "${minio.tiering.access-flush-interval:30s}")
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Written in key order, so flushes from several nodes lock rows in the same order and cannot deadlock.
+        Map<ObjectAccessStatsId, PendingHits> batch = new TreeMap<>(Comparator
+                .comparing(ObjectAccessStatsId::getUserId)
+                .thenComparing(ObjectAccessStatsId::getPath));
+        for (ObjectAccessStatsId id : pending.keySet()) {
+            PendingHits hits = pending.remove(id);
+            if (hits != null) {
+                batch.put(id, hits);
+            }
+        }
+
+        Instant windowStart = Instant.now().minus(properties.getTiering().getPromoteWindow());
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((id, hits) ->
+                    objectAccessStatsRepository.recordHits(
+                            id.getUserId(), id.getPath(), hits.count(), hits.lastAccessedAt(), windowStart)));
+        } catch (Exception e) {
+            log.warn("Failed to record downloads of {} files: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private record PendingHits(long count, Instant lastAccessedAt) {
+    }
+}
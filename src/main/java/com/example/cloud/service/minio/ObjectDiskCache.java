@@ -0,0 +1,557 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.DiskCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Node-local read-through cache of raw stored objects, keyed by object key and etag. Callers always pass the
+ * etag from a fresh stat, so a changed object simply misses and its old copy ages out of the LRU.
+ * Objects are admitted only after being requested a few times. A whole-object read of a hot object is written to
+ * the cache as it streams to the client; a range read starts a background fill instead, so the client never waits
+ * for the rest of the object. A fill is kept only if it has the expected size and etag.
+ * <p>
+ * There is at most one fill per object. Whole-object reads that miss while it runs follow the file as it grows
+ * rather than reading the object from storage again, and fall back to storage for the rest if the fill fails.
+ * <p>
+ * Files live in their own marked subdirectory of {@code download.disk-cache.directory}, which is the only place
+ * cleared on start-up.
+ */
+@Slf4j
+@Service
+public class ObjectDiskCache {
+
+    static final String CACHE_DIRECTORY = "objects";
+    static final String MARKER = ".object-cache";
+
+    private final DiskCacheProperties properties;
+    private final MinioStorageService minioStorageService;
+    private final Map<String, CachedFile> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Fill> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, AtomicInteger> requestCounts;
+    private final ExecutorService fillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "disk-cache-fill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter fills;
+    private long totalSize;
+    private Path directory;
+
+    public ObjectDiskCache(DiskCacheProperties properties, MinioStorageService minioStorageService,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.minioStorageService = minioStorageService;
+        this.requestCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+        this.hits = Counter.builder("download.disk_cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("download.disk_cache").tag("result", "miss").register(meterRegistry);
+        this.fills = Counter.builder("download.disk_cache").tag("result", "fill").register(meterRegistry);
+        Gauge.builder("download.disk_cache.size", this, ObjectDiskCache::currentSize)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        directory = Path.of(properties.getDirectory()).resolve(CACHE_DIRECTORY);
+        Path marker = directory.resolve(MARKER);
+        if (Files.exists(directory) && !Files.exists(marker)) {
+            throw new IllegalStateException(directory + " exists but was not created by the object disk cache");
+        }
+        Files.createDirectories(directory);
+        if (!Files.exists(marker)) {
+            Files.createFile(marker);
+        }
+        // Entries are not indexed across restarts, so anything left over is unreachable.
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).filter(file -> !file.equals(marker)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        log.info("Object disk cache enabled at {} with max size {}", directory, properties.getMaxSize());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fillExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Returns the cached file for this version of the object, or {@code null} when the caller should read from
+     * storage, through {@link #readThrough} or alongside {@link #fillInBackground}.
+     */
+    public Path resolve(String objectPath, String etag, long size) {
+        if (!cacheable(size)) {
+            return null;
+        }
+
+        String key = cacheKey(objectPath, etag);
+        Path cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        requestCounts.get(key, k -> new AtomicInteger()).incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Opens the whole object from storage, copying it into the cache as it is read when it has become hot enough
+     * to be admitted, or follows the copy another request is already making. Returns {@code null} when the caller
+     * should read from storage itself.
+     */
+    public InputStream readThrough(String objectPath, String etag, long size) throws IOException {
+        if (!cacheable(size)) {
+            return null;
+        }
+        String key = cacheKey(objectPath, etag);
+        Fill running = inFlight.get(key);
+        if (running != null) {
+            return new TailingInputStream(running, objectPath, size);
+        }
+        Fill fill = start(key);
+        if (fill == null) {
+            running = inFlight.get(key);
+            return running != null ? new TailingInputStream(running, objectPath, size) : null;
+        }
+        try {
+            return new FillingInputStream(fill, objectPath, etag, size);
+        } catch (IOException | RuntimeException e) {
+            end(fill);
+            throw e;
+        }
+    }
+
+    /**
+     * Caches a hot object on the fill thread, for reads of part of it that should not wait for the whole object.
+     */
+    public void fillInBackground(String objectPath, String etag, long size) {
+        if (!cacheable(size)) {
+            return;
+        }
+        Fill fill = start(cacheKey(objectPath, etag));
+        if (fill == null) {
+            return;
+        }
+        try {
+            fillExecutor.execute(() -> {
+                try (InputStream inputStream = new FillingInputStream(fill, objectPath, etag, size)) {
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                } catch (Exception e) {
+                    end(fill);
+                    log.warn("Failed to cache object {}: {}", objectPath, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            end(fill);
+        }
+    }
+
+    public void evict(String objectPath) {
+        String prefix = hash(objectPath) + "-";
+        List<CachedFile> removed = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, CachedFile>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, CachedFile> entry = iterator.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    totalSize -= entry.getValue().size();
+                    removed.add(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        removed.forEach(this::delete);
+    }
+
+    private Path lookup(String key) {
+        synchronized (entries) {
+            CachedFile entry = entries.get(key);
+            return entry != null ? entry.file() : null;
+        }
+    }
+
+    private boolean cacheable(long size) {
+        return properties.isEnabled() && size <= properties.getMaxObjectSize().toBytes()
+                && size <= properties.getMaxSize().toBytes();
+    }
+
+    /**
+     * Registers a fill of the object if it is hot, not cached yet and not being filled already.
+     */
+    private Fill start(String key) {
+        if (lookup(key) != null) {
+            return null;
+        }
+        AtomicInteger requests = requestCounts.getIfPresent(key);
+        if (requests == null || requests.get() < properties.getAdmitAfterHits()) {
+            return null;
+        }
+        Fill fill = new Fill(key, directory.resolve(key + ".fill"));
+        return inFlight.putIfAbsent(key, fill) == null ? fill : null;
+    }
+
+    /**
+     * Ends a fill that did not produce a cached copy, if it has not ended yet, and lets the next request start one.
+     */
+    private void end(Fill fill) {
+        fill.result.complete(null);
+        fill.signal();
+        try {
+            Files.deleteIfExists(fill.temp);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial copy {}: {}", fill.temp, e.getMessage());
+        }
+        // Only now, so that a new fill never has its temporary file deleted by this one.
+        inFlight.remove(fill.key, fill);
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
+    private void admit(String key, CachedFile file) {
+        List<CachedFile> evicted = new ArrayList<>();
+        synchronized (entries) {
+            CachedFile previous = entries.put(key, file);
+            if (previous != null) {
+                totalSize -= previous.size();
+            }
+            totalSize += file.size();
+
+            long maxSize = properties.getMaxSize().toBytes();
+            Iterator<Map.Entry<String, CachedFile>> iterator = entries.entrySet().iterator();
+            while (totalSize > maxSize && iterator.hasNext()) {
+                Map.Entry<String, CachedFile> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalSize -= eldest.getValue().size();
+                evicted.add(eldest.getValue());
+                iterator.remove();
+            }
+        }
+        evicted.forEach(this::delete);
+    }
+
+    private void delete(CachedFile file) {
+        // Readers that already opened the file keep their handle; only new lookups miss.
+        try {
+            Files.deleteIfExists(file.file());
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}: {}", file.file(), e.getMessage());
+        }
+    }
+
+    private long currentSize() {
+        synchronized (entries) {
+            return totalSize;
+        }
+    }
+
+    private static String cacheKey(String objectPath, String etag) {
+        return hash(objectPath) + "-" + etag.replaceAll("[^A-Za-z0-9]", "");
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedFile(Path file, long size) {
+    }
+
+    /**
+     * One copy of an object into the cache. {@code result} completes with the cached file, or with {@code null}
+     * when the copy was discarded; {@code written} tells readers following the copy how far they may read.
+     */
+    private static final class Fill {
+
+        private final String key;
+        private final Path temp;
+        private final CompletableFuture<Path> result = new CompletableFuture<>();
+        private long written;
+
+        private Fill(String key, Path temp) {
+            this.key = key;
+            this.temp = temp;
+        }
+
+        synchronized void advance(long bytes) {
+            written += bytes;
+            notifyAll();
+        }
+
+        synchronized void signal() {
+            notifyAll();
+        }
+
+        /**
+         * Waits until more than {@code position} bytes were written or the fill ended, and returns how many were.
+         */
+        synchronized long awaitBeyond(long position) throws InterruptedIOException {
+            while (written <= position && !result.isDone()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the cached copy");
+                }
+            }
+            return written;
+        }
+    }
+
+    /**
+     * The raw object from storage, copied to the fill's temporary file as it is read. Closing it admits the file if
+     * the whole object was read and storage returned the expected etag, and discards it otherwise.
+     */
+    private final class FillingInputStream extends FilterInputStream {
+
+        private final Fill fill;
+        private final String objectPath;
+        private final long size;
+        private final OutputStream file;
+        private final boolean etagMatches;
+        private long copied;
+        private boolean closed;
+
+        private FillingInputStream(Fill fill, String objectPath, String etag, long size) throws IOException {
+            super(null);
+            this.fill = fill;
+            this.objectPath = objectPath;
+            this.size = size;
+            GetObjectResponse object = minioStorageService.getRawObject(objectPath);
+            this.in = object;
+            String stored = unquote(object.headers().get(HttpHeaders.ETAG));
+            this.etagMatches = stored == null || stored.equals(unquote(etag));
+            if (!etagMatches) {
+                // Storage holds another version than the one asked for: nothing is recorded and followers read it
+                // themselves.
+                end(fill);
+                this.file = OutputStream.nullOutputStream();
+                return;
+            }
+            try {
+                this.file = Files.newOutputStream(fill.temp);
+            } catch (IOException e) {
+                object.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = in.read();
+            if (value != -1) {
+                file.write(value);
+                copied++;
+                if (etagMatches) {
+                    fill.advance(1);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                file.write(b, off, read);
+                copied += read;
+                if (etagMatches) {
+                    fill.advance(read);
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            throw new IOException("Skipping would leave a hole in the cached copy");
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                boolean complete = copied == size && in.read() == -1;
+                in.close();
+                file.close();
+                if (!complete || !etagMatches) {
+                    log.debug("Discarding partial or stale copy of {}", objectPath);
+                    return;
+                }
+                Path target = directory.resolve(fill.key);
+                Files.move(fill.temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                admit(fill.key, new CachedFile(target, size));
+                fills.increment();
+                requestCounts.invalidate(fill.key);
+                fill.result.complete(target);
+                fill.signal();
+            } finally {
+                end(fill);
+            }
+        }
+    }
+
+    /**
+     * Reads an object from the copy another request is making, waiting for bytes as they are written. If that copy
+     * is discarded, the rest of the object is read from storage.
+     */
+    private final class TailingInputStream extends InputStream {
+
+        private final Fill fill;
+        private final String objectPath;
+        private final long size;
+        private FileChannel channel;
+        private InputStream fallback;
+        private long position;
+
+        private TailingInputStream(Fill fill, String objectPath, long size) {
+            this.fill = fill;
+            this.objectPath = objectPath;
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fallback == null && position < size) {
+                long available = fill.awaitBeyond(position);
+                if (available <= position && fill.result.getNow(null) == null) {
+                    fallBack();
+                } else if (channel == null && (channel = open()) == null) {
+                    fallBack();
+                } else {
+                    long until = available > position ? available : size;
+                    int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, until - position)), position);
+                    if (read > 0) {
+                        position += read;
+                    }
+                    return read;
+                }
+            }
+            if (fallback == null) {
+                return -1;
+            }
+            int read = fallback.read(b, off, len);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+            if (fallback != null) {
+                fallback.close();
+            }
+        }
+
+        /**
+         * Opens the copy being written, or the cached file it was moved to; {@code null} if neither is there.
+         */
+        private FileChannel open() throws IOException {
+            try {
+                return FileChannel.open(fill.temp, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                Path cached = fill.result.join();
+                if (cached == null) {
+                    return null;
+                }
+                try {
+                    return FileChannel.open(cached, StandardOpenOption.READ);
+                } catch (NoSuchFileException evicted) {
+                    return null;
+                }
+            }
+        }
+
+        private void fallBack() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Only read from, nothing to lose.
+                }
+                channel = null;
+            }
+            log.debug("Copy of {} was discarded, reading the rest from storage at {}", objectPath, position);
+            fallback = position == 0
+                    ? minioStorageService.getRawObject(objectPath)
+                    : minioStorageService.getRawObject(objectPath, position, size - position);
+        }
+    }
+}
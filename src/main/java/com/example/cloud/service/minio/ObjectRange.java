@@ -0,0 +1,17 @@
+package com.example.cloud.service.minio;
+
+/**
+ * A byte range of the object stored under a logical key. With {@code matchEtag} set, reading the range fails
+ * unless the object still has that ETag.
+ */
+public record ObjectRange(
+        String objectPath,
+        long offset,
+        long length,
+        String matchEtag
+) {
+
+    public ObjectRange(String objectPath, long offset, long length) {
+        this(objectPath, offset, length, null);
+    }
+}
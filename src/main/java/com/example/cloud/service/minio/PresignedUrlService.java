@@ -0,0 +1,188 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.dto.enums.ResourceType;
+import com.example.cloud.model.dto.response.PresignedUrlResponseDto;
+import com.example.cloud.model.dto.response.ResourceResponseDto;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.cloud.util.PathUtils.extractFileName;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Direct transfers between clients and storage. Upload URLs are signed with {@code If-None-Match: *}, so like
+ * {@link ResourceService#uploadFile} they only ever create a file: a URL issued for a free path fails with 412 once
+ * something was stored there in the meantime, instead of replacing it without a version or a trash check.
+ * <p>
+ * Every upload URL is recorded as pending in Redis and also signs an upload id into the object's metadata. The
+ * completion call announces the file only when it consumes that record and finds the object carrying that id, so
+ * repeated completions and files stored at the path by anything else are never counted as created.
+ */
+@Slf4j
+@Service
+public class PresignedUrlService {
+
+    static final String UPLOAD_ID_METADATA = "upload-id";
+    private static final String PENDING_UPLOAD_KEY = "upload:pending:";
+
+    private final MinioProperties properties;
+    private final MinioStorageService minioStorageService;
+    private final MinioClient presignClient;
+    private final StorageTiers storageTiers;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PresignedUrlService(MinioProperties properties, MinioClient minioClient,
+                               MinioStorageService minioStorageService, StorageTiers storageTiers,
+                               StringRedisTemplate redisTemplate, ApplicationEventPublisher eventPublisher) {
+        this.properties = properties;
+        this.storageTiers = storageTiers;
+        this.minioStorageService = minioStorageService;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        this.presignClient = properties.getPublicUrl() == null || properties.getPublicUrl().isBlank()
+                ? minioClient
+                : MinioClient.builder()
+                        .endpoint(properties.getPublicUrl())
+                        .region(properties.getRegion())
+                        .credentials(properties.getAccessKey(), properties.getSecretKey())
+                        .build();
+    }
+
+    @SneakyThrows
+    public PresignedUrlResponseDto createUploadUrl(Long userId, String path) {
+        String fullPath = fileObjectPath(userId, path);
+
+        if (minioStorageService.objectExists(fullPath)) {
+            throw new FileAlreadyExistsException("File " + path + " already exists");
+        }
+
+        ObjectLocation location = minioStorageService.writeLocation(fullPath);
+        String uploadId = UUID.randomUUID().toString();
+        // Completion may come a while after the last byte of an upload that started just before the URL expired.
+        redisTemplate.opsForValue().set(pendingUploadKey(userId, path), uploadId,
+                properties.getPresignedUrlExpiry().multipliedBy(2));
+        return presign(Method.PUT, path, location, Map.of(), Map.of(
+                "If-None-Match", "*",
+                "x-amz-meta-" + UPLOAD_ID_METADATA, uploadId));
+    }
+
+    @SneakyThrows
+    public PresignedUrlResponseDto createDownloadUrl(Long userId, String path) {
+        String fullPath = fileObjectPath(userId, path);
+
+        StatObjectResponse stat;
+        try {
+            stat = minioStorageService.statObject(fullPath);
+        } catch (Exception e) {
+            throw new FileNotFoundException("File " + path + " not found");
+        }
+
+        Map<String, String> responseOverrides = new HashMap<>();
+        responseOverrides.put("response-content-disposition",
+                "attachment; filename=\"" + extractFileName(path) + "\"");
+        if (MinioStorageService.GZIP_CODEC.equalsIgnoreCase(
+                MinioStorageService.metadataValue(stat.userMetadata(), MinioStorageService.CODEC_METADATA))) {
+            responseOverrides.put("response-content-encoding", MinioStorageService.GZIP_CODEC);
+        }
+
+        return presign(Method.GET, path, minioStorageService.readLocation(fullPath), responseOverrides, Map.of());
+    }
+
+    @SneakyThrows
+    public ResourceResponseDto completeUpload(Long userId, String path) {
+        String fullPath = fileObjectPath(userId, path);
+
+        StatObjectResponse stat;
+        try {
+            stat = minioStorageService.statObject(fullPath);
+        } catch (Exception e) {
+            throw new FileNotFoundException("Uploaded file " + path + " not found");
+        }
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        String parentPath = path.substring(0, path.length() - name.length());
+        long size = minioStorageService.logicalSize(stat);
+        String uploadId = MinioStorageService.metadataValue(stat.userMetadata(), UPLOAD_ID_METADATA);
+        String pendingKey = pendingUploadKey(userId, path);
+        String pending = redisTemplate.opsForValue().get(pendingKey);
+        if (pending == null) {
+            if (uploadId == null) {
+                throw new FileAlreadyExistsException("File " + path + " was not stored through an upload URL");
+            }
+            log.debug("Direct upload of {} was already completed", fullPath);
+        } else if (!pending.equals(uploadId)) {
+            // Stored by something else while the URL was out, so the upload itself failed with 412.
+            redisTemplate.delete(pendingKey);
+            throw new FileAlreadyExistsException("File " + path + " already exists");
+        } else if (Boolean.TRUE.equals(redisTemplate.delete(pendingKey))) {
+            log.info("Direct upload of {} completed, {} bytes", fullPath, stat.size());
+            eventPublisher.publishEvent(ResourceChangedEvent.created(userId, path, size));
+        }
+
+        return new ResourceResponseDto(
+                parentPath,
+                name,
+                size,
+                ResourceType.FILE
+        );
+    }
+
+    /**
+     * Signs the request, including {@code headers}, which the client then has to send as they are.
+     */
+    private PresignedUrlResponseDto presign(Method method, String path, ObjectLocation location,
+                                            Map<String, String> queryParams, Map<String, String> headers)
+            throws Exception {
+        int expirySeconds = (int) properties.getPresignedUrlExpiry().toSeconds();
+        MinioClient client = storageTiers.isCapacityBucket(location.bucket()) && storageTiers.capacityPresignClient() != null
+                ? storageTiers.capacityPresignClient()
+                : presignClient;
+        String url = client.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(method)
+                        .bucket(location.bucket())
+                        .object(location.key())
+                        .expiry(expirySeconds)
+                        .extraQueryParams(queryParams)
+                        .extraHeaders(headers)
+                        .build()
+        );
+
+        return new PresignedUrlResponseDto(
+                path,
+                method.name(),
+                url,
+                headers,
+                Instant.now().plusSeconds(expirySeconds)
+        );
+    }
+
+    private static String pendingUploadKey(Long userId, String path) {
+        return PENDING_UPLOAD_KEY + userId + ":" + path;
+    }
+
+    private String fileObjectPath(Long userId, String path) {
+        if (path.isEmpty() || path.endsWith("/")) {
+            throw new IllegalArgumentException("Path '" + path + "' does not point to a file");
+        }
+        return getUserFolder(userId) + path;
+    }
+}
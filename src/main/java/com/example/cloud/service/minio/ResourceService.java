@@ -1,27 +1,26 @@
 package com.example.cloud.service.minio;
 
 import com.example.cloud.exception.FileOperationErrorException;
-import com.example.cloud.exception.ResourceDownloadException;
 import com.example.cloud.model.dto.enums.ResourceType;
 import com.example.cloud.model.dto.response.ResourceResponseDto;
+import com.example.cloud.model.event.ResourceChangedEvent;
 import com.example.cloud.util.PathUtils;
-import io.minio.*;
-import io.minio.messages.Item;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.minio.StatObjectResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tomcat.util.http.fileupload.FileUploadException;
-import io.minio.errors.ErrorResponseException;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
@@ -36,14 +35,21 @@ import static com.example.cloud.util.UserContext.getUserFolder;
 @RequiredArgsConstructor
 public class ResourceService {
 
-    @Value("${minio.bucket}")
-    private String bucketName;
-
-    private final MinioClient minioClient;
     private final DirectoryService directoryService;
     private final MinioStorageService minioStorageService;
-
-    public void download(Long userId, String path, HttpServletResponse response) {
+    private final FileStreamingService fileStreamingService;
+    private final ObjectAccessTracker objectAccessTracker;
+    private final MoveJournal moveJournal;
+    private final TrashService trashService;
+    private final FileVersionService fileVersionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObservationRegistry observationRegistry;
+    private final StorageHealthMonitor storageHealthMonitor;
+    private final MetadataSnapshotService metadataSnapshotService;
+    private final MediaIndexService mediaIndexService;
+    private final ContentIndexService contentIndexService;
+
+    public StreamingResponseBody download(Long userId, String path, HttpServletRequest request, HttpServletResponse response) {
 
         if (path.endsWith("/")) {
 
@@ -51,23 +57,28 @@ public class ResourceService {
             response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
                     "attachment; filename=\"" + extractFileName(path) + ".zip\"");
 
-            directoryService.downloadDirectoryAsZip(userId, path, response);
-            log.info("Directory by path {} was downloaded as zip", path);
-
-        } else {
-
-            try (InputStream inputStream = downloadFile(userId, path)) {
-                response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
-                response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + extractFileName(path) + "\"");
+            return outputStream -> {
+                directoryService.downloadDirectoryAsZip(userId, path, outputStream);
+                log.info("Directory by path {} was downloaded as zip", path);
+            };
+        }
 
-                inputStream.transferTo(response.getOutputStream());
-                log.info("File {} was downloaded successful", path);
+        String fullPath = getUserFolder(userId) + path;
+        StreamingResponseBody body = fileStreamingService.stream(fullPath,
+                "attachment; filename=\"" + extractFileName(path) + "\"", request, response);
+        objectAccessTracker.record(userId, path);
+        return body;
+    }
 
-            } catch (IOException e) {
-                throw new ResourceDownloadException("File download by path " + path + " failed");
-            }
-        }
+    /**
+     * Streams a file for playback in the browser, see {@link FileStreamingService#streamInline}.
+     */
+    public StreamingResponseBody stream(Long userId, String path, HttpServletRequest request, HttpServletResponse response) {
+        String fullPath = getUserFolder(userId) + path;
+        StreamingResponseBody body = fileStreamingService.streamInline(fullPath, extractFileName(path),
+                stat -> mediaIndexService.moovRange(userId, path, stat.etag()), request, response);
+        objectAccessTracker.record(userId, path);
+        return body;
     }
 
     @SneakyThrows
@@ -88,8 +99,12 @@ public class ResourceService {
             String normalizedPath = PathUtils.normalizePath(path);
             String fullPath = getUserFolder(userId) + normalizedPath + file.getOriginalFilename();
 
+            Long replacedSize = null;
             if (fileAlreadyExists(fullPath)) {
-                throw new FileAlreadyExistsException("File " + file.getOriginalFilename() + " already exists");
+                if (!fileVersionService.isEnabled()) {
+                    throw new FileAlreadyExistsException("File " + file.getOriginalFilename() + " already exists");
+                }
+                replacedSize = fileVersionService.archive(userId, normalizedPath + file.getOriginalFilename());
             }
 
             try {
@@ -97,6 +112,13 @@ public class ResourceService {
             } catch (Exception e) {
                 throw new FileUploadException("Failed to upload file " + file.getOriginalFilename(), e);
             }
+            Long replaced = replacedSize;
+            Observation.createNotStarted("resource.events", observationRegistry).observe(() -> {
+                if (replaced != null) {
+                    eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, normalizedPath + file.getOriginalFilename(), replaced));
+                }
+                eventPublisher.publishEvent(ResourceChangedEvent.created(userId, normalizedPath + file.getOriginalFilename(), file.getSize()));
+            });
 
             responseDtoList.add(new ResourceResponseDto(
                     normalizedPath,
@@ -111,15 +133,13 @@ public class ResourceService {
 
     @SneakyThrows
     public ResourceResponseDto getFileInfo(Long userId, String path) {
+        if (storageHealthMonitor.isReadOnly()) {
+            return metadataSnapshotService.getFileInfo(userId, path);
+        }
         String fullPath = getUserFolder(userId) + path;
 
         try {
-            StatObjectResponse stat = minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullPath)
-                            .build()
-            );
+            StatObjectResponse stat = minioStorageService.statObject(fullPath);
 
             String[] parts = path.split("/");
             String name = parts.length > 0 ? parts[parts.length - 1] : path;
@@ -128,7 +148,7 @@ public class ResourceService {
             return new ResourceResponseDto(
                     parentPath,
                     name,
-                    stat.size(),
+                    minioStorageService.logicalSize(stat),
                     ResourceType.FILE
             );
         } catch (Exception e) {
@@ -139,18 +159,24 @@ public class ResourceService {
 
 
     public void deleteFile(Long userId, String path) {
+        if (trashService.isEnabled()) {
+            trashService.trash(userId, path);
+            return;
+        }
+        if (path.endsWith("/")) {
+            directoryService.deleteDirectory(userId, path);
+            return;
+        }
         String fullPath = getUserFolder(userId) + path;
+        Long size = logicalSizeOrNull(fullPath);
         try {
             minioStorageService.removeObject(fullPath);
         } catch (Exception e) {
             throw new FileOperationErrorException("Failed to delete file " + path);
         }
-    }
-
-
-    private InputStream downloadFile(Long userId, String path) {
-        String fullPath = getUserFolder(userId) + path;
-        return minioStorageService.getObject(fullPath);
+        if (size != null) {
+            eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, path, size));
+        }
     }
 
 
@@ -166,24 +192,36 @@ public class ResourceService {
         if (fromFullPath.endsWith("/")) {
             directoryService.moveDirectory(userId, fromPath, toPath);
         } else {
+            Long size = logicalSizeOrNull(fromFullPath);
+            Long moveId = moveJournal.begin(userId, fromPath, toPath);
             minioStorageService.copyObject(fromFullPath, toFullPath);
 
-            deleteFile(userId, fromPath);
+            try {
+                minioStorageService.removeObject(fromFullPath);
+            } catch (Exception e) {
+                throw new FileOperationErrorException("Failed to delete file " + fromPath);
+            }
+            moveJournal.complete(moveId);
+            if (size != null) {
+                eventPublisher.publishEvent(ResourceChangedEvent.moved(userId, fromPath, toPath, size));
+            }
         }
 
     }
 
     @SneakyThrows
     public List<ResourceResponseDto> searchFiles(Long userId, String query) {
+        if (storageHealthMonitor.isReadOnly()) {
+            return metadataSnapshotService.searchFiles(userId, query);
+        }
         String fullPath = getUserFolder(userId);
         try {
-            Iterable<Result<Item>> results = minioStorageService.listObjects(fullPath, true);
+            Iterable<StoredObject> results = minioStorageService.listObjects(fullPath, true);
 
             List<ResourceResponseDto> resources = new ArrayList<>();
             String lowerQuery = query.toLowerCase();
 
-            for (Result<Item> result : results) {
-                Item item = result.get();
+            for (StoredObject item : results) {
                 String rawName = item.objectName().substring(fullPath.length());
                 String decodedName = URLDecoder.decode(rawName, StandardCharsets.UTF_8);
 
@@ -195,7 +233,7 @@ public class ResourceService {
                     resources.add(new ResourceResponseDto(
                             parentPath,
                             name,
-                            item.size(),
+                            minioStorageService.logicalSize(item),
                             ResourceType.FILE
                     ));
                 }
@@ -206,21 +244,22 @@ public class ResourceService {
         }
     }
 
-    @SneakyThrows
-    private boolean fileAlreadyExists(String path) {
+    /**
+     * Finds documents by their text, best matches first, with the passages that matched.
+     */
+    public List<ResourceResponseDto> searchContent(Long userId, String query) {
+        return contentIndexService.search(userId, query);
+    }
+
+    private Long logicalSizeOrNull(String fullPath) {
         try {
-            minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(path)
-                            .build()
-            );
-            return true;
-        } catch (ErrorResponseException e) {
-            if (e.errorResponse().code().equals("NoSuchKey")) {
-                return false;
-            }
-            throw e;
+            return minioStorageService.logicalSize(minioStorageService.statObject(fullPath));
+        } catch (Exception e) {
+            return null;
         }
     }
+
+    private boolean fileAlreadyExists(String path) {
+        return minioStorageService.objectExists(path);
+    }
 }
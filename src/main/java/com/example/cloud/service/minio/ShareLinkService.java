@@ -0,0 +1,288 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.dto.response.ShareLinkDto;
+import com.example.cloud.model.entity.ShareLink;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ShareProperties;
+import com.example.cloud.repository.ShareLinkRepository;
+import com.example.cloud.util.ThrottledOutputStream;
+import com.example.cloud.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.cloud.util.PathUtils.extractFileName;
+import static com.example.cloud.util.PathUtils.normalizeDirectoryPath;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Anonymous share links. Resolving a token goes through an in-memory cache, misses included, so a popular or
+ * guessed link does not reach the database on every request; a revoked link may keep working on other nodes for
+ * up to {@code share.cache-ttl}. Every link has its own request rate limit and a byte budget shared by all its
+ * concurrent downloads, of which there are at most {@code share.max-streams-per-link}, so throttled streams of one
+ * link cannot take up every download thread. Links are removed with the resources they point to.
+ */
+@Slf4j
+@Service
+public class ShareLinkService {
+
+    private static final String PUBLIC_PATH = "/s/";
+    private static final int TOKEN_BYTES = 18;
+    private static final Duration STREAM_RETRY_AFTER = Duration.ofSeconds(5);
+
+    private final ShareLinkRepository shareLinkRepository;
+    private final MinioStorageService minioStorageService;
+    private final FileStreamingService fileStreamingService;
+    private final DirectoryService directoryService;
+    private final ShareProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Optional<ShareLink>> links;
+    private final Cache<String, TokenBucket> requestBuckets;
+    private final Cache<String, TokenBucket> bandwidthBuckets;
+    private final Map<Long, Integer> activeStreams = new ConcurrentHashMap<>();
+    private final Counter rateLimited;
+
+    public ShareLinkService(ShareLinkRepository shareLinkRepository,
+                            MinioStorageService minioStorageService,
+                            FileStreamingService fileStreamingService,
+                            DirectoryService directoryService,
+                            ShareProperties properties,
+                            TransactionTemplate transactionTemplate,
+                            MeterRegistry meterRegistry) {
+        this.shareLinkRepository = shareLinkRepository;
+        this.minioStorageService = minioStorageService;
+        this.fileStreamingService = fileStreamingService;
+        this.directoryService = directoryService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.links = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        this.requestBuckets = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(properties.getRequests().getPeriod())
+                .build();
+        this.bandwidthBuckets = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.rateLimited = Counter.builder("share.rate_limited").register(meterRegistry);
+    }
+
+    @SneakyThrows
+    public ShareLinkDto create(Long userId, String path, Duration ttl) {
+        String fullPath = getUserFolder(userId) + path;
+        boolean exists = path.endsWith("/")
+                ? minioStorageService.listObjects(normalizeDirectoryPath(fullPath), false).iterator().hasNext()
+                : minioStorageService.objectExists(fullPath);
+        if (!exists) {
+            throw new FileNotFoundException("Resource " + path + " not found");
+        }
+
+        Duration lifetime = ttl == null ? properties.getDefaultTtl() : ttl;
+        if (lifetime.isNegative() || lifetime.isZero() || lifetime.compareTo(properties.getMaxTtl()) > 0) {
+            throw new IllegalArgumentException("Link lifetime must be positive and at most " + properties.getMaxTtl());
+        }
+
+        Instant now = Instant.now();
+        ShareLink link = shareLinkRepository.save(new ShareLink(null, newToken(), userId,
+                path.endsWith("/") ? normalizeDirectoryPath(path) : path, now, now.plus(lifetime)));
+        log.info("User {} shared {} until {}", userId, link.getPath(), link.getExpiresAt());
+        return toDto(link);
+    }
+
+    public List<ShareLinkDto> list(Long userId) {
+        return shareLinkRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+                .map(ShareLinkService::toDto)
+                .toList();
+    }
+
+    @SneakyThrows
+    public void revoke(Long userId, Long linkId) {
+        ShareLink link = shareLinkRepository.findByIdAndUserId(linkId, userId)
+                .orElseThrow(() -> new FileNotFoundException("Share link " + linkId + " not found"));
+        shareLinkRepository.delete(link);
+        links.invalidate(link.getToken());
+    }
+
+    /**
+     * Streams a shared file, honouring range requests, or a shared directory as a zip.
+     */
+    @SneakyThrows
+    public StreamingResponseBody download(String token, HttpServletRequest request, HttpServletResponse response) {
+        ShareLink link = links.get(token, key -> shareLinkRepository.findByToken(key))
+                .filter(candidate -> candidate.getExpiresAt().isAfter(Instant.now()))
+                .orElseThrow(() -> new FileNotFoundException("Share link not found or expired"));
+
+        TokenBucket requests = requestBuckets.get(token, key ->
+                new TokenBucket(properties.getRequests().getCapacity(), properties.getRequests().getPeriod()));
+        if (!requests.tryConsume(1)) {
+            rateLimited.increment();
+            throw new TooManyRequestsException("Too many downloads of this link, try again later",
+                    requests.timeUntilAvailable(1));
+        }
+        TokenBucket bandwidth = bandwidthBuckets.get(token, key ->
+                new TokenBucket(properties.getBandwidthPerSecond().toBytes(), Duration.ofSeconds(1)));
+
+        if (!acquireStream(link.getId())) {
+            rateLimited.increment();
+            throw new TooManyRequestsException("Too many downloads of this link in progress, try again later",
+                    STREAM_RETRY_AFTER);
+        }
+        StreamingResponseBody body;
+        try {
+            if (link.isDirectory()) {
+                response.setContentType("application/zip");
+                response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + extractFileName(link.getPath()) + ".zip\"");
+                body = outputStream -> directoryService.downloadDirectoryAsZip(link.getUserId(), link.getPath(), outputStream);
+            } else {
+                body = fileStreamingService.stream(getUserFolder(link.getUserId()) + link.getPath(),
+                        "attachment; filename=\"" + extractFileName(link.getPath()) + "\"", request, response);
+            }
+        } catch (Exception e) {
+            releaseStream(link.getId());
+            throw e;
+        }
+        if (body == null) {
+            releaseStream(link.getId());
+            return null;
+        }
+        return outputStream -> {
+            try {
+                body.writeTo(new ThrottledOutputStream(outputStream, bandwidth));
+            } finally {
+                releaseStream(link.getId());
+            }
+        };
+    }
+
+    /**
+     * Links follow the resources they point to when those are moved or renamed.
+     */
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (event.type() == ResourceChangedEvent.Type.DELETED) {
+            revokeDeleted(event);
+            return;
+        }
+        if (event.type() != ResourceChangedEvent.Type.MOVED || event.targetPath() == null) {
+            return;
+        }
+        try {
+            Integer moved = transactionTemplate.execute(status -> event.isDirectory()
+                    ? shareLinkRepository.moveSubtree(event.userId(), event.path(), event.targetPath())
+                    : shareLinkRepository.move(event.userId(), event.path(), event.targetPath()));
+            if (moved != null && moved > 0) {
+                evictUser(event.userId());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to move share links of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Removes links to a deleted file or to anything under a deleted directory. An overwrite is announced as a
+     * delete followed by a create with the new content in place, and keeps its links.
+     */
+    private void revokeDeleted(ResourceChangedEvent event) {
+        try {
+            String fullPath = getUserFolder(event.userId()) + event.path();
+            boolean exists = event.isDirectory()
+                    ? minioStorageService.listObjects(fullPath, false).iterator().hasNext()
+                    : minioStorageService.objectExists(fullPath);
+            if (exists) {
+                return;
+            }
+            Integer deleted = transactionTemplate.execute(status -> event.isDirectory()
+                    ? shareLinkRepository.deleteSubtree(event.userId(), event.path())
+                    : shareLinkRepository.delete(event.userId(), event.path()));
+            if (deleted != null && deleted > 0) {
+                evictUser(event.userId());
+                log.info("Revoked {} share links of deleted {} of user {}", deleted, event.path(), event.userId());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to revoke share links of {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${share.cleanup-interval:1h}", initialDelayString = "PT10M")
+    public void deleteExpired() {
+        Integer deleted = transactionTemplate.execute(status -> shareLinkRepository.deleteExpired(Instant.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} expired share links", deleted);
+        }
+    }
+
+    /**
+     * Short, irreversible form of a token for logs, which must never hold a working link.
+     */
+    public static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean acquireStream(Long linkId) {
+        boolean[] acquired = new boolean[1];
+        activeStreams.compute(linkId, (id, active) -> {
+            int current = active == null ? 0 : active;
+            if (current >= properties.getMaxStreamsPerLink()) {
+                return active;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseStream(Long linkId) {
+        activeStreams.computeIfPresent(linkId, (id, active) -> active <= 1 ? null : active - 1);
+    }
+
+    private void evictUser(Long userId) {
+        links.asMap().values().removeIf(link -> link.isPresent() && link.get().getUserId().equals(userId));
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static ShareLinkDto toDto(ShareLink link) {
+        return new ShareLinkDto(link.getId(), link.getPath(), PUBLIC_PATH + link.getToken(),
+                link.getCreatedAt(), link.getExpiresAt());
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.PendingMove;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.StorageGcProperties;
+import com.example.cloud.repository.UserRepository;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import com.example.cloud.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.messages.ListMultipartUploadsResult;
+import io.minio.messages.Upload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Background storage maintenance. Each run, on one node per interval:
+ * <ul>
+ *     <li>finishes or undoes moves that died midway, using the {@link MoveJournal}: a move whose copies are all
+ *     in place is completed, any other one has its partial copies removed. A copy counts only while its ETag
+ *     matches its source's, so an object written at the target after the move died is never taken for one;</li>
+ *     <li>removes directory markers under prefixes that have other objects, for the next
+ *     {@code storage.gc.users-per-run} users, resuming from a cursor kept in Redis;</li>
+ *     <li>aborts multipart uploads older than {@code storage.gc.multipart-max-age}.</li>
+ * </ul>
+ * Listing and removal are throttled to {@code storage.gc.objects-per-second}. Because markers of non-empty
+ * directories are pruned, a directory whose last entry is removed gets its marker back.
+ */
+@Slf4j
+@Service
+public class StorageGarbageCollector {
+
+    private static final String RUN_CLAIM_KEY = "storage-gc:run";
+    private static final String USER_CURSOR_KEY = "storage-gc:user-cursor";
+
+    private final MinioStorageService minioStorageService;
+    private final KeyLayoutResolver keyLayoutResolver;
+    private final MoveJournal moveJournal;
+    private final UserRepository userRepository;
+    private final StorageGcProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Counter> reclaimed = new LinkedHashMap<>();
+    private volatile Report lastReport;
+
+    public StorageGarbageCollector(MinioStorageService minioStorageService,
+                                   KeyLayoutResolver keyLayoutResolver,
+                                   MoveJournal moveJournal,
+                                   UserRepository userRepository,
+                                   StorageGcProperties properties,
+                                   StringRedisTemplate redisTemplate,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry) {
+        this.minioStorageService = minioStorageService;
+        this.keyLayoutResolver = keyLayoutResolver;
+        this.moveJournal = moveJournal;
+        this.userRepository = userRepository;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+        for (String kind : List.of("marker", "multipart_upload", "partial_copy", "moved_source")) {
+            reclaimed.put(kind, Counter.builder("storage.gc.reclaimed").tag("kind", kind).register(meterRegistry));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.gc.interval:10m}", initialDelayString = "PT3M")
+    public void scheduledRun() {
+        if (!properties.isEnabled() || !claim()) {
+            return;
+        }
+        run();
+    }
+
+    /**
+     * Runs one collection pass and returns what it reclaimed.
+     */
+    public Report run() {
+        Report report = new Report(Instant.now());
+        TokenBucket rateLimit = new TokenBucket(properties.getObjectsPerSecond(), Duration.ofSeconds(1));
+        try {
+            resolveStaleMoves(report, rateLimit);
+            if (properties.isPruneMarkers()) {
+                pruneMarkers(report, rateLimit);
+            }
+            abortStaleUploads(report, rateLimit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            report.error = e.getMessage();
+            log.warn("Storage garbage collection failed: {}", e.getMessage());
+        }
+        report.finishedAt = Instant.now();
+        lastReport = report;
+
+        reclaimed.get("marker").increment(report.markersRemoved);
+        reclaimed.get("multipart_upload").increment(report.uploadsAborted);
+        reclaimed.get("partial_copy").increment(report.partialCopiesRemoved);
+        reclaimed.get("moved_source").increment(report.movedSourcesRemoved);
+        log.info("Storage garbage collection: {} objects scanned, {} markers removed, {} multipart uploads aborted, " +
+                        "{} moves completed, {} moves rolled back, {} bytes reclaimed",
+                report.objectsScanned, report.markersRemoved, report.uploadsAborted,
+                report.movesCompleted, report.movesRolledBack, report.bytesReclaimed);
+        return report;
+    }
+
+    public Report lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Puts back the marker of a directory whose last entry was just removed or moved away, since its marker may
+     * have been pruned while the directory had content.
+     */
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!properties.isEnabled() || !properties.isPruneMarkers()
+                || event.source() != ResourceChangedEvent.Source.APPLICATION
+                || (event.type() != ResourceChangedEvent.Type.DELETED && event.type() != ResourceChangedEvent.Type.MOVED)) {
+            return;
+        }
+        String parent = parentOf(event.path());
+        if (parent.isEmpty()) {
+            return;
+        }
+        String parentKey = getUserFolder(event.userId()) + parent;
+        try {
+            if (!minioStorageService.listObjects(parentKey, false).iterator().hasNext()) {
+                minioStorageService.putObject(parentKey, new ByteArrayInputStream(new byte[0]), 0,
+                        MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to keep directory {} of user {}: {}", parent, event.userId(), e.getMessage());
+        }
+    }
+
+    private void resolveStaleMoves(Report report, TokenBucket rateLimit) throws InterruptedException {
+        for (PendingMove move : moveJournal.staleBefore(Instant.now().minus(properties.getMoveStaleAfter()))) {
+            try {
+                resolveMove(move, report, rateLimit);
+                moveJournal.complete(move.getId());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("Failed to resolve interrupted move of {} to {} for user {}: {}",
+                        move.getFromPath(), move.getToPath(), move.getUserId(), e.getMessage());
+            }
+        }
+    }
+
+    private void resolveMove(PendingMove move, Report report, TokenBucket rateLimit) throws InterruptedException {
+        String userFolder = getUserFolder(move.getUserId());
+        String from = userFolder + move.getFromPath();
+        String to = userFolder + move.getToPath();
+        boolean directory = from.endsWith("/");
+
+        List<StoredObject> sources = new ArrayList<>();
+        if (directory) {
+            for (StoredObject object : minioStorageService.listObjects(from, true)) {
+                throttle(rateLimit, report);
+                sources.add(object);
+            }
+        } else if (minioStorageService.objectExists(from)) {
+            sources.add(new StoredObject(from, minioStorageService.statObject(from).size(), false, null, null, null));
+        }
+        if (sources.isEmpty()) {
+            // Everything was moved; only the journal entry was left behind.
+            return;
+        }
+
+        boolean copied = true;
+        for (StoredObject source : sources) {
+            throttle(rateLimit, report);
+            if (!isCopyOf(source.objectName(), to + source.objectName().substring(from.length()))) {
+                copied = false;
+                break;
+            }
+        }
+
+        if (copied) {
+            long size = directory ? 0 : minioStorageService.logicalSize(minioStorageService.statObject(to));
+            for (StoredObject source : sources) {
+                throttle(rateLimit, report);
+                minioStorageService.removeObject(source.objectName());
+                report.movedSourcesRemoved++;
+                report.bytesReclaimed += source.size();
+            }
+            report.movesCompleted++;
+            eventPublisher.publishEvent(ResourceChangedEvent.moved(move.getUserId(), move.getFromPath(), move.getToPath(), size));
+            log.info("Completed interrupted move of {} to {} for user {}", move.getFromPath(), move.getToPath(), move.getUserId());
+            return;
+        }
+
+        // Copies were never announced, so removing them leaves the user's view as it was before the move.
+        for (StoredObject source : sources) {
+            String copy = to + source.objectName().substring(from.length());
+            throttle(rateLimit, report);
+            if (isCopyOf(source.objectName(), copy)) {
+                minioStorageService.removeObject(copy);
+                report.partialCopiesRemoved++;
+                report.bytesReclaimed += source.size();
+            }
+        }
+        report.movesRolledBack++;
+        log.info("Rolled back interrupted move of {} to {} for user {}", move.getFromPath(), move.getToPath(), move.getUserId());
+    }
+
+    /**
+     * Whether the target holds what the move copied there: a server-side copy keeps the source's ETag, while a
+     * file uploaded to the target since has its own.
+     */
+    private boolean isCopyOf(String source, String target) {
+        if (!minioStorageService.objectExists(target)) {
+            return false;
+        }
+        return sameEtag(minioStorageService.statObject(source).etag(), minioStorageService.statObject(target).etag());
+    }
+
+    private void pruneMarkers(Report report, TokenBucket rateLimit) throws InterruptedException {
+        String cursorValue = redisTemplate.opsForValue().get(USER_CURSOR_KEY);
+        long cursor = cursorValue != null ? Long.parseLong(cursorValue) : 0L;
+        List<Long> userIds = userRepository.findIdsAfter(cursor, PageRequest.of(0, properties.getUsersPerRun()));
+
+        for (Long userId : userIds) {
+            pruneUserMarkers(userId, report, rateLimit);
+            redisTemplate.opsForValue().set(USER_CURSOR_KEY, String.valueOf(userId));
+        }
+        if (userIds.size() < properties.getUsersPerRun()) {
+            redisTemplate.delete(USER_CURSOR_KEY);
+        }
+    }
+
+    /**
+     * Listings are sorted, so a marker's prefix has other objects exactly when the next key starts with it.
+     */
+    private void pruneUserMarkers(Long userId, Report report, TokenBucket rateLimit) throws InterruptedException {
+        String userFolder = getUserFolder(userId);
+        Instant markerCutoff = Instant.now().minus(properties.getMarkerMinAge());
+        StoredObject marker = null;
+
+        for (StoredObject object : minioStorageService.listObjects(userFolder, true)) {
+            throttle(rateLimit, report);
+            if (marker != null && object.objectName().startsWith(marker.objectName())) {
+                minioStorageService.removeObject(marker.objectName());
+                report.markersRemoved++;
+            }
+            marker = object.objectName().endsWith("/")
+                    && !object.objectName().equals(userFolder)
+                    && object.lastModified() != null
+                    && object.lastModified().toInstant().isBefore(markerCutoff)
+                    ? object
+                    : null;
+        }
+    }
+
+    private void abortStaleUploads(Report report, TokenBucket rateLimit) throws InterruptedException {
+        Instant cutoff = Instant.now().minus(properties.getMultipartMaxAge());
+        for (String bucket : keyLayoutResolver.buckets()) {
+            String keyMarker = null;
+            String uploadIdMarker = null;
+            ListMultipartUploadsResult page;
+            do {
+                page = minioStorageService.listMultipartUploads(bucket, keyMarker, uploadIdMarker);
+                for (Upload upload : page.uploads()) {
+                    throttle(rateLimit, report);
+                    if (upload.initiated() != null && upload.initiated().toInstant().isBefore(cutoff)) {
+                        minioStorageService.abortMultipartUpload(bucket, upload.objectName(), upload.uploadId());
+                        report.uploadsAborted++;
+                        report.bytesReclaimed += upload.aggregatedPartSize();
+                    }
+                }
+                keyMarker = page.nextKeyMarker();
+                uploadIdMarker = page.nextUploadIdMarker();
+            } while (page.isTruncated());
+        }
+    }
+
+    private void throttle(TokenBucket rateLimit, Report report) throws InterruptedException {
+        report.objectsScanned++;
+        Duration wait = rateLimit.consume(1);
+        if (!wait.isZero()) {
+            Thread.sleep(wait.toMillis());
+        }
+    }
+
+    private boolean claim() {
+        Boolean claimed = redisTemplate.opsForValue()
+                .setIfAbsent(RUN_CLAIM_KEY, nodeId, properties.getInterval().multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private static boolean sameEtag(String a, String b) {
+        return a != null && b != null && a.replace("\"", "").equals(b.replace("\"", ""));
+    }
+
+    static String parentOf(String path) {
+        String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        int slash = trimmed.lastIndexOf('/');
+        return slash < 0 ? "" : trimmed.substring(0, slash + 1);
+    }
+
+    public static final class Report {
+        private final Instant startedAt;
+        private Instant finishedAt;
+        private long objectsScanned;
+        private long markersRemoved;
+        private long uploadsAborted;
+        private long partialCopiesRemoved;
+        private long movedSourcesRemoved;
+        private long movesCompleted;
+        private long movesRolledBack;
+        private long bytesReclaimed;
+        private String error;
+
+        private Report(Instant startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("objectsScanned", objectsScanned);
+            map.put("markersRemoved", markersRemoved);
+            map.put("multipartUploadsAborted", uploadsAborted);
+            map.put("partialCopiesRemoved", partialCopiesRemoved);
+            map.put("movedSourcesRemoved", movedSourcesRemoved);
+            map.put("movesCompleted", movesCompleted);
+            map.put("movesRolledBack", movesRolledBack);
+            map.put("bytesReclaimed", bytesReclaimed);
+            map.put("error", error);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.DegradedModeProperties;
+import com.example.cloud.model.properties.MinioProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Probes storage on a fixed interval and switches the application to read-only mode after
+ * {@code degraded.failure-threshold} failed probes in a row, back after {@code degraded.recovery-threshold}
+ * successful ones. A probe that does not answer within {@code degraded.probe-timeout} counts as failed, and no
+ * new probe is sent while it hangs.
+ */
+@Slf4j
+@Component
+public class StorageHealthMonitor {
+
+    private final MinioStorageService minioStorageService;
+    private final MinioProperties minioProperties;
+    private final DegradedModeProperties properties;
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean degraded;
+    private CompletableFuture<Void> pendingProbe;
+    private int consecutiveFailures;
+    private int consecutiveSuccesses;
+
+    public StorageHealthMonitor(MinioStorageService minioStorageService,
+                                MinioProperties minioProperties,
+                                DegradedModeProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.minioStorageService = minioStorageService;
+        this.minioProperties = minioProperties;
+        this.properties = properties;
+        Gauge.builder("storage.degraded", () -> degraded ? 1 : 0).register(meterRegistry);
+    }
+
+    /**
+     * Whether writes are refused and reads of metadata are served from the snapshot.
+     */
+    public boolean isReadOnly() {
+        return degraded && properties.isEnabled();
+    }
+
+    @Scheduled(fixedDelayString = "${degraded.probe-interval:5s}")
+    public synchronized void probe() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (pendingProbe == null || pendingProbe.isDone()) {
+            pendingProbe = CompletableFuture.runAsync(() -> minioStorageService.probe(minioProperties.getBucket()),
+                    probeExecutor);
+        }
+        try {
+            pendingProbe.get(properties.getProbeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            recordSuccess();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            recordFailure(e);
+        }
+    }
+
+    private void recordSuccess() {
+        consecutiveFailures = 0;
+        consecutiveSuccesses++;
+        if (degraded && consecutiveSuccesses >= properties.getRecoveryThreshold()) {
+            degraded = false;
+            log.warn("Storage is reachable again, leaving read-only mode");
+        }
+    }
+
+    private void recordFailure(Exception e) {
+        consecutiveSuccesses = 0;
+        consecutiveFailures++;
+        log.debug("Storage probe failed: {}", e.getMessage());
+        if (!degraded && consecutiveFailures >= properties.getFailureThreshold()) {
+            degraded = true;
+            log.warn("Storage failed {} probes in a row, switching to read-only mode", consecutiveFailures);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.config.MinioConfig;
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Access to the capacity tier: a bucket, optionally on its own MinIO endpoint, that holds the content of files
+ * demoted from the fast tier. A demoted file keeps an empty stub object at its fast tier key, so listings,
+ * moves and presence checks stay unchanged; the content lives in the capacity bucket under the file's logical key,
+ * so it stays valid when the owner's key layout changes. Also owns the per-tier read, transition and usage metrics.
+ */
+@Slf4j
+@Component
+public class StorageTiers {
+
+    private final MinioClient fastClient;
+    private final MinioClient capacityClient;
+    private final MinioClient capacityPresignClient;
+    private final boolean sharedEndpoint;
+    private final String capacityBucket;
+    private final Map<Tier, Counter> reads = new EnumMap<>(Tier.class);
+    private final Map<Tier, Counter> transitions = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> storedBytes = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> storedObjects = new EnumMap<>(Tier.class);
+
+    public StorageTiers(MinioClient minioClient, MinioProperties properties, MeterRegistry meterRegistry) {
+        MinioProperties.Endpoint capacity = properties.getTiering().getCapacity();
+        this.fastClient = minioClient;
+        this.capacityBucket = capacity.getBucket() == null || capacity.getBucket().isBlank() ? null : capacity.getBucket();
+        this.sharedEndpoint = capacity.getUrl() == null || capacity.getUrl().isBlank();
+        if (sharedEndpoint) {
+            this.capacityClient = minioClient;
+            this.capacityPresignClient = null;
+        } else {
+            this.capacityClient = MinioClient.builder()
+                    .endpoint(capacity.getUrl())
+                    .credentials(capacity.getAccessKey(), capacity.getSecretKey())
+                    .build();
+            this.capacityClient.setAppInfo(MinioConfig.APP_NAME, MinioConfig.APP_VERSION);
+            this.capacityPresignClient = capacity.getPublicUrl() == null || capacity.getPublicUrl().isBlank()
+                    ? capacityClient
+                    : MinioClient.builder()
+                            .endpoint(capacity.getPublicUrl())
+                            .region(properties.getRegion())
+                            .credentials(capacity.getAccessKey(), capacity.getSecretKey())
+                            .build();
+        }
+
+        for (Tier tier : Tier.values()) {
+            String tag = tier.name().toLowerCase();
+            reads.put(tier, Counter.builder("storage.tier.reads").tag("tier", tag).register(meterRegistry));
+            transitions.put(tier, Counter.builder("storage.tier.transitions").tag("to", tag).register(meterRegistry));
+            storedBytes.put(tier, new AtomicLong());
+            storedObjects.put(tier, new AtomicLong());
+            Gauge.builder("storage.tier.size", storedBytes.get(tier), AtomicLong::get)
+                    .tag("tier", tag)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            Gauge.builder("storage.tier.objects", storedObjects.get(tier), AtomicLong::get)
+                    .tag("tier", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureBucket() {
+        if (!configured()) {
+            return;
+        }
+        try {
+            if (!capacityClient.bucketExists(BucketExistsArgs.builder().bucket(capacityBucket).build())) {
+                capacityClient.makeBucket(MakeBucketArgs.builder().bucket(capacityBucket).build());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check capacity tier bucket {}: {}", capacityBucket, e.getMessage());
+        }
+    }
+
+    public boolean configured() {
+        return capacityBucket != null;
+    }
+
+    public boolean isCapacityBucket(String bucket) {
+        return configured() && capacityBucket.equals(bucket);
+    }
+
+    /**
+     * Client for presigning capacity tier URLs when that tier has its own endpoint, otherwise null.
+     */
+    public MinioClient capacityPresignClient() {
+        return capacityPresignClient;
+    }
+
+    public ObjectLocation capacityLocation(String logicalKey) {
+        return new ObjectLocation(capacityBucket, logicalKey);
+    }
+
+    public void recordRead(Tier tier) {
+        reads.get(tier).increment();
+    }
+
+    public void recordTransition(Tier to) {
+        transitions.get(to).increment();
+    }
+
+    /**
+     * Publishes the usage a full scan of the tiers counted.
+     */
+    public void recordUsage(Tier tier, long objects, long bytes) {
+        storedObjects.get(tier).set(objects);
+        storedBytes.get(tier).set(bytes);
+    }
+
+    @SneakyThrows
+    StatObjectResponse stat(ObjectLocation capacityLocation) {
+        return capacityClient.statObject(
+                StatObjectArgs.builder()
+                        .bucket(capacityLocation.bucket())
+                        .object(capacityLocation.key())
+                        .build()
+        );
+    }
+
+    @SneakyThrows
+    GetObjectResponse get(ObjectLocation capacityLocation, Long offset, Long length) {
+        return capacityClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(capacityLocation.bucket())
+                        .object(capacityLocation.key())
+                        .offset(offset)
+                        .length(length)
+                        .build()
+        );
+    }
+
+    @SneakyThrows
+    void copyWithin(ObjectLocation from, ObjectLocation to) {
+        capacityClient.copyObject(
+                CopyObjectArgs.builder()
+                        .bucket(to.bucket())
+                        .object(to.key())
+                        .source(CopySource.builder().bucket(from.bucket()).object(from.key()).build())
+                        .build()
+        );
+    }
+
+    /**
+     * Copies a fast tier object into the capacity tier with its content type and user metadata.
+     */
+    @SneakyThrows
+    void copyIn(ObjectLocation fastLocation, String logicalKey, StatObjectResponse stat) {
+        ObjectLocation target = capacityLocation(logicalKey);
+        if (sharedEndpoint) {
+            copyWithin(fastLocation, target);
+            return;
+        }
+        try (GetObjectResponse content = fastClient.getObject(
+                GetObjectArgs.builder().bucket(fastLocation.bucket()).object(fastLocation.key()).build())) {
+            capacityClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(target.bucket())
+                            .object(target.key())
+                            .stream(content, stat.size(), -1)
+                            .contentType(stat.contentType())
+                            .userMetadata(stat.userMetadata())
+                            .build()
+            );
+        }
+    }
+
+    /**
+     * Copies a capacity tier object back over its fast tier stub, with its content type and user metadata.
+     * The write is conditional on the stub still having the given ETag; returns false when the stub was
+     * replaced in the meantime, in which case the fast tier is left alone.
+     */
+    @SneakyThrows
+    boolean copyOut(String logicalKey, ObjectLocation fastLocation, String stubEtag) {
+        ObjectLocation source = capacityLocation(logicalKey);
+        try {
+            if (sharedEndpoint) {
+                fastClient.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(fastLocation.bucket())
+                                .object(fastLocation.key())
+                                .extraHeaders(ifMatch(stubEtag))
+                                .source(CopySource.builder().bucket(source.bucket()).object(source.key()).build())
+                                .build()
+                );
+                return true;
+            }
+            StatObjectResponse stat = stat(source);
+            try (GetObjectResponse content = get(source, null, null)) {
+                fastClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(fastLocation.bucket())
+                                .object(fastLocation.key())
+                                .extraHeaders(ifMatch(stubEtag))
+                                .stream(content, stat.size(), -1)
+                                .contentType(stat.contentType())
+                                .userMetadata(stat.userMetadata())
+                                .build()
+                );
+            }
+            return true;
+        } catch (ErrorResponseException e) {
+            if (MinioStorageService.isPreconditionFailed(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces a fast tier object with a stub, only if the object still has the ETag that was copied into the
+     * capacity tier. Returns false when it was overwritten in the meantime.
+     */
+    @SneakyThrows
+    boolean writeStub(ObjectLocation fastLocation, String expectedEtag, String contentType, Map<String, String> metadata) {
+        try {
+            fastClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(fastLocation.bucket())
+                            .object(fastLocation.key())
+                            .extraHeaders(ifMatch(expectedEtag))
+                            .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
+                            .contentType(contentType)
+                            .userMetadata(metadata)
+                            .build()
+            );
+            return true;
+        } catch (ErrorResponseException e) {
+            if (MinioStorageService.isPreconditionFailed(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @SneakyThrows
+    void remove(ObjectLocation capacityLocation) {
+        capacityClient.removeObject(
+                RemoveObjectArgs.builder()
+                        .bucket(capacityLocation.bucket())
+                        .object(capacityLocation.key())
+                        .build()
+        );
+    }
+
+    /**
+     * Removes capacity tier copies in multi-object delete requests. Failures only leave unreferenced copies
+     * behind, so they are logged rather than reported.
+     */
+    @SneakyThrows
+    void remove(List<ObjectLocation> capacityLocations, int chunkSize) {
+        for (int from = 0; from < capacityLocations.size(); from += chunkSize) {
+            List<DeleteObject> chunk = capacityLocations.subList(from, Math.min(from + chunkSize, capacityLocations.size()))
+                    .stream()
+                    .map(location -> new DeleteObject(location.key()))
+                    .toList();
+            for (Result<DeleteError> result : capacityClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(capacityBucket).objects(chunk).build())) {
+                DeleteError error = result.get();
+                log.warn("Failed to remove capacity tier copy {}: {}", error.objectName(), error.message());
+            }
+        }
+    }
+
+    private static Map<String, String> ifMatch(String etag) {
+        return Map.of("If-Match", "\"" + etag.replace("\"", "") + "\"");
+    }
+
+    public enum Tier {
+        FAST,
+        CAPACITY
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cloud.service.minio;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * A listing entry with its logical key, independent of which bucket and physical key it was read from.
+ */
+public record StoredObject(
+        String objectName,
+        long size,
+        boolean isDir,
+        ZonedDateTime lastModified,
+        String etag,
+        Map<String, String> userMetadata
+) {
+}
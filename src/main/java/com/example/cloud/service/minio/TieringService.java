@@ -0,0 +1,299 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.ObjectAccessStats;
+import com.example.cloud.model.entity.ObjectAccessStatsId;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.repository.ObjectAccessStatsRepository;
+import com.example.cloud.service.minio.layout.KeyLayout;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import com.example.cloud.util.TokenBucket;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Moves files between the fast and the capacity tier in the background. A periodic scan of the fast tier
+ * buckets demotes files that are older than {@code minio.tiering.demote-after} and have not been downloaded
+ * for as long, replacing them with stubs; the same scan publishes per-tier usage. A shorter job promotes
+ * demoted files that were downloaded {@code promote-after-hits} times within the promotion window.
+ * Each job runs on one node per interval, claimed in Redis.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TieringService {
+
+    private static final String SCAN_CLAIM_KEY = "tiering:scan";
+    private static final String PROMOTE_CLAIM_KEY = "tiering:promote";
+    private static final int PAGE_SIZE = 500;
+
+    private final MinioStorageService minioStorageService;
+    private final StorageTiers storageTiers;
+    private final KeyLayoutResolver keyLayoutResolver;
+    private final ObjectAccessStatsRepository objectAccessStatsRepository;
+    private final ObjectDiskCache objectDiskCache;
+    private final MinioProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Scheduled(fixedDelayString = "${minio.tiering.scan-interval:6h}", initialDelayString = "PT5M")
+    public void scan() {
+        MinioProperties.Tiering tiering = properties.getTiering();
+        if (!tiering.isEnabled() || !storageTiers.configured() || !claim(SCAN_CLAIM_KEY, tiering.getScanInterval())) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(tiering.getDemoteAfter());
+        transactionTemplate.executeWithoutResult(status -> objectAccessStatsRepository.deleteIdleFastRows(cutoff));
+
+        TokenBucket rateLimit = new TokenBucket(tiering.getObjectsPerSecond(), Duration.ofSeconds(1));
+        Map<StorageTiers.Tier, long[]> usage = new EnumMap<>(StorageTiers.Tier.class);
+        usage.put(StorageTiers.Tier.FAST, new long[2]);
+        usage.put(StorageTiers.Tier.CAPACITY, new long[2]);
+        int demoted = 0;
+
+        try {
+            for (String bucket : keyLayoutResolver.buckets()) {
+                List<Candidate> page = new ArrayList<>();
+                Iterator<Item> items = minioStorageService.listPhysical(new ObjectLocation(bucket, ""), true);
+                while (items.hasNext()) {
+                    Item item = items.next();
+                    if (item.isDir() || item.objectName().endsWith("/")) {
+                        continue;
+                    }
+                    if (minioStorageService.isStub(item.userMetadata())) {
+                        add(usage.get(StorageTiers.Tier.CAPACITY), minioStorageService.storedSize(item));
+                        continue;
+                    }
+                    add(usage.get(StorageTiers.Tier.FAST), item.size());
+
+                    if (item.size() < tiering.getMinObjectSize().toBytes()
+                            || item.lastModified() == null
+                            || !item.lastModified().toInstant().isBefore(cutoff)) {
+                        continue;
+                    }
+                    Optional<KeyLayout.RelativeKey> relative = keyLayoutResolver.toRelative(bucket, item.objectName());
+                    if (relative.isEmpty()) {
+                        continue;
+                    }
+                    page.add(new Candidate(relative.get().userId(), relative.get().key(),
+                            new ObjectLocation(bucket, item.objectName()), item.etag()));
+                    if (page.size() >= PAGE_SIZE) {
+                        demoted += demoteIdle(page, cutoff, rateLimit);
+                        page.clear();
+                    }
+                }
+                demoted += demoteIdle(page, cutoff, rateLimit);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        usage.forEach((tier, counted) -> storageTiers.recordUsage(tier, counted[0], counted[1]));
+        log.info("Tiering scan finished, {} files demoted", demoted);
+    }
+
+    @Scheduled(fixedDelayString = "${minio.tiering.promote-interval:1m}", initialDelayString = "PT1M")
+    public void promoteHot() {
+        MinioProperties.Tiering tiering = properties.getTiering();
+        if (!tiering.isEnabled() || !storageTiers.configured() || !claim(PROMOTE_CLAIM_KEY, tiering.getPromoteInterval())) {
+            return;
+        }
+
+        Instant windowStart = Instant.now().minus(tiering.getPromoteWindow());
+        List<ObjectAccessStats> candidates = objectAccessStatsRepository.findPromotionCandidates(
+                windowStart, tiering.getPromoteAfterHits(), tiering.getPromotionsPerRun());
+        for (ObjectAccessStats candidate : candidates) {
+            Long userId = candidate.getId().getUserId();
+            String path = candidate.getId().getPath();
+            try {
+                promote(userId, path);
+            } catch (Exception e) {
+                log.warn("Failed to promote {} of user {}: {}", path, userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keeps access rows in step with deletes and moves, so statistics follow a file to its new path.
+     */
+    @EventListener
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (!storageTiers.configured()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                switch (event.type()) {
+                    case DELETED -> {
+                        if (event.isDirectory()) {
+                            objectAccessStatsRepository.deleteSubtree(event.userId(), event.path());
+                        } else {
+                            objectAccessStatsRepository.deleteById(
+                                    new ObjectAccessStatsId(event.userId(), event.path()));
+                        }
+                    }
+                    case MOVED -> {
+                        if (event.targetPath() == null) {
+                            return;
+                        }
+                        if (event.isDirectory()) {
+                            objectAccessStatsRepository.deleteSubtree(event.userId(), event.targetPath());
+                            objectAccessStatsRepository.moveSubtree(event.userId(), event.path(), event.targetPath());
+                        } else {
+                            objectAccessStatsRepository.deleteById(
+                                    new ObjectAccessStatsId(event.userId(), event.targetPath()));
+                            objectAccessStatsRepository.move(event.userId(), event.path(), event.targetPath());
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to update access statistics for {} of user {}: {}", event.path(), event.userId(), e.getMessage());
+        }
+    }
+
+    private int demoteIdle(List<Candidate> page, Instant cutoff, TokenBucket rateLimit) throws InterruptedException {
+        if (page.isEmpty()) {
+            return 0;
+        }
+        Map<Long, List<Candidate>> byUser = page.stream()
+                .collect(Collectors.groupingBy(Candidate::userId, LinkedHashMap::new, Collectors.toList()));
+
+        int demoted = 0;
+        for (Map.Entry<Long, List<Candidate>> userCandidates : byUser.entrySet()) {
+            Set<String> recentlyAccessed = objectAccessStatsRepository
+                    .findByIdUserIdAndIdPathInAndLastAccessedAtAfter(userCandidates.getKey(),
+                            userCandidates.getValue().stream().map(Candidate::path).toList(), cutoff)
+                    .stream()
+                    .map(row -> row.getId().getPath())
+                    .collect(Collectors.toSet());
+
+            for (Candidate candidate : userCandidates.getValue()) {
+                if (recentlyAccessed.contains(candidate.path())) {
+                    continue;
+                }
+                Duration wait = rateLimit.consume(1);
+                if (!wait.isZero()) {
+                    Thread.sleep(wait.toMillis());
+                }
+                try {
+                    if (demote(candidate)) {
+                        demoted++;
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to demote {} of user {}: {}", candidate.path(), candidate.userId(), e.getMessage());
+                }
+            }
+        }
+        return demoted;
+    }
+
+    private boolean demote(Candidate candidate) throws Exception {
+        ObjectLocation location = candidate.location();
+        String logicalKey = getUserFolder(candidate.userId()) + candidate.path();
+
+        StatObjectResponse stat = minioStorageService.statPhysical(location);
+        if (!sameEtag(stat.etag(), candidate.etag()) || minioStorageService.isStub(stat.userMetadata())) {
+            return false;
+        }
+        storageTiers.copyIn(location, logicalKey, stat);
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(MinioStorageService.TIER_METADATA, MinioStorageService.CAPACITY_TIER);
+        metadata.put(MinioStorageService.STORED_SIZE_METADATA, String.valueOf(stat.size()));
+        metadata.put(MinioStorageService.ORIGINAL_SIZE_METADATA, String.valueOf(minioStorageService.logicalSize(stat)));
+        String codec = MinioStorageService.metadataValue(stat.userMetadata(), MinioStorageService.CODEC_METADATA);
+        if (codec != null) {
+            metadata.put(MinioStorageService.CODEC_METADATA, codec);
+        }
+        // The file may have been replaced while it was copied; the new version stays in the fast tier.
+        if (!storageTiers.writeStub(location, stat.etag(), stat.contentType(), metadata)) {
+            storageTiers.remove(storageTiers.capacityLocation(logicalKey));
+            return false;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> objectAccessStatsRepository.markTier(
+                candidate.userId(), candidate.path(), StorageTiers.Tier.CAPACITY.name(), Instant.now()));
+        storageTiers.recordTransition(StorageTiers.Tier.CAPACITY);
+        log.debug("Demoted {} ({} bytes) to the capacity tier", logicalKey, stat.size());
+        return true;
+    }
+
+    private void promote(Long userId, String path) throws Exception {
+        String logicalKey = getUserFolder(userId) + path;
+        ObjectLocation location = minioStorageService.writeLocation(logicalKey);
+
+        StatObjectResponse stub;
+        try {
+            stub = minioStorageService.statPhysical(location);
+        } catch (Exception e) {
+            if (!(e instanceof ErrorResponseException error) || !"NoSuchKey".equals(error.errorResponse().code())) {
+                throw e;
+            }
+            stub = null;
+        }
+
+        if (stub != null && minioStorageService.isStub(stub.userMetadata())) {
+            if (storageTiers.copyOut(logicalKey, location, stub.etag())) {
+                storageTiers.remove(storageTiers.capacityLocation(logicalKey));
+                objectDiskCache.evict(logicalKey);
+                storageTiers.recordTransition(StorageTiers.Tier.FAST);
+                log.debug("Promoted {} to the fast tier", logicalKey);
+            } else if (!minioStorageService.isStub(minioStorageService.statPhysical(location).userMetadata())) {
+                // The file was written over its stub meanwhile; the new version is in the fast tier already.
+                storageTiers.remove(storageTiers.capacityLocation(logicalKey));
+            } else {
+                return;
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> objectAccessStatsRepository.markTier(
+                userId, path, StorageTiers.Tier.FAST.name(), Instant.now()));
+    }
+
+    private boolean claim(String key, Duration interval) {
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, nodeId, interval.multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private static void add(long[] usage, long size) {
+        usage[0]++;
+        usage[1] += size;
+    }
+
+    private static boolean sameEtag(String a, String b) {
+        return a != null && b != null && a.replace("\"", "").equals(b.replace("\"", ""));
+    }
+
+    private record Candidate(Long userId, String path, ObjectLocation location, String etag) {
+    }
+}
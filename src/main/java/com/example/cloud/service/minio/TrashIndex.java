@@ -0,0 +1,71 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.TrashEntry;
+import com.example.cloud.model.properties.TrashProperties;
+import com.example.cloud.repository.TrashEntryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Knows which of a user's paths are deleted but still stored in place, so reads can hide them and writes can be
+ * refused until the trash relocator has moved them away. The per-user list is cached for
+ * {@code trash.cache-ttl}, which is why the relocator leaves new entries alone for twice as long.
+ */
+@Component
+public class TrashIndex {
+
+    private static final Pattern LOGICAL_KEY = Pattern.compile("^user-(\\d+)-files/(.*)$", Pattern.DOTALL);
+
+    private final TrashEntryRepository trashEntryRepository;
+    private final Cache<Long, List<String>> hiddenPaths;
+
+    public TrashIndex(TrashEntryRepository trashEntryRepository, TrashProperties properties) {
+        this.trashEntryRepository = trashEntryRepository;
+        this.hiddenPaths = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+    }
+
+    public boolean isHidden(String logicalKey) {
+        Predicate<String> filter = hiddenFilter(logicalKey);
+        return filter != null && filter.test(logicalKey);
+    }
+
+    /**
+     * Returns a test for logical keys of the same user as {@code logicalKey}, or null when nothing of theirs is hidden.
+     */
+    public Predicate<String> hiddenFilter(String logicalKey) {
+        Matcher matcher = LOGICAL_KEY.matcher(logicalKey);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Long userId = Long.valueOf(matcher.group(1));
+        List<String> paths = hiddenPaths.get(userId, id -> trashEntryRepository.findPathsByUserIdAndStateIn(
+                id, EnumSet.of(TrashEntry.State.PENDING, TrashEntry.State.RELOCATING)));
+        if (paths.isEmpty()) {
+            return null;
+        }
+        int rootLength = logicalKey.length() - matcher.group(2).length();
+        return key -> {
+            String relative = key.substring(rootLength);
+            for (String path : paths) {
+                if (path.endsWith("/") ? relative.startsWith(path) : relative.equals(path)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    public void evict(Long userId) {
+        hiddenPaths.invalidate(userId);
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.TrashConflictException;
+import com.example.cloud.model.dto.response.TrashEntryDto;
+import com.example.cloud.model.entity.DirectoryStats;
+import com.example.cloud.model.entity.TrashEntry;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.TrashProperties;
+import com.example.cloud.repository.TrashEntryRepository;
+import com.example.cloud.util.TokenBucket;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileNotFoundException;
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.example.cloud.util.PathUtils.normalizeDirectoryPath;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Deletes into a trash bin. Deleting only inserts a tombstone row, which hides the path from every read at once.
+ * The relocator then moves the objects under {@code user-{id}-trash/{entry id}/}, outside the user's folder, so the
+ * path can be reused; until then writes to it are refused. Expired entries are purged with multi-object deletes,
+ * both jobs throttled to {@code trash.objects-per-second}.
+ */
+@Slf4j
+@Service
+public class TrashService {
+
+    private static final String RELOCATE_CLAIM_KEY = "trash:relocate";
+    private static final String PURGE_CLAIM_KEY = "trash:purge";
+
+    private final TrashEntryRepository trashEntryRepository;
+    private final TrashIndex trashIndex;
+    private final MinioStorageService minioStorageService;
+    private final DirectoryStatsService directoryStatsService;
+    private final TrashProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public TrashService(TrashEntryRepository trashEntryRepository,
+                        TrashIndex trashIndex,
+                        MinioStorageService minioStorageService,
+                        DirectoryStatsService directoryStatsService,
+                        TrashProperties properties,
+                        TransactionTemplate transactionTemplate,
+                        StringRedisTemplate redisTemplate,
+                        ApplicationEventPublisher eventPublisher) {
+        this.trashEntryRepository = trashEntryRepository;
+        this.trashIndex = trashIndex;
+        this.minioStorageService = minioStorageService;
+        this.directoryStatsService = directoryStatsService;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Moves a file or directory to the trash. Only checks that it exists and records a tombstone.
+     */
+    @SneakyThrows
+    public TrashEntryDto trash(Long userId, String path) {
+        boolean directory = path.endsWith("/");
+        String relativePath = directory ? normalizeDirectoryPath(path) : path;
+        String fullPath = getUserFolder(userId) + relativePath;
+
+        long size;
+        if (directory) {
+            if (!minioStorageService.listObjects(fullPath, false).iterator().hasNext()) {
+                throw new FileNotFoundException("Directory " + path + " not found");
+            }
+            size = directoryStatsService.getStats(userId, relativePath).map(DirectoryStats::getTotalSize).orElse(0L);
+        } else {
+            try {
+                size = minioStorageService.logicalSize(minioStorageService.statObject(fullPath));
+            } catch (Exception e) {
+                throw new FileNotFoundException("File " + path + " not found");
+            }
+        }
+
+        Instant now = Instant.now();
+        TrashEntry entry = trashEntryRepository.save(new TrashEntry(null, userId, relativePath, size,
+                TrashEntry.State.PENDING, now, now.plus(properties.getRetention()), now));
+        trashIndex.evict(userId);
+        eventPublisher.publishEvent(ResourceChangedEvent.deleted(userId, relativePath, size));
+        log.info("Moved {} of user {} to the trash as entry {}", relativePath, userId, entry.getId());
+        return toDto(entry);
+    }
+
+    public List<TrashEntryDto> list(Long userId) {
+        return trashEntryRepository.findByUserIdOrderByDeletedAtDesc(userId).stream()
+                .map(TrashService::toDto)
+                .toList();
+    }
+
+    /**
+     * Puts an entry back at its original path. An entry that was not relocated yet only loses its tombstone;
+     * a relocated one is copied back and fails if the path has been reused in the meantime.
+     */
+    @SneakyThrows
+    public void restore(Long userId, Long entryId) {
+        TrashEntry entry = trashEntryRepository.findByIdAndUserId(entryId, userId)
+                .orElseThrow(() -> new FileNotFoundException("Trash entry " + entryId + " not found"));
+
+        switch (entry.getState()) {
+            case PENDING -> {
+                Integer removed = transactionTemplate.execute(status ->
+                        trashEntryRepository.deleteByIdAndState(entryId, TrashEntry.State.PENDING));
+                if (removed == null || removed == 0) {
+                    throw new TrashConflictException("Trash entry " + entryId + " is being moved, try again shortly");
+                }
+                trashIndex.evict(userId);
+            }
+            case RELOCATING -> throw new TrashConflictException("Trash entry " + entryId + " is being moved, try again shortly");
+            case TRASHED -> restoreRelocated(entry);
+        }
+
+        publishRestored(entry);
+        log.info("Restored trash entry {} of user {} to {}", entryId, userId, entry.getPath());
+    }
+
+    /**
+     * Marks one entry, or the whole trash when {@code entryId} is null, for purging on the next run.
+     */
+    @SneakyThrows
+    public void purge(Long userId, Long entryId) {
+        Integer expired = transactionTemplate.execute(status ->
+                trashEntryRepository.expireNow(userId, entryId, Instant.now()));
+        if (entryId != null && (expired == null || expired == 0)) {
+            throw new FileNotFoundException("Trash entry " + entryId + " not found");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trash.relocate-interval:10s}", initialDelayString = "PT30S")
+    public void relocatePending() {
+        if (!claim(RELOCATE_CLAIM_KEY, properties.getRelocateInterval())) {
+            return;
+        }
+        // Entries younger than twice the index cache lifetime may still be unknown to some nodes.
+        Instant settled = Instant.now().minus(properties.getCacheTtl().multipliedBy(2));
+        List<TrashEntry> entries = trashEntryRepository.findToRelocate(
+                EnumSet.of(TrashEntry.State.PENDING, TrashEntry.State.RELOCATING), settled,
+                PageRequest.of(0, properties.getEntriesPerRun()));
+
+        TokenBucket rateLimit = new TokenBucket(properties.getObjectsPerSecond(), Duration.ofSeconds(1));
+        for (TrashEntry entry : entries) {
+            try {
+                relocate(entry, rateLimit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to move trash entry {} of user {}, will retry: {}",
+                        entry.getId(), entry.getUserId(), e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trash.purge-interval:10m}", initialDelayString = "PT2M")
+    public void purgeExpired() {
+        if (!claim(PURGE_CLAIM_KEY, properties.getPurgeInterval())) {
+            return;
+        }
+        List<TrashEntry> entries = trashEntryRepository.findExpired(TrashEntry.State.TRASHED, Instant.now(),
+                PageRequest.of(0, properties.getEntriesPerRun()));
+
+        TokenBucket rateLimit = new TokenBucket(properties.getObjectsPerSecond(), Duration.ofSeconds(1));
+        long removedObjects = 0;
+        for (TrashEntry entry : entries) {
+            try {
+                List<String> keys = new ArrayList<>();
+                minioStorageService.listAllObjects(trashRoot(entry), true).forEach(object -> keys.add(object.objectName()));
+                removedObjects += removeThrottled(keys, rateLimit);
+                trashEntryRepository.deleteById(entry.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to purge trash entry {} of user {}: {}", entry.getId(), entry.getUserId(), e.getMessage());
+            }
+        }
+        if (!entries.isEmpty()) {
+            log.info("Purged {} trash entries, {} objects", entries.size(), removedObjects);
+        }
+    }
+
+    private void relocate(TrashEntry entry, TokenBucket rateLimit) throws InterruptedException {
+        Integer claimed = transactionTemplate.execute(status -> trashEntryRepository.transition(
+                entry.getId(), TrashEntry.State.RELOCATING, entry.getUpdatedAt(), Instant.now()));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        String source = getUserFolder(entry.getUserId()) + entry.getPath();
+        String target = trashRoot(entry);
+        List<String> moved = new ArrayList<>();
+        for (StoredObject object : minioStorageService.listAllObjects(source, true)) {
+            // A file entry's prefix also matches longer names in the same directory.
+            if (!entry.isDirectory() && !object.objectName().equals(source)) {
+                continue;
+            }
+            throttle(rateLimit, 1);
+            String relative = entry.isDirectory() ? object.objectName().substring(source.length()) : fileName(entry.getPath());
+            minioStorageService.copyObject(object.objectName(), target + relative);
+            moved.add(object.objectName());
+        }
+        removeThrottled(moved, null);
+
+        transactionTemplate.executeWithoutResult(status -> trashEntryRepository.findById(entry.getId()).ifPresent(row ->
+                trashEntryRepository.transition(row.getId(), TrashEntry.State.TRASHED, row.getUpdatedAt(), Instant.now())));
+        trashIndex.evict(entry.getUserId());
+        log.debug("Moved trash entry {} of user {} out of its path, {} objects", entry.getId(), entry.getUserId(), moved.size());
+    }
+
+    private void restoreRelocated(TrashEntry entry) throws Exception {
+        String target = getUserFolder(entry.getUserId()) + entry.getPath();
+        boolean occupied = entry.isDirectory()
+                ? minioStorageService.listObjects(target, false).iterator().hasNext()
+                : minioStorageService.objectExists(target);
+        if (occupied) {
+            throw new FileAlreadyExistsException("Path " + entry.getPath() + " is already in use");
+        }
+
+        String source = trashRoot(entry);
+        List<String> restored = new ArrayList<>();
+        for (StoredObject object : minioStorageService.listAllObjects(source, true)) {
+            String destination = entry.isDirectory() ? target + object.objectName().substring(source.length()) : target;
+            minioStorageService.copyObject(object.objectName(), destination);
+            restored.add(object.objectName());
+        }
+        removeThrottled(restored, null);
+        trashEntryRepository.deleteById(entry.getId());
+    }
+
+    /**
+     * A directory comes back with all its content, so every file in it is announced, the same way listeners
+     * would see the files being uploaded one by one.
+     */
+    private void publishRestored(TrashEntry entry) {
+        Long userId = entry.getUserId();
+        eventPublisher.publishEvent(ResourceChangedEvent.created(userId, entry.getPath(), entry.getSize()));
+        if (!entry.isDirectory()) {
+            return;
+        }
+        String userFolder = getUserFolder(userId);
+        for (StoredObject object : minioStorageService.listObjects(userFolder + entry.getPath(), true)) {
+            String path = object.objectName().substring(userFolder.length());
+            if (path.equals(entry.getPath())) {
+                continue;
+            }
+            long size = path.endsWith("/") ? 0 : minioStorageService.logicalSize(object);
+            eventPublisher.publishEvent(ResourceChangedEvent.created(userId, path, size));
+        }
+    }
+
+    private long removeThrottled(List<String> keys, TokenBucket rateLimit) throws InterruptedException {
+        int chunkSize = properties.getDeleteChunkSize();
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<String> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+            if (rateLimit != null) {
+                throttle(rateLimit, chunk.size());
+            }
+            Map<String, String> failures = minioStorageService.removeObjects(chunk, chunkSize);
+            if (!failures.isEmpty()) {
+                throw new IllegalStateException(failures.size() + " objects could not be removed, first: "
+                        + failures.entrySet().iterator().next());
+            }
+        }
+        return keys.size();
+    }
+
+    private static void throttle(TokenBucket rateLimit, long objects) throws InterruptedException {
+        Duration wait = rateLimit.consume(objects);
+        if (!wait.isZero()) {
+            Thread.sleep(wait.toMillis());
+        }
+    }
+
+    private boolean claim(String key, Duration interval) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, nodeId, interval.multipliedBy(9).dividedBy(10));
+        return Boolean.TRUE.equals(claimed);
+    }
+
+    private static String trashRoot(TrashEntry entry) {
+        return "user-" + entry.getUserId() + "-trash/" + entry.getId() + "/";
+    }
+
+    private static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static TrashEntryDto toDto(TrashEntry entry) {
+        return new TrashEntryDto(entry.getId(), entry.getPath(), entry.getSize(), entry.getState() == TrashEntry.State.TRASHED,
+                entry.getDeletedAt(), entry.getExpiresAt());
+    }
+}
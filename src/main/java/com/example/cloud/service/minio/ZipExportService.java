@@ -0,0 +1,554 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.ExportChangedException;
+import com.example.cloud.exception.ExportNotReadyException;
+import com.example.cloud.model.dto.response.ZipExportDto;
+import com.example.cloud.model.entity.ZipExport;
+import com.example.cloud.model.entity.ZipExportEntry;
+import com.example.cloud.model.properties.ExportProperties;
+import com.example.cloud.repository.ZipExportEntryRepository;
+import com.example.cloud.repository.ZipExportRepository;
+import com.example.cloud.util.StreamTransfer;
+import com.example.cloud.util.ZipLayout;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import static com.example.cloud.util.PathUtils.extractFileName;
+import static com.example.cloud.util.PathUtils.normalizeDirectoryPath;
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Resumable zip exports of large directories. Creating an export takes a sorted snapshot of the directory's
+ * files, from which the archive's exact bytes and offsets are known up front (see {@link ZipLayout}), so a
+ * download can continue from any offset with a Range request and never has to read earlier files again.
+ * <p>
+ * The only values that depend on content are the CRCs in each entry's data descriptor and in the central
+ * directory. A background job reads the files once after the export is created and records their CRCs, with
+ * checkpoints every {@code export.checkpoint-interval} so a job stopped inside a large file resumes from the last
+ * one. Until it is done, downloads answer 503 with Retry-After. Content is checked against the etag seen at
+ * creation and an export of a directory that changed since is refused with 409.
+ */
+@Slf4j
+@Service
+public class ZipExportService {
+
+    private static final String EXPORT_PATH = "/api/resource/export/";
+    private static final int TOKEN_BYTES = 18;
+    private static final int PENDING_PER_RUN = 100;
+    private static final String CLAIM_KEY = "export:crc:";
+    private static final Duration CLAIM_TTL = Duration.ofMinutes(2);
+
+    private final ZipExportRepository zipExportRepository;
+    private final ZipExportEntryRepository zipExportEntryRepository;
+    private final MinioStorageService minioStorageService;
+    private final StreamTransfer streamTransfer;
+    private final ExportProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate redisTemplate;
+    private final ExecutorService crcExecutor;
+    private final Cache<Long, Snapshot> snapshots;
+    private final Set<Long> computing = ConcurrentHashMap.newKeySet();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final SecureRandom random = new SecureRandom();
+
+    public ZipExportService(ZipExportRepository zipExportRepository,
+                            ZipExportEntryRepository zipExportEntryRepository,
+                            MinioStorageService minioStorageService,
+                            StreamTransfer streamTransfer,
+                            ExportProperties properties,
+                            TransactionTemplate transactionTemplate,
+                            StringRedisTemplate redisTemplate,
+                            @Qualifier("backgroundTaskExecutor") ExecutorService crcExecutor) {
+        this.zipExportRepository = zipExportRepository;
+        this.zipExportEntryRepository = zipExportEntryRepository;
+        this.minioStorageService = minioStorageService;
+        this.streamTransfer = streamTransfer;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.redisTemplate = redisTemplate;
+        this.crcExecutor = crcExecutor;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(properties.getLayoutCacheEntries())
+                .weigher((Long id, Snapshot snapshot) -> snapshot.entries().size())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    @SneakyThrows
+    public ZipExportDto create(Long userId, String path) {
+        String directory = normalizeDirectoryPath(path);
+        String fullPath = normalizeDirectoryPath(getUserFolder(userId) + path);
+
+        List<StoredObject> files = new ArrayList<>();
+        boolean exists = false;
+        for (StoredObject item : minioStorageService.listObjects(fullPath, true)) {
+            exists = true;
+            if (item.isDir() || item.objectName().length() == fullPath.length()) {
+                continue;
+            }
+            if (files.size() >= properties.getMaxEntries()) {
+                throw new IllegalArgumentException("Folder " + path + " has more than " + properties.getMaxEntries()
+                        + " files, export its subfolders separately");
+            }
+            files.add(item);
+        }
+        if (!exists) {
+            throw new FileNotFoundException("Directory " + path + " not found");
+        }
+        files.sort(Comparator.comparing(StoredObject::objectName));
+
+        List<ZipExportEntry> entries = new ArrayList<>(files.size());
+        for (StoredObject item : files) {
+            long size = minioStorageService.logicalSize(item);
+            entries.add(new ZipExportEntry(null, null, entries.size(),
+                    item.objectName().substring(fullPath.length()),
+                    size,
+                    minioStorageService.isStub(item.userMetadata()) ? null : unquote(item.etag()),
+                    minioStorageService.isCompressed(item),
+                    item.lastModified() == null ? null : item.lastModified().toInstant(),
+                    size == 0 ? 0L : null));
+        }
+        ZipLayout layout = layout(entries);
+        ZipExport.State state = entries.stream().allMatch(entry -> entry.getCrc() != null)
+                ? ZipExport.State.READY
+                : ZipExport.State.PENDING;
+
+        Instant now = Instant.now();
+        ZipExport export = transactionTemplate.execute(status -> {
+            ZipExport saved = zipExportRepository.save(new ZipExport(null, newToken(), userId, directory,
+                    layout.size(), entries.size(), now, now.plus(properties.getTtl()), state));
+            entries.forEach(entry -> entry.setExportId(saved.getId()));
+            zipExportEntryRepository.insertAll(entries);
+            return saved;
+        });
+        log.info("User {} prepared an export of {}: {} files, {} bytes", userId, directory, entries.size(), layout.size());
+        if (state == ZipExport.State.PENDING) {
+            scheduleCrcs(export.getId());
+        }
+        return toDto(export);
+    }
+
+    /**
+     * Streams the archive, or the single byte range asked for with 206.
+     */
+    @SneakyThrows
+    public StreamingResponseBody download(Long userId, String token, HttpServletRequest request,
+                                          HttpServletResponse response) {
+        ZipExport export = zipExportRepository.findByTokenAndUserId(token, userId)
+                .filter(candidate -> candidate.getExpiresAt().isAfter(Instant.now()))
+                .orElseThrow(() -> new FileNotFoundException("Export not found or expired"));
+        switch (export.getState()) {
+            case PENDING -> throw new ExportNotReadyException("Export of " + export.getPath()
+                    + " is still being prepared, try again later", properties.getRetryAfter());
+            case CHANGED -> throw new ExportChangedException("Files of " + export.getPath()
+                    + " changed after the export was prepared, prepare a new export");
+            case READY -> {
+            }
+        }
+        Snapshot snapshot = snapshots.get(export.getId(), id -> {
+            List<ZipExportEntry> entries = zipExportEntryRepository.findByExportIdOrderByEntryIndex(id);
+            return new Snapshot(entries, layout(entries));
+        });
+        long size = snapshot.layout().size();
+        String etag = "\"" + export.getToken() + "\"";
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName(export) + ".zip\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, export.getCreatedAt().toEpochMilli());
+
+        long start = 0;
+        long end = size - 1;
+        HttpRange range = resolveRange(request, etag);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                start = size;
+            }
+            if (start >= size || start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.setContentLength(0);
+                return null;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        response.setContentLengthLong(end - start + 1);
+
+        ExportStream stream = new ExportStream(export, snapshot.entries(), snapshot.layout());
+        long from = start;
+        long to = end + 1;
+        stream.checkUnchanged(from, to);
+        return outputStream -> {
+            stream.write(from, to, outputStream);
+            log.info("Export {} of {} streamed from {} to {}", export.getId(), export.getPath(), from, to);
+        };
+    }
+
+    /**
+     * Picks up exports whose CRCs are still unknown because their job was rejected by a full queue, failed, or
+     * stopped with its node.
+     */
+    @Scheduled(fixedDelayString = "${export.crc-interval:1m}", initialDelayString = "PT1M")
+    public void schedulePendingCrcs() {
+        zipExportRepository.findPendingIds(Instant.now(), PENDING_PER_RUN).forEach(this::scheduleCrcs);
+    }
+
+    @Scheduled(fixedDelayString = "${export.cleanup-interval:1h}", initialDelayString = "PT10M")
+    public void deleteExpired() {
+        Integer deleted = transactionTemplate.execute(status -> zipExportRepository.deleteExpired(Instant.now()));
+        if (deleted != null && deleted > 0) {
+            log.info("Deleted {} expired zip exports", deleted);
+        }
+    }
+
+    private void scheduleCrcs(Long exportId) {
+        if (!computing.add(exportId)) {
+            return;
+        }
+        try {
+            crcExecutor.execute(() -> {
+                try {
+                    computeCrcs(exportId);
+                } finally {
+                    computing.remove(exportId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            computing.remove(exportId);
+            log.debug("CRC queue is full, export {} is picked up by the next run", exportId);
+        }
+    }
+
+    /**
+     * Reads every file of the export whose CRC is not recorded yet, then marks the export ready, or changed when a
+     * file no longer has the etag it had at creation.
+     */
+    void computeCrcs(Long exportId) {
+        if (!claim(exportId)) {
+            return;
+        }
+        try {
+            ZipExport export = zipExportRepository.findById(exportId).orElse(null);
+            if (export == null || export.getState() != ZipExport.State.PENDING) {
+                return;
+            }
+            String directoryPath = directoryPath(export);
+            long started = System.nanoTime();
+            long lastRefresh = started;
+            for (ZipExportEntry entry : zipExportEntryRepository.findByExportIdOrderByEntryIndex(exportId)) {
+                if (entry.getCrc() != null) {
+                    continue;
+                }
+                long crc = entryCrc(export, directoryPath, entry);
+                transactionTemplate.executeWithoutResult(status ->
+                        zipExportEntryRepository.updateCrc(exportId, entry.getEntryIndex(), crc));
+                if (System.nanoTime() - lastRefresh > CLAIM_TTL.toNanos() / 4) {
+                    refreshClaim(exportId);
+                    lastRefresh = System.nanoTime();
+                }
+            }
+            finish(exportId, ZipExport.State.READY);
+            log.info("CRCs of export {} of {} computed in {} ms", exportId, export.getPath(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (ExportChangedException e) {
+            finish(exportId, ZipExport.State.CHANGED);
+            log.info("Export {} is stale: {}", exportId, e.getMessage());
+        } catch (Exception e) {
+            log.warn("Failed to compute CRCs of export {}, retrying later: {}", exportId, e.getMessage());
+        } finally {
+            release(exportId);
+        }
+    }
+
+    /**
+     * CRC of the whole entry, read from its last checkpoint and recording new ones on the way.
+     */
+    private long entryCrc(ZipExport export, String directoryPath, ZipExportEntry entry) throws IOException {
+        long size = entry.getSize();
+        long offset = 0;
+        long prefixCrc = 0;
+        ZipExportEntryRepository.Checkpoint checkpoint = zipExportEntryRepository
+                .findCheckpoint(export.getId(), entry.getEntryIndex(), size).orElse(null);
+        if (checkpoint != null) {
+            offset = checkpoint.getLength();
+            prefixCrc = checkpoint.getCrc();
+        }
+        if (offset == size) {
+            return prefixCrc;
+        }
+
+        long interval = properties.getCheckpointInterval().toBytes();
+        CRC32 crc = new CRC32();
+        long lastRefresh = System.nanoTime();
+        try (InputStream inputStream = new CheckedInputStream(
+                open(export, directoryPath, entry, offset, size - offset), crc)) {
+            long position = offset;
+            while (true) {
+                long boundary = Math.min(size, (position / interval + 1) * interval);
+                copyFully(export, entry, inputStream, OutputStream.nullOutputStream(), boundary - position);
+                position = boundary;
+                long value = ZipLayout.combineCrc(prefixCrc, crc.getValue(), position - offset);
+                if (position == size) {
+                    return value;
+                }
+                long length = position;
+                transactionTemplate.executeWithoutResult(status ->
+                        zipExportEntryRepository.saveCheckpoint(export.getId(), entry.getEntryIndex(), length, value));
+                if (System.nanoTime() - lastRefresh > CLAIM_TTL.toNanos() / 4) {
+                    refreshClaim(export.getId());
+                    lastRefresh = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private void finish(Long exportId, ZipExport.State state) {
+        transactionTemplate.executeWithoutResult(status -> zipExportRepository.finish(exportId, state.name()));
+    }
+
+    private boolean claim(Long exportId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(CLAIM_KEY + exportId, nodeId, CLAIM_TTL));
+    }
+
+    private void refreshClaim(Long exportId) {
+        if (!nodeId.equals(redisTemplate.opsForValue().get(CLAIM_KEY + exportId))) {
+            throw new IllegalStateException("Lost the CRC claim on export " + exportId);
+        }
+        redisTemplate.expire(CLAIM_KEY + exportId, CLAIM_TTL);
+    }
+
+    private void release(Long exportId) {
+        try {
+            if (nodeId.equals(redisTemplate.opsForValue().get(CLAIM_KEY + exportId))) {
+                redisTemplate.delete(CLAIM_KEY + exportId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to release the CRC claim on export {}, it expires in {}", exportId, CLAIM_TTL);
+        }
+    }
+
+    private InputStream open(ZipExport export, String directoryPath, ZipExportEntry entry, long offset, long length)
+            throws IOException {
+        String objectPath = directoryPath + entry.getName();
+        if (entry.isCompressed()) {
+            GetObjectResponse object = checkEtag(export, entry, minioStorageService.getRawObject(objectPath));
+            InputStream decoded = minioStorageService.decode(object);
+            decoded.skipNBytes(offset);
+            return decoded;
+        }
+        return checkEtag(export, entry, offset == 0 && length == entry.getSize()
+                ? minioStorageService.getRawObject(objectPath)
+                : minioStorageService.getRawObject(objectPath, offset, length));
+    }
+
+    private static GetObjectResponse checkEtag(ZipExport export, ZipExportEntry entry, GetObjectResponse object)
+            throws IOException {
+        String etag = unquote(object.headers().get(HttpHeaders.ETAG));
+        if (entry.getEtag() != null && etag != null && !entry.getEtag().equals(etag)) {
+            object.close();
+            throw changed(export, entry);
+        }
+        return object;
+    }
+
+    private void copyFully(ZipExport export, ZipExportEntry entry, InputStream inputStream, OutputStream outputStream,
+                           long length) throws IOException {
+        if (streamTransfer.copy(inputStream, outputStream, length) < length) {
+            throw changed(export, entry);
+        }
+    }
+
+    private static ExportChangedException changed(ZipExport export, ZipExportEntry entry) {
+        return new ExportChangedException("File " + entry.getName() + " of " + export.getPath()
+                + " changed after the export was prepared, prepare a new export");
+    }
+
+    private static ZipLayout layout(List<ZipExportEntry> entries) {
+        return new ZipLayout(entries.stream()
+                .map(entry -> new ZipLayout.Entry(entry.getName(), entry.getSize(), entry.getLastModified()))
+                .toList());
+    }
+
+    private static String directoryPath(ZipExport export) {
+        return normalizeDirectoryPath(getUserFolder(export.getUserId()) + export.getPath());
+    }
+
+    private static String archiveName(ZipExport export) {
+        return export.getPath().equals("/") ? "files" : extractFileName(export.getPath());
+    }
+
+    private static HttpRange resolveRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static ZipExportDto toDto(ZipExport export) {
+        return new ZipExportDto(export.getPath(), EXPORT_PATH + export.getToken(), export.getSize(),
+                export.getEntryCount(), export.getCreatedAt(), export.getExpiresAt(),
+                export.getState() == ZipExport.State.READY);
+    }
+
+    /**
+     * Entries of a ready export with their layout, kept so a client resuming a download does not reload and
+     * re-lay out every entry on each request.
+     */
+    private record Snapshot(List<ZipExportEntry> entries, ZipLayout layout) {
+    }
+
+    /**
+     * Writes byte ranges of one ready export.
+     */
+    private final class ExportStream {
+
+        private final ZipExport export;
+        private final List<ZipExportEntry> entries;
+        private final ZipLayout layout;
+        private final String directoryPath;
+
+        private ExportStream(ZipExport export, List<ZipExportEntry> entries, ZipLayout layout) {
+            this.export = export;
+            this.entries = entries;
+            this.layout = layout;
+            this.directoryPath = directoryPath(export);
+        }
+
+        /**
+         * Checks the first file the range reads, so a stale export fails with an error before any bytes are sent.
+         */
+        void checkUnchanged(long from, long to) {
+            if (from >= layout.centralDirectoryOffset()) {
+                return;
+            }
+            for (int i = layout.entryAt(from); i < entries.size() && layout.localHeaderOffset(i) < to; i++) {
+                if (entries.get(i).getSize() > 0 && layout.dataDescriptorOffset(i) > from) {
+                    ZipExportEntry entry = entries.get(i);
+                    StatObjectResponse stat;
+                    try {
+                        stat = minioStorageService.statObject(directoryPath + entry.getName());
+                    } catch (Exception e) {
+                        throw changed(export, entry);
+                    }
+                    if (entry.getEtag() != null && !entry.getEtag().equals(unquote(stat.etag()))) {
+                        throw changed(export, entry);
+                    }
+                    return;
+                }
+            }
+        }
+
+        void write(long from, long to, OutputStream outputStream) throws IOException {
+            long position = from;
+            if (position < layout.centralDirectoryOffset()) {
+                for (int i = layout.entryAt(position); i < entries.size() && position < to; i++) {
+                    position = writeEntry(i, position, to, outputStream);
+                }
+            }
+            if (position < to && position < layout.endOffset()) {
+                for (int i = layout.centralRecordAt(position); i < entries.size() && position < to; i++) {
+                    position += writeSlice(layout.centralRecord(i, crc(i)), layout.centralRecordOffset(i),
+                            position, to, outputStream);
+                }
+            }
+            if (position < to) {
+                writeSlice(layout.end(), layout.endOffset(), position, to, outputStream);
+            }
+        }
+
+        private long writeEntry(int index, long position, long to, OutputStream outputStream) throws IOException {
+            long dataOffset = layout.dataOffset(index);
+            long descriptorOffset = layout.dataDescriptorOffset(index);
+            if (position < dataOffset) {
+                position += writeSlice(layout.localHeader(index), layout.localHeaderOffset(index),
+                        position, to, outputStream);
+            }
+            if (position < to && position < descriptorOffset) {
+                long until = Math.min(to, descriptorOffset) - dataOffset;
+                ZipExportEntry entry = entries.get(index);
+                long from = position - dataOffset;
+                try (InputStream inputStream = open(export, directoryPath, entry, from, until - from)) {
+                    copyFully(export, entry, inputStream, outputStream, until - from);
+                }
+                position = dataOffset + until;
+            }
+            if (position < to) {
+                position += writeSlice(layout.dataDescriptor(index, crc(index)), descriptorOffset,
+                        position, to, outputStream);
+            }
+            return position;
+        }
+
+        private long crc(int index) {
+            return Objects.requireNonNull(entries.get(index).getCrc(), "CRC of a ready export");
+        }
+
+        private static long writeSlice(byte[] bytes, long bytesOffset, long position, long to,
+                                       OutputStream outputStream) throws IOException {
+            int from = (int) (position - bytesOffset);
+            int length = (int) Math.min(bytes.length - from, to - position);
+            outputStream.write(bytes, from, length);
+            return length;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cloud.service.minio.layout;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maps a user's logical key space ({@code user-{id}-files/...}) onto buckets and physical keys.
+ */
+public interface KeyLayout {
+
+    String name();
+
+    String bucket(Long userId);
+
+    String userRoot(Long userId);
+
+    List<String> buckets();
+
+    /**
+     * Parses a physical key back into its owner and the key relative to the owner's root.
+     */
+    Optional<RelativeKey> parse(String bucket, String physicalKey);
+
+    default ObjectLocation locate(Long userId, String relativeKey) {
+        return new ObjectLocation(bucket(userId), userRoot(userId) + relativeKey);
+    }
+
+    record RelativeKey(Long userId, String key) {
+    }
+}
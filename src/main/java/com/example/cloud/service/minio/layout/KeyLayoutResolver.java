@@ -0,0 +1,150 @@
+package com.example.cloud.service.minio.layout;
+
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.model.properties.StorageLayoutProperties;
+import com.example.cloud.repository.UserStorageLayoutRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The single place that turns logical keys ({@code user-{id}-files/...}) into physical bucket and key pairs.
+ * Users without a stored layout are on the legacy layout. The per-user placement is cached briefly, which is why
+ * migrations wait for {@code storage.layout.cache-ttl} before moving any data.
+ */
+@Slf4j
+@Service
+public class KeyLayoutResolver {
+
+    private static final Pattern LOGICAL_KEY = Pattern.compile("^user-(\\d+)-files/(.*)$", Pattern.DOTALL);
+
+    private final UserStorageLayoutRepository userStorageLayoutRepository;
+    private final StorageLayoutProperties properties;
+    private final KeyLayout legacyLayout;
+    private final Map<String, KeyLayout> layouts = new LinkedHashMap<>();
+    private final Cache<Long, Placement> placements;
+
+    public KeyLayoutResolver(UserStorageLayoutRepository userStorageLayoutRepository,
+                             StorageLayoutProperties properties,
+                             MinioProperties minioProperties) {
+        this.userStorageLayoutRepository = userStorageLayoutRepository;
+        this.properties = properties;
+        this.legacyLayout = new LegacyKeyLayout(minioProperties.getBucket());
+        layouts.put(LegacyKeyLayout.NAME, legacyLayout);
+        List<String> shardedBuckets = properties.getBuckets().stream().filter(bucket -> !bucket.isBlank()).toList();
+        layouts.put(ShardedKeyLayout.NAME, new ShardedKeyLayout(shardedBuckets.isEmpty()
+                ? List.of(minioProperties.getBucket())
+                : shardedBuckets));
+        layout(properties.getDefaultLayout());
+        this.placements = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+    }
+
+    public KeyLayout layout(String name) {
+        KeyLayout layout = layouts.get(name);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unknown key layout " + name);
+        }
+        return layout;
+    }
+
+    public KeyLayout defaultLayout() {
+        return layout(properties.getDefaultLayout());
+    }
+
+    public Placement placement(Long userId) {
+        return placements.get(userId, id -> userStorageLayoutRepository.findById(id)
+                .map(row -> new Placement(layout(row.getLayout()),
+                        row.getTargetLayout() != null ? layout(row.getTargetLayout()) : null))
+                .orElse(new Placement(legacyLayout, null)));
+    }
+
+    /**
+     * Where a new version of the logical key must be written.
+     */
+    public ObjectLocation writeLocation(String logicalKey) {
+        return readLocations(logicalKey).get(0);
+    }
+
+    /**
+     * Where the logical key may currently live, in the order reads should try them.
+     */
+    public List<ObjectLocation> readLocations(String logicalKey) {
+        Matcher matcher = LOGICAL_KEY.matcher(logicalKey);
+        if (!matcher.matches()) {
+            return List.of(new ObjectLocation(legacyLayout.bucket(null), logicalKey));
+        }
+        Long userId = Long.valueOf(matcher.group(1));
+        String relativeKey = matcher.group(2);
+        List<ObjectLocation> locations = new ArrayList<>(2);
+        for (KeyLayout layout : placement(userId).readLayouts()) {
+            locations.add(layout.locate(userId, relativeKey));
+        }
+        return locations;
+    }
+
+    /**
+     * Maps a physical key from any known layout back to its logical key.
+     */
+    public Optional<String> toLogical(String bucket, String physicalKey) {
+        return toRelative(bucket, physicalKey)
+                .map(relative -> legacyLayout.userRoot(relative.userId()) + relative.key());
+    }
+
+    /**
+     * Maps a physical key from any known layout to its owner and the key relative to the owner's root.
+     */
+    public Optional<KeyLayout.RelativeKey> toRelative(String bucket, String physicalKey) {
+        for (KeyLayout layout : layouts.values()) {
+            Optional<KeyLayout.RelativeKey> relative = layout.parse(bucket, physicalKey);
+            if (relative.isPresent()) {
+                return relative;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Set<String> buckets() {
+        Set<String> buckets = new LinkedHashSet<>();
+        layouts.values().forEach(layout -> buckets.addAll(layout.buckets()));
+        return buckets;
+    }
+
+    /**
+     * Records the default layout for a newly registered user.
+     */
+    @Transactional
+    public void assign(Long userId) {
+        userStorageLayoutRepository.insertIfAbsent(userId, properties.getDefaultLayout());
+        placements.invalidate(userId);
+    }
+
+    public void evict(Long userId) {
+        placements.invalidate(userId);
+    }
+
+    public record Placement(KeyLayout current, KeyLayout target) {
+
+        public boolean migrating() {
+            return target != null;
+        }
+
+        public List<KeyLayout> readLayouts() {
+            return migrating() ? List.of(target, current) : List.of(current);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.cloud.service.minio.layout;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * The original layout: every user under {@code user-{id}-files/} in the single configured bucket.
+ */
+public class LegacyKeyLayout implements KeyLayout {
+
+    public static final String NAME = "legacy";
+
+    private static final Pattern KEY = Pattern.compile("^user-(\\d+)-files/(.*)$", Pattern.DOTALL);
+
+    private final String bucket;
+
+    public LegacyKeyLayout(String bucket) {
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String bucket(Long userId) {
+        return bucket;
+    }
+
+    @Override
+    public String userRoot(Long userId) {
+        return getUserFolder(userId);
+    }
+
+    @Override
+    public List<String> buckets() {
+        return List.of(bucket);
+    }
+
+    @Override
+    public Optional<RelativeKey> parse(String bucket, String physicalKey) {
+        if (!this.bucket.equals(bucket)) {
+            return Optional.empty();
+        }
+        Matcher matcher = KEY.matcher(physicalKey);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(new RelativeKey(Long.valueOf(matcher.group(1)), matcher.group(2)));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cloud.service.minio.layout;
+
+/**
+ * Physical placement of an object or prefix: the bucket and the key inside it.
+ */
+public record ObjectLocation(String bucket, String key) {
+}
@@ -0,0 +1,81 @@
+package com.example.cloud.service.minio.layout;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.example.cloud.util.UserContext.getUserFolder;
+
+/**
+ * Spreads users over several buckets by a hash of the user id, and prefixes every user root with a two hex digit
+ * shard ({@code 3f/user-{id}-files/}) so that no single prefix carries the load of all users.
+ */
+public class ShardedKeyLayout implements KeyLayout {
+
+    public static final String NAME = "sharded";
+
+    private static final Pattern KEY = Pattern.compile("^([0-9a-f]{2})/user-(\\d+)-files/(.*)$", Pattern.DOTALL);
+
+    private final List<String> buckets;
+
+    public ShardedKeyLayout(List<String> buckets) {
+        if (buckets.isEmpty()) {
+            throw new IllegalArgumentException("Sharded layout needs at least one bucket");
+        }
+        this.buckets = List.copyOf(buckets);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String bucket(Long userId) {
+        return buckets.get(Math.floorMod(hash(userId), buckets.size()));
+    }
+
+    @Override
+    public String userRoot(Long userId) {
+        return shard(userId) + "/" + getUserFolder(userId);
+    }
+
+    @Override
+    public List<String> buckets() {
+        return buckets;
+    }
+
+    @Override
+    public Optional<RelativeKey> parse(String bucket, String physicalKey) {
+        if (!buckets.contains(bucket)) {
+            return Optional.empty();
+        }
+        Matcher matcher = KEY.matcher(physicalKey);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        Long userId = Long.valueOf(matcher.group(2));
+        if (!matcher.group(1).equals(shard(userId)) || !bucket.equals(bucket(userId))) {
+            return Optional.empty();
+        }
+        return Optional.of(new RelativeKey(userId, matcher.group(3)));
+    }
+
+    static String shard(Long userId) {
+        return String.format("%02x", (hash(userId) >>> 8) & 0xff);
+    }
+
+    /**
+     * Stable 32-bit mix of the id (murmur3 finalizer), so neighbouring ids land in different buckets and shards.
+     */
+    static int hash(Long userId) {
+        long h = userId;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.cloud.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Observes JSON serialization of response bodies as {@code response.serialize}, with the number of elements of a
+ * collection body and the bytes written.
+ */
+public class ObservedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final ObservationRegistry observationRegistry;
+
+    public ObservedJacksonHttpMessageConverter(ObjectMapper objectMapper, ObservationRegistry observationRegistry) {
+        super(objectMapper);
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Observation observation = Observation.createNotStarted("response.serialize", observationRegistry);
+        if (object instanceof Collection<?> collection) {
+            observation.highCardinalityKeyValue("objects", String.valueOf(collection.size()));
+        }
+        observation.start();
+        CountingOutputMessage counting = new CountingOutputMessage(outputMessage);
+        try (Observation.Scope scope = observation.openScope()) {
+            super.writeInternal(object, type, counting);
+        } catch (IOException | RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.highCardinalityKeyValue("bytes", String.valueOf(counting.bytes()));
+            observation.stop();
+        }
+    }
+
+    private static final class CountingOutputMessage implements HttpOutputMessage {
+
+        private final HttpOutputMessage delegate;
+        private CountingOutputStream body;
+
+        private CountingOutputMessage(HttpOutputMessage delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingOutputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        private long bytes() {
+            return body == null ? 0 : body.count;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.cloud.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One finished or running observation of a trace. Spans of a trace share the root's span list, so the whole
+ * tree is available when the root stops and the sampling decision is made.
+ */
+final class RecordedSpan {
+
+    final String traceId;
+    final String spanId;
+    final RecordedSpan parent;
+    final List<RecordedSpan> spans;
+    final String name;
+    final long startEpochNanos;
+    final long startNanos;
+    final Map<String, String> attributes = new LinkedHashMap<>();
+    volatile long endNanos;
+    volatile String error;
+
+    private RecordedSpan(String traceId, RecordedSpan parent, List<RecordedSpan> spans, String name,
+                         long startEpochNanos, long startNanos) {
+        this.traceId = traceId;
+        this.spanId = randomHex(8);
+        this.parent = parent;
+        this.spans = spans;
+        this.name = name;
+        this.startEpochNanos = startEpochNanos;
+        this.startNanos = startNanos;
+    }
+
+    static RecordedSpan root(String name) {
+        return new RecordedSpan(randomHex(16), null, new CopyOnWriteArrayList<>(), name,
+                System.currentTimeMillis() * 1_000_000, System.nanoTime());
+    }
+
+    RecordedSpan child(String name) {
+        long now = System.nanoTime();
+        RecordedSpan root = root();
+        return new RecordedSpan(traceId, this, spans, name, root.startEpochNanos + (now - root.startNanos), now);
+    }
+
+    RecordedSpan root() {
+        RecordedSpan span = this;
+        while (span.parent != null) {
+            span = span.parent;
+        }
+        return span;
+    }
+
+    long durationNanos() {
+        return endNanos == 0 ? 0 : endNanos - startNanos;
+    }
+
+    long endEpochNanos() {
+        return startEpochNanos + durationNanos();
+    }
+
+    private static String randomHex(int bytes) {
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            hex.append(String.format("%02x", ThreadLocalRandom.current().nextInt(256)));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cloud.tracing;
+
+import com.example.cloud.model.properties.TracingProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes kept traces as OTLP/JSON, one trace per line, to {@code tracing.file} and/or posts them to a local
+ * collector at {@code tracing.otlp-endpoint}; with neither configured they go to the {@code traces} logger.
+ * Export runs on one background thread with a bounded queue, and traces are dropped when it is full.
+ */
+@Slf4j
+@Component
+public class TraceExporter {
+
+    private static final org.slf4j.Logger TRACES = org.slf4j.LoggerFactory.getLogger("traces");
+
+    private final TracingProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    public TraceExporter(TracingProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getExportQueueSize()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "trace-export");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    void export(RecordedSpan root) {
+        try {
+            executor.execute(() -> write(root));
+        } catch (RejectedExecutionException e) {
+            log.debug("Trace export queue is full, dropping trace {}", root.traceId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void write(RecordedSpan root) {
+        try {
+            String json = objectMapper.writeValueAsString(toOtlp(root));
+            boolean exported = false;
+            if (properties.getFile() != null && !properties.getFile().isBlank()) {
+                Files.writeString(Path.of(properties.getFile()), json + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                exported = true;
+            }
+            if (properties.getOtlpEndpoint() != null && !properties.getOtlpEndpoint().isBlank()) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(properties.getOtlpEndpoint()))
+                        .timeout(Duration.ofSeconds(5))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build();
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 300) {
+                    log.debug("Collector answered {} for trace {}", response.statusCode(), root.traceId);
+                }
+                exported = true;
+            }
+            if (!exported) {
+                TRACES.info(json);
+            }
+        } catch (IOException e) {
+            log.debug("Failed to export trace {}: {}", root.traceId, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> toOtlp(RecordedSpan root) {
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (RecordedSpan span : root.spans) {
+            Map<String, Object> otlpSpan = new LinkedHashMap<>();
+            otlpSpan.put("traceId", span.traceId);
+            otlpSpan.put("spanId", span.spanId);
+            if (span.parent != null) {
+                otlpSpan.put("parentSpanId", span.parent.spanId);
+            }
+            otlpSpan.put("name", span.name);
+            otlpSpan.put("kind", span.parent == null ? 2 : 1);
+            otlpSpan.put("startTimeUnixNano", String.valueOf(span.startEpochNanos));
+            otlpSpan.put("endTimeUnixNano", String.valueOf(span.endEpochNanos()));
+            otlpSpan.put("attributes", attributes(span.attributes));
+            if (span.error != null) {
+                otlpSpan.put("status", Map.of("code", 2, "message", span.error));
+            }
+            spans.add(otlpSpan);
+        }
+        return Map.of("resourceSpans", List.of(Map.of(
+                "resource", Map.of("attributes", attributes(Map.of("service.name", properties.getServiceName()))),
+                "scopeSpans", List.of(Map.of(
+                        "scope", Map.of("name", "com.example.cloud"),
+                        "spans", spans)))));
+    }
+
+    private static List<Map<String, Object>> attributes(Map<String, String> values) {
+        List<Map<String, Object>> attributes = new ArrayList<>(values.size());
+        values.forEach((key, value) -> attributes.add(Map.of("key", key, "value", Map.of("stringValue", value))));
+        return attributes;
+    }
+}
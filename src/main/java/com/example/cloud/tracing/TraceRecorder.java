@@ -0,0 +1,90 @@
+package com.example.cloud.tracing;
+
+import com.example.cloud.model.properties.TracingProperties;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records every observation as a span and decides whether to keep a trace only once its root stops: traces
+ * slower than {@code tracing.slow-threshold} or ending in an error are always exported, the rest with
+ * probability {@code tracing.sample-ratio}.
+ */
+@Component
+public class TraceRecorder implements ObservationHandler<Observation.Context> {
+
+    private final TracingProperties properties;
+    private final TraceExporter exporter;
+
+    public TraceRecorder(TracingProperties properties, TraceExporter exporter) {
+        this.properties = properties;
+        this.exporter = exporter;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        RecordedSpan parent = parentSpan(context);
+        String name = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        RecordedSpan span = parent == null ? RecordedSpan.root(name) : parent.child(name);
+        if (span.spans.size() >= properties.getMaxSpansPerTrace()) {
+            return;
+        }
+        span.spans.add(span);
+        context.put(RecordedSpan.class, span);
+    }
+
+    @Override
+    public void onError(Observation.Context context) {
+        RecordedSpan span = context.get(RecordedSpan.class);
+        if (span != null && context.getError() != null) {
+            span.error = context.getError().getClass().getSimpleName();
+        }
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        RecordedSpan span = context.get(RecordedSpan.class);
+        if (span == null) {
+            return;
+        }
+        for (KeyValue keyValue : context.getAllKeyValues()) {
+            span.attributes.put(keyValue.getKey(), keyValue.getValue());
+        }
+        span.endNanos = System.nanoTime();
+
+        if (span.parent == null && shouldKeep(span)) {
+            exporter.export(span);
+        }
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    private boolean shouldKeep(RecordedSpan root) {
+        if (root.error != null || root.durationNanos() >= properties.getSlowThreshold().toNanos()) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextDouble() < properties.getSampleRatio();
+    }
+
+    private static RecordedSpan parentSpan(Observation.Context context) {
+        ObservationView parent = context.getParentObservation();
+        while (parent != null) {
+            RecordedSpan span = parent.getContextView().get(RecordedSpan.class);
+            if (span != null) {
+                return span;
+            }
+            parent = parent.getContextView().getParentObservation();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.cloud.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pull-based gzip encoder: reading from this stream yields the gzip encoding of the source,
+ * produced chunk by chunk so the whole payload is never held in memory.
+ */
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream(CHUNK_SIZE);
+    private final GZIPOutputStream gzip;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private byte[] pending = new byte[0];
+    private int position;
+    private boolean finished;
+
+    public GzipCompressingInputStream(InputStream source) throws IOException {
+        this.source = source;
+        this.gzip = new GZIPOutputStream(encoded, CHUNK_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position >= pending.length) {
+            if (finished) {
+                return -1;
+            }
+            fill();
+        }
+        int count = Math.min(len, pending.length - position);
+        System.arraycopy(pending, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            gzip.close();
+        }
+    }
+
+    private void fill() throws IOException {
+        int read = source.read(chunk);
+        if (read == -1) {
+            gzip.finish();
+            finished = true;
+        } else {
+            gzip.write(chunk, 0, read);
+        }
+        pending = encoded.toByteArray();
+        encoded.reset();
+        position = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.cloud.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks the top-level boxes (atoms) of an ISO base media file, reading only their headers.
+ */
+public final class Mp4Boxes {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int LARGE_HEADER_SIZE = 16;
+
+    private Mp4Boxes() {
+    }
+
+    @FunctionalInterface
+    public interface HeaderReader {
+        /**
+         * Returns up to {@code length} bytes starting at {@code offset}.
+         */
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    public record Box(String type, long offset, long size) {
+    }
+
+    /**
+     * Returns the first top-level box of the given type, or {@code null} if the file does not have one within
+     * {@code maxBoxes} boxes or is not laid out as boxes at all.
+     */
+    public static Box find(HeaderReader reader, long fileSize, String type, int maxBoxes) throws IOException {
+        long offset = 0;
+        for (int i = 0; i < maxBoxes && offset + HEADER_SIZE <= fileSize; i++) {
+            byte[] header = reader.read(offset, (int) Math.min(LARGE_HEADER_SIZE, fileSize - offset));
+            if (header.length < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            long size = Integer.toUnsignedLong(buffer.getInt());
+            String boxType = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+            int headerSize = HEADER_SIZE;
+            if (size == 1) {
+                if (header.length < LARGE_HEADER_SIZE) {
+                    return null;
+                }
+                size = buffer.getLong(HEADER_SIZE);
+                headerSize = LARGE_HEADER_SIZE;
+            } else if (size == 0) {
+                size = fileSize - offset;
+            }
+            if (size < headerSize || offset + size > fileSize) {
+                return null;
+            }
+            if (boxType.equals(type)) {
+                return new Box(boxType, offset, size);
+            }
+            offset += size;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cloud.util;
+
+/**
+ * The rsync weak checksum: two 16-bit sums packed into an int. It can be rolled one byte forward in constant time,
+ * which lets a client find blocks of the stored file at any offset of its local copy.
+ */
+public final class RollingChecksum {
+
+    private RollingChecksum() {
+    }
+
+    public static int of(byte[] data, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int value = data[offset + i] & 0xFF;
+            a += value;
+            b += (length - i) * value;
+        }
+        return pack(a, b);
+    }
+
+    /**
+     * Checksum of the window moved one byte forward: {@code removed} leaves it and {@code added} enters it.
+     */
+    public static int roll(int checksum, int length, byte removed, byte added) {
+        int out = removed & 0xFF;
+        int a = (checksum & 0xFFFF) - out + (added & 0xFF);
+        int b = (checksum >>> 16) - length * out + a;
+        return pack(a, b);
+    }
+
+    private static int pack(int a, int b) {
+        return (a & 0xFFFF) | ((b & 0xFFFF) << 16);
+    }
+}
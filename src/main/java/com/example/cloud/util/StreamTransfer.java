@@ -0,0 +1,49 @@
+package com.example.cloud.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Copies streams through large, pooled heap buffers instead of the 8KB buffer of {@link InputStream#transferTo},
+ * so each read and write moves up to a whole buffer and long downloads don't allocate a buffer per request.
+ */
+public class StreamTransfer {
+
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> pool;
+
+    public StreamTransfer(int bufferSize, int poolSize) {
+        this.bufferSize = bufferSize;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    public long copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        return copy(inputStream, outputStream, Long.MAX_VALUE);
+    }
+
+    public long copy(InputStream inputStream, OutputStream outputStream, long limit) throws IOException {
+        byte[] buffer = acquire();
+        long transferred = 0;
+        try {
+            while (transferred < limit) {
+                int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, limit - transferred));
+                if (read == -1) {
+                    break;
+                }
+                outputStream.write(buffer, 0, read);
+                transferred += read;
+            }
+            return transferred;
+        } finally {
+            pool.offer(buffer);
+        }
+    }
+
+    private byte[] acquire() {
+        byte[] buffer = pool.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.cloud.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the content of simple document formats into plain words for indexing.
+ */
+public final class TextExtractor {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final Pattern MARKDOWN_LINK = Pattern.compile("!?\\[([^\\]]*)]\\(([^)]*)\\)");
+    private static final Pattern MARKDOWN_SYNTAX = Pattern.compile("[#*_`>|~]+|^\\s*[-+]\\s+|^\\s*\\d+\\.\\s+",
+            Pattern.MULTILINE);
+    private static final Pattern CSV_SEPARATORS = Pattern.compile("[\",;\\t]+");
+
+    private TextExtractor() {
+    }
+
+    /**
+     * Extracts text by file extension, or returns {@code null} for formats that are not supported.
+     * Truncated JSON still yields the text read before the cut.
+     */
+    public static String extract(String fileName, String content) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        String text = switch (extension) {
+            case "txt", "log", "text" -> content;
+            case "md", "markdown" -> markdown(content);
+            case "csv", "tsv" -> CSV_SEPARATORS.matcher(content).replaceAll(" ");
+            case "json" -> json(content);
+            default -> null;
+        };
+        // Postgres text cannot hold NUL characters.
+        return text == null ? null : text.replace('\u0000', ' ');
+    }
+
+    static String markdown(String content) {
+        String text = MARKDOWN_LINK.matcher(content).replaceAll("$1 $2");
+        return MARKDOWN_SYNTAX.matcher(text).replaceAll(" ");
+    }
+
+    /**
+     * Field names and scalar values, one per line.
+     */
+    static String json(String content) {
+        StringBuilder text = new StringBuilder(content.length() / 2);
+        try (JsonParser parser = JSON.createParser(content)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME || token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    text.append(parser.getText()).append('\n');
+                }
+            }
+        } catch (IOException e) {
+            // Keep what was read before the malformed or truncated part.
+        }
+        return text.toString();
+    }
+}
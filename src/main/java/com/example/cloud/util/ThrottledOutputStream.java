@@ -0,0 +1,52 @@
+package com.example.cloud.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+
+/**
+ * Paces writes by a token bucket of bytes, which may be shared by several streams to cap their combined rate.
+ */
+public class ThrottledOutputStream extends FilterOutputStream {
+
+    private static final int MAX_CHUNK = 64 * 1024;
+
+    private final TokenBucket bytes;
+
+    public ThrottledOutputStream(OutputStream out, TokenBucket bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        pace(1);
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int chunk = Math.min(len, MAX_CHUNK);
+            pace(chunk);
+            out.write(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    private void pace(int amount) throws InterruptedIOException {
+        Duration wait = bytes.consume(amount);
+        if (wait.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(wait.toMillis(), wait.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling");
+        }
+    }
+}
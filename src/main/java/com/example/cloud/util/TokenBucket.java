@@ -0,0 +1,49 @@
+package com.example.cloud.util;
+
+import java.time.Duration;
+
+public class TokenBucket {
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(long capacity, Duration refillPeriod) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) capacity / refillPeriod.toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized boolean tryConsume(long amount) {
+        refill();
+        if (tokens >= amount) {
+            tokens -= amount;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the tokens even if that drives the balance negative, and returns how long the caller
+     * should wait before the balance is back at zero.
+     */
+    public synchronized Duration consume(long amount) {
+        refill();
+        tokens -= amount;
+        return tokens >= 0 ? Duration.ZERO : Duration.ofNanos((long) (-tokens / tokensPerNano));
+    }
+
+    public synchronized Duration timeUntilAvailable(long amount) {
+        refill();
+        double missing = Math.min(amount, capacity) - tokens;
+        return missing <= 0 ? Duration.ZERO : Duration.ofNanos((long) (missing / tokensPerNano));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
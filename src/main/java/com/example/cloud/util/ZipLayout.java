@@ -0,0 +1,353 @@
+package com.example.cloud.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Byte layout of a zip archive of stored (uncompressed) entries, known before any content is read. Every entry
+ * sets the data descriptor flag, so its local header carries no CRC and the CRC is only needed for the
+ * descriptor after the data and for the central directory. Entries, offsets and counts beyond the classic
+ * limits are written as ZIP64.
+ */
+public final class ZipLayout {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_COUNT_MAGIC = 0xFFFF;
+    private static final short ZIP64_EXTRA = 0x0001;
+    private static final short VERSION_DEFAULT = 20;
+    private static final short VERSION_ZIP64 = 45;
+    private static final short FLAGS = 0x0008 | 0x0800;
+    private static final int DOS_DIRECTORY = 0x10;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+    private static final int ZIP64_END_LENGTH = 56;
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+    private static final int END_LENGTH = 22;
+
+    private final byte[][] names;
+    private final long[] sizes;
+    private final int[] dosTimes;
+    private final long[] localHeaderOffsets;
+    private final long[] centralRecordOffsets;
+    private final long centralDirectoryOffset;
+    private final long endOffset;
+    private final long size;
+
+    public record Entry(String name, long size, Instant lastModified) {
+    }
+
+    public ZipLayout(List<Entry> entries) {
+        int count = entries.size();
+        names = new byte[count][];
+        sizes = new long[count];
+        dosTimes = new int[count];
+        localHeaderOffsets = new long[count];
+        centralRecordOffsets = new long[count];
+
+        long position = 0;
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+            names[i] = entry.name().getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > 0xFFFF) {
+                throw new IllegalArgumentException("Entry name is too long: " + entry.name());
+            }
+            if (entry.size() < 0) {
+                throw new IllegalArgumentException("Negative size of " + entry.name());
+            }
+            sizes[i] = entry.size();
+            dosTimes[i] = dosTime(entry.lastModified());
+            localHeaderOffsets[i] = position;
+            position += localHeaderLength(i) + sizes[i] + dataDescriptorLength(i);
+        }
+        centralDirectoryOffset = position;
+        for (int i = 0; i < count; i++) {
+            centralRecordOffsets[i] = position;
+            position += CENTRAL_HEADER_LENGTH + names[i].length + centralExtraLength(i);
+        }
+        endOffset = position;
+        size = endOffset + endLength();
+    }
+
+    public int entryCount() {
+        return sizes.length;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long entrySize(int index) {
+        return sizes[index];
+    }
+
+    public long localHeaderOffset(int index) {
+        return localHeaderOffsets[index];
+    }
+
+    public long dataOffset(int index) {
+        return localHeaderOffsets[index] + localHeaderLength(index);
+    }
+
+    public long dataDescriptorOffset(int index) {
+        return dataOffset(index) + sizes[index];
+    }
+
+    public long centralDirectoryOffset() {
+        return centralDirectoryOffset;
+    }
+
+    public long centralRecordOffset(int index) {
+        return centralRecordOffsets[index];
+    }
+
+    public long endOffset() {
+        return endOffset;
+    }
+
+    /**
+     * The entry whose local header, data or descriptor contains the offset, which must be before the central
+     * directory.
+     */
+    public int entryAt(long offset) {
+        return floorIndex(localHeaderOffsets, offset);
+    }
+
+    /**
+     * The central directory record containing the offset, which must be inside the central directory.
+     */
+    public int centralRecordAt(long offset) {
+        return floorIndex(centralRecordOffsets, offset);
+    }
+
+    public byte[] localHeader(int index) {
+        boolean zip64 = isLarge(sizes[index]);
+        ByteBuffer buffer = buffer(localHeaderLength(index));
+        buffer.putInt(LOCAL_HEADER)
+                .putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT)
+                .putShort(FLAGS)
+                .putShort((short) 0)
+                .putInt(dosTimes[index])
+                .putInt(0)
+                .putInt(zip64 ? (int) ZIP64_MAGIC : 0)
+                .putInt(zip64 ? (int) ZIP64_MAGIC : 0)
+                .putShort((short) names[index].length)
+                .putShort((short) (zip64 ? 20 : 0))
+                .put(names[index]);
+        if (zip64) {
+            // Sizes follow in the data descriptor; this extra field only tells readers it has 8-byte sizes.
+            buffer.putShort(ZIP64_EXTRA).putShort((short) 16).putLong(0).putLong(0);
+        }
+        return buffer.array();
+    }
+
+    public byte[] dataDescriptor(int index, long crc) {
+        ByteBuffer buffer = buffer(dataDescriptorLength(index));
+        buffer.putInt(DATA_DESCRIPTOR).putInt((int) crc);
+        if (isLarge(sizes[index])) {
+            buffer.putLong(sizes[index]).putLong(sizes[index]);
+        } else {
+            buffer.putInt((int) sizes[index]).putInt((int) sizes[index]);
+        }
+        return buffer.array();
+    }
+
+    public byte[] centralRecord(int index, long crc) {
+        boolean largeSize = isLarge(sizes[index]);
+        boolean largeOffset = isLarge(localHeaderOffsets[index]);
+        int extraLength = centralExtraLength(index);
+        ByteBuffer buffer = buffer(CENTRAL_HEADER_LENGTH + names[index].length + extraLength);
+        buffer.putInt(CENTRAL_HEADER)
+                .putShort(VERSION_ZIP64)
+                .putShort(extraLength > 0 || largeSize ? VERSION_ZIP64 : VERSION_DEFAULT)
+                .putShort(FLAGS)
+                .putShort((short) 0)
+                .putInt(dosTimes[index])
+                .putInt((int) crc)
+                .putInt((int) (largeSize ? ZIP64_MAGIC : sizes[index]))
+                .putInt((int) (largeSize ? ZIP64_MAGIC : sizes[index]))
+                .putShort((short) names[index].length)
+                .putShort((short) extraLength)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putInt(isDirectory(index) ? DOS_DIRECTORY : 0)
+                .putInt((int) (largeOffset ? ZIP64_MAGIC : localHeaderOffsets[index]))
+                .put(names[index]);
+        if (extraLength > 0) {
+            buffer.putShort(ZIP64_EXTRA).putShort((short) (extraLength - 4));
+            if (largeSize) {
+                buffer.putLong(sizes[index]).putLong(sizes[index]);
+            }
+            if (largeOffset) {
+                buffer.putLong(localHeaderOffsets[index]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The end of central directory record, preceded by its ZIP64 variant and locator when needed.
+     */
+    public byte[] end() {
+        long centralDirectorySize = endOffset - centralDirectoryOffset;
+        int count = entryCount();
+        boolean zip64 = needsZip64End();
+        ByteBuffer buffer = buffer(endLength());
+        if (zip64) {
+            buffer.putInt(ZIP64_END)
+                    .putLong(ZIP64_END_LENGTH - 12)
+                    .putShort(VERSION_ZIP64)
+                    .putShort(VERSION_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(count)
+                    .putLong(count)
+                    .putLong(centralDirectorySize)
+                    .putLong(centralDirectoryOffset);
+            buffer.putInt(ZIP64_LOCATOR)
+                    .putInt(0)
+                    .putLong(endOffset)
+                    .putInt(1);
+        }
+        buffer.putInt(END)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) (count >= ZIP64_COUNT_MAGIC ? ZIP64_COUNT_MAGIC : count))
+                .putShort((short) (count >= ZIP64_COUNT_MAGIC ? ZIP64_COUNT_MAGIC : count))
+                .putInt((int) (isLarge(centralDirectorySize) ? ZIP64_MAGIC : centralDirectorySize))
+                .putInt((int) (isLarge(centralDirectoryOffset) ? ZIP64_MAGIC : centralDirectoryOffset))
+                .putShort((short) 0);
+        return buffer.array();
+    }
+
+    /**
+     * CRC-32 of two blocks of data one after the other, from the CRC of each and the length of the second,
+     * as zlib's {@code crc32_combine}. It lets a CRC be carried on from a checkpoint without the earlier bytes.
+     */
+    public static long combineCrc(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+
+        long crc = crc1;
+        long length = length2;
+        do {
+            square(even, odd);
+            if ((length & 1) != 0) {
+                crc = times(even, crc);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length & 1) != 0) {
+                crc = times(odd, crc);
+            }
+            length >>= 1;
+        } while (length != 0);
+        return (crc ^ crc2) & 0xFFFFFFFFL;
+    }
+
+    private int localHeaderLength(int index) {
+        return LOCAL_HEADER_LENGTH + names[index].length + (isLarge(sizes[index]) ? 20 : 0);
+    }
+
+    private int dataDescriptorLength(int index) {
+        return isLarge(sizes[index]) ? 24 : 16;
+    }
+
+    private int centralExtraLength(int index) {
+        int length = (isLarge(sizes[index]) ? 16 : 0) + (isLarge(localHeaderOffsets[index]) ? 8 : 0);
+        return length == 0 ? 0 : length + 4;
+    }
+
+    private int endLength() {
+        return (needsZip64End() ? ZIP64_END_LENGTH + ZIP64_LOCATOR_LENGTH : 0) + END_LENGTH;
+    }
+
+    private boolean needsZip64End() {
+        return entryCount() >= ZIP64_COUNT_MAGIC
+                || isLarge(endOffset - centralDirectoryOffset)
+                || isLarge(centralDirectoryOffset);
+    }
+
+    private boolean isDirectory(int index) {
+        return names[index].length > 0 && names[index][names[index].length - 1] == '/';
+    }
+
+    private static boolean isLarge(long value) {
+        return value >= ZIP64_MAGIC;
+    }
+
+    private static int floorIndex(long[] offsets, long offset) {
+        int index = Arrays.binarySearch(offsets, offset);
+        return index >= 0 ? index : Math.max(0, -index - 2);
+    }
+
+    private static ByteBuffer buffer(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * MS-DOS date and time in UTC, so the archive is the same whichever node builds it.
+     */
+    private static int dosTime(Instant instant) {
+        LocalDateTime time = instant == null ? null : LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+        if (time == null || time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        if (time.getYear() > 2107) {
+            time = LocalDateTime.of(2107, 12, 31, 23, 59, 58);
+        }
+        return (time.getYear() - 1980) << 25
+                | time.getMonthValue() << 21
+                | time.getDayOfMonth() << 16
+                | time.getHour() << 11
+                | time.getMinute() << 5
+                | time.getSecond() >> 1;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        long remaining = vector;
+        while (remaining != 0) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            remaining >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.cloud.benchmark;
+
+import com.example.cloud.model.properties.SessionNearCacheProperties;
+import com.example.cloud.model.properties.UserCacheProperties;
+import com.example.cloud.performance.PerformanceTestBase;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Measures the per-request cost of session and authentication plumbing on the cheapest authenticated
+ * endpoint, with and without the session near-cache. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class AuthOverheadBenchmarkTest extends PerformanceTestBase {
+
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 500);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5_000);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SessionNearCacheProperties nearCacheProperties;
+
+    @Autowired
+    private UserCacheProperties userCacheProperties;
+
+    @Test
+    void authenticatedRequestOverhead() throws Exception {
+        Cookie session = signUp("benchmark-user", "benchmark-password");
+
+        nearCacheProperties.setEnabled(false);
+        long[] redisSession = measure(session);
+
+        nearCacheProperties.setEnabled(true);
+        long[] nearCache = measure(session);
+
+        report("redis session", redisSession);
+        report("near-cache", nearCache);
+        assertThat(nearCache).hasSize(ITERATIONS);
+    }
+
+    @Test
+    void signInOverhead() throws Exception {
+        signUp("benchmark-login", "benchmark-password");
+        int iterations = Math.max(1, ITERATIONS / 50);
+
+        userCacheProperties.setEnabled(false);
+        long[] database = measureSignIn(iterations);
+
+        userCacheProperties.setEnabled(true);
+        long[] cached = measureSignIn(iterations);
+
+        report("sign-in, user from db", database);
+        report("sign-in, cached user", cached);
+        assertThat(cached).hasSize(iterations);
+    }
+
+    private Cookie signUp(String username, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/sign-up")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(credentials(username, password)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return result.getResponse().getCookie("SESSION");
+    }
+
+    private long[] measure(Cookie session) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mockMvc.perform(get("/api/user/me").cookie(session)).andExpect(status().isOk());
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            mockMvc.perform(get("/api/user/me").cookie(session)).andExpect(status().isOk());
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    private long[] measureSignIn(int iterations) throws Exception {
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            mockMvc.perform(post("/api/auth/sign-in")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(credentials("benchmark-login", "benchmark-password")))
+                    .andExpect(status().isOk());
+            samples[i] = System.nanoTime() - start;
+        }
+        return samples;
+    }
+
+    private static String credentials(String username, String password) {
+        return "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}";
+    }
+
+    private static void report(String name, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-24s n=%d p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms%n",
+                name, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.cloud.benchmark;
+
+import com.redis.testcontainers.RedisContainer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the packaged application as a separate JVM and reports the time from launch until the first request
+ * is answered, and the resident memory at that moment, for the default configuration and the {@code prod}
+ * profile. With {@code -Dbenchmark.startup.cds-archive=<file>} a run with that class data sharing archive is
+ * added, and with {@code -Dbenchmark.startup.aot=true} one with ahead-of-time initialization (the jar must be
+ * built with {@code -Paot}). Build the jar first, then run with {@code mvn test -Pbenchmark
+ * -Dtest=StartupBenchmarkTest}.
+ */
+@Tag("benchmark")
+public class StartupBenchmarkTest {
+
+    private static final int RUNS = Integer.getInteger("benchmark.startup.runs", 3);
+    private static final Duration TIMEOUT = Duration.ofSeconds(Long.getLong("benchmark.startup.timeout-seconds", 120));
+    private static final Path JAR = Path.of(System.getProperty("benchmark.startup.jar", "target/cloud-0.0.1-SNAPSHOT.jar"));
+    private static final String CDS_ARCHIVE = System.getProperty("benchmark.startup.cds-archive", "");
+    private static final boolean AOT = Boolean.getBoolean("benchmark.startup.aot");
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    static final RedisContainer redis = new RedisContainer(
+            RedisContainer.DEFAULT_IMAGE_NAME.withTag(RedisContainer.DEFAULT_TAG));
+
+    static final MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    @BeforeAll
+    static void startServices() {
+        postgres.start();
+        redis.start();
+        minio.start();
+    }
+
+    @AfterAll
+    static void stopServices() {
+        minio.stop();
+        redis.stop();
+        postgres.stop();
+    }
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        assertThat(JAR).as("packaged application, build it with mvn package").exists();
+
+        // The first start applies the migrations, so the profiles that skip them find the schema in place.
+        List<Variant> variants = new ArrayList<>();
+        variants.add(new Variant("default", List.of(), List.of()));
+        variants.add(new Variant("prod", List.of(), List.of("--spring.profiles.active=prod")));
+        if (!CDS_ARCHIVE.isBlank()) {
+            variants.add(new Variant("prod + cds", List.of("-XX:SharedArchiveFile=" + CDS_ARCHIVE),
+                    List.of("--spring.profiles.active=prod")));
+        }
+        if (AOT) {
+            variants.add(new Variant("prod + aot", List.of("-Dspring.aot.enabled=true"),
+                    List.of("--spring.profiles.active=prod")));
+        }
+
+        for (Variant variant : variants) {
+            long[] startMillis = new long[RUNS];
+            long[] rssKilobytes = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                Sample sample = start(variant);
+                startMillis[run] = sample.millis();
+                rssKilobytes[run] = sample.rssKilobytes();
+            }
+            report(variant.name(), startMillis, rssKilobytes);
+            assertThat(startMillis).hasSize(RUNS);
+        }
+    }
+
+    private Sample start(Variant variant) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmArgs());
+        command.add("-jar");
+        command.add(JAR.toAbsolutePath().toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=" + postgres.getJdbcUrl());
+        command.add("--spring.datasource.username=" + postgres.getUsername());
+        command.add("--spring.datasource.password=" + postgres.getPassword());
+        command.add("--spring.data.redis.host=" + redis.getRedisHost());
+        command.add("--spring.data.redis.port=" + redis.getRedisPort());
+        command.addAll(variant.args());
+
+        Path log = Files.createTempFile("startup-benchmark", ".log");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(Map.of(
+                "MINIO_URL", minio.getS3URL(),
+                "MINIO_ACCESS_KEY", minio.getUserName(),
+                "MINIO_SECRET_KEY", minio.getPassword(),
+                "MINIO_BUCKET", "startup-benchmark"));
+
+        long launched = System.nanoTime();
+        Process process = builder.start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                    .timeout(Duration.ofSeconds(5))
+                    .build();
+            long deadline = launched + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+                        return new Sample(millis, residentKilobytes(process.pid()));
+                    }
+                } catch (IOException e) {
+                    // Not listening yet.
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Application did not answer within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * {@code VmRSS} of the process in kilobytes, or -1 where {@code /proc} is not available.
+     */
+    private static long residentKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> line.replaceAll("\\D", ""))
+                .mapToLong(Long::parseLong)
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void report(String name, long[] startMillis, long[] rssKilobytes) {
+        long[] sortedStart = startMillis.clone();
+        long[] sortedRss = rssKilobytes.clone();
+        Arrays.sort(sortedStart);
+        Arrays.sort(sortedRss);
+        System.out.printf("%-16s n=%d first request median=%dms min=%dms max=%dms rss median=%.1fMB%n",
+                name, sortedStart.length,
+                sortedStart[sortedStart.length / 2], sortedStart[0], sortedStart[sortedStart.length - 1],
+                sortedRss[sortedRss.length / 2] / 1024.0);
+    }
+
+    private record Variant(String name, List<String> jvmArgs, List<String> args) {
+    }
+
+    private record Sample(long millis, long rssKilobytes) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.cloud.performance;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes scenario results as JSON and compares them against a previously written report.
+ */
+class PerformanceReport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final PerformanceSettings settings;
+    private final Map<String, ScenarioResult> results = new LinkedHashMap<>();
+
+    PerformanceReport(PerformanceSettings settings) {
+        this.settings = settings;
+    }
+
+    void add(ScenarioResult result) {
+        results.put(result.name(), result);
+    }
+
+    void write() throws IOException {
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        results.forEach((name, result) -> scenarios.put(name, result.toReport()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings.toString());
+        report.put("scenarios", scenarios);
+
+        Path file = settings.reportFile();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MAPPER.writeValue(file.toFile(), report);
+    }
+
+    /**
+     * Returns one line per scenario whose p50/p99 latency grew, or whose throughput dropped,
+     * by more than the configured tolerance compared with the baseline report.
+     */
+    List<String> regressionsAgainst(Path baselineFile) throws IOException {
+        Map<String, Object> baseline = MAPPER.readValue(baselineFile.toFile(), new TypeReference<>() {
+        });
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> baselineScenarios = (Map<String, Map<String, Object>>) baseline.get("scenarios");
+
+        List<String> regressions = new ArrayList<>();
+        double tolerance = settings.tolerance();
+        for (ScenarioResult result : results.values()) {
+            Map<String, Object> previous = baselineScenarios.get(result.name());
+            if (previous == null) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> previousLatency = (Map<String, Object>) previous.get("latencyMillis");
+
+            compareHigherIsWorse(regressions, result.name(), "p50",
+                    number(previousLatency.get("p50")), result.histogram().percentileMillis(0.50), tolerance);
+            compareHigherIsWorse(regressions, result.name(), "p99",
+                    number(previousLatency.get("p99")), result.histogram().percentileMillis(0.99), tolerance);
+
+            double previousThroughput = number(previous.get("throughputOpsPerSecond"));
+            if (previousThroughput > 0 && result.throughput() < previousThroughput * (1 - tolerance)) {
+                regressions.add(String.format("%s throughput %.1f -> %.1f ops/s",
+                        result.name(), previousThroughput, result.throughput()));
+            }
+        }
+        return regressions;
+    }
+
+    private static void compareHigherIsWorse(List<String> regressions, String scenario, String metric,
+                                             double previous, double current, double tolerance) {
+        if (previous > 0 && current > previous * (1 + tolerance)) {
+            regressions.add(String.format("%s %s %.2f -> %.2f ms", scenario, metric, previous, current));
+        }
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : 0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.cloud.performance;
+
+import java.nio.file.Path;
+
+/**
+ * Load shape for {@link StoragePerformanceTest}, read from {@code -Dperf.*} system properties.
+ */
+record PerformanceSettings(
+        int users,
+        int depth,
+        int fanout,
+        int filesPerDirectory,
+        int fileSize,
+        int concurrency,
+        int operations,
+        int warmupOperations,
+        Path reportFile,
+        Path baselineFile,
+        double tolerance
+) {
+
+    static PerformanceSettings fromSystemProperties() {
+        String baseline = System.getProperty("perf.baseline");
+        return new PerformanceSettings(
+                Integer.getInteger("perf.users", 4),
+                Integer.getInteger("perf.depth", 3),
+                Integer.getInteger("perf.fanout", 3),
+                Integer.getInteger("perf.files-per-directory", 5),
+                Integer.getInteger("perf.file-size", 16 * 1024),
+                Integer.getInteger("perf.concurrency", 8),
+                Integer.getInteger("perf.operations", 200),
+                Integer.getInteger("perf.warmup-operations", 20),
+                Path.of(System.getProperty("perf.report", "target/performance/report.json")),
+                baseline == null || baseline.isBlank() ? null : Path.of(baseline),
+                Double.parseDouble(System.getProperty("perf.tolerance", "0.20"))
+        );
+    }
+}
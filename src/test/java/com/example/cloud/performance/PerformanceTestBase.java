@@ -0,0 +1,49 @@
+package com.example.cloud.performance;
+
+import com.redis.testcontainers.RedisContainer;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Full-stack base for benchmarks and load tests: Postgres, Redis and MinIO all run in containers, and
+ * nothing is wrapped in a test transaction, so data is visible to concurrent request threads.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public abstract class PerformanceTestBase {
+
+    protected static final String BUCKET = "performance-files";
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    static final RedisContainer redis = new RedisContainer(
+            RedisContainer.DEFAULT_IMAGE_NAME.withTag(RedisContainer.DEFAULT_TAG));
+
+    static final MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2024-10-13T13-34-11Z");
+
+    @DynamicPropertySource
+    static void setProperties(DynamicPropertyRegistry registry) {
+        postgres.start();
+        redis.start();
+        minio.start();
+
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.data.redis.host", redis::getRedisHost);
+        registry.add("spring.data.redis.port", redis::getRedisPort);
+
+        registry.add("MINIO_URL", minio::getS3URL);
+        registry.add("MINIO_ACCESS_KEY", minio::getUserName);
+        registry.add("MINIO_SECRET_KEY", minio::getPassword);
+        registry.add("MINIO_BUCKET", () -> BUCKET);
+
+        registry.add("spring.jpa.show-sql", () -> false);
+        registry.add("auth.rate-limit.enabled", () -> false);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.cloud.performance;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+record ScenarioResult(String name, LatencyHistogram histogram, long errors, long bytes, double durationSeconds) {
+
+    double throughput() {
+        return durationSeconds == 0 ? 0 : histogram.count() / durationSeconds;
+    }
+
+    Map<String, Object> toReport() {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("mean", histogram.meanMillis());
+        latency.put("p50", histogram.percentileMillis(0.50));
+        latency.put("p90", histogram.percentileMillis(0.90));
+        latency.put("p99", histogram.percentileMillis(0.99));
+        latency.put("max", histogram.maxMillis());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("operations", histogram.count());
+        report.put("errors", errors);
+        report.put("bytes", bytes);
+        report.put("durationSeconds", durationSeconds);
+        report.put("throughputOpsPerSecond", throughput());
+        report.put("latencyMillis", latency);
+        report.put("histogramMillis", histogram.buckets());
+        return report;
+    }
+
+    String summary() {
+        return String.format("%-10s ops=%-6d err=%-4d %8.1f ops/s  p50=%8.2fms p90=%8.2fms p99=%8.2fms max=%8.2fms",
+                name, histogram.count(), errors, throughput(),
+                histogram.percentileMillis(0.50), histogram.percentileMillis(0.90),
+                histogram.percentileMillis(0.99), histogram.maxMillis());
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.cloud.performance;
+
+import com.example.cloud.model.entity.User;
+import com.example.cloud.repository.UserRepository;
+import com.example.cloud.security.CustomUserDetails;
+import io.minio.BucketExistsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Seeds synthetic user trees and drives the storage endpoints at a configurable concurrency.
+ * <p>
+ * Run with {@code mvn test -Pperformance}; shape the load with {@code -Dperf.users}, {@code -Dperf.depth},
+ * {@code -Dperf.fanout}, {@code -Dperf.files-per-directory}, {@code -Dperf.file-size},
+ * {@code -Dperf.concurrency} and {@code -Dperf.operations}. With {@code -Dperf.baseline=<report.json>}
+ * the run fails when a scenario regressed by more than {@code -Dperf.tolerance} (default 0.20).
+ */
+@Tag("performance")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class StoragePerformanceTest extends PerformanceTestBase {
+
+    private final PerformanceSettings settings = PerformanceSettings.fromSystemProperties();
+    private final List<SeededUser> users = new ArrayList<>();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MinioClient minioClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @BeforeAll
+    void seed() throws Exception {
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(BUCKET).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(BUCKET).build());
+        }
+
+        Random random = new Random(42);
+        for (int u = 0; u < settings.users(); u++) {
+            User user = userRepository.save(new User("perf-user-" + u, passwordEncoder.encode("password")));
+            SeededUser seeded = new SeededUser(new CustomUserDetails(user));
+            seedDirectory(seeded, "", 1, random);
+            users.add(seeded);
+        }
+    }
+
+    @Test
+    void storageEndpoints() throws Exception {
+        PerformanceReport report = new PerformanceReport(settings);
+        Queue<String[]> uploaded = new ConcurrentLinkedQueue<>();
+        Queue<String[]> moved = new ConcurrentLinkedQueue<>();
+        AtomicInteger sequence = new AtomicInteger();
+
+        report.add(run("list", random -> {
+            SeededUser user = pick(users, random);
+            return get("/api/directory").param("path", pick(user.directories, random)).with(user(user.details));
+        }));
+
+        report.add(run("search", random -> {
+            SeededUser user = pick(users, random);
+            return get("/api/resource/search").param("query", "file-" + random.nextInt(settings.filesPerDirectory()))
+                    .with(user(user.details));
+        }));
+
+        report.add(run("upload", random -> {
+            SeededUser user = pick(users, random);
+            String directory = pick(user.directories, random);
+            String name = "upload-" + sequence.incrementAndGet() + ".bin";
+            uploaded.add(new String[]{String.valueOf(users.indexOf(user)), directory + name});
+            return multipart("/api/resource")
+                    .file(new MockMultipartFile("object", name, "application/octet-stream", payload(random)))
+                    .param("path", directory)
+                    .with(user(user.details));
+        }));
+
+        report.add(run("download", random -> {
+            SeededUser user = pick(users, random);
+            return get("/api/resource/download").param("path", pick(user.files, random)).with(user(user.details));
+        }));
+
+        report.add(run("zip", random -> {
+            SeededUser user = pick(users, random);
+            List<String> topLevel = user.directories.stream().filter(d -> d.indexOf('/') == d.length() - 1).toList();
+            return get("/api/resource/download").param("path", pick(topLevel, random)).with(user(user.details));
+        }));
+
+        report.add(run("move", random -> {
+            String[] source = uploaded.poll();
+            if (source == null) {
+                return null;
+            }
+            SeededUser user = users.get(Integer.parseInt(source[0]));
+            String target = source[1].replace("upload-", "moved-");
+            moved.add(new String[]{source[0], target});
+            return get("/api/resource/move").param("from", source[1]).param("to", target).with(user(user.details));
+        }));
+
+        report.add(run("delete", random -> {
+            String[] target = moved.poll();
+            if (target == null) {
+                return null;
+            }
+            SeededUser user = users.get(Integer.parseInt(target[0]));
+            return delete("/api/resource").param("path", target[1]).with(user(user.details));
+        }));
+
+        report.write();
+        System.out.println("Performance report written to " + settings.reportFile().toAbsolutePath());
+
+        if (settings.baselineFile() != null) {
+            List<String> regressions = report.regressionsAgainst(settings.baselineFile());
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            assertThat(regressions).as("performance regressions against %s", settings.baselineFile()).isEmpty();
+        }
+    }
+
+    private ScenarioResult run(String name, Function<Random, RequestBuilder> requests) throws Exception {
+        for (int i = 0; i < settings.warmupOperations(); i++) {
+            RequestBuilder request = requests.apply(new Random(i));
+            if (request != null) {
+                perform(request);
+            }
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        AtomicInteger remaining = new AtomicInteger(settings.operations());
+        ExecutorService executor = Executors.newFixedThreadPool(settings.concurrency());
+
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int w = 0; w < settings.concurrency(); w++) {
+            int seed = w;
+            workers.add(executor.submit(() -> {
+                Random random = new Random(seed * 7919L);
+                while (remaining.getAndDecrement() > 0) {
+                    RequestBuilder request = requests.apply(random);
+                    if (request == null) {
+                        return null;
+                    }
+                    long begin = System.nanoTime();
+                    MvcResult result = perform(request);
+                    histogram.record(System.nanoTime() - begin);
+                    int status = result.getResponse().getStatus();
+                    if (status >= 400) {
+                        errors.incrementAndGet();
+                    }
+                    bytes.addAndGet(result.getResponse().getContentAsByteArray().length);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        double durationSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        executor.shutdown();
+
+        ScenarioResult result = new ScenarioResult(name, histogram, errors.get(), bytes.get(), durationSeconds);
+        System.out.println(result.summary());
+        return result;
+    }
+
+    private MvcResult perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+
+    private void seedDirectory(SeededUser user, String path, int level, Random random) throws Exception {
+        if (!path.isEmpty() && settings.filesPerDirectory() > 0) {
+            MockMultipartHttpServletRequestBuilder upload = multipart("/api/resource");
+            for (int f = 0; f < settings.filesPerDirectory(); f++) {
+                String name = "file-" + f + ".txt";
+                upload.file(new MockMultipartFile("object", name, "text/plain", payload(random)));
+                user.files.add(path + name);
+            }
+            mockMvc.perform(upload.param("path", path).with(user(user.details)));
+        }
+
+        if (level > settings.depth()) {
+            return;
+        }
+        for (int d = 0; d < settings.fanout(); d++) {
+            String directory = path + "dir-" + level + "-" + d + "/";
+            mockMvc.perform(post("/api/directory").param("path", directory).with(user(user.details)));
+            user.directories.add(directory);
+            seedDirectory(user, directory, level + 1, random);
+        }
+    }
+
+    private byte[] payload(Random random) {
+        byte[] bytes = new byte[settings.fileSize()];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static final class SeededUser {
+        private final CustomUserDetails details;
+        private final List<String> directories = new CopyOnWriteArrayList<>();
+        private final List<String> files = new CopyOnWriteArrayList<>();
+
+        private SeededUser(CustomUserDetails details) {
+            this.details = details;
+        }
+    }
+}
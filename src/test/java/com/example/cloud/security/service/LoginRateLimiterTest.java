@@ -0,0 +1,49 @@
+package com.example.cloud.security.service;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.properties.LoginRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoginRateLimiterTest {
+
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        LoginRateLimitProperties properties = new LoginRateLimitProperties();
+        properties.setPerUsername(new LoginRateLimitProperties.Limit(2, Duration.ofMinutes(1)));
+        properties.setPerIp(new LoginRateLimitProperties.Limit(100, Duration.ofMinutes(1)));
+        limiter = new LoginRateLimiter(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void successfulLoginsDoNotUseTheUsernameLimit() {
+        for (int i = 0; i < 5; i++) {
+            assertThatCode(() -> limiter.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void failedAttemptsLimitTheUsernameFromThatAddress() {
+        limiter.recordFailure("alice", "10.0.0.1");
+        limiter.recordFailure("Alice", "10.0.0.1");
+
+        assertThatThrownBy(() -> limiter.check("alice", "10.0.0.1")).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void sprayingBadPasswordsDoesNotLockOutOtherAddresses() {
+        limiter.recordFailure("alice", "203.0.113.9");
+        limiter.recordFailure("alice", "203.0.113.9");
+        limiter.recordFailure("alice", "203.0.113.9");
+
+        assertThatCode(() -> limiter.check("alice", "10.0.0.1")).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.cloud.security.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.session.MapSession;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedSessionTest {
+
+    @Test
+    void inPlaceChangesDoNotReachTheCachedSnapshot() {
+        MapSession cached = new MapSession();
+        cached.setAttribute("items", new ArrayList<>(List.of("a")));
+
+        CachedSession first = new CachedSession(cached, id -> null, null);
+        List<String> items = first.getAttribute("items");
+        items.add("b");
+
+        assertThat(first.<List<String>>getAttribute("items")).containsExactly("a", "b");
+        assertThat(cached.<List<String>>getAttribute("items")).containsExactly("a");
+        assertThat(new CachedSession(cached, id -> null, null).<List<String>>getAttribute("items")).containsExactly("a");
+        assertThat(first.isDirty()).isFalse();
+    }
+
+    @Test
+    void detachedCopySharesNoValuesWithTheLoadedSession() {
+        MapSession loaded = new MapSession();
+        List<String> items = new ArrayList<>(List.of("a"));
+        loaded.setAttribute("items", items);
+
+        MapSession copy = CachedSession.detachedCopy(loaded);
+        items.add("b");
+
+        assertThat(copy.<List<String>>getAttribute("items")).containsExactly("a");
+        assertThat(copy.getId()).isEqualTo(loaded.getId());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cloud.service;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.properties.AdmissionProperties;
+import com.example.cloud.service.AdmissionScheduler.RequestClass;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdmissionSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void userAtTransferLimitDoesNotBlockOthers() {
+        AdmissionProperties properties = properties(10, Duration.ofMillis(50));
+        properties.setPerUserConcurrentTransfers(1);
+        AdmissionScheduler scheduler = new AdmissionScheduler(properties, meterRegistry);
+
+        scheduler.acquire(1L, RequestClass.TRANSFER);
+
+        assertThatThrownBy(() -> scheduler.acquire(1L, RequestClass.TRANSFER))
+                .isInstanceOf(TooManyRequestsException.class);
+        scheduler.acquire(1L, RequestClass.METADATA).release();
+        scheduler.acquire(2L, RequestClass.TRANSFER).release();
+        assertThat(meterRegistry.get("admission.shed").tag("class", "transfer").tag("reason", "timeout").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void freedSlotGoesToTheUserWithLessService() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(properties(1, Duration.ofSeconds(5)), meterRegistry);
+        AdmissionScheduler.Permit first = scheduler.acquire(1L, RequestClass.METADATA);
+        List<Long> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> heavyUser = CompletableFuture.runAsync(() -> {
+            scheduler.acquire(1L, RequestClass.METADATA).release();
+            order.add(1L);
+        });
+        awaitQueued(1);
+        CompletableFuture<Void> otherUser = CompletableFuture.runAsync(() -> {
+            AdmissionScheduler.Permit permit = scheduler.acquire(2L, RequestClass.METADATA);
+            order.add(2L);
+            permit.release();
+        });
+        awaitQueued(2);
+
+        first.release();
+        CompletableFuture.allOf(heavyUser, otherUser).get(5, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void interruptedWaiterGivesUpItsPlace() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(properties(1, Duration.ofSeconds(5)), meterRegistry);
+        AdmissionScheduler.Permit first = scheduler.acquire(1L, RequestClass.METADATA);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread waiting = new Thread(() -> {
+            try {
+                scheduler.acquire(2L, RequestClass.METADATA).release();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        waiting.start();
+        awaitQueued(1);
+        waiting.interrupt();
+        waiting.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(failure.get()).isInstanceOf(TooManyRequestsException.class);
+        awaitQueued(0);
+        first.release();
+        scheduler.acquire(3L, RequestClass.METADATA).release();
+        assertThat(meterRegistry.get("admission.inflight").tag("class", "metadata").gauge().value()).isZero();
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("admission.queued").tag("class", "metadata").gauge().value() != expected) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static AdmissionProperties properties(int maxConcurrent, Duration queueTimeout) {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setQueueTimeout(queueTimeout);
+        return properties;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cloud.service;
+
+import com.example.cloud.model.entity.ResourceChange;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ChangeFeedProperties;
+import com.example.cloud.repository.ResourceChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ChangeFeedServiceTest {
+
+    private ResourceChangeRepository resourceChangeRepository;
+    private StringRedisTemplate redisTemplate;
+    private ChangeFeedService service;
+
+    @BeforeEach
+    void setUp() {
+        resourceChangeRepository = mock(ResourceChangeRepository.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        service = new ChangeFeedService(resourceChangeRepository, new ChangeFeedProperties(), redisTemplate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @Test
+    void failureToRecordAChangeDoesNotFailThePublisher() {
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(resourceChangeRepository).incrementSequence(anyLong());
+
+        assertThatCode(() -> service.onResourceChanged(ResourceChangedEvent.created(7L, "a.txt", 5)))
+                .doesNotThrowAnyException();
+        verify(resourceChangeRepository, never()).save(any(ResourceChange.class));
+    }
+}
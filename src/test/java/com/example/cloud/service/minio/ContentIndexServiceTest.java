@@ -0,0 +1,170 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.ContentIndexEntry;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ContentSearchProperties;
+import com.example.cloud.repository.ContentIndexRepository;
+import com.example.cloud.repository.UserRepository;
+import io.minio.StatObjectResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.cloud.service.minio.StoredObjects.USER_FOLDER;
+import static com.example.cloud.service.minio.StoredObjects.object;
+import static com.example.cloud.service.minio.StoredObjects.stat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ContentIndexServiceTest {
+
+
+    private final Deque<Runnable> queued = new ArrayDeque<>();
+    private ContentIndexRepository repository;
+    private MinioStorageService minioStorageService;
+    private UserRepository userRepository;
+    private ContentIndexService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ContentIndexRepository.class);
+        minioStorageService = mock(MinioStorageService.class);
+        userRepository = mock(UserRepository.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        service = new ContentIndexService(repository, minioStorageService, userRepository, new ContentSearchProperties(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), redisTemplate, new QueueingExecutor());
+    }
+
+    @Test
+    void snippetIsEscapedAndMatchesAreBold() {
+        assertThat(ContentIndexService.toHtml("<img src=x onerror=alert(1)> the \u0002report\u0003 & more"))
+                .isEqualTo("&lt;img src=x onerror=alert(1)&gt; the <b>report</b> &amp; more");
+    }
+
+    @Test
+    void fileReplacedWhileReadIsNotSaved() throws Exception {
+        stored("a.txt", "hello", "\"etag-1\"", "\"etag-2\"");
+
+        service.index(7L, "a.txt", 5);
+
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void entryOfFileDeletedDuringSaveIsDropped() throws Exception {
+        stored("a.txt", "hello", "\"etag-1\"", "\"etag-1\"");
+        when(minioStorageService.objectExists(USER_FOLDER + "a.txt")).thenReturn(true, false);
+
+        service.index(7L, "a.txt", 5);
+
+        verify(repository).save(any(ContentIndexEntry.class));
+        verify(repository, times(2)).delete(7L, "a.txt");
+    }
+
+    @Test
+    void fileChangedWhileIndexedIsIndexedAgain() {
+        stored("a.txt", "hello", "\"etag-1\"", "\"etag-1\"");
+        when(minioStorageService.objectExists(USER_FOLDER + "a.txt")).thenReturn(true);
+
+        service.onResourceChanged(ResourceChangedEvent.created(7L, "a.txt", 5));
+        service.onResourceChanged(ResourceChangedEvent.created(7L, "a.txt", 5));
+        assertThat(queued).hasSize(1);
+
+        queued.poll().run();
+        assertThat(queued).hasSize(1);
+        queued.poll().run();
+
+        verify(repository, times(2)).save(any(ContentIndexEntry.class));
+    }
+
+    @Test
+    void backfillIndexesOnlyFilesWithoutEntries() {
+        when(userRepository.findIdsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(repository.findPaths(7L)).thenReturn(List.of("done.txt"));
+        when(minioStorageService.listObjects(USER_FOLDER, true)).thenReturn(List.of(
+                object("done.txt", 5), object("new.txt", 5), object("photo.jpg", 5), object("docs/", 0)));
+        when(minioStorageService.logicalSize(any(StoredObject.class))).thenReturn(5L);
+        stored("new.txt", "hello", "\"etag-1\"", "\"etag-1\"");
+        when(minioStorageService.objectExists(USER_FOLDER + "new.txt")).thenReturn(true);
+
+        service.backfill();
+
+        verify(minioStorageService).getObject(USER_FOLDER + "new.txt");
+        verify(minioStorageService, never()).getObject(USER_FOLDER + "done.txt");
+        verify(minioStorageService, never()).getObject(USER_FOLDER + "photo.jpg");
+        verify(repository).save(any(ContentIndexEntry.class));
+    }
+
+    private void stored(String path, String content, String etag, String... laterEtags) {
+        StatObjectResponse first = stat(etag, content.length());
+        StatObjectResponse[] later = new StatObjectResponse[laterEtags.length];
+        for (int i = 0; i < laterEtags.length; i++) {
+            later[i] = stat(laterEtags[i], content.length());
+        }
+        when(minioStorageService.statObject(USER_FOLDER + path)).thenReturn(first, later);
+        when(minioStorageService.objectExists(USER_FOLDER + path)).thenReturn(true);
+        when(minioStorageService.getObject(USER_FOLDER + path))
+                .thenAnswer(invocation -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    /**
+     * Holds submitted tasks until the test runs them.
+     */
+    private final class QueueingExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.dto.request.DeltaUploadRequestDto;
+import com.example.cloud.model.dto.request.DeltaUploadRequestDto.Instruction;
+import io.minio.ObjectWriteArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeltaUploadServiceTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final long BLOCK = 8 * MB;
+
+    @Test
+    void consecutiveBlocksAndDataAreMerged() {
+        List<DeltaUploadService.Segment> segments = DeltaUploadService.toSegments(List.of(
+                copy(0), copy(1), data(100), data(50), copy(3), copy(2)), 4 * BLOCK, BLOCK, 100);
+
+        assertThat(segments).containsExactly(
+                new DeltaUploadService.Segment(0, 2 * BLOCK),
+                new DeltaUploadService.Segment(-1, 150),
+                new DeltaUploadService.Segment(3 * BLOCK, BLOCK),
+                new DeltaUploadService.Segment(2 * BLOCK, BLOCK));
+    }
+
+    @Test
+    void lastBlockIsShort() {
+        List<DeltaUploadService.Segment> segments = DeltaUploadService.toSegments(List.of(copy(1)), BLOCK + 10, BLOCK, 100);
+
+        assertThat(segments).containsExactly(new DeltaUploadService.Segment(BLOCK, 10));
+    }
+
+    @Test
+    void unknownBlockIsRejected() {
+        assertThatThrownBy(() -> DeltaUploadService.toSegments(List.of(copy(2)), 2 * BLOCK, BLOCK, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void everyPartButTheLastIsLongEnoughToCompose() {
+        List<DeltaUploadService.Segment> segments = List.of(
+                new DeltaUploadService.Segment(0, 100 * MB),
+                new DeltaUploadService.Segment(-1, MB),
+                new DeltaUploadService.Segment(101 * MB, 6 * MB),
+                new DeltaUploadService.Segment(-1, 2 * MB),
+                new DeltaUploadService.Segment(110 * MB, 50 * MB),
+                new DeltaUploadService.Segment(-1, 10));
+
+        List<DeltaUploadService.Part> parts = DeltaUploadService.plan(segments);
+
+        assertThat(parts.subList(0, parts.size() - 1))
+                .allSatisfy(part -> assertThat(part.length()).isGreaterThanOrEqualTo(ObjectWriteArgs.MIN_MULTIPART_SIZE));
+        assertThat(parts.stream().mapToLong(DeltaUploadService.Part::length).sum())
+                .isEqualTo(segments.stream().mapToLong(DeltaUploadService.Segment::length).sum());
+        assertThat(parts.get(0).copy()).isEqualTo(new DeltaUploadService.Segment(0, 100 * MB));
+    }
+
+    @Test
+    void shortStagedRunBorrowsFromFollowingBlock() {
+        List<DeltaUploadService.Part> parts = DeltaUploadService.plan(List.of(
+                new DeltaUploadService.Segment(-1, MB),
+                new DeltaUploadService.Segment(10 * MB, 20 * MB)));
+
+        assertThat(parts).hasSize(2);
+        assertThat(parts.get(0).staged()).containsExactly(
+                new DeltaUploadService.Segment(-1, MB),
+                new DeltaUploadService.Segment(10 * MB, 4 * MB));
+        assertThat(parts.get(1).copy()).isEqualTo(new DeltaUploadService.Segment(14 * MB, 16 * MB));
+    }
+
+    @Test
+    void preconditionFailureOfBaseReadIsDetectedThroughWrapping() {
+        ErrorResponseException changed = error("PreconditionFailed");
+        ErrorResponseException missing = error("NoSuchKey");
+
+        assertThat(DeltaUploadService.baseChanged(new IOException(changed))).isTrue();
+        assertThat(DeltaUploadService.baseChanged(changed)).isTrue();
+        assertThat(DeltaUploadService.baseChanged(new IOException(missing))).isFalse();
+    }
+
+    private static ErrorResponseException error(String code) {
+        ErrorResponseException error = mock(ErrorResponseException.class);
+        when(error.errorResponse()).thenReturn(new ErrorResponse(code, "", "bucket", "key", "", "", ""));
+        return error;
+    }
+
+    private static Instruction copy(int block) {
+        return new Instruction(DeltaUploadRequestDto.Type.COPY, block, null);
+    }
+
+    private static Instruction data(long length) {
+        return new Instruction(DeltaUploadRequestDto.Type.DATA, null, length);
+    }
+}
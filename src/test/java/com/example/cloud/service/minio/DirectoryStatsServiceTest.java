@@ -0,0 +1,140 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.DirectoryStats;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.repository.DirectoryStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DirectoryStatsServiceTest {
+
+    private final Map<String, String> redis = new HashMap<>();
+    private final List<Collection<DirectoryStats>> saved = new ArrayList<>();
+    private DirectoryStatsRepository repository;
+    private MinioStorageService minioStorageService;
+    private DirectoryStatsService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(DirectoryStatsRepository.class);
+        when(repository.saveAll(any())).thenAnswer(invocation -> {
+            saved.add(new ArrayList<>((Collection<DirectoryStats>) invocation.getArgument(0)));
+            return List.of();
+        });
+        minioStorageService = mock(MinioStorageService.class);
+        when(minioStorageService.logicalSize(any(StoredObject.class)))
+                .thenAnswer(invocation -> invocation.<StoredObject>getArgument(0).size());
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(values).set(anyString(), anyString(), any(Duration.class));
+        when(redisTemplate.hasKey(anyString())).thenAnswer(invocation -> redis.containsKey(invocation.<String>getArgument(0)));
+        when(redisTemplate.delete(anyString())).thenAnswer(invocation -> redis.remove(invocation.<String>getArgument(0)) != null);
+
+        service = new DirectoryStatsService(repository, minioStorageService,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), redisTemplate,
+                Executors.newSingleThreadExecutor());
+    }
+
+    @Test
+    void changeAppliedAsDeltaAlongAncestors() {
+        when(repository.existsById(any())).thenReturn(true);
+
+        service.onResourceChanged(ResourceChangedEvent.created(1L, "a/b/c.txt", 5));
+
+        verify(repository).applyDelta(eq(1L), eq(""), eq(5L), eq(1L), any());
+        verify(repository).applyDelta(eq(1L), eq("a/"), eq(5L), eq(1L), any());
+        verify(repository).applyDelta(eq(1L), eq("a/b/"), eq(5L), eq(1L), any());
+    }
+
+    @Test
+    void changeDuringRebuildListsAgainInsteadOfApplyingDelta() {
+        when(repository.existsById(any())).thenReturn(true);
+        AtomicInteger listings = new AtomicInteger();
+        when(minioStorageService.listObjects("user-1-files/", true)).thenAnswer(invocation -> {
+            if (listings.incrementAndGet() == 1) {
+                service.onResourceChanged(ResourceChangedEvent.created(1L, "b.txt", 7));
+                return List.of(file("user-1-files/a.txt", 3));
+            }
+            return List.of(file("user-1-files/a.txt", 3), file("user-1-files/b.txt", 7));
+        });
+
+        service.rebuild(1L);
+
+        assertThat(listings).hasValue(2);
+        verify(repository, never()).applyDelta(anyLong(), anyString(), anyLong(), anyLong(), any());
+        assertThat(root(saved.get(saved.size() - 1))).satisfies(root -> {
+            assertThat(root.getTotalSize()).isEqualTo(10);
+            assertThat(root.getFileCount()).isEqualTo(2);
+        });
+        assertThat(redis).isEmpty();
+    }
+
+    @Test
+    void aggregatesThatKeepChangingAreDroppedForTheNextRead() {
+        when(minioStorageService.listObjects("user-1-files/", true)).thenAnswer(invocation -> {
+            service.onResourceChanged(ResourceChangedEvent.created(1L, "b.txt", 7));
+            return List.of(file("user-1-files/a.txt", 3));
+        });
+
+        service.rebuild(1L);
+
+        verify(minioStorageService, times(DirectoryStatsService.REBUILD_ATTEMPTS)).listObjects("user-1-files/", true);
+        verify(repository, times(DirectoryStatsService.REBUILD_ATTEMPTS + 1)).deleteAllForUser(1L);
+        assertThat(redis).doesNotContainKey("stats:rebuilding:1");
+    }
+
+    @Test
+    void ancestorsOfFileIncludeRootAndEveryParentDirectory() {
+        assertThat(DirectoryStatsService.ancestors("a/b/report.csv")).containsExactly("", "a/", "a/b/");
+        assertThat(DirectoryStatsService.ancestors("report.csv")).containsExactly("");
+    }
+
+    @Test
+    void ancestorsOfDirectoryExcludeTheDirectoryItself() {
+        assertThat(DirectoryStatsService.ancestors("a/b/")).containsExactly("", "a/");
+        assertThat(DirectoryStatsService.ancestors("a/")).containsExactly("");
+    }
+
+    @Test
+    void normalizeStripsLeadingAndDoubleSlashes() {
+        assertThat(DirectoryStatsService.normalize("/a//b/")).isEqualTo("a/b/");
+        assertThat(DirectoryStatsService.normalize("/")).isEmpty();
+    }
+
+    private static StoredObject file(String name, long size) {
+        return new StoredObject(name, size, false, null, "etag", Map.of());
+    }
+
+    private static DirectoryStats root(Collection<DirectoryStats> stats) {
+        return stats.stream().filter(row -> row.getId().getPath().isEmpty()).findFirst().orElseThrow();
+    }
+}
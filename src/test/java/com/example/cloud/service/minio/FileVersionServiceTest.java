@@ -0,0 +1,89 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.FileVersion;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.VersioningProperties;
+import com.example.cloud.repository.FileVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FileVersionServiceTest {
+
+    private static final String USER_FOLDER = "user-7-files/";
+
+    private FileVersionRepository repository;
+    private MinioStorageService minioStorageService;
+    private FileVersionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(FileVersionRepository.class);
+        minioStorageService = mock(MinioStorageService.class);
+        when(minioStorageService.removeObjects(anyList(), anyInt())).thenReturn(Map.of());
+
+        service = new FileVersionService(repository, minioStorageService, mock(FileStreamingService.class),
+                new VersioningProperties(), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(StringRedisTemplate.class), mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void deletingFileDropsItsVersions() {
+        when(repository.findByUserIdAndPathOrderByArchivedAtDescIdDesc(7L, "a.txt"))
+                .thenReturn(List.of(version(1L, "a.txt"), version(2L, "a.txt")));
+
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "a.txt", 3));
+
+        verify(minioStorageService).removeObjects(List.of("user-7-versions/1", "user-7-versions/2"), 1000);
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 2L));
+    }
+
+    @Test
+    void overwriteKeepsVersions() {
+        when(minioStorageService.objectExists(USER_FOLDER + "a.txt")).thenReturn(true);
+
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "a.txt", 3));
+
+        verify(repository, never()).findByUserIdAndPathOrderByArchivedAtDescIdDesc(any(), any());
+        verify(minioStorageService, never()).removeObjects(anyList(), anyInt());
+        verify(repository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void deletingDirectoryDropsVersionsBelowIt() {
+        when(minioStorageService.listObjects(USER_FOLDER + "docs/", false)).thenReturn(List.of());
+        when(repository.findSubtree(7L, "docs/")).thenReturn(List.of(version(1L, "docs/a.txt"), version(2L, "docs/sub/b.txt")));
+        when(minioStorageService.removeObjects(anyList(), anyInt())).thenReturn(Map.of("user-7-versions/2", "busy"));
+
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "docs/", 0));
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+    }
+
+    @Test
+    void movingFileCarriesItsVersions() {
+        service.onResourceChanged(ResourceChangedEvent.moved(7L, "a.txt", "b.txt", 3));
+
+        verify(repository).move(7L, "a.txt", "b.txt");
+        verify(repository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private static FileVersion version(Long id, String path) {
+        return new FileVersion(id, 7L, path, "user-7-versions/" + id, 3, Instant.now(), Instant.now());
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.properties.DiskCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ObjectDiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private MinioStorageService minioStorageService;
+    private ObjectDiskCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DiskCacheProperties properties = new DiskCacheProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.resolve("cache").toString());
+        properties.setMaxSize(DataSize.ofBytes(25));
+        properties.setAdmitAfterHits(2);
+
+        minioStorageService = mock(MinioStorageService.class);
+        when(minioStorageService.getRawObject(anyString()))
+                .thenAnswer(invocation -> new GetObjectResponse(Headers.of(), "bucket", null,
+                        invocation.getArgument(0), new ByteArrayInputStream(new byte[10])));
+
+        cache = new ObjectDiskCache(properties, minioStorageService, new SimpleMeterRegistry());
+        cache.init();
+    }
+
+    @Test
+    void admitsObjectOnSecondRequestAndServesItFromDisk() throws Exception {
+        assertThat(cache.resolve("user-1-files/a.bin", "etag1", 10)).isNull();
+        assertThat(cache.readThrough("user-1-files/a.bin", "etag1", 10)).isNull();
+
+        assertThat(cache.resolve("user-1-files/a.bin", "etag1", 10)).isNull();
+        readFully(cache.readThrough("user-1-files/a.bin", "etag1", 10));
+
+        Path cached = cache.resolve("user-1-files/a.bin", "etag1", 10);
+        assertThat(cached).isNotNull();
+        assertThat(Files.size(cached)).isEqualTo(10);
+
+        // A new etag is a different version and starts counting again.
+        assertThat(cache.resolve("user-1-files/a.bin", "etag2", 10)).isNull();
+        assertThat(cache.readThrough("user-1-files/a.bin", "etag2", 10)).isNull();
+        verify(minioStorageService, times(1)).getRawObject("user-1-files/a.bin");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedObjectWhenFull() throws Exception {
+        for (String name : new String[]{"a", "b", "c"}) {
+            cache.resolve(name, "etag", 10);
+            cache.resolve(name, "etag", 10);
+            readFully(cache.readThrough(name, "etag", 10));
+            assertThat(cache.resolve(name, "etag", 10)).isNotNull();
+        }
+
+        assertThat(cache.resolve("a", "etag", 10)).isNull();
+        assertThat(cache.resolve("b", "etag", 10)).isNotNull();
+        assertThat(cache.resolve("c", "etag", 10)).isNotNull();
+    }
+
+    @Test
+    void partialOrChangedReadsAreNotAdmitted() throws Exception {
+        cache.resolve("partial", "etag", 10);
+        cache.resolve("partial", "etag", 10);
+        try (InputStream inputStream = cache.readThrough("partial", "etag", 10)) {
+            assertThat(inputStream.readNBytes(4)).hasSize(4);
+        }
+        assertThat(cache.resolve("partial", "etag", 10)).isNull();
+
+        cache.resolve("changed", "old", 10);
+        cache.resolve("changed", "old", 10);
+        when(minioStorageService.getRawObject("changed"))
+                .thenReturn(new GetObjectResponse(Headers.of("ETag", "\"new\""), "bucket", null,
+                        "changed", new ByteArrayInputStream(new byte[10])));
+        readFully(cache.readThrough("changed", "old", 10));
+        assertThat(cache.resolve("changed", "old", 10)).isNull();
+    }
+
+    @Test
+    void rangeReadsFillInTheBackground() throws Exception {
+        cache.resolve("a", "etag", 10);
+        cache.resolve("a", "etag", 10);
+        cache.fillInBackground("a", "etag", 10);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.resolve("a", "etag", 10) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.resolve("a", "etag", 10)).isNotNull();
+    }
+
+    @Test
+    void concurrentMissesShareOneStorageRead() throws Exception {
+        byte[] content = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        CountDownLatch opened = new CountDownLatch(4);
+        InputStream slowBody = new ByteArrayInputStream(content) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                try {
+                    opened.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+        when(minioStorageService.getRawObject("hot"))
+                .thenReturn(new GetObjectResponse(Headers.of(), "bucket", null, "hot", slowBody));
+        cache.resolve("hot", "etag", 10);
+        cache.resolve("hot", "etag", 10);
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reads.add(clients.submit(() -> {
+                    try (InputStream inputStream = cache.readThrough("hot", "etag", 10)) {
+                        opened.countDown();
+                        return inputStream.readAllBytes();
+                    }
+                }));
+            }
+            for (Future<byte[]> read : reads) {
+                assertThat(read.get(5, TimeUnit.SECONDS)).containsExactly(content);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        verify(minioStorageService, times(1)).getRawObject(anyString());
+        verify(minioStorageService, never()).getRawObject(anyString(), anyLong(), anyLong());
+        assertThat(cache.resolve("hot", "etag", 10)).isNotNull();
+    }
+
+    @Test
+    void followersReadTheRestFromStorageWhenTheFillIsAbandoned() throws Exception {
+        byte[] content = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        when(minioStorageService.getRawObject("a"))
+                .thenReturn(new GetObjectResponse(Headers.of(), "bucket", null, "a", new ByteArrayInputStream(content)));
+        when(minioStorageService.getRawObject("a", 4, 6))
+                .thenReturn(new GetObjectResponse(Headers.of(), "bucket", null, "a",
+                        new ByteArrayInputStream(content, 4, 6)));
+        cache.resolve("a", "etag", 10);
+        cache.resolve("a", "etag", 10);
+
+        InputStream leader = cache.readThrough("a", "etag", 10);
+        InputStream follower = cache.readThrough("a", "etag", 10);
+        assertThat(leader.readNBytes(4)).hasSize(4);
+        assertThat(follower.readNBytes(2)).containsExactly(0, 1);
+        leader.close();
+
+        try (follower) {
+            assertThat(follower.readAllBytes()).containsExactly(2, 3, 4, 5, 6, 7, 8, 9);
+        }
+        verify(minioStorageService, times(1)).getRawObject("a");
+        verify(minioStorageService, times(1)).getRawObject("a", 4, 6);
+    }
+
+    @Test
+    void onlyItsOwnMarkedDirectoryIsCleared() throws Exception {
+        Path shared = directory.resolve("shared");
+        Files.createDirectories(shared.resolve(ObjectDiskCache.CACHE_DIRECTORY));
+        Files.writeString(shared.resolve("unrelated.txt"), "keep");
+        Files.writeString(shared.resolve(ObjectDiskCache.CACHE_DIRECTORY).resolve("unrelated.txt"), "keep");
+
+        DiskCacheProperties properties = new DiskCacheProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(shared.toString());
+        ObjectDiskCache unmarked = new ObjectDiskCache(properties, minioStorageService, new SimpleMeterRegistry());
+
+        assertThatThrownBy(unmarked::init).isInstanceOf(IllegalStateException.class);
+        assertThat(shared.resolve("unrelated.txt")).exists();
+        assertThat(shared.resolve(ObjectDiskCache.CACHE_DIRECTORY).resolve("unrelated.txt")).exists();
+    }
+
+    private static void readFully(InputStream inputStream) throws Exception {
+        try (inputStream) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
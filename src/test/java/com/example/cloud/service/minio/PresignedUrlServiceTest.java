@@ -0,0 +1,119 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.dto.response.PresignedUrlResponseDto;
+import com.example.cloud.model.properties.MinioProperties;
+import com.example.cloud.service.minio.layout.ObjectLocation;
+import io.minio.MinioClient;
+import io.minio.StatObjectResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Duration;
+import java.util.Map;
+
+import static com.example.cloud.service.minio.StoredObjects.USER_FOLDER;
+import static com.example.cloud.service.minio.StoredObjects.stat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PresignedUrlServiceTest {
+
+
+    private static final String PENDING_KEY = "upload:pending:7:a.txt";
+
+    private MinioStorageService minioStorageService;
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> values;
+    private ApplicationEventPublisher eventPublisher;
+    private PresignedUrlService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        minioStorageService = mock(MinioStorageService.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        MinioClient minioClient = MinioClient.builder()
+                .endpoint("http://localhost:9000")
+                .region("us-east-1")
+                .credentials("access", "secret")
+                .build();
+        service = new PresignedUrlService(new MinioProperties(), minioClient, minioStorageService,
+                mock(StorageTiers.class), redisTemplate, eventPublisher);
+    }
+
+    @Test
+    void uploadUrlOnlyCreatesTheFile() {
+        when(minioStorageService.writeLocation(USER_FOLDER + "a.txt"))
+                .thenReturn(new ObjectLocation("bucket", USER_FOLDER + "a.txt"));
+
+        PresignedUrlResponseDto url = service.createUploadUrl(7L, "a.txt");
+
+        assertThat(url.headers()).containsEntry("If-None-Match", "*").containsKey("x-amz-meta-upload-id");
+        assertThat(url.url()).contains("X-Amz-SignedHeaders=host%3Bif-none-match%3Bx-amz-meta-upload-id");
+        verify(values).set(eq(PENDING_KEY), eq(url.headers().get("x-amz-meta-upload-id")), any(Duration.class));
+    }
+
+    @Test
+    void repeatedCompletionAnnouncesTheFileOnce() {
+        uploaded("id-1");
+        when(values.get(PENDING_KEY)).thenReturn("id-1", (String) null);
+        when(redisTemplate.delete(PENDING_KEY)).thenReturn(true);
+
+        service.completeUpload(7L, "a.txt");
+        service.completeUpload(7L, "a.txt");
+
+        verify(eventPublisher).publishEvent(any(ResourceChangedEvent.class));
+    }
+
+    @Test
+    void concurrentCompletionsAnnounceOnlyTheOneThatConsumesTheRecord() {
+        uploaded("id-1");
+        when(values.get(PENDING_KEY)).thenReturn("id-1");
+        when(redisTemplate.delete(PENDING_KEY)).thenReturn(true, false);
+
+        service.completeUpload(7L, "a.txt");
+        service.completeUpload(7L, "a.txt");
+
+        verify(eventPublisher).publishEvent(any(ResourceChangedEvent.class));
+    }
+
+    @Test
+    void completionOfFileStoredByAnotherWriterConflicts() {
+        uploaded("id-2");
+        when(values.get(PENDING_KEY)).thenReturn("id-1");
+
+        assertThatThrownBy(() -> service.completeUpload(7L, "a.txt")).isInstanceOf(FileAlreadyExistsException.class);
+        verify(redisTemplate).delete(PENDING_KEY);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void uploadUrlForExistingFileConflicts() {
+        when(minioStorageService.objectExists(USER_FOLDER + "a.txt")).thenReturn(true);
+
+        assertThatThrownBy(() -> service.createUploadUrl(7L, "a.txt")).isInstanceOf(FileAlreadyExistsException.class);
+        verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    private void uploaded(String uploadId) {
+        StatObjectResponse stat = stat("\"etag\"", 5);
+        when(stat.userMetadata()).thenReturn(Map.of("upload-id", uploadId));
+        when(minioStorageService.statObject(USER_FOLDER + "a.txt")).thenReturn(stat);
+        when(minioStorageService.logicalSize(stat)).thenReturn(5L);
+    }
+}
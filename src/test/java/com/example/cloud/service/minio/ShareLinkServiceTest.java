@@ -0,0 +1,132 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.TooManyRequestsException;
+import com.example.cloud.model.entity.ShareLink;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.ShareProperties;
+import com.example.cloud.repository.ShareLinkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShareLinkServiceTest {
+
+    private static final String TOKEN = "q3Jx0b9yQ2a1X8gk4Zr7uA";
+
+    private ShareLinkRepository repository;
+    private MinioStorageService minioStorageService;
+    private ShareProperties properties;
+    private ShareLinkService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ShareLinkRepository.class);
+        minioStorageService = mock(MinioStorageService.class);
+        FileStreamingService fileStreamingService = mock(FileStreamingService.class);
+        when(fileStreamingService.stream(anyString(), anyString(), any(), any()))
+                .thenReturn(outputStream -> outputStream.write(new byte[]{1, 2, 3}));
+
+        properties = new ShareProperties();
+        properties.setMaxStreamsPerLink(1);
+        service = new ShareLinkService(repository, minioStorageService, fileStreamingService,
+                mock(DirectoryService.class), properties, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void expiredLinkIsNotFound() {
+        link(Instant.now().minusSeconds(1));
+
+        assertThatThrownBy(this::download).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void revokedLinkStopsWorkingAtOnce() throws Exception {
+        ShareLink link = link(Instant.now().plusSeconds(60));
+        when(repository.findByIdAndUserId(1L, 7L)).thenReturn(Optional.of(link));
+        download().writeTo(new ByteArrayOutputStream());
+
+        service.revoke(7L, 1L);
+        when(repository.findByToken(TOKEN)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(this::download).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void requestsBeyondTheLinkRateAreRejected() throws Exception {
+        properties.setRequests(new ShareProperties.Limit(2, Duration.ofMinutes(1)));
+        link(Instant.now().plusSeconds(60));
+
+        download().writeTo(new ByteArrayOutputStream());
+        download().writeTo(new ByteArrayOutputStream());
+
+        assertThatThrownBy(this::download).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void concurrentStreamsOfOneLinkAreCapped() throws Exception {
+        link(Instant.now().plusSeconds(60));
+
+        StreamingResponseBody open = download();
+        assertThatThrownBy(this::download).isInstanceOf(TooManyRequestsException.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        open.writeTo(out);
+        assertThat(out.toByteArray()).containsExactly(1, 2, 3);
+        download().writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    void deletingSharedFileRemovesItsLinks() {
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "docs/a.txt", 3));
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "old/", 0));
+
+        verify(repository).delete(7L, "docs/a.txt");
+        verify(repository).deleteSubtree(7L, "old/");
+    }
+
+    @Test
+    void overwrittenFileKeepsItsLinks() {
+        when(minioStorageService.objectExists("user-7-files/docs/a.txt")).thenReturn(true);
+
+        service.onResourceChanged(ResourceChangedEvent.deleted(7L, "docs/a.txt", 3));
+
+        verify(repository, never()).delete(any(Long.class), anyString());
+    }
+
+    @Test
+    void fingerprintDoesNotRevealTheToken() {
+        assertThat(ShareLinkService.fingerprint(TOKEN)).hasSize(12).doesNotContain(TOKEN.substring(0, 6));
+        assertThat(ShareLinkService.fingerprint(TOKEN)).isEqualTo(ShareLinkService.fingerprint(TOKEN));
+    }
+
+    private ShareLink link(Instant expiresAt) {
+        ShareLink link = new ShareLink(1L, TOKEN, 7L, "docs/a.txt", Instant.now().minusSeconds(600), expiresAt);
+        when(repository.findByToken(TOKEN)).thenReturn(Optional.of(link));
+        return link;
+    }
+
+    private StreamingResponseBody download() {
+        return service.download(TOKEN, new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.model.entity.PendingMove;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.StorageGcProperties;
+import com.example.cloud.repository.UserRepository;
+import com.example.cloud.service.minio.layout.KeyLayoutResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.StatObjectResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.cloud.service.minio.StoredObjects.USER_FOLDER;
+import static com.example.cloud.service.minio.StoredObjects.object;
+import static com.example.cloud.service.minio.StoredObjects.stat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StorageGarbageCollectorTest {
+
+
+    private MinioStorageService minioStorageService;
+    private MoveJournal moveJournal;
+    private UserRepository userRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private StorageGarbageCollector collector;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        minioStorageService = mock(MinioStorageService.class);
+        moveJournal = mock(MoveJournal.class);
+        userRepository = mock(UserRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        KeyLayoutResolver keyLayoutResolver = mock(KeyLayoutResolver.class);
+        when(keyLayoutResolver.buckets()).thenReturn(Set.of());
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+
+        StorageGcProperties properties = new StorageGcProperties();
+        properties.setEnabled(true);
+        properties.setObjectsPerSecond(1_000_000);
+
+        collector = new StorageGarbageCollector(minioStorageService, keyLayoutResolver, moveJournal, userRepository,
+                properties, redisTemplate, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void parentOfFileAndDirectoryIsTheEnclosingDirectory() {
+        assertThat(StorageGarbageCollector.parentOf("a/b/report.csv")).isEqualTo("a/b/");
+        assertThat(StorageGarbageCollector.parentOf("a/b/")).isEqualTo("a/");
+    }
+
+    @Test
+    void parentOfTopLevelEntryIsTheRoot() {
+        assertThat(StorageGarbageCollector.parentOf("report.csv")).isEmpty();
+        assertThat(StorageGarbageCollector.parentOf("a/")).isEmpty();
+    }
+
+    @Test
+    void prunesOnlyMarkersOfDirectoriesWithContent() {
+        when(userRepository.findIdsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(7L));
+        when(minioStorageService.listObjects(USER_FOLDER, true)).thenReturn(List.of(
+                object("", 0),
+                object("docs/", 0),
+                object("docs/a.txt", 10),
+                object("empty/", 0)));
+
+        StorageGarbageCollector.Report report = collector.run();
+
+        verify(minioStorageService).removeObject(USER_FOLDER + "docs/");
+        verify(minioStorageService, never()).removeObject(USER_FOLDER);
+        verify(minioStorageService, never()).removeObject(USER_FOLDER + "empty/");
+        assertThat(report.toMap()).containsEntry("markersRemoved", 1L);
+    }
+
+    @Test
+    void completesMoveWhoseCopyIsInPlace() {
+        staleMove("a.txt", "b.txt");
+        stored(USER_FOLDER + "a.txt", "\"etag-1\"");
+        stored(USER_FOLDER + "b.txt", "\"etag-1\"");
+
+        StorageGarbageCollector.Report report = collector.run();
+
+        verify(minioStorageService).removeObject(USER_FOLDER + "a.txt");
+        verify(minioStorageService, never()).removeObject(USER_FOLDER + "b.txt");
+        verify(eventPublisher).publishEvent(any(ResourceChangedEvent.class));
+        verify(moveJournal).complete(1L);
+        assertThat(report.toMap()).containsEntry("movesCompleted", 1L);
+    }
+
+    @Test
+    void rollbackRemovesOnlyCopiesTheMoveWrote() {
+        staleMove("src/", "dst/");
+        when(minioStorageService.listObjects(USER_FOLDER + "src/", true)).thenReturn(List.of(
+                object("src/a.txt", 10),
+                object("src/b.txt", 10),
+                object("src/c.txt", 10)));
+        stored(USER_FOLDER + "src/a.txt", "\"etag-a\"");
+        stored(USER_FOLDER + "src/b.txt", "\"etag-b\"");
+        stored(USER_FOLDER + "src/c.txt", "\"etag-c\"");
+        stored(USER_FOLDER + "dst/a.txt", "\"etag-a\"");
+        // Uploaded to the target after the move died, it is not the move's copy.
+        stored(USER_FOLDER + "dst/b.txt", "\"etag-other\"");
+
+        StorageGarbageCollector.Report report = collector.run();
+
+        verify(minioStorageService).removeObject(USER_FOLDER + "dst/a.txt");
+        verify(minioStorageService, never()).removeObject(USER_FOLDER + "dst/b.txt");
+        verify(minioStorageService, never()).removeObject(USER_FOLDER + "src/a.txt");
+        verify(eventPublisher, never()).publishEvent(any());
+        assertThat(report.toMap()).containsEntry("movesRolledBack", 1L).containsEntry("partialCopiesRemoved", 1L);
+    }
+
+    private void staleMove(String from, String to) {
+        when(moveJournal.staleBefore(any(Instant.class))).thenReturn(List.of(
+                new PendingMove(1L, 7L, from, to, Instant.now().minusSeconds(3600), Instant.now().minusSeconds(3600))));
+        when(minioStorageService.objectExists(anyString())).thenReturn(false);
+    }
+
+    private void stored(String key, String etag) {
+        StatObjectResponse stat = stat(etag, 10);
+        when(minioStorageService.objectExists(key)).thenReturn(true);
+        when(minioStorageService.statObject(key)).thenReturn(stat);
+    }
+}
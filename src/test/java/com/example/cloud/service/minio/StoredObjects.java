@@ -0,0 +1,35 @@
+package com.example.cloud.service.minio;
+
+import io.minio.StatObjectResponse;
+
+import java.time.ZonedDateTime;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Storage fixtures shared by the service tests, all in the folder of user 7.
+ */
+final class StoredObjects {
+
+    static final String USER_FOLDER = "user-7-files/";
+    static final ZonedDateTime MODIFIED = ZonedDateTime.now().minusDays(1);
+
+    private StoredObjects() {
+    }
+
+    /**
+     * A recursive listing entry for the path relative to the user folder. As in real recursive listings, directory
+     * markers are plain objects whose names end with a slash.
+     */
+    static StoredObject object(String path, long size) {
+        return new StoredObject(USER_FOLDER + path, size, false, MODIFIED, "\"etag\"", null);
+    }
+
+    static StatObjectResponse stat(String etag, long size) {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.etag()).thenReturn(etag);
+        when(stat.size()).thenReturn(size);
+        return stat;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.TrashConflictException;
+import com.example.cloud.model.entity.TrashEntry;
+import com.example.cloud.model.event.ResourceChangedEvent;
+import com.example.cloud.model.properties.TrashProperties;
+import com.example.cloud.repository.TrashEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.cloud.service.minio.StoredObjects.USER_FOLDER;
+import static com.example.cloud.service.minio.StoredObjects.object;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TrashServiceTest {
+
+
+    private TrashEntryRepository repository;
+    private TrashIndex trashIndex;
+    private MinioStorageService minioStorageService;
+    private ApplicationEventPublisher eventPublisher;
+    private TrashService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TrashEntryRepository.class);
+        when(repository.save(any(TrashEntry.class))).thenAnswer(invocation -> {
+            TrashEntry entry = invocation.getArgument(0);
+            entry.setId(1L);
+            return entry;
+        });
+        trashIndex = mock(TrashIndex.class);
+        minioStorageService = mock(MinioStorageService.class);
+        when(minioStorageService.logicalSize(any(StoredObject.class)))
+                .thenAnswer(invocation -> invocation.<StoredObject>getArgument(0).size());
+        eventPublisher = mock(ApplicationEventPublisher.class);
+
+        TrashProperties properties = new TrashProperties();
+        properties.setEnabled(true);
+        service = new TrashService(repository, trashIndex, minioStorageService, mock(DirectoryStatsService.class),
+                properties, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(StringRedisTemplate.class), eventPublisher);
+    }
+
+    @Test
+    void trashingRecordsTombstoneWithoutTouchingObjects() {
+        when(minioStorageService.listObjects(USER_FOLDER + "docs/", false)).thenReturn(List.of(object("docs/a.txt", 3)));
+
+        service.trash(7L, "docs/");
+
+        ArgumentCaptor<TrashEntry> saved = ArgumentCaptor.forClass(TrashEntry.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue().getState()).isEqualTo(TrashEntry.State.PENDING);
+        verify(trashIndex).evict(7L);
+        verify(minioStorageService, never()).removeObject(anyString());
+        verify(minioStorageService, never()).copyObject(anyString(), anyString());
+        verify(eventPublisher).publishEvent(ResourceChangedEvent.deleted(7L, "docs/", 0));
+    }
+
+    @Test
+    void restoringPendingDirectoryAnnouncesEveryFile() {
+        entry(TrashEntry.State.PENDING, "docs/");
+        when(repository.deleteByIdAndState(1L, TrashEntry.State.PENDING)).thenReturn(1);
+        when(minioStorageService.listObjects(USER_FOLDER + "docs/", true)).thenReturn(List.of(
+                object("docs/", 0), object("docs/a.txt", 3), object("docs/sub/", 0), object("docs/sub/b.txt", 4)));
+
+        service.restore(7L, 1L);
+
+        verify(trashIndex).evict(7L);
+        ArgumentCaptor<ResourceChangedEvent> events = ArgumentCaptor.forClass(ResourceChangedEvent.class);
+        verify(eventPublisher, times(4)).publishEvent(events.capture());
+        assertThat(events.getAllValues())
+                .extracting(ResourceChangedEvent::type, ResourceChangedEvent::path, ResourceChangedEvent::size)
+                .containsExactly(
+                        tuple(ResourceChangedEvent.Type.CREATED, "docs/", 7L),
+                        tuple(ResourceChangedEvent.Type.CREATED, "docs/a.txt", 3L),
+                        tuple(ResourceChangedEvent.Type.CREATED, "docs/sub/", 0L),
+                        tuple(ResourceChangedEvent.Type.CREATED, "docs/sub/b.txt", 4L));
+    }
+
+    @Test
+    void restoringEntryClaimedByRelocatorConflicts() {
+        entry(TrashEntry.State.PENDING, "a.txt");
+        when(repository.deleteByIdAndState(1L, TrashEntry.State.PENDING)).thenReturn(0);
+
+        assertThatThrownBy(() -> service.restore(7L, 1L)).isInstanceOf(TrashConflictException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void restoringRelocatedFileCopiesItBack() {
+        entry(TrashEntry.State.TRASHED, "a.txt");
+        when(minioStorageService.listAllObjects("user-7-trash/1/", true))
+                .thenReturn(List.of(new StoredObject("user-7-trash/1/a.txt", 3, false, null, null, null)));
+        when(minioStorageService.removeObjects(any(), anyInt())).thenReturn(Map.of());
+
+        service.restore(7L, 1L);
+
+        verify(minioStorageService).copyObject("user-7-trash/1/a.txt", USER_FOLDER + "a.txt");
+        verify(repository).deleteById(1L);
+        verify(eventPublisher).publishEvent(ResourceChangedEvent.created(7L, "a.txt", 7));
+    }
+
+    @Test
+    void restoringRelocatedFileOverReusedPathFails() {
+        entry(TrashEntry.State.TRASHED, "a.txt");
+        when(minioStorageService.objectExists(USER_FOLDER + "a.txt")).thenReturn(true);
+
+        assertThatThrownBy(() -> service.restore(7L, 1L)).isInstanceOf(FileAlreadyExistsException.class);
+        verify(minioStorageService, never()).copyObject(anyString(), anyString());
+        verify(repository, never()).deleteById(any());
+    }
+
+    private void entry(TrashEntry.State state, String path) {
+        Instant now = Instant.now();
+        when(repository.findByIdAndUserId(1L, 7L))
+                .thenReturn(Optional.of(new TrashEntry(1L, 7L, path, 7, state, now, now.plusSeconds(60), now)));
+    }
+
+}
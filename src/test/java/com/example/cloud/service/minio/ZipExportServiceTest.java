@@ -0,0 +1,208 @@
+package com.example.cloud.service.minio;
+
+import com.example.cloud.exception.ExportNotReadyException;
+import com.example.cloud.model.dto.response.ZipExportDto;
+import com.example.cloud.model.entity.ZipExport;
+import com.example.cloud.model.entity.ZipExportEntry;
+import com.example.cloud.model.properties.ExportProperties;
+import com.example.cloud.repository.ZipExportEntryRepository;
+import com.example.cloud.repository.ZipExportRepository;
+import com.example.cloud.util.StreamTransfer;
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static com.example.cloud.service.minio.StoredObjects.USER_FOLDER;
+import static com.example.cloud.service.minio.StoredObjects.object;
+import static com.example.cloud.service.minio.StoredObjects.stat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ZipExportServiceTest {
+
+    private static final String TOKEN = "q3Jx0b9yQ2a1X8gk4Zr7uA";
+
+    private final List<Runnable> queued = new ArrayList<>();
+    private ZipExportRepository exportRepository;
+    private ZipExportEntryRepository entryRepository;
+    private MinioStorageService minioStorageService;
+    private ZipExportService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        exportRepository = mock(ZipExportRepository.class);
+        entryRepository = mock(ZipExportEntryRepository.class);
+        minioStorageService = mock(MinioStorageService.class);
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        service = new ZipExportService(exportRepository, entryRepository, minioStorageService,
+                new StreamTransfer(8192, 2), new ExportProperties(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), redisTemplate, new QueueingExecutor());
+    }
+
+    @Test
+    void createInsertsEntriesInOneBatchAndQueuesTheCrcJob() {
+        when(minioStorageService.listObjects(USER_FOLDER + "docs/", true)).thenReturn(List.of(
+                object("docs/", 0), object("docs/b.txt", 5), object("docs/a.txt", 0)));
+        when(minioStorageService.logicalSize(any(StoredObject.class)))
+                .thenAnswer(invocation -> invocation.<StoredObject>getArgument(0).size());
+        when(exportRepository.save(any(ZipExport.class))).thenAnswer(invocation -> {
+            ZipExport export = invocation.getArgument(0);
+            export.setId(1L);
+            return export;
+        });
+
+        ZipExportDto dto = service.create(7L, "docs/");
+
+        ArgumentCaptor<List<ZipExportEntry>> inserted = ArgumentCaptor.captor();
+        verify(entryRepository).insertAll(inserted.capture());
+        assertThat(inserted.getValue()).extracting(ZipExportEntry::getName).containsExactly("a.txt", "b.txt");
+        assertThat(inserted.getValue()).extracting(ZipExportEntry::getExportId).containsOnly(1L);
+        verify(entryRepository, never()).saveAll(any());
+        assertThat(dto.ready()).isFalse();
+        assertThat(queued).hasSize(1);
+    }
+
+    @Test
+    void pendingExportAnswersNotReady() {
+        export(ZipExport.State.PENDING);
+
+        assertThatThrownBy(this::download)
+                .isInstanceOf(ExportNotReadyException.class)
+                .extracting("retryAfter").isEqualTo(Duration.ofSeconds(10));
+        verify(entryRepository, never()).findByExportIdOrderByEntryIndex(any());
+    }
+
+    @Test
+    void crcJobRecordsCrcsAndMarksExportReady() {
+        ZipExport export = export(ZipExport.State.PENDING);
+        when(exportRepository.findById(1L)).thenReturn(Optional.of(export));
+        when(entryRepository.findByExportIdOrderByEntryIndex(1L)).thenReturn(List.of(entry("a.txt", "hello")));
+        stored("a.txt", "hello", "\"etag-1\"");
+
+        service.computeCrcs(1L);
+
+        CRC32 crc = new CRC32();
+        crc.update("hello".getBytes(StandardCharsets.UTF_8));
+        verify(entryRepository).updateCrc(1L, 0, crc.getValue());
+        verify(exportRepository).finish(1L, "READY");
+    }
+
+    @Test
+    void crcJobMarksExportOfChangedFileAsChanged() {
+        ZipExport export = export(ZipExport.State.PENDING);
+        when(exportRepository.findById(1L)).thenReturn(Optional.of(export));
+        when(entryRepository.findByExportIdOrderByEntryIndex(1L)).thenReturn(List.of(entry("a.txt", "hello")));
+        stored("a.txt", "howdy", "\"etag-2\"");
+
+        service.computeCrcs(1L);
+
+        verify(entryRepository, never()).updateCrc(anyLong(), anyInt(), anyLong());
+        verify(exportRepository).finish(1L, "CHANGED");
+    }
+
+    @Test
+    void readyExportLoadsItsEntriesOnce() {
+        export(ZipExport.State.READY);
+        ZipExportEntry entry = entry("a.txt", "hello");
+        entry.setCrc(907060870L);
+        when(entryRepository.findByExportIdOrderByEntryIndex(1L)).thenReturn(List.of(entry));
+        StatObjectResponse stat = stat("\"etag-1\"", 5);
+        when(minioStorageService.statObject(USER_FOLDER + "docs/a.txt")).thenReturn(stat);
+
+        download();
+        download();
+
+        verify(entryRepository, times(1)).findByExportIdOrderByEntryIndex(eq(1L));
+    }
+
+    private ZipExport export(ZipExport.State state) {
+        Instant now = Instant.now();
+        ZipExport export = new ZipExport(1L, TOKEN, 7L, "docs/", 100, 1, now, now.plusSeconds(60), state);
+        when(exportRepository.findByTokenAndUserId(TOKEN, 7L)).thenReturn(Optional.of(export));
+        return export;
+    }
+
+    private void download() {
+        service.download(7L, TOKEN, new MockHttpServletRequest(), new MockHttpServletResponse());
+    }
+
+    private void stored(String name, String content, String etag) {
+        when(minioStorageService.getRawObject(USER_FOLDER + "docs/" + name))
+                .thenAnswer(invocation -> new GetObjectResponse(Headers.of("ETag", etag), "bucket", null,
+                        invocation.getArgument(0), new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static ZipExportEntry entry(String name, String content) {
+        return new ZipExportEntry(null, 1L, 0, name, content.length(), "etag-1", false, Instant.now(), null);
+    }
+
+    /**
+     * Holds submitted tasks until the test runs them.
+     */
+    private final class QueueingExecutor extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.cloud.service.minio.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedKeyLayoutTest {
+
+    private final ShardedKeyLayout layout = new ShardedKeyLayout(List.of("files-0", "files-1", "files-2"));
+
+    @Test
+    void physicalKeyParsesBackToUserAndRelativeKey() {
+        ObjectLocation location = layout.locate(42L, "docs/report.pdf");
+
+        assertThat(location.key()).matches("[0-9a-f]{2}/user-42-files/docs/report.pdf");
+        assertThat(layout.parse(location.bucket(), location.key()))
+                .contains(new KeyLayout.RelativeKey(42L, "docs/report.pdf"));
+    }
+
+    @Test
+    void keysFromOtherShardsOrBucketsAreRejected() {
+        ObjectLocation location = layout.locate(42L, "a.txt");
+        String otherBucket = layout.buckets().stream().filter(b -> !b.equals(location.bucket())).findFirst().orElseThrow();
+
+        assertThat(layout.parse(otherBucket, location.key())).isEmpty();
+        assertThat(layout.parse(location.bucket(), "zz/user-42-files/a.txt")).isEmpty();
+        assertThat(new LegacyKeyLayout("files-0").parse("files-0", location.key())).isEmpty();
+    }
+
+    @Test
+    void consecutiveUsersSpreadOverBucketsAndShards() {
+        Set<String> buckets = new HashSet<>();
+        Set<String> shards = new HashSet<>();
+        for (long userId = 1; userId <= 300; userId++) {
+            buckets.add(layout.bucket(userId));
+            shards.add(ShardedKeyLayout.shard(userId));
+        }
+
+        assertThat(buckets).hasSize(3);
+        assertThat(shards.size()).isGreaterThan(150);
+    }
+}
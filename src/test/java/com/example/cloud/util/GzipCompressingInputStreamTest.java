@@ -0,0 +1,41 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GzipCompressingInputStreamTest {
+
+    @Test
+    void compressedStreamRoundTrips() throws IOException {
+        byte[] source = "id,name,size\n1,report.csv,1024\n".repeat(20_000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed;
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(source))) {
+            compressed = in.readAllBytes();
+        }
+
+        assertThat(compressed.length).isLessThan(source.length / 10);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEqualTo(source);
+        }
+    }
+
+    @Test
+    void emptySourceProducesValidGzip() throws IOException {
+        byte[] compressed;
+        try (InputStream in = new GzipCompressingInputStream(new ByteArrayInputStream(new byte[0]))) {
+            compressed = in.readAllBytes();
+        }
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(in.readAllBytes()).isEmpty();
+        }
+    }
+}
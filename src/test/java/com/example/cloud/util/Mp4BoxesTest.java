@@ -0,0 +1,58 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Mp4BoxesTest {
+
+    @Test
+    void findsMoovAfterMediaData() throws IOException {
+        byte[] file = concat(box("ftyp", 24), box("mdat", 1000), box("moov", 300));
+        Mp4Boxes.Box moov = Mp4Boxes.find(reader(file), file.length, "moov", 64);
+        assertThat(moov).isEqualTo(new Mp4Boxes.Box("moov", 1024, 300));
+    }
+
+    @Test
+    void followsLargeSizeHeaders() throws IOException {
+        byte[] mdat = new byte[2000];
+        ByteBuffer.wrap(mdat).putInt(1).put("mdat".getBytes(StandardCharsets.ISO_8859_1)).putLong(2000);
+        byte[] file = concat(box("ftyp", 16), mdat, box("moov", 40));
+        assertThat(Mp4Boxes.find(reader(file), file.length, "moov", 64))
+                .isEqualTo(new Mp4Boxes.Box("moov", 2016, 40));
+    }
+
+    @Test
+    void givesUpOnMalformedOrUnboxedFiles() throws IOException {
+        byte[] text = "just some plain text, not a movie".getBytes(StandardCharsets.UTF_8);
+        assertThat(Mp4Boxes.find(reader(text), text.length, "moov", 64)).isNull();
+
+        byte[] file = concat(box("ftyp", 24), box("mdat", 1000));
+        assertThat(Mp4Boxes.find(reader(file), file.length, "moov", 64)).isNull();
+        assertThat(Mp4Boxes.find(reader(file), file.length, "mdat", 1)).isNull();
+    }
+
+    private static byte[] box(String type, int size) {
+        byte[] box = new byte[size];
+        ByteBuffer.wrap(box).putInt(size).put(type.getBytes(StandardCharsets.ISO_8859_1));
+        return box;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static Mp4Boxes.HeaderReader reader(byte[] file) {
+        return (offset, length) -> Arrays.copyOfRange(file, (int) offset, (int) Math.min(file.length, offset + length));
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RollingChecksumTest {
+
+    @Test
+    void rolledChecksumMatchesRecomputed() {
+        byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        int window = 700;
+
+        int checksum = RollingChecksum.of(data, 0, window);
+        for (int offset = 1; offset + window <= data.length; offset++) {
+            checksum = RollingChecksum.roll(checksum, window, data[offset - 1], data[offset + window - 1]);
+            assertThat(checksum).isEqualTo(RollingChecksum.of(data, offset, window));
+        }
+    }
+
+    @Test
+    void differentBlocksUsuallyDiffer() {
+        byte[] data = "the quick brown fox jumps over the lazy dog".getBytes();
+
+        assertThat(RollingChecksum.of(data, 0, 9)).isNotEqualTo(RollingChecksum.of(data, 10, 9));
+    }
+}
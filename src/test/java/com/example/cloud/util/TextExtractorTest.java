@@ -0,0 +1,38 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TextExtractorTest {
+
+    @Test
+    void markdownKeepsLinkTextAndTargetWithoutSyntax() {
+        String text = TextExtractor.extract("notes.md", "# Title\n- see [the report](https://example.com/r)\n**bold**");
+        assertThat(text).contains("Title", "the report", "https://example.com/r", "bold")
+                .doesNotContain("#", "**", "[", "](");
+    }
+
+    @Test
+    void jsonYieldsFieldNamesAndValues() {
+        String text = TextExtractor.extract("data.json", "{\"name\":\"invoice\",\"total\":42,\"tags\":[\"paid\",null]}");
+        assertThat(text.lines()).containsExactly("name", "invoice", "total", "42", "tags", "paid");
+    }
+
+    @Test
+    void truncatedJsonKeepsWhatWasRead() {
+        assertThat(TextExtractor.extract("data.json", "{\"city\":\"Kazan\",\"stre").lines())
+                .containsExactly("city", "Kazan");
+    }
+
+    @Test
+    void csvSeparatorsBecomeSpaces() {
+        assertThat(TextExtractor.extract("t.csv", "\"a\",b;c\td")).isEqualTo(" a b c d");
+    }
+
+    @Test
+    void unsupportedFormatsAreSkipped() {
+        assertThat(TextExtractor.extract("photo.jpg", "whatever")).isNull();
+        assertThat(TextExtractor.extract("README", "whatever")).isNull();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThrottledOutputStreamTest {
+
+    @Test
+    void writesBeyondTheBudgetWaitForRefill() throws Exception {
+        TokenBucket budget = new TokenBucket(1000, Duration.ofMillis(200));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long started = System.nanoTime();
+        try (ThrottledOutputStream throttled = new ThrottledOutputStream(out, budget)) {
+            throttled.write(new byte[2000]);
+        }
+
+        assertThat(out.size()).isEqualTo(2000);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    }
+
+    @Test
+    void streamsSharingABudgetAreCappedTogether() throws Exception {
+        TokenBucket budget = new TokenBucket(1000, Duration.ofMillis(200));
+        ThrottledOutputStream first = new ThrottledOutputStream(new ByteArrayOutputStream(), budget);
+        ThrottledOutputStream second = new ThrottledOutputStream(new ByteArrayOutputStream(), budget);
+
+        long started = System.nanoTime();
+        first.write(new byte[1000]);
+        second.write(new byte[1000]);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    }
+}
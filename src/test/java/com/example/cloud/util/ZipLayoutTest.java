@@ -0,0 +1,153 @@
+package com.example.cloud.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ZipLayoutTest {
+
+    private static final Instant MODIFIED = Instant.parse("2024-05-06T07:08:10Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void archiveIsReadableAndMatchesLayout() throws IOException {
+        List<byte[]> contents = List.of(
+                "hello".getBytes(StandardCharsets.UTF_8),
+                new byte[0],
+                randomBytes(100_000),
+                "привет".getBytes(StandardCharsets.UTF_8));
+        List<ZipLayout.Entry> entries = List.of(
+                new ZipLayout.Entry("a.txt", contents.get(0).length, MODIFIED),
+                new ZipLayout.Entry("empty/", 0, MODIFIED),
+                new ZipLayout.Entry("empty/random.bin", contents.get(2).length, MODIFIED),
+                new ZipLayout.Entry("папка/файл.txt", contents.get(3).length, MODIFIED));
+        ZipLayout layout = new ZipLayout(entries);
+
+        byte[] archive = write(layout, contents);
+
+        assertThat(archive).hasSize((int) layout.size());
+        try (ZipFile zip = open(archive)) {
+            assertThat(zip.size()).isEqualTo(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                ZipEntry entry = zip.getEntry(entries.get(i).name());
+                assertThat(entry.getSize()).isEqualTo(contents.get(i).length);
+                assertThat(entry.getCrc()).isEqualTo(crc(contents.get(i)));
+                assertThat(entry.getLastModifiedTime().toInstant()).isEqualTo(MODIFIED);
+                assertThat(zip.getInputStream(entry).readAllBytes()).isEqualTo(contents.get(i));
+            }
+        }
+    }
+
+    @Test
+    void moreThan65535EntriesUseZip64End() throws IOException {
+        int count = 70_000;
+        List<ZipLayout.Entry> entries = new ArrayList<>(count);
+        List<byte[]> contents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new ZipLayout.Entry(String.format("f%06d", i), 1, MODIFIED));
+            contents.add(new byte[]{(byte) i});
+        }
+        ZipLayout layout = new ZipLayout(entries);
+
+        byte[] archive = write(layout, contents);
+
+        try (ZipFile zip = open(archive)) {
+            assertThat(zip.size()).isEqualTo(count);
+            assertThat(zip.getInputStream(zip.getEntry("f069999")).readAllBytes()).containsExactly((byte) 69_999);
+        }
+    }
+
+    @Test
+    void largeEntriesGetZip64Fields() {
+        long large = 5L * 1024 * 1024 * 1024;
+        ZipLayout layout = new ZipLayout(List.of(
+                new ZipLayout.Entry("big.bin", large, MODIFIED),
+                new ZipLayout.Entry("after.txt", 3, MODIFIED)));
+
+        // Local header carries a ZIP64 extra field, the descriptor 8-byte sizes.
+        assertThat(layout.localHeader(0)).hasSize(30 + 7 + 20);
+        assertThat(layout.dataDescriptor(0, 0)).hasSize(24);
+        assertThat(layout.localHeaderOffset(1)).isEqualTo(30 + 7 + 20 + large + 24);
+        // The second entry starts beyond 4GB, so its central record holds a ZIP64 offset.
+        assertThat(layout.centralRecord(1, 0)).hasSize(46 + 9 + 12);
+        assertThat(layout.end()).hasSize(56 + 20 + 22);
+        assertThat(layout.size()).isEqualTo(layout.endOffset() + 98);
+    }
+
+    @Test
+    void offsetsMapBackToRecords() {
+        ZipLayout layout = new ZipLayout(List.of(
+                new ZipLayout.Entry("a", 10, MODIFIED),
+                new ZipLayout.Entry("b", 20, MODIFIED)));
+
+        assertThat(layout.entryAt(0)).isZero();
+        assertThat(layout.entryAt(layout.dataDescriptorOffset(0))).isZero();
+        assertThat(layout.entryAt(layout.localHeaderOffset(1))).isEqualTo(1);
+        assertThat(layout.entryAt(layout.centralDirectoryOffset() - 1)).isEqualTo(1);
+        assertThat(layout.centralRecordAt(layout.centralRecordOffset(1) + 5)).isEqualTo(1);
+    }
+
+    @Test
+    void combinedCrcEqualsCrcOfConcatenation() {
+        byte[] data = randomBytes(10_000);
+        for (int split : new int[]{0, 1, 4096, 9_999, 10_000}) {
+            long first = crc(Arrays.copyOfRange(data, 0, split));
+            long second = crc(Arrays.copyOfRange(data, split, data.length));
+
+            assertThat(ZipLayout.combineCrc(first, second, data.length - split)).isEqualTo(crc(data));
+        }
+    }
+
+    private ZipFile open(byte[] archive) throws IOException {
+        Path file = directory.resolve("archive.zip");
+        Files.write(file, archive);
+        return new ZipFile(file.toFile());
+    }
+
+    private static byte[] write(ZipLayout layout, List<byte[]> contents) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (int i = 0; i < layout.entryCount(); i++) {
+            assertThat((long) output.size()).isEqualTo(layout.localHeaderOffset(i));
+            output.write(layout.localHeader(i));
+            assertThat((long) output.size()).isEqualTo(layout.dataOffset(i));
+            output.write(contents.get(i));
+            output.write(layout.dataDescriptor(i, crc(contents.get(i))));
+        }
+        assertThat((long) output.size()).isEqualTo(layout.centralDirectoryOffset());
+        for (int i = 0; i < layout.entryCount(); i++) {
+            output.write(layout.centralRecord(i, crc(contents.get(i))));
+        }
+        assertThat((long) output.size()).isEqualTo(layout.endOffset());
+        output.write(layout.end());
+        return output.toByteArray();
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}